@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -53,6 +54,11 @@ public class Buffer implements Comparable<Buffer>,
                                WritableByteChannel {
 
 	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final byte[]   LONG_MIN_VALUE_ASCII = Long.toString(Long.MIN_VALUE).getBytes(UTF8);
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
 	private final boolean        dynamic;
 	private       CharsetDecoder decoder;
 	private       CharBuffer     chars;
@@ -294,6 +300,341 @@ public class Buffer implements Comparable<Buffer>,
 		return num;
 	}
 
+	/**
+	 * Parse a signed decimal {@code int} from the given absolute range without allocating and without moving the
+	 * position of this {@literal Buffer}.
+	 *
+	 * @param offset the absolute index of the first character
+	 * @param len    the number of characters to read
+	 * @return the parsed value
+	 * @throws NumberFormatException if the range is not a valid {@code int}
+	 */
+	public int parseInt(int offset, int len) {
+		long l = parseLong(offset, len);
+		if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+			throw numberFormat(offset, len);
+		}
+		return (int) l;
+	}
+
+	/**
+	 * Parse a signed decimal {@code long} from the given absolute range without allocating and without moving the
+	 * position of this {@literal Buffer}.
+	 *
+	 * @param offset the absolute index of the first character
+	 * @param len    the number of characters to read
+	 * @return the parsed value
+	 * @throws NumberFormatException if the range is not a valid {@code long}
+	 */
+	public long parseLong(int offset, int len) {
+		checkRange(offset, len);
+		int i = offset;
+		int end = offset + len;
+
+		boolean negative = false;
+		byte first = buffer.get(i);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			if (++i == end) {
+				throw numberFormat(offset, len);
+			}
+		}
+
+		// accumulate negatively to cover Long.MIN_VALUE
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multmin = limit / 10;
+		long result = 0;
+		int digit;
+		for (; i < end; i++) {
+			digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9 || result < multmin) {
+				throw numberFormat(offset, len);
+			}
+			result *= 10;
+			if (result < limit + digit) {
+				throw numberFormat(offset, len);
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	/**
+	 * Parse a decimal {@code double} such as {@code -12.5} or {@code 1.5e3} from the given absolute range without
+	 * moving the position of this {@literal Buffer}. Common values are parsed without allocating; other values
+	 * (more than 15 significant digits, large exponents, {@code NaN}...) fall back to {@link Double#parseDouble}.
+	 *
+	 * @param offset the absolute index of the first character
+	 * @param len    the number of characters to read
+	 * @return the parsed value
+	 * @throws NumberFormatException if the range is not a valid {@code double}
+	 */
+	public double parseDouble(int offset, int len) {
+		checkRange(offset, len);
+		int i = offset;
+		int end = offset + len;
+
+		boolean negative = false;
+		byte c = buffer.get(i);
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int significant = 0;
+		int exp10 = 0;
+		boolean digits = false;
+		boolean exact = true;
+
+		for (; i < end && (c = buffer.get(i)) >= '0' && c <= '9'; i++) {
+			digits = true;
+			if (significant < 18) {
+				mantissa = mantissa * 10 + (c - '0');
+				if (mantissa != 0) {
+					significant++;
+				}
+			}
+			else {
+				exact &= c == '0';
+				exp10++;
+			}
+		}
+		if (i < end && buffer.get(i) == '.') {
+			for (i++; i < end && (c = buffer.get(i)) >= '0' && c <= '9'; i++) {
+				digits = true;
+				if (significant < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa != 0) {
+						significant++;
+					}
+					exp10--;
+				}
+				else {
+					exact &= c == '0';
+				}
+			}
+		}
+		if (digits && i < end && ((c = buffer.get(i)) == 'e' || c == 'E')) {
+			int expStart = ++i;
+			boolean negativeExp = false;
+			if (i < end && ((c = buffer.get(i)) == '-' || c == '+')) {
+				negativeExp = c == '-';
+				expStart = ++i;
+			}
+			int exp = 0;
+			for (; i < end && (c = buffer.get(i)) >= '0' && c <= '9'; i++) {
+				if (exp < 10000) {
+					exp = exp * 10 + (c - '0');
+				}
+			}
+			if (i == expStart) {
+				throw numberFormat(offset, len);
+			}
+			exp10 += negativeExp ? -exp : exp;
+		}
+
+		if (!digits || i != end || !exact || mantissa >= (1L << 53) || exp10 < -22 || exp10 > 22) {
+			return Double.parseDouble(asciiString(offset, len));
+		}
+
+		// both operands are exactly representable so a single operation is correctly rounded
+		double value = exp10 < 0 ? mantissa / POWERS_OF_TEN[-exp10] : mantissa * POWERS_OF_TEN[exp10];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Append the decimal ASCII representation of the given {@code int} without going through a {@link String}.
+	 *
+	 * @param i The {@code int} to append.
+	 * @return {@literal this}
+	 */
+	public Buffer appendAscii(int i) {
+		return appendAscii((long) i);
+	}
+
+	/**
+	 * Append the decimal ASCII representation of the given {@code long} without going through a {@link String}.
+	 *
+	 * @param l The {@code long} to append.
+	 * @return {@literal this}
+	 */
+	public Buffer appendAscii(long l) {
+		if (l == Long.MIN_VALUE) {
+			return append(LONG_MIN_VALUE_ASCII);
+		}
+		long v = l < 0 ? -l : l;
+		int size = asciiSize(v) + (l < 0 ? 1 : 0);
+		ensureCapacity(size);
+
+		int pos = buffer.position();
+		int i = pos + size;
+		do {
+			buffer.put(--i, (byte) ('0' + (v % 10)));
+			v /= 10;
+		}
+		while (v != 0);
+		if (l < 0) {
+			buffer.put(--i, (byte) '-');
+		}
+		buffer.position(pos + size);
+		return this;
+	}
+
+	/**
+	 * Append the given {@code int} as an unsigned LEB128 variable-length integer (1 to 5 bytes).
+	 *
+	 * @param i The {@code int} to append, read as unsigned.
+	 * @return {@literal this}
+	 */
+	public Buffer appendVarInt(int i) {
+		return appendVarLong(i & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Append the given {@code long} as an unsigned LEB128 variable-length integer (1 to 10 bytes).
+	 *
+	 * @param l The {@code long} to append, read as unsigned.
+	 * @return {@literal this}
+	 */
+	public Buffer appendVarLong(long l) {
+		ensureCapacity(varLongSize(l));
+		while ((l & ~0x7FL) != 0) {
+			buffer.put((byte) ((l & 0x7F) | 0x80));
+			l >>>= 7;
+		}
+		buffer.put((byte) l);
+		return this;
+	}
+
+	/**
+	 * Append the given signed {@code int} zigzag encoded so that small negative values stay short.
+	 *
+	 * @param i The {@code int} to append.
+	 * @return {@literal this}
+	 */
+	public Buffer appendZigZagInt(int i) {
+		return appendVarInt((i << 1) ^ (i >> 31));
+	}
+
+	/**
+	 * Append the given signed {@code long} zigzag encoded so that small negative values stay short.
+	 *
+	 * @param l The {@code long} to append.
+	 * @return {@literal this}
+	 */
+	public Buffer appendZigZagLong(long l) {
+		return appendVarLong((l << 1) ^ (l >> 63));
+	}
+
+	/**
+	 * Read an unsigned LEB128 variable-length {@code int}.
+	 *
+	 * @return The next {@code int}.
+	 * @throws BufferUnderflowException if the value is incomplete, in which case the position is left untouched
+	 */
+	public int readVarInt() {
+		long l = readVarLong(5);
+		return (int) l;
+	}
+
+	/**
+	 * Read an unsigned LEB128 variable-length {@code long}.
+	 *
+	 * @return The next {@code long}.
+	 * @throws BufferUnderflowException if the value is incomplete, in which case the position is left untouched
+	 */
+	public long readVarLong() {
+		return readVarLong(10);
+	}
+
+	/**
+	 * Read a zigzag encoded signed {@code int}.
+	 *
+	 * @return The next {@code int}.
+	 */
+	public int readZigZagInt() {
+		int n = readVarInt();
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	/**
+	 * Read a zigzag encoded signed {@code long}.
+	 *
+	 * @return The next {@code long}.
+	 */
+	public long readZigZagLong() {
+		long n = readVarLong();
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	/**
+	 * Return the number of bytes {@link #appendVarLong(long)} writes for the given value.
+	 *
+	 * @param l the value to encode
+	 * @return the encoded size in bytes
+	 */
+	public static int varLongSize(long l) {
+		int size = 1;
+		while ((l & ~0x7FL) != 0) {
+			l >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private long readVarLong(int maxBytes) {
+		if (null == buffer) {
+			throw new BufferUnderflowException();
+		}
+		int pos = buffer.position();
+		int limit = buffer.limit();
+		long result = 0;
+		int shift = 0;
+		for (int i = pos; i < pos + maxBytes; i++) {
+			if (i >= limit) {
+				throw new BufferUnderflowException();
+			}
+			byte b = buffer.get(i);
+			result |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				buffer.position(i + 1);
+				return result;
+			}
+			shift += 7;
+		}
+		throw new IllegalStateException("Malformed variable-length integer at " + pos);
+	}
+
+	private void checkRange(int offset, int len) {
+		if (null == buffer || len <= 0 || offset < 0 || offset + len > buffer.limit()) {
+			throw new NumberFormatException("Cannot parse " + len + " bytes at " + offset + " in " + this);
+		}
+	}
+
+	private NumberFormatException numberFormat(int offset, int len) {
+		return new NumberFormatException("For input string: \"" + asciiString(offset, len) + "\"");
+	}
+
+	private String asciiString(int offset, int len) {
+		char[] chars = new char[len];
+		for (int i = 0; i < len; i++) {
+			chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	private static int asciiSize(long positive) {
+		long p = 10;
+		for (int i = 1; i < 19; i++) {
+			if (positive < p) {
+				return i;
+			}
+			p *= 10;
+		}
+		return 19;
+	}
+
 	/**
 	 * Reset this {@link Buffer} for reuse
 	 */
@@ -1224,6 +1565,79 @@ public class Buffer implements Comparable<Buffer>,
 		return new View(start, end);
 	}
 
+	/**
+	 * Create an immutable {@link Slice} of the current range of this {@literal Buffer}. The position and limit of
+	 * this {@literal Buffer} are left untouched and the returned {@link Slice} is safe to share across threads.
+	 *
+	 * @return A new {@link Slice} sharing the content of this {@literal Buffer}.
+	 */
+	public Slice asSlice() {
+		if (null == buffer) {
+			return Slice.EMPTY;
+		}
+		return Slice.of(buffer, buffer.position(), buffer.limit());
+	}
+
+	/**
+	 * Create an immutable {@link Slice} of the given absolute range of this {@literal Buffer}. The position and limit
+	 * of this {@literal Buffer} are left untouched and the returned {@link Slice} is safe to share across threads.
+	 *
+	 * @param start start of the range.
+	 * @param end   end of the range, exclusive.
+	 * @return A new {@link Slice} sharing the content of the given range.
+	 */
+	public Slice asSlice(int start, int end) {
+		return Slice.of(buffer, start, end);
+	}
+
+	/**
+	 * Lazily split the current range of this {@literal Buffer} on the given delimiter into immutable {@link Slice
+	 * Slices}. No intermediate {@link List} is built and the position of this {@literal Buffer} is left untouched;
+	 * trailing bytes without a delimiter are not part of the sequence.
+	 *
+	 * @param delimiter      The delimiter on which to split this buffer.
+	 * @param stripDelimiter {@literal true} to ignore the delimiter, {@literal false} to leave it in the returned
+	 *                       data.
+	 * @return An {@link Iterable} of {@link Slice Slices}.
+	 */
+	public Iterable<Slice> splitSlices(int delimiter, boolean stripDelimiter) {
+		if (null == buffer) {
+			return Collections.emptyList();
+		}
+		return new Slice.DelimitedSlices(buffer, buffer.position(), buffer.limit(), (byte) delimiter,
+				stripDelimiter);
+	}
+
+	/**
+	 * Lazily slice this buffer at the given positions into immutable {@link Slice Slices}, without building an
+	 * intermediate {@link List}.
+	 *
+	 * @param positions The start and end positions of the slices, the last end defaults to the current limit.
+	 * @return An {@link Iterable} of {@link Slice Slices}.
+	 */
+	public Iterable<Slice> slices(final int... positions) {
+		Objects.requireNonNull(positions, "Positions cannot be null.");
+		final int limit = null == buffer ? 0 : buffer.limit();
+		return () -> new Iterator<Slice>() {
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < positions.length;
+			}
+
+			@Override
+			public Slice next() {
+				if (i >= positions.length) {
+					throw new NoSuchElementException();
+				}
+				int start = positions[i++];
+				int end = i < positions.length ? positions[i++] : limit;
+				return asSlice(start, end);
+			}
+		};
+	}
+
 	/**
 	 * Slice this buffer at the given positions. Useful for extracting multiple segments of data from a buffer when the
 	 * exact indices of that data is already known.
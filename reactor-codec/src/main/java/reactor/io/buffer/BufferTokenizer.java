@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A reusable cursor stepping through the delimited tokens of a {@link Buffer} in place.
+ * The current token is exposed as an absolute offset and a length into the source and
+ * can be compared, searched and parsed without allocating. The source position and limit
+ * are never modified; {@link #consumed()} tells how far the cursor got so that a caller
+ * can {@link Buffer#position(int) advance} the source itself.
+ * <pre>
+ * {@code
+ * BufferTokenizer lines = new BufferTokenizer();
+ * BufferTokenizer fields = new BufferTokenizer();
+ * lines.reset(buffer);
+ * while (lines.next((byte) '\n')) {
+ *     fields.reset(buffer, lines.offset(), lines.offset() + lines.length());
+ *     while (fields.next((byte) ',') || fields.last()) {
+ *         if (fields.contentEquals(SYMBOL)) { ... }
+ *     }
+ * }
+ * buffer.position(lines.consumed());
+ * }
+ * </pre>
+ * A tokenizer is not thread-safe, use one instance per thread or per decoder.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class BufferTokenizer {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private Buffer     source;
+	private ByteBuffer bytes;
+	private int        cursor;
+	private int        end;
+	private int        offset;
+	private int        length;
+
+	/**
+	 * Search the given absolute range of a {@link Buffer} for a {@code byte} without
+	 * moving its position.
+	 *
+	 * @param buffer the buffer to search
+	 * @param b the {@code byte} to search for
+	 * @param from the absolute index to start from
+	 * @param to the absolute index to stop at, exclusive
+	 * @return the absolute index of the {@code byte} or {@code -1} if not found
+	 */
+	public static int indexOf(Buffer buffer, byte b, int from, int to) {
+		ByteBuffer bytes = buffer.byteBuffer();
+		if (bytes == null) {
+			return -1;
+		}
+		for (int i = from; i < to; i++) {
+			if (bytes.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Start tokenizing the remaining bytes of the given {@link Buffer}.
+	 *
+	 * @param buffer the source
+	 * @return this tokenizer
+	 */
+	public BufferTokenizer reset(Buffer buffer) {
+		return reset(buffer, buffer.position(), buffer.limit());
+	}
+
+	/**
+	 * Start tokenizing the given absolute range of a {@link Buffer}.
+	 *
+	 * @param buffer the source
+	 * @param start the absolute start index
+	 * @param end the absolute end index, exclusive
+	 * @return this tokenizer
+	 */
+	public BufferTokenizer reset(Buffer buffer, int start, int end) {
+		this.source = buffer;
+		this.bytes = buffer.byteBuffer();
+		if (bytes == null) {
+			start = end = 0;
+		}
+		this.cursor = start;
+		this.end = end;
+		this.offset = start;
+		this.length = 0;
+		return this;
+	}
+
+	/**
+	 * Move to the next token terminated by the given delimiter. The delimiter is not
+	 * part of the token.
+	 *
+	 * @param delimiter the delimiter
+	 * @return {@literal true} if a delimited token was found, {@literal false} if only
+	 * undelimited bytes remain, in which case the cursor does not move
+	 */
+	public boolean next(byte delimiter) {
+		for (int i = cursor; i < end; i++) {
+			if (bytes.get(i) == delimiter) {
+				offset = cursor;
+				length = i - cursor;
+				cursor = i + 1;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Consume the remaining undelimited bytes as the last token, e.g. the last field of
+	 * a record.
+	 *
+	 * @return {@literal true} if there were bytes remaining
+	 */
+	public boolean last() {
+		if (cursor >= end) {
+			return false;
+		}
+		offset = cursor;
+		length = end - cursor;
+		cursor = end;
+		return true;
+	}
+
+	/**
+	 * Skip a number of bytes from the cursor, e.g. a fixed-width header.
+	 *
+	 * @param n the number of bytes to skip
+	 * @return this tokenizer
+	 */
+	public BufferTokenizer skip(int n) {
+		cursor = Math.min(end, cursor + n);
+		return this;
+	}
+
+	/**
+	 * @return the absolute offset of the current token
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	/**
+	 * @return the length of the current token, excluding its delimiter
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the absolute index following the last consumed delimiter
+	 */
+	public int consumed() {
+		return cursor;
+	}
+
+	/**
+	 * @return the number of bytes not consumed yet
+	 */
+	public int remaining() {
+		return end - cursor;
+	}
+
+	/**
+	 * @return the current source
+	 */
+	public Buffer source() {
+		return source;
+	}
+
+	/**
+	 * Return the {@code byte} at the given index of the current token.
+	 *
+	 * @param index the index relative to the token offset
+	 * @return the {@code byte} at the given index
+	 */
+	public byte byteAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + " out of token length " + length);
+		}
+		return bytes.get(offset + index);
+	}
+
+	/**
+	 * Find a {@code byte} in the current token.
+	 *
+	 * @param b the {@code byte} to search for
+	 * @return the index relative to the token offset or {@code -1} if not found
+	 */
+	public int indexOf(byte b) {
+		int found = indexOf(source, b, offset, offset + length);
+		return found == -1 ? -1 : found - offset;
+	}
+
+	/**
+	 * Compare the current token with the given bytes in place.
+	 *
+	 * @param expected the expected content
+	 * @return {@literal true} if the token has exactly the given content
+	 */
+	public boolean contentEquals(byte[] expected) {
+		return expected.length == length && regionMatches(0, expected);
+	}
+
+	/**
+	 * Check whether the current token starts with the given bytes.
+	 *
+	 * @param prefix the expected prefix
+	 * @return {@literal true} if the token starts with the given bytes
+	 */
+	public boolean startsWith(byte[] prefix) {
+		return prefix.length <= length && regionMatches(0, prefix);
+	}
+
+	/**
+	 * Compare the current token with the given bytes in place, ignoring ASCII case.
+	 *
+	 * @param expected the expected ASCII content
+	 * @return {@literal true} if the token has the given content, ignoring ASCII case
+	 */
+	public boolean contentEqualsIgnoreCase(byte[] expected) {
+		if (expected.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			byte a = bytes.get(offset + i);
+			byte b = expected[i];
+			if (a != b && toLowerAscii(a) != toLowerAscii(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parse the current token as a decimal {@code int}.
+	 *
+	 * @return the parsed value
+	 * @throws NumberFormatException if the token is not a valid {@code int}
+	 */
+	public int parseInt() {
+		return source.parseInt(offset, length);
+	}
+
+	/**
+	 * Parse the current token as a decimal {@code long}.
+	 *
+	 * @return the parsed value
+	 * @throws NumberFormatException if the token is not a valid {@code long}
+	 */
+	public long parseLong() {
+		return source.parseLong(offset, length);
+	}
+
+	/**
+	 * Parse the current token as a decimal {@code double}.
+	 *
+	 * @return the parsed value
+	 * @throws NumberFormatException if the token is not a valid {@code double}
+	 */
+	public double parseDouble() {
+		return source.parseDouble(offset, length);
+	}
+
+	/**
+	 * Create an immutable {@link Slice} of the current token, e.g. to retain it.
+	 *
+	 * @return a new {@link Slice}
+	 */
+	public Slice slice() {
+		return source.asSlice(offset, offset + length);
+	}
+
+	/**
+	 * Decode the current token as a UTF-8 String.
+	 *
+	 * @return the decoded String
+	 */
+	public String asString() {
+		return asString(UTF8);
+	}
+
+	/**
+	 * Decode the current token using the given charset.
+	 *
+	 * @param charset the charset to decode with
+	 * @return the decoded String
+	 */
+	public String asString(Charset charset) {
+		if (length == 0) {
+			return "";
+		}
+		if (bytes.hasArray()) {
+			return new String(bytes.array(), bytes.arrayOffset() + offset, length, charset);
+		}
+		return slice().asString(charset);
+	}
+
+	@Override
+	public String toString() {
+		return "BufferTokenizer{offset=" + offset + ", length=" + length + ", cursor=" + cursor +
+				", end=" + end + '}';
+	}
+
+	private boolean regionMatches(int from, byte[] expected) {
+		for (int i = 0; i < expected.length; i++) {
+			if (bytes.get(offset + from + i) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte toLowerAscii(byte b) {
+		return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+	}
+}
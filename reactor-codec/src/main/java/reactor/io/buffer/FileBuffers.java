@@ -0,0 +1,476 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.flow.Producer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.state.Cancellable;
+import reactor.core.state.Requestable;
+import reactor.core.util.BackpressureUtils;
+import reactor.core.util.EmptySubscription;
+import reactor.core.util.Exceptions;
+
+/**
+ * Memory-mapped file sources and file sinks for {@link Buffer} pipelines.
+ * <p>
+ * {@link #read(Path, int)} emits one read-only {@link Buffer} per mapped window. Records
+ * spanning two windows are reassembled by the usual {@link reactor.io.codec.BufferCodec}
+ * aggregation, so the windows can be decoded directly:
+ * <pre>
+ * {@code
+ * StandardCodecs.LINE_FEED_CODEC.decode(FileBuffers.read(capture, 4 * 1024 * 1024))
+ * }
+ * </pre>
+ * {@link #write(Publisher, Path, long)} and {@link #writeMapped(Publisher, Path, int, long)}
+ * append every received {@link Buffer} to a file and only force it to the storage device
+ * once the given number of bytes has been written since the last force.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class FileBuffers {
+
+	/**
+	 * Default size of a mapped window
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * Default number of bytes written between two forces
+	 */
+	public static final long DEFAULT_FORCE_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * Memory-map the given file in {@link #DEFAULT_WINDOW_SIZE} windows.
+	 *
+	 * @param path the file to read
+	 * @return a {@link Flux} of read-only {@link Buffer} windows
+	 */
+	public static Flux<Buffer> read(Path path) {
+		return read(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Memory-map the given file in windows of the given size. Each window is mapped
+	 * when requested, the file channel is closed after the last window or on cancel.
+	 *
+	 * @param path the file to read
+	 * @param windowSize the maximum number of bytes per emitted {@link Buffer}
+	 * @return a {@link Flux} of read-only {@link Buffer} windows
+	 */
+	public static Flux<Buffer> read(Path path, int windowSize) {
+		if (path == null) {
+			throw new IllegalArgumentException("A path is required");
+		}
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize must be > 0");
+		}
+		return new MappedFileFlux(path, windowSize);
+	}
+
+	/**
+	 * Append every {@link Buffer} to the given file with {@link FileChannel#write(ByteBuffer)}
+	 * and force it every {@link #DEFAULT_FORCE_THRESHOLD} bytes.
+	 *
+	 * @param source the buffers to write
+	 * @param path the file to append to, created if missing
+	 * @return a {@link Mono} of the number of bytes written, subscribing to the source when subscribed
+	 */
+	public static Mono<Long> write(Publisher<? extends Buffer> source, Path path) {
+		return write(source, path, DEFAULT_FORCE_THRESHOLD);
+	}
+
+	/**
+	 * Append every {@link Buffer} to the given file with {@link FileChannel#write(ByteBuffer)}.
+	 *
+	 * @param source the buffers to write
+	 * @param path the file to append to, created if missing
+	 * @param forceThreshold the number of bytes written between two {@link FileChannel#force(boolean)}
+	 * @return a {@link Mono} of the number of bytes written, subscribing to the source when subscribed
+	 */
+	public static Mono<Long> write(Publisher<? extends Buffer> source, Path path, long forceThreshold) {
+		return sink(source, path, 0, forceThreshold);
+	}
+
+	/**
+	 * Append every {@link Buffer} to the given file through memory-mapped windows. The
+	 * file is truncated to the written length on completion, or on error including when
+	 * a failed write cancels the source.
+	 *
+	 * @param source the buffers to write
+	 * @param path the file to append to, created if missing
+	 * @param windowSize the size of each mapped window
+	 * @param forceThreshold the number of bytes written between two {@link MappedByteBuffer#force()}
+	 * @return a {@link Mono} of the number of bytes written, subscribing to the source when subscribed
+	 */
+	public static Mono<Long> writeMapped(Publisher<? extends Buffer> source,
+			Path path,
+			int windowSize,
+			long forceThreshold) {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize must be > 0");
+		}
+		return sink(source, path, windowSize, forceThreshold);
+	}
+
+	static Mono<Long> sink(Publisher<? extends Buffer> source,
+			Path path,
+			int windowSize,
+			long forceThreshold) {
+		if (source == null || path == null) {
+			throw new IllegalArgumentException("A source and a path are required");
+		}
+		if (forceThreshold <= 0) {
+			throw new IllegalArgumentException("forceThreshold must be > 0");
+		}
+		return Mono.defer(() -> {
+			FileSinkSubscriber sink = new FileSinkSubscriber(path, windowSize, forceThreshold);
+			source.subscribe(sink);
+			return sink.result;
+		});
+	}
+
+	FileBuffers() {
+	}
+
+	static final class MappedFileFlux extends Flux<Buffer> {
+
+		final Path path;
+		final int  windowSize;
+
+		MappedFileFlux(Path path, int windowSize) {
+			this.path = path;
+			this.windowSize = windowSize;
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super Buffer> s) {
+			FileChannel channel = null;
+			long size;
+			try {
+				channel = FileChannel.open(path, StandardOpenOption.READ);
+				size = channel.size();
+			}
+			catch (IOException e) {
+				if (channel != null) {
+					try {
+						channel.close();
+					}
+					catch (IOException ioe) {
+						Exceptions.onErrorDropped(ioe);
+					}
+				}
+				EmptySubscription.error(s, e);
+				return;
+			}
+			s.onSubscribe(new MappedFileSubscription(s, channel, size, windowSize));
+		}
+	}
+
+	static final class MappedFileSubscription
+			implements Subscription, Producer, Requestable, Cancellable {
+
+		final Subscriber<? super Buffer> actual;
+		final FileChannel                channel;
+		final long                       size;
+		final int                        windowSize;
+
+		long position;
+
+		private volatile long requested;
+		private static final AtomicLongFieldUpdater<MappedFileSubscription> REQUESTED =
+				AtomicLongFieldUpdater.newUpdater(MappedFileSubscription.class, "requested");
+
+		private volatile int cancelled;
+
+		MappedFileSubscription(Subscriber<? super Buffer> actual,
+				FileChannel channel,
+				long size,
+				int windowSize) {
+			this.actual = actual;
+			this.channel = channel;
+			this.size = size;
+			this.windowSize = windowSize;
+		}
+
+		@Override
+		public void request(long n) {
+			if (BackpressureUtils.checkRequest(n, actual)) {
+				if (BackpressureUtils.getAndAddCap(REQUESTED, this, n) == 0L) {
+					drain(n);
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			if (cancelled == 0) {
+				cancelled = 1;
+				// a running drain loop sees the extra demand, then the flag, and closes
+				if (REQUESTED.getAndIncrement(this) == 0L) {
+					close();
+				}
+			}
+		}
+
+		void drain(long r) {
+			long e = 0L;
+			for (; ; ) {
+				if (cancelled == 1) {
+					close();
+					return;
+				}
+				if (position >= size) {
+					close();
+					actual.onComplete();
+					return;
+				}
+				if (e == r) {
+					r = REQUESTED.addAndGet(this, -e);
+					if (r == 0L) {
+						return;
+					}
+					e = 0L;
+					continue;
+				}
+
+				int len = (int) Math.min(windowSize, size - position);
+				MappedByteBuffer window;
+				try {
+					window = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+				}
+				catch (Throwable t) {
+					Exceptions.throwIfFatal(t);
+					close();
+					actual.onError(t);
+					return;
+				}
+				position += len;
+				actual.onNext(new Buffer(window));
+				e++;
+			}
+		}
+
+		void close() {
+			try {
+				channel.close();
+			}
+			catch (IOException ioe) {
+				Exceptions.onErrorDropped(ioe);
+			}
+		}
+
+		@Override
+		public Object downstream() {
+			return actual;
+		}
+
+		@Override
+		public long requestedFromDownstream() {
+			return requested;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled == 1;
+		}
+	}
+
+	static final class FileSinkSubscriber implements Subscriber<Buffer> {
+
+		final Path                path;
+		final int                 windowSize;
+		final long                forceThreshold;
+		final MonoProcessor<Long> result = MonoProcessor.create();
+
+		Subscription     subscription;
+		FileChannel      channel;
+		MappedByteBuffer window;
+		long             start;
+		long             mapped;
+		long             written;
+		long             unforced;
+		boolean          done;
+
+		FileSinkSubscriber(Path path, int windowSize, long forceThreshold) {
+			this.path = path;
+			this.windowSize = windowSize;
+			this.forceThreshold = forceThreshold;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			if (BackpressureUtils.validate(subscription, s)) {
+				subscription = s;
+				try {
+					channel = FileChannel.open(path,
+							StandardOpenOption.CREATE,
+							StandardOpenOption.READ,
+							StandardOpenOption.WRITE);
+					start = channel.size();
+					mapped = start;
+					channel.position(start);
+				}
+				catch (IOException e) {
+					s.cancel();
+					fail(e);
+					return;
+				}
+				s.request(Long.MAX_VALUE);
+			}
+		}
+
+		@Override
+		public void onNext(Buffer buffer) {
+			if (done) {
+				Exceptions.onNextDropped(buffer);
+				return;
+			}
+			ByteBuffer src = buffer.byteBuffer();
+			if (src == null || !src.hasRemaining()) {
+				return;
+			}
+			src = src.duplicate();
+			int len = src.remaining();
+			try {
+				if (windowSize > 0) {
+					writeMapped(src);
+				}
+				else {
+					while (src.hasRemaining()) {
+						channel.write(src);
+					}
+					unforced += len;
+				}
+				written += len;
+				if (unforced >= forceThreshold) {
+					force();
+				}
+			}
+			catch (IOException e) {
+				subscription.cancel();
+				fail(e);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			if (done) {
+				Exceptions.onErrorDropped(t);
+				return;
+			}
+			fail(t);
+		}
+
+		@Override
+		public void onComplete() {
+			if (done) {
+				return;
+			}
+			try {
+				if (unforced > 0L) {
+					force();
+				}
+				if (windowSize > 0) {
+					channel.truncate(start + written);
+				}
+			}
+			catch (IOException e) {
+				fail(e);
+				return;
+			}
+			done = true;
+			close();
+			result.onNext(written);
+		}
+
+		/**
+		 * Put the given bytes into the mapped windows, counting them as unforced as they are
+		 * put so that a full window holding unforced bytes is forced before being replaced.
+		 */
+		void writeMapped(ByteBuffer src) throws IOException {
+			while (src.hasRemaining()) {
+				if (window == null || !window.hasRemaining()) {
+					if (window != null && unforced > 0L) {
+						window.force();
+						unforced = 0L;
+					}
+					window = channel.map(FileChannel.MapMode.READ_WRITE, mapped, windowSize);
+					mapped += windowSize;
+				}
+				int limit = src.limit();
+				int len = Math.min(src.remaining(), window.remaining());
+				src.limit(src.position() + len);
+				window.put(src);
+				src.limit(limit);
+				unforced += len;
+			}
+		}
+
+		void force() throws IOException {
+			if (window != null) {
+				window.force();
+			}
+			else {
+				channel.force(false);
+			}
+			unforced = 0L;
+		}
+
+		void fail(Throwable t) {
+			done = true;
+			if (windowSize > 0 && channel != null) {
+				// do not leave the unwritten tail of the last window as zeroes
+				try {
+					channel.truncate(start + written);
+				}
+				catch (IOException e) {
+					Exceptions.onErrorDropped(e);
+				}
+			}
+			close();
+			result.onError(t);
+		}
+
+		void close() {
+			FileChannel channel = this.channel;
+			if (channel != null) {
+				this.channel = null;
+				window = null;
+				try {
+					channel.close();
+				}
+				catch (IOException ioe) {
+					Exceptions.onErrorDropped(ioe);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable, read-only range of a {@link Buffer}. Unlike a {@link Buffer.View}, a
+ * {@literal Slice} owns its own read-only {@link ByteBuffer} and only uses absolute
+ * indexes, so it never touches the position or limit of its parent and can be handed to
+ * other threads and read concurrently without copying.
+ * <p>
+ * The content is shared with the parent {@link Buffer}: writes to the parent after the
+ * slice is created are visible through the slice.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class Slice {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static final Slice EMPTY = new Slice(ByteBuffer.allocate(0).asReadOnlyBuffer());
+
+	private final ByteBuffer bytes;
+
+	Slice(ByteBuffer bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Create a slice of the given absolute range without moving the source position.
+	 */
+	static Slice of(ByteBuffer source, int start, int end) {
+		if (source == null || start == end) {
+			return EMPTY;
+		}
+		if (start < 0 || end < start || end > source.capacity()) {
+			throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + ") " +
+					"for capacity " + source.capacity());
+		}
+		ByteBuffer dup = source.duplicate();
+		dup.limit(end)
+		   .position(start);
+		// duplicate, slice and asReadOnlyBuffer all reset the byte order to big-endian
+		return new Slice(dup.slice()
+		                    .asReadOnlyBuffer()
+		                    .order(source.order()));
+	}
+
+	/**
+	 * Return the number of bytes in this slice.
+	 *
+	 * @return the number of bytes in this slice
+	 */
+	public int length() {
+		return bytes.capacity();
+	}
+
+	/**
+	 * Return the {@code byte} at the given index, relative to the start of this slice.
+	 *
+	 * @param index the index
+	 * @return the {@code byte} at the given index
+	 */
+	public byte get(int index) {
+		return bytes.get(index);
+	}
+
+	public short getShort(int index) {
+		return bytes.getShort(index);
+	}
+
+	public int getInt(int index) {
+		return bytes.getInt(index);
+	}
+
+	public long getLong(int index) {
+		return bytes.getLong(index);
+	}
+
+	/**
+	 * Find the first occurrence of the given {@code byte}.
+	 *
+	 * @param b the {@code byte} to search for
+	 * @return the index of the byte relative to this slice or {@code -1} if not found
+	 */
+	public int indexOf(byte b) {
+		return indexOf(b, 0);
+	}
+
+	/**
+	 * Find the first occurrence of the given {@code byte} from the given index.
+	 *
+	 * @param b the {@code byte} to search for
+	 * @param from the index to start searching from
+	 * @return the index of the byte relative to this slice or {@code -1} if not found
+	 */
+	public int indexOf(byte b, int from) {
+		int len = bytes.capacity();
+		for (int i = Math.max(0, from); i < len; i++) {
+			if (bytes.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Create a sub-range of this slice sharing the same content.
+	 *
+	 * @param start the start index relative to this slice
+	 * @param end the end index relative to this slice, exclusive
+	 * @return a new {@literal Slice}
+	 */
+	public Slice slice(int start, int end) {
+		return of(bytes, start, end);
+	}
+
+	/**
+	 * Return a new read-only {@link ByteBuffer} over this slice, positioned at 0. Each
+	 * call returns an independent instance that the caller can move freely.
+	 *
+	 * @return a new read-only {@link ByteBuffer}
+	 */
+	public ByteBuffer byteBuffer() {
+		return bytes.duplicate();
+	}
+
+	/**
+	 * Return a new {@link Buffer} over this slice, e.g. to pass it to a
+	 * {@link reactor.io.codec.Codec}. Each call returns an independent instance.
+	 *
+	 * @return a new {@link Buffer} sharing this slice content
+	 */
+	public Buffer toBuffer() {
+		return new Buffer(bytes.duplicate());
+	}
+
+	/**
+	 * Copy this slice into a new byte array.
+	 *
+	 * @return the slice content
+	 */
+	public byte[] asBytes() {
+		byte[] b = new byte[bytes.capacity()];
+		bytes.duplicate()
+		     .get(b);
+		return b;
+	}
+
+	/**
+	 * Decode this slice as a UTF-8 String.
+	 *
+	 * @return the decoded String
+	 */
+	public String asString() {
+		return asString(UTF8);
+	}
+
+	/**
+	 * Decode this slice using the given charset.
+	 *
+	 * @param charset the charset to decode with
+	 * @return the decoded String
+	 */
+	public String asString(Charset charset) {
+		return charset.decode(bytes.duplicate())
+		              .toString();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o || (o instanceof Slice && bytes.equals(((Slice) o).bytes));
+	}
+
+	@Override
+	public int hashCode() {
+		return bytes.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return asString();
+	}
+
+	/**
+	 * A lazy sequence of {@link Slice} delimited by a byte. Each iteration scans the
+	 * captured range again without touching the parent {@link Buffer}.
+	 */
+	static final class DelimitedSlices implements Iterable<Slice> {
+
+		final ByteBuffer source;
+		final int        start;
+		final int        end;
+		final byte       delimiter;
+		final boolean    stripDelimiter;
+
+		DelimitedSlices(ByteBuffer source, int start, int end, byte delimiter, boolean stripDelimiter) {
+			this.source = source;
+			this.start = start;
+			this.end = end;
+			this.delimiter = delimiter;
+			this.stripDelimiter = stripDelimiter;
+		}
+
+		@Override
+		public Iterator<Slice> iterator() {
+			return new Iterator<Slice>() {
+				int cursor = start;
+				int next   = scan(start);
+
+				int scan(int from) {
+					for (int i = from; i < end; i++) {
+						if (source.get(i) == delimiter) {
+							return i;
+						}
+					}
+					return -1;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next != -1;
+				}
+
+				@Override
+				public Slice next() {
+					int found = next;
+					if (found == -1) {
+						throw new NoSuchElementException();
+					}
+					Slice slice = of(source, cursor, stripDelimiter ? found : found + 1);
+					cursor = found + 1;
+					next = scan(cursor);
+					return slice;
+				}
+			};
+		}
+	}
+}
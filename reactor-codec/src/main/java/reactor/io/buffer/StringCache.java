@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import reactor.core.state.Introspectable;
+
+/**
+ * A bounded cache of decoded Strings looked up by their encoded bytes (or chars), so that
+ * decoders emitting the same values over and over share a single String instance instead
+ * of allocating one per message. Lookups hash the bytes in place and only allocate on a
+ * miss.
+ * <p>
+ * The cache is a set-associative table: each key hashes to a set of 4 entries kept in
+ * most-recently-used order, and the least recently used entry of a full set is evicted.
+ * Entries are keyed by their encoded bytes whatever the lookup form, chars and Strings
+ * of an ASCII compatible charset hash and compare without being encoded.
+ * Sets are guarded by striped locks so a single instance can be shared by decoders
+ * running on several threads. Values longer than {@link #maxLength()} bypass the cache.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class StringCache implements Introspectable {
+
+	/**
+	 * Default number of cached Strings
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Default maximum encoded length of a cached String
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 64;
+
+	static final int WAYS = 4;
+
+	final Charset  charset;
+	final boolean  asciiCompatible;
+	final int      maxLength;
+	final int      setMask;
+	final Entry[]  entries;
+	final Object[] locks;
+
+	final LongAdder hits      = new LongAdder();
+	final LongAdder misses    = new LongAdder();
+	final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Create a UTF-8 cache of {@link #DEFAULT_CAPACITY} Strings.
+	 */
+	public StringCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a UTF-8 cache of at least the given number of Strings.
+	 *
+	 * @param capacity the number of Strings to retain, rounded up to a power of two
+	 */
+	public StringCache(int capacity) {
+		this(capacity, DEFAULT_MAX_LENGTH, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * Create a cache of at least the given number of Strings.
+	 *
+	 * @param capacity the number of Strings to retain, rounded up to a power of two
+	 * @param maxLength the maximum encoded length of a cached String
+	 * @param charset the charset used to decode bytes
+	 */
+	public StringCache(int capacity, int maxLength, Charset charset) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be > 0");
+		}
+		if (maxLength <= 0) {
+			throw new IllegalArgumentException("maxLength must be > 0");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("A charset is required");
+		}
+		int sets = ceilingPowerOfTwo(Math.max(1, (capacity + WAYS - 1) / WAYS));
+		this.setMask = sets - 1;
+		this.entries = new Entry[sets * WAYS];
+		this.locks = new Object[Math.min(sets, ceilingPowerOfTwo(Runtime.getRuntime()
+		                                                                 .availableProcessors() * 4))];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+		this.maxLength = maxLength;
+		this.charset = charset;
+		this.asciiCompatible = isAsciiCompatible(charset);
+	}
+
+	/**
+	 * Return the String for the given absolute range of a {@link Buffer} without moving
+	 * its position.
+	 *
+	 * @param buffer the encoded bytes
+	 * @param offset the absolute offset
+	 * @param length the number of bytes
+	 * @return a possibly shared String
+	 */
+	public String get(Buffer buffer, int offset, int length) {
+		ByteBuffer bytes = buffer.byteBuffer();
+		return bytes == null ? "" : get(bytes, offset, length);
+	}
+
+	/**
+	 * Return the String for the given absolute range of a {@link ByteBuffer} without
+	 * moving its position.
+	 *
+	 * @param bytes the encoded bytes
+	 * @param offset the absolute offset
+	 * @param length the number of bytes
+	 * @return a possibly shared String
+	 */
+	public String get(ByteBuffer bytes, int offset, int length) {
+		if (length == 0) {
+			return "";
+		}
+		if (length > maxLength) {
+			return decode(bytes, offset, length);
+		}
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + (bytes.get(i) & 0xff);
+		}
+		int set = set(hash);
+		synchronized (lock(set)) {
+			int base = set * WAYS;
+			for (int w = 0; w < WAYS; w++) {
+				Entry e = entries[base + w];
+				if (e == null) {
+					break;
+				}
+				if (e.hash == hash && e.matches(bytes, offset, length)) {
+					return hit(base, w, e);
+				}
+			}
+		}
+		misses.increment();
+		byte[] key = new byte[length];
+		for (int i = 0; i < length; i++) {
+			key[i] = bytes.get(offset + i);
+		}
+		return insert(set, new Entry(hash, key, new String(key, charset)));
+	}
+
+	/**
+	 * Return the String for the given range of a byte array.
+	 *
+	 * @param bytes the encoded bytes
+	 * @param offset the offset
+	 * @param length the number of bytes
+	 * @return a possibly shared String
+	 */
+	public String get(byte[] bytes, int offset, int length) {
+		if (length == 0) {
+			return "";
+		}
+		if (length > maxLength) {
+			return new String(bytes, offset, length, charset);
+		}
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + (bytes[i] & 0xff);
+		}
+		int set = set(hash);
+		synchronized (lock(set)) {
+			int base = set * WAYS;
+			for (int w = 0; w < WAYS; w++) {
+				Entry e = entries[base + w];
+				if (e == null) {
+					break;
+				}
+				if (e.hash == hash && e.matches(bytes, offset, length)) {
+					return hit(base, w, e);
+				}
+			}
+		}
+		misses.increment();
+		byte[] key = new byte[length];
+		System.arraycopy(bytes, offset, key, 0, length);
+		return insert(set, new Entry(hash, key, new String(key, charset)));
+	}
+
+	/**
+	 * Return the String for the given range of a char array, e.g. the current text of a
+	 * streaming parser.
+	 *
+	 * @param chars the characters
+	 * @param offset the offset
+	 * @param length the number of chars
+	 * @return a possibly shared String
+	 */
+	public String get(char[] chars, int offset, int length) {
+		if (length == 0) {
+			return "";
+		}
+		if (length > maxLength) {
+			return new String(chars, offset, length);
+		}
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			char c = chars[i];
+			if (c >= 0x80 || !asciiCompatible) {
+				return intern(new String(chars, offset, length));
+			}
+			// the hash of the encoded bytes
+			hash = 31 * hash + c;
+		}
+		int set = set(hash);
+		synchronized (lock(set)) {
+			int base = set * WAYS;
+			for (int w = 0; w < WAYS; w++) {
+				Entry e = entries[base + w];
+				if (e == null) {
+					break;
+				}
+				if (e.hash == hash && e.matches(chars, offset, length)) {
+					return hit(base, w, e);
+				}
+			}
+		}
+		misses.increment();
+		String value = new String(chars, offset, length);
+		return insert(set, new Entry(hash, value.getBytes(charset), value));
+	}
+
+	/**
+	 * Return a shared instance equal to the given String, caching it if absent.
+	 *
+	 * @param value the String to deduplicate
+	 * @return a possibly shared String
+	 */
+	public String intern(String value) {
+		if (value == null || value.isEmpty() || value.length() > maxLength) {
+			return value;
+		}
+		byte[] key = null;
+		int length = value.length();
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x80 || !asciiCompatible) {
+				key = value.getBytes(charset);
+				if (key.length > maxLength) {
+					return value;
+				}
+				hash = hash(key);
+				break;
+			}
+			hash = 31 * hash + c;
+		}
+		int set = set(hash);
+		synchronized (lock(set)) {
+			int base = set * WAYS;
+			for (int w = 0; w < WAYS; w++) {
+				Entry e = entries[base + w];
+				if (e == null) {
+					break;
+				}
+				if (e.hash == hash && e.value.equals(value)) {
+					return hit(base, w, e);
+				}
+			}
+		}
+		misses.increment();
+		return insert(set, new Entry(hash, key != null ? key : value.getBytes(charset), value));
+	}
+
+	/**
+	 * @return the charset used to decode bytes
+	 */
+	public Charset charset() {
+		return charset;
+	}
+
+	/**
+	 * @return the maximum encoded length of a cached String
+	 */
+	public int maxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * @return the maximum number of cached Strings
+	 */
+	public int capacity() {
+		return entries.length;
+	}
+
+	/**
+	 * @return the number of lookups answered with a cached String
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of lookups that created a new String
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the number of cached Strings evicted to make room for new ones
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the ratio of hits over lookups, between 0 and 1
+	 */
+	public double hitRatio() {
+		long h = hits();
+		long total = h + misses();
+		return total == 0L ? 0d : (double) h / total;
+	}
+
+	/**
+	 * Evict every cached String.
+	 */
+	public void clear() {
+		for (int set = 0; set <= setMask; set++) {
+			synchronized (lock(set)) {
+				for (int w = 0; w < WAYS; w++) {
+					entries[set * WAYS + w] = null;
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getMode() {
+		return 0;
+	}
+
+	@Override
+	public String getName() {
+		return "stringCache";
+	}
+
+	@Override
+	public String toString() {
+		return "{ capacity : " + capacity() +
+				", hits : " + hits() +
+				", misses : " + misses() +
+				", evictions : " + evictions() + " }";
+	}
+
+	String hit(int base, int way, Entry e) {
+		hits.increment();
+		return touch(base, way, e);
+	}
+
+	String touch(int base, int way, Entry e) {
+		// move to the most recently used slot
+		if (way > 0) {
+			System.arraycopy(entries, base, entries, base + 1, way);
+			entries[base] = e;
+		}
+		return e.value;
+	}
+
+	String insert(int set, Entry entry) {
+		synchronized (lock(set)) {
+			int base = set * WAYS;
+			for (int w = 0; w < WAYS; w++) {
+				Entry e = entries[base + w];
+				if (e == null) {
+					break;
+				}
+				// a concurrent miss on the same key inserted it first
+				if (e.hash == entry.hash && Arrays.equals(e.bytes, entry.bytes)) {
+					return touch(base, w, e);
+				}
+			}
+			if (entries[base + WAYS - 1] != null) {
+				evictions.increment();
+			}
+			System.arraycopy(entries, base, entries, base + 1, WAYS - 1);
+			entries[base] = entry;
+		}
+		return entry.value;
+	}
+
+	String decode(ByteBuffer bytes, int offset, int length) {
+		if (bytes.hasArray()) {
+			return new String(bytes.array(), bytes.arrayOffset() + offset, length, charset);
+		}
+		byte[] b = new byte[length];
+		for (int i = 0; i < length; i++) {
+			b[i] = bytes.get(offset + i);
+		}
+		return new String(b, charset);
+	}
+
+	int set(int hash) {
+		// spread the low bits as String hashes of short keys cluster
+		return (hash ^ (hash >>> 16)) & setMask;
+	}
+
+	Object lock(int set) {
+		return locks[set & (locks.length - 1)];
+	}
+
+	static int hash(byte[] bytes) {
+		int hash = 0;
+		for (byte b : bytes) {
+			hash = 31 * hash + (b & 0xff);
+		}
+		return hash;
+	}
+
+	static boolean isAsciiCompatible(Charset charset) {
+		byte[] ascii = new byte[0x80];
+		for (int i = 0; i < ascii.length; i++) {
+			ascii[i] = (byte) i;
+		}
+		return Arrays.equals(new String(ascii, StandardCharsets.US_ASCII).getBytes(charset), ascii);
+	}
+
+	static int ceilingPowerOfTwo(int x) {
+		return x <= 1 ? 1 : Integer.highestOneBit(x - 1) << 1;
+	}
+
+	static final class Entry {
+
+		final int    hash;
+		final byte[] bytes;
+		final String value;
+
+		Entry(int hash, byte[] bytes, String value) {
+			this.hash = hash;
+			this.bytes = bytes;
+			this.value = value;
+		}
+
+		boolean matches(ByteBuffer source, int offset, int length) {
+			if (bytes.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[i] != source.get(offset + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean matches(byte[] source, int offset, int length) {
+			if (bytes.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[i] != source[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @param source ASCII chars
+		 */
+		boolean matches(char[] source, int offset, int length) {
+			if (bytes.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[i] != source[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -26,6 +26,8 @@ import java.util.function.Supplier;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import reactor.core.publisher.Flux;
+import reactor.core.flow.Loopback;
+import reactor.core.state.Backpressurable;
 import reactor.core.state.Introspectable;
 import reactor.core.subscriber.SubscriberBarrier;
 import reactor.core.util.BackpressureUtils;
@@ -85,7 +87,8 @@ public abstract class BufferCodec<IN, OUT> extends Codec<Buffer, IN, OUT> {
 	}
 
 	private static final class AggregatingDecoderBarrier<IN>
-			extends SubscriberBarrier<Buffer, IN> implements Introspectable {
+			extends SubscriberBarrier<Buffer, IN>
+			implements Introspectable, Backpressurable, Loopback {
 
 		private final static AtomicReferenceFieldUpdater<AggregatingDecoderBarrier, Buffer>
 				AGGREGATE =
@@ -141,6 +144,10 @@ public abstract class BufferCodec<IN, OUT> extends Codec<Buffer, IN, OUT> {
 
 		@Override
 		protected void doNext(Buffer buffer) {
+			CodecMetrics metrics = codec.metrics;
+			if (metrics != null) {
+				metrics.received(buffer);
+			}
 			Buffer aggregate = this.aggregate;
 			if (aggregate != null) {
 				aggregate = combine(buffer);
@@ -180,6 +187,10 @@ public abstract class BufferCodec<IN, OUT> extends Codec<Buffer, IN, OUT> {
 				                 .flip();
 
 				if (AGGREGATE.compareAndSet(this, aggregate, combined)) {
+					CodecMetrics metrics = codec.metrics;
+					if (metrics != null) {
+						metrics.aggregated(combined.remaining());
+					}
 					return combined;
 				}
 				aggregate = this.aggregate;
@@ -213,41 +224,71 @@ public abstract class BufferCodec<IN, OUT> extends Codec<Buffer, IN, OUT> {
 			return codec.getClass().getSimpleName().replaceAll("Codec","Decoder");
 		}
 
-		private boolean tryEmit(Buffer buffer) {
+		@Override
+		public long getCapacity() {
+			return -1L;
+		}
 
-			IN next;
+		@Override
+		public long getPending() {
+			Buffer aggregate = this.aggregate;
+			return aggregate != null ? aggregate.remaining() : 0L;
+		}
 
-			Iterator<Buffer.View> views = codec.iterateDecode(buffer, decoderContext);
+		@Override
+		public Object connectedInput() {
+			return null;
+		}
 
-			if (!views.hasNext()) {
-				combine(buffer);
-				return false;
-			}
+		@Override
+		public Object connectedOutput() {
+			return codec.metrics;
+		}
+
+		private boolean tryEmit(Buffer buffer) {
+			CodecMetrics metrics = codec.metrics;
+			int frames = 0;
+			try {
+				IN next;
+
+				Iterator<Buffer.View> views = codec.iterateDecode(buffer, decoderContext);
 
-			Buffer.View cursor;
+				if (!views.hasNext()) {
+					combine(buffer);
+					return false;
+				}
 
-			while (views.hasNext()) {
-				cursor = views.next();
-				if (cursor != null) {
-					next = codec.decodeNext(cursor.get(), decoderContext);
-					if (next != null && BackpressureUtils.getAndSub(PENDING_UPDATER, this, 1L) > 0) {
-						subscriber.onNext(next);
+				Buffer.View cursor;
+
+				while (views.hasNext()) {
+					cursor = views.next();
+					if (cursor != null) {
+						next = codec.instrumentedDecodeNext(cursor.get(), decoderContext);
+						if (next != null && BackpressureUtils.getAndSub(PENDING_UPDATER, this, 1L) > 0) {
+							frames++;
+							subscriber.onNext(next);
+						}
+						else {
+							combine(buffer.slice(cursor.getStart(), buffer.limit()));
+							return next != null;
+						}
 					}
 					else {
-						combine(buffer.slice(cursor.getStart(), buffer.limit()));
-						return next != null;
+						combine(buffer);
+						return false;
 					}
 				}
-				else {
+				if (buffer.remaining() > 0) {
 					combine(buffer);
 					return false;
 				}
+				return true;
 			}
-			if (buffer.remaining() > 0) {
-				combine(buffer);
-				return false;
+			finally {
+				if (metrics != null) {
+					metrics.frames(frames);
+				}
 			}
-			return true;
 		}
 	}
 
@@ -260,13 +301,22 @@ public abstract class BufferCodec<IN, OUT> extends Codec<Buffer, IN, OUT> {
 
 		@Override
 		public IN apply(Buffer buffer) {
+			CodecMetrics metrics = BufferCodec.this.metrics;
+			if (metrics != null) {
+				metrics.received(buffer);
+			}
 			if (consumer != null) {
 				int pos;
+				int frames = 0;
 				while ((pos = buffer.position()) < buffer.limit()) {
 					super.apply(buffer);
 					if (pos == buffer.position()) {
 						break;
 					}
+					frames++;
+				}
+				if (metrics != null) {
+					metrics.frames(frames);
 				}
 				return null;
 			}
@@ -40,7 +40,7 @@ public class ByteArrayCodec extends BufferCodec<byte[], byte[]> {
 	}
 
 	@Override
-	public Buffer apply(byte[] bytes) {
+	protected Buffer encodeNext(byte[] bytes) {
 		return Buffer.wrap(bytes);
 	}
 
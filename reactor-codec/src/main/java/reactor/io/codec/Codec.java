@@ -22,6 +22,7 @@ import java.util.function.Supplier;
 
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
+import reactor.core.flow.Loopback;
 import reactor.core.flow.Receiver;
 import reactor.core.publisher.Flux;
 import reactor.core.state.Backpressurable;
@@ -41,7 +42,7 @@ import reactor.io.buffer.Buffer;
  * @author Jon Brisbin
  * @author Stephane Maldini
  */
-public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
+public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC>, Cloneable {
 
 	static public final byte DEFAULT_DELIMITER = (byte) '\0';
 
@@ -56,6 +57,8 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 
 	protected final Supplier<?> decoderContextProvider;
 
+	protected CodecMetrics metrics;
+
 	/**
 	 * Create a new Codec set with a \0 delimiter to finish any Buffer encoded value or scan for delimited decoded
 	 * Buffers.
@@ -145,6 +148,61 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 	}
 
 
+	/**
+	 * Return a copy of this codec recording throughput and latency into the given
+	 * {@link CodecMetrics}. This codec is left untouched so shared instances such as
+	 * {@link StandardCodecs#LINE_FEED_CODEC} can be instrumented per use. The copy is
+	 * shallow and shares any delegate codec or configuration with this codec.
+	 *
+	 * @param metrics the metrics to update or null to disable instrumentation
+	 * @return an instrumented copy of this codec
+	 */
+	@SuppressWarnings("unchecked")
+	public Codec<SRC, IN, OUT> metrics(CodecMetrics metrics) {
+		Codec<SRC, IN, OUT> copy;
+		try {
+			copy = (Codec<SRC, IN, OUT>) super.clone();
+		}
+		catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.metrics = metrics;
+		return copy;
+	}
+
+	/**
+	 * Return the {@link CodecMetrics} this codec records into, if any.
+	 *
+	 * @return the {@link CodecMetrics} or null if instrumentation is disabled
+	 */
+	public CodecMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Run the given number of encode and decode round-trips of a sample value, e.g. before
+	 * serving traffic, so that lazily built serializers, class loading and JIT compilation
+	 * of this codec happen ahead of the first real message.
+	 *
+	 * @param sample a representative value to encode
+	 * @param iterations the number of round-trips
+	 * @return the time spent in nanoseconds
+	 */
+	public long warmup(OUT sample, int iterations) {
+		if (iterations < 0) {
+			throw new IllegalArgumentException("iterations must be >= 0");
+		}
+		long start = System.nanoTime();
+		Function<SRC, IN> decoder = decoder();
+		for (int i = 0; i < iterations; i++) {
+			SRC encoded = apply(sample);
+			if (encoded != null) {
+				decoder.apply(encoded);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
 	protected static <IN> IN invokeCallbackOrReturn(Consumer<IN> consumer, IN v) {
 		if (consumer != null) {
 			consumer.accept(v);
@@ -172,6 +230,54 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 	 */
 	protected abstract IN decodeNext(SRC buffer, Object context);
 
+	/**
+	 * Encode a value, recording the encode latency and the encoded size if
+	 * instrumentation is enabled. Codecs implement {@link #encodeNext(Object)}, a codec
+	 * overriding this method instead is not instrumented.
+	 *
+	 * @param out the value to encode
+	 * @return the encoded value
+	 */
+	@Override
+	public SRC apply(OUT out) {
+		CodecMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return encodeNext(out);
+		}
+		long start = System.nanoTime();
+		SRC encoded = encodeNext(out);
+		metrics.encoded(encoded, System.nanoTime() - start);
+		return encoded;
+	}
+
+	/**
+	 * Encode a value
+	 *
+	 * @param out the value to encode
+	 * @return the encoded value
+	 */
+	protected SRC encodeNext(OUT out) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not encode");
+	}
+
+	/**
+	 * Decode a buffer, recording the decode latency if instrumentation is enabled
+	 *
+	 * @param buffer the source to decode
+	 * @param context the decoder context obtained from the decoder context provider
+	 * @return the decoded value or null if the buffer did not hold a complete value
+	 */
+	protected final IN instrumentedDecodeNext(SRC buffer, Object context) {
+		CodecMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return decodeNext(buffer, context);
+		}
+		long start = System.nanoTime();
+		IN next = decodeNext(buffer, context);
+		metrics.decoded(next, System.nanoTime() - start);
+		return next;
+	}
+
 	/**
 	 * Add a trailing delimiter if defined
 	 *
@@ -186,7 +292,8 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 		}
 	}
 
-	private final class DecoderBarrier extends SubscriberBarrier<SRC, IN> implements Introspectable {
+	private final class DecoderBarrier extends SubscriberBarrier<SRC, IN>
+			implements Introspectable, Loopback {
 		final Function<SRC, IN> decoder;
 
 		public DecoderBarrier(final Subscriber<? super IN> subscriber) {
@@ -201,6 +308,10 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 
 		@Override
 		protected void doNext(SRC src) {
+			CodecMetrics metrics = Codec.this.metrics;
+			if (metrics != null) {
+				metrics.received(src);
+			}
 			decoder.apply(src);
 		}
 
@@ -209,13 +320,24 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 			return 0;
 		}
 
+		@Override
+		public Object connectedInput() {
+			return null;
+		}
+
+		@Override
+		public Object connectedOutput() {
+			return metrics;
+		}
+
 		@Override
 		public String getName() {
 			return Codec.this.getClass().getSimpleName().replaceAll("Codec","Decoder");
 		}
 	}
 
-	private class EncoderBarrier extends SubscriberBarrier<OUT, SRC> implements Introspectable {
+	private class EncoderBarrier extends SubscriberBarrier<OUT, SRC>
+			implements Introspectable, Loopback {
 		final private Function<OUT, SRC> encoder;
 
 		public EncoderBarrier(final Subscriber<? super SRC> subscriber) {
@@ -228,6 +350,16 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 			subscriber.onNext(encoder.apply(src));
 		}
 
+		@Override
+		public Object connectedInput() {
+			return null;
+		}
+
+		@Override
+		public Object connectedOutput() {
+			return metrics;
+		}
+
 		@Override
 		public String getName() {
 			return Codec.this.getClass().getSimpleName().replaceAll("Codec","Encoder");
@@ -253,7 +385,7 @@ public abstract class Codec<SRC, IN, OUT> implements Function<OUT, SRC> {
 
 		@Override
 		public IN apply(SRC buffer) {
-			return invokeCallbackOrReturn(consumer, decodeNext(buffer, context));
+			return invokeCallbackOrReturn(consumer, instrumentedDecodeNext(buffer, context));
 		}
 	}
 
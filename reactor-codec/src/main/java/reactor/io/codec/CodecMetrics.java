@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import reactor.core.state.Introspectable;
+import reactor.io.buffer.Buffer;
+
+/**
+ * Optional throughput and latency counters for a {@link Codec}, enabled with
+ * {@link Codec#metrics(CodecMetrics)}. A single instance can be shared by several codecs
+ * and is safe to update from several threads.
+ * <p>
+ * Decoder and encoder operators expose the instance as their
+ * {@link reactor.core.flow.Loopback#connectedOutput()} so it shows in the reactive state
+ * graph next to the pipeline it measures.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class CodecMetrics implements Introspectable {
+
+	final String name;
+
+	final LongAdder buffersIn       = new LongAdder();
+	final LongAdder bytesIn         = new LongAdder();
+	final LongAdder messagesDecoded = new LongAdder();
+	final LongAdder messagesEncoded = new LongAdder();
+	final LongAdder bytesOut        = new LongAdder();
+	final AtomicLong aggregateHighWaterMark = new AtomicLong();
+
+	final Histogram decodeLatency   = new Histogram();
+	final Histogram encodeLatency   = new Histogram();
+	final Histogram framesPerBuffer = new Histogram();
+
+	public CodecMetrics() {
+		this("codecMetrics");
+	}
+
+	public CodecMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the number of source objects received for decoding
+	 */
+	public long buffersIn() {
+		return buffersIn.sum();
+	}
+
+	/**
+	 * @return the number of bytes received for decoding
+	 */
+	public long bytesIn() {
+		return bytesIn.sum();
+	}
+
+	/**
+	 * @return the number of decoded messages
+	 */
+	public long messagesDecoded() {
+		return messagesDecoded.sum();
+	}
+
+	/**
+	 * @return the number of encoded messages
+	 */
+	public long messagesEncoded() {
+		return messagesEncoded.sum();
+	}
+
+	/**
+	 * @return the number of bytes produced by encoding
+	 */
+	public long bytesOut() {
+		return bytesOut.sum();
+	}
+
+	/**
+	 * @return the largest partial frame ever retained while waiting for more data
+	 */
+	public long aggregateHighWaterMark() {
+		return aggregateHighWaterMark.get();
+	}
+
+	/**
+	 * @return the time spent in each decode call, in nanoseconds
+	 */
+	public Histogram decodeLatency() {
+		return decodeLatency;
+	}
+
+	/**
+	 * @return the time spent in each encode call, in nanoseconds
+	 */
+	public Histogram encodeLatency() {
+		return encodeLatency;
+	}
+
+	/**
+	 * @return the number of frames decoded from each received source object
+	 */
+	public Histogram framesPerBuffer() {
+		return framesPerBuffer;
+	}
+
+	@Override
+	public int getMode() {
+		return 0;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return "{" +
+				" name : \"" + name + "\"," +
+				" buffersIn : " + buffersIn() + "," +
+				" bytesIn : " + bytesIn() + "," +
+				" messagesDecoded : " + messagesDecoded() + "," +
+				" messagesEncoded : " + messagesEncoded() + "," +
+				" bytesOut : " + bytesOut() + "," +
+				" aggregateHighWaterMark : " + aggregateHighWaterMark() + "," +
+				" decodeLatency : " + decodeLatency + "," +
+				" encodeLatency : " + encodeLatency + "," +
+				" framesPerBuffer : " + framesPerBuffer +
+				" }";
+	}
+
+	void received(Object source) {
+		buffersIn.increment();
+		if (source instanceof Buffer) {
+			bytesIn.add(((Buffer) source).remaining());
+		}
+	}
+
+	void decoded(Object message, long nanos) {
+		if (message != null) {
+			messagesDecoded.increment();
+		}
+		decodeLatency.record(nanos);
+	}
+
+	void encoded(Object encoded, long nanos) {
+		messagesEncoded.increment();
+		if (encoded instanceof Buffer) {
+			bytesOut.add(((Buffer) encoded).remaining());
+		}
+		encodeLatency.record(nanos);
+	}
+
+	void aggregated(int size) {
+		long max;
+		while (size > (max = aggregateHighWaterMark.get())) {
+			if (aggregateHighWaterMark.compareAndSet(max, size)) {
+				return;
+			}
+		}
+	}
+
+	void frames(int count) {
+		framesPerBuffer.record(count);
+	}
+
+	/**
+	 * A lock-free histogram of positive values with power-of-two buckets.
+	 */
+	public static final class Histogram {
+
+		final AtomicLongArray buckets = new AtomicLongArray(64);
+		final LongAdder       count   = new LongAdder();
+		final LongAdder       sum     = new LongAdder();
+		final AtomicLong      max     = new AtomicLong();
+
+		Histogram() {
+		}
+
+		public void record(long value) {
+			if (value < 0L) {
+				value = 0L;
+			}
+			buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1L));
+			count.increment();
+			sum.add(value);
+			long m;
+			while (value > (m = max.get())) {
+				if (max.compareAndSet(m, value)) {
+					break;
+				}
+			}
+		}
+
+		public long count() {
+			return count.sum();
+		}
+
+		public long max() {
+			return max.get();
+		}
+
+		public double mean() {
+			long c = count.sum();
+			return c == 0L ? 0d : (double) sum.sum() / c;
+		}
+
+		/**
+		 * Return an upper bound of the given percentile, accurate to a power of two.
+		 *
+		 * @param percentile between 0 and 100
+		 * @return an upper bound of the value at the given percentile
+		 */
+		public long percentile(double percentile) {
+			if (percentile < 0d || percentile > 100d) {
+				throw new IllegalArgumentException("percentile must be between 0 and 100");
+			}
+			long total = 0L;
+			for (int i = 0; i < 64; i++) {
+				total += buckets.get(i);
+			}
+			if (total == 0L) {
+				return 0L;
+			}
+			long rank = (long) Math.ceil(total * percentile / 100d);
+			long seen = 0L;
+			for (int i = 0; i < 64; i++) {
+				seen += buckets.get(i);
+				if (seen >= rank && seen > 0L) {
+					return i == 63 ? Long.MAX_VALUE : Math.min((1L << (i + 1)) - 1L, max());
+				}
+			}
+			return max();
+		}
+
+		@Override
+		public String toString() {
+			return "{ count : " + count() +
+					", mean : " + (long) mean() +
+					", p50 : " + percentile(50d) +
+					", p99 : " + percentile(99d) +
+					", max : " + max() + " }";
+		}
+	}
+}
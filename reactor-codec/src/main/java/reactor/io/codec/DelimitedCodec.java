@@ -20,6 +20,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 import reactor.io.buffer.Buffer;
+import reactor.io.buffer.BufferTokenizer;
 
 /**
  * An implementation of {@link Codec} that decodes by splitting a {@link Buffer} into segments
@@ -85,17 +86,18 @@ public class DelimitedCodec<IN, OUT> extends BufferCodec<IN, OUT> {
 	protected IN decodeNext(Buffer buffer, Object context) {
 		Buffer b = buffer;
 		if(delimiter != null){
-			int end = buffer.indexOf(delimiter);
-			if(end != - 1) {
-				b = buffer.duplicate().limit(stripDelimiter ? end - 1 : end);
-				buffer.skip((stripDelimiter ? Math.min(buffer.limit(), end) : end) - buffer.position());
+			// absolute scan, the buffer position is only moved once a frame is found
+			int found = BufferTokenizer.indexOf(buffer, delimiter, buffer.position(), buffer.limit());
+			if(found != - 1) {
+				b = buffer.duplicate().limit(stripDelimiter ? found : found + 1);
+				buffer.position(found + 1);
 			}
 		}
 		return delegate.decodeNext(b, context);
 	}
 
 	@Override
-	public Buffer apply(OUT out) {
+	protected Buffer encodeNext(OUT out) {
 		Buffer encoded = delegate.apply(out);
 		if (null != encoded && encoded.remaining() > 0) {
 			return encoded.newBuffer().append(encoded).append(delimiter).flip();
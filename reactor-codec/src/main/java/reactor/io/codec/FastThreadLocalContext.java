@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec;
+
+import java.util.function.Supplier;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * A {@link ThreadAffineContext} backed by a Netty {@link FastThreadLocal}, only loaded
+ * when Netty is on the classpath.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+final class FastThreadLocalContext<T> extends ThreadAffineContext<T> {
+
+	final FastThreadLocal<T> local;
+
+	FastThreadLocalContext(final Supplier<? extends T> factory) {
+		this.local = new FastThreadLocal<T>() {
+			@Override
+			protected T initialValue() throws Exception {
+				return factory.get();
+			}
+		};
+	}
+
+	@Override
+	public T get() {
+		return local.get();
+	}
+
+	@Override
+	public void remove() {
+		local.remove();
+	}
+}
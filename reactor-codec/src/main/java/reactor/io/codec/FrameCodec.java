@@ -163,7 +163,7 @@ public class FrameCodec extends BufferCodec<Frame, Frame> {
 	}
 
 	@Override
-	public Buffer apply(Frame frame) {
+	protected Buffer encodeNext(Frame frame) {
 		return null;
 	}
 
@@ -46,7 +46,7 @@ public class JavaSerializationCodec<T> extends BufferCodec<T, T> {
 	}
 
 	@Override
-	public Buffer apply(T t) {
+	protected Buffer encodeNext(T t) {
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		try {
 			ObjectOutputStream oos = new ObjectOutputStream(baos);
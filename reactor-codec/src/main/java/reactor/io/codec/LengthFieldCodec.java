@@ -139,7 +139,7 @@ public class LengthFieldCodec<IN, OUT> extends BufferCodec<IN, OUT> {
 	}
 
 	@Override
-	public Buffer apply(OUT out) {
+	protected Buffer encodeNext(OUT out) {
 		if (null == out) {
 			return null;
 		}
@@ -40,7 +40,7 @@ public class PassThroughCodec<SRC> extends Codec<SRC, SRC, SRC> {
 	}
 
 	@Override
-	public SRC apply(SRC src) {
+	protected SRC encodeNext(SRC src) {
 		return beforeApply(src);
 	}
 
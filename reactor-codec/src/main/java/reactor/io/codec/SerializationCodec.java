@@ -88,7 +88,7 @@ public abstract class SerializationCodec<E, IN, OUT> extends BufferCodec<IN, OUT
 	}
 
 	@Override
-	public Buffer apply(OUT out) {
+	protected Buffer encodeNext(OUT out) {
 		return encoder.apply(out);
 	}
 
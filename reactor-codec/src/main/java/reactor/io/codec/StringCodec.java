@@ -22,11 +22,13 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
-import java.util.function.Supplier;
 
 import reactor.io.buffer.Buffer;
 import reactor.io.buffer.StringBuffer;
+import reactor.io.buffer.StringCache;
 
 /**
  * @author Jon Brisbin
@@ -34,7 +36,19 @@ import reactor.io.buffer.StringBuffer;
  */
 public class StringCodec extends BufferCodec<String, String> {
 
-	private final Charset charset;
+	/**
+	 * Per-thread coders shared by the codecs of the same charset
+	 */
+	static final ConcurrentMap<Charset, ThreadAffineContext<CharsetDecoder>> DECODERS =
+			new ConcurrentHashMap<>();
+	static final ConcurrentMap<Charset, ThreadAffineContext<CharsetEncoder>> ENCODERS =
+			new ConcurrentHashMap<>();
+
+	private final Charset     charset;
+	private final StringCache cache;
+
+	private final ThreadAffineContext<CharsetDecoder> decoders;
+	private final ThreadAffineContext<CharsetEncoder> encoders;
 
 	public StringCodec() {
 		this(null, Charset.forName("UTF-8"));
@@ -49,13 +63,26 @@ public class StringCodec extends BufferCodec<String, String> {
 	}
 
 	public StringCodec(Byte delimiter, final Charset charset) {
-		super(delimiter, new Supplier<CharsetDecoder>(){
-			@Override
-			public CharsetDecoder get() {
-				return charset.newDecoder();
-			}
-		});
+		this(delimiter, charset, null);
+	}
+
+	/**
+	 * Create a codec sharing decoded Strings through the given {@link StringCache}, which
+	 * must decode with the same charset.
+	 *
+	 * @param delimiter a nullable delimiter
+	 * @param charset the charset
+	 * @param cache a nullable cache of decoded Strings
+	 */
+	public StringCodec(Byte delimiter, final Charset charset, StringCache cache) {
+		super(delimiter);
+		if (cache != null && !cache.charset().equals(charset)) {
+			throw new IllegalArgumentException("The cache charset " + cache.charset() + " does not match " + charset);
+		}
 		this.charset = charset;
+		this.cache = cache;
+		this.decoders = DECODERS.computeIfAbsent(charset, c -> ThreadAffineContext.of(c::newDecoder));
+		this.encoders = ENCODERS.computeIfAbsent(charset, c -> ThreadAffineContext.of(c::newEncoder));
 	}
 
 	@Override
@@ -74,17 +101,22 @@ public class StringCodec extends BufferCodec<String, String> {
 				buffer.skip((Math.min(buffer.limit(), end + 1) - buffer.position()));
 			}
 		}
-		return decode(b, (CharsetDecoder)context);
+		return decode(b, decoders.get());
 	}
 
 
 
 	@Override
-	public Buffer apply(String s) {
-		return encode(s, charset.newEncoder());
+	protected Buffer encodeNext(String s) {
+		return encode(s, encoders.get());
 	}
 
 	protected String decode(Buffer buffer, CharsetDecoder charsetDecoder) {
+		if (cache != null) {
+			String s = cache.get(buffer, buffer.position(), buffer.remaining());
+			buffer.position(buffer.limit());
+			return s;
+		}
 		try {
 			return charsetDecoder.decode(buffer.byteBuffer()).toString();
 		} catch (CharacterCodingException e) {
@@ -110,7 +142,14 @@ public class StringCodec extends BufferCodec<String, String> {
 
 		@Override
 		public Buffer apply(String s) {
-			return encode(s, encoder);
+			CodecMetrics metrics = StringCodec.this.metrics;
+			if (metrics == null) {
+				return encode(s, encoder);
+			}
+			long start = System.nanoTime();
+			Buffer encoded = encode(s, encoder);
+			metrics.encoded(encoded, System.nanoTime() - start);
+			return encoded;
 		}
 	}
 
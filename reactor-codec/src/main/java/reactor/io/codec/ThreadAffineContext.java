@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec;
+
+import java.util.function.Supplier;
+
+/**
+ * A per-thread instance of codec state, such as a {@link java.nio.charset.CharsetDecoder}
+ * or a serialization engine, created once per thread on first use and reused without
+ * synchronization. When Netty is on the classpath the instances are held by a
+ * {@code FastThreadLocal}, which resolves with an indexed lookup on event loop threads;
+ * otherwise a {@link ThreadLocal} is used.
+ * <p>
+ * Codecs should call {@link #get()} on each encode or decode call rather than capturing
+ * the instance, since a decoder can be created on one thread and invoked from another.
+ * <p>
+ * A {@code FastThreadLocal} index is never reclaimed and its instances stay referenced by
+ * each thread after the context is gone, so contexts created with {@link #of(Supplier)}
+ * must be long-lived, typically static and shared between codecs. State owned by a codec
+ * instance uses {@link #scoped(Supplier)} instead.
+ *
+ * @param <T> the type of the per-thread state
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public abstract class ThreadAffineContext<T> implements Supplier<T> {
+
+	static final boolean FAST_THREAD_LOCAL;
+
+	static {
+		boolean fast;
+		try {
+			Class.forName("io.netty.util.concurrent.FastThreadLocal", false,
+					ThreadAffineContext.class.getClassLoader());
+			fast = Boolean.parseBoolean(System.getProperty("reactor.io.fastThreadLocal", "true"));
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			fast = false;
+		}
+		FAST_THREAD_LOCAL = fast;
+	}
+
+	/**
+	 * Create a long-lived per-thread context using the given factory. It should be held by
+	 * a static field as its per-thread instances are never released.
+	 *
+	 * @param factory called once per thread to create its instance
+	 * @param <T> the type of the per-thread state
+	 * @return a new {@link ThreadAffineContext}
+	 */
+	public static <T> ThreadAffineContext<T> of(Supplier<? extends T> factory) {
+		if (factory == null) {
+			throw new IllegalArgumentException("A factory is required");
+		}
+		return FAST_THREAD_LOCAL ? new FastThreadLocalContext<>(factory) : new JdkThreadLocalContext<>(factory);
+	}
+
+	/**
+	 * Create a per-thread context owned by a single object, such as a codec instance,
+	 * backed by a {@link ThreadLocal} whose instances can be collected with the context.
+	 *
+	 * @param factory called once per thread to create its instance
+	 * @param <T> the type of the per-thread state
+	 * @return a new {@link ThreadAffineContext}
+	 */
+	public static <T> ThreadAffineContext<T> scoped(Supplier<? extends T> factory) {
+		if (factory == null) {
+			throw new IllegalArgumentException("A factory is required");
+		}
+		return new JdkThreadLocalContext<>(factory);
+	}
+
+	ThreadAffineContext() {
+	}
+
+	/**
+	 * Return the instance of the calling thread, creating it on first use.
+	 *
+	 * @return the instance of the calling thread
+	 */
+	@Override
+	public abstract T get();
+
+	/**
+	 * Discard the instance of the calling thread, the next {@link #get()} creates a new
+	 * one.
+	 */
+	public abstract void remove();
+
+	static final class JdkThreadLocalContext<T> extends ThreadAffineContext<T> {
+
+		final ThreadLocal<T> local;
+
+		JdkThreadLocalContext(Supplier<? extends T> factory) {
+			this.local = ThreadLocal.withInitial(factory);
+		}
+
+		@Override
+		public T get() {
+			return local.get();
+		}
+
+		@Override
+		public void remove() {
+			local.remove();
+		}
+	}
+}
@@ -61,7 +61,7 @@ public abstract class CompressionCodec<IN, OUT> extends BufferCodec<IN, OUT> {
 	}
 
 	@Override
-	public Buffer apply(OUT out) {
+	protected Buffer encodeNext(OUT out) {
 		Buffer buff = delegate.apply(out);
 		try {
 			ByteArrayOutputStream bout = new ByteArrayOutputStream();
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.flyweight;
+
+import java.nio.ByteBuffer;
+
+import reactor.io.buffer.Buffer;
+
+/**
+ * A reusable window over a fixed-length message laid out by a {@link FlyweightSchema}.
+ * Reads and writes go straight to the wrapped {@link ByteBuffer} using absolute
+ * indexes, so neither the position nor the limit of the source is touched and no
+ * object is allocated per message.
+ * <p>
+ * Typed accessors are written by extending this class:
+ * <pre>
+ * {@code
+ * final class Quote extends Flyweight {
+ *     static final FlyweightSchema SCHEMA = FlyweightSchema.builder()
+ *                                                          .int64("instrument")
+ *                                                          .float64("price")
+ *                                                          .build();
+ *     static final Field INSTRUMENT = SCHEMA.field("instrument");
+ *     static final Field PRICE      = SCHEMA.field("price");
+ *
+ *     Quote() { super(SCHEMA); }
+ *
+ *     long instrument()         { return getLong(INSTRUMENT); }
+ *     double price()            { return getDouble(PRICE); }
+ *     Quote price(double price) { putDouble(PRICE, price); return this; }
+ * }
+ * }
+ * </pre>
+ * A flyweight is only valid until it is wrapped again and must not be shared across
+ * threads.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class Flyweight {
+
+	protected final FlyweightSchema schema;
+
+	private ByteBuffer buffer;
+	private int        offset;
+	private boolean    swap;
+
+	public Flyweight(FlyweightSchema schema) {
+		if (schema == null) {
+			throw new IllegalArgumentException("A schema is required");
+		}
+		this.schema = schema;
+	}
+
+	/**
+	 * Wrap the current position of the given {@link Buffer}.
+	 *
+	 * @param source the buffer to read from or write into
+	 * @return this flyweight
+	 */
+	public Flyweight wrap(Buffer source) {
+		return wrap(source.byteBuffer(), source.position());
+	}
+
+	/**
+	 * Wrap the given {@link ByteBuffer} at an absolute offset.
+	 *
+	 * @param source the buffer to read from or write into
+	 * @param offset the absolute index of the first byte of the message
+	 * @return this flyweight
+	 */
+	public Flyweight wrap(ByteBuffer source, int offset) {
+		if (source == null) {
+			throw new IllegalArgumentException("Cannot wrap a null buffer");
+		}
+		if (offset < 0 || offset + schema.blockLength > source.capacity()) {
+			throw new IndexOutOfBoundsException("Message of " + schema.blockLength +
+					" bytes at " + offset + " exceeds capacity " + source.capacity());
+		}
+		this.buffer = source;
+		this.offset = offset;
+		this.swap = source.order() != schema.order;
+		return this;
+	}
+
+	/**
+	 * Return the wrapped {@link ByteBuffer} or null if not wrapped yet.
+	 *
+	 * @return the wrapped {@link ByteBuffer}
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * Return the absolute index of the first byte of the current message.
+	 *
+	 * @return the absolute index of the first byte of the current message
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	public FlyweightSchema schema() {
+		return schema;
+	}
+
+	/**
+	 * Copy the current message into the given buffer at its current position.
+	 *
+	 * @param target the buffer to copy into
+	 * @return the target buffer
+	 */
+	public Buffer copyTo(Buffer target) {
+		ByteBuffer src = checkWrapped().duplicate();
+		src.limit(offset + schema.blockLength)
+		   .position(offset);
+		return target.append(src);
+	}
+
+	public byte getByte(FlyweightSchema.Field field) {
+		return checkWrapped().get(offset + field.offset);
+	}
+
+	public Flyweight putByte(FlyweightSchema.Field field, byte value) {
+		checkWrapped().put(offset + field.offset, value);
+		return this;
+	}
+
+	public short getShort(FlyweightSchema.Field field) {
+		short value = checkWrapped().getShort(offset + field.offset);
+		return swap ? Short.reverseBytes(value) : value;
+	}
+
+	public Flyweight putShort(FlyweightSchema.Field field, short value) {
+		checkWrapped().putShort(offset + field.offset, swap ? Short.reverseBytes(value) : value);
+		return this;
+	}
+
+	public int getInt(FlyweightSchema.Field field) {
+		int value = checkWrapped().getInt(offset + field.offset);
+		return swap ? Integer.reverseBytes(value) : value;
+	}
+
+	public Flyweight putInt(FlyweightSchema.Field field, int value) {
+		checkWrapped().putInt(offset + field.offset, swap ? Integer.reverseBytes(value) : value);
+		return this;
+	}
+
+	public long getLong(FlyweightSchema.Field field) {
+		long value = checkWrapped().getLong(offset + field.offset);
+		return swap ? Long.reverseBytes(value) : value;
+	}
+
+	public Flyweight putLong(FlyweightSchema.Field field, long value) {
+		checkWrapped().putLong(offset + field.offset, swap ? Long.reverseBytes(value) : value);
+		return this;
+	}
+
+	public float getFloat(FlyweightSchema.Field field) {
+		return Float.intBitsToFloat(getInt(field));
+	}
+
+	public Flyweight putFloat(FlyweightSchema.Field field, float value) {
+		return putInt(field, Float.floatToRawIntBits(value));
+	}
+
+	public double getDouble(FlyweightSchema.Field field) {
+		return Double.longBitsToDouble(getLong(field));
+	}
+
+	public Flyweight putDouble(FlyweightSchema.Field field, double value) {
+		return putLong(field, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Copy a fixed-length field into the given array.
+	 *
+	 * @param field the field to read
+	 * @param dst the destination array, at least {@link FlyweightSchema.Field#length()} long
+	 * @return the number of bytes copied
+	 */
+	public int getBytes(FlyweightSchema.Field field, byte[] dst) {
+		ByteBuffer buffer = checkWrapped();
+		int len = Math.min(field.length, dst.length);
+		int start = offset + field.offset;
+		for (int i = 0; i < len; i++) {
+			dst[i] = buffer.get(start + i);
+		}
+		return len;
+	}
+
+	/**
+	 * Write the given bytes into a fixed-length field, zero-padding any remainder.
+	 *
+	 * @param field the field to write
+	 * @param src the bytes to write
+	 * @return this flyweight
+	 */
+	public Flyweight putBytes(FlyweightSchema.Field field, byte[] src) {
+		if (src.length > field.length) {
+			throw new IllegalArgumentException("Field " + field.name + " is limited to " +
+					field.length + " bytes, got " + src.length);
+		}
+		ByteBuffer buffer = checkWrapped();
+		int start = offset + field.offset;
+		for (int i = 0; i < field.length; i++) {
+			buffer.put(start + i, i < src.length ? src[i] : 0);
+		}
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{offset=" + offset + ", schema=" + schema + '}';
+	}
+
+	final ByteBuffer checkWrapped() {
+		ByteBuffer buffer = this.buffer;
+		if (buffer == null) {
+			throw new IllegalStateException("Flyweight is not wrapping any buffer");
+		}
+		return buffer;
+	}
+}
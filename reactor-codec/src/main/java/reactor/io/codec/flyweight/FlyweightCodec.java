@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.flyweight;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import reactor.io.buffer.Buffer;
+import reactor.io.codec.BufferCodec;
+
+/**
+ * A {@link BufferCodec} for fixed-length messages described by a {@link FlyweightSchema}.
+ * Each decoder owns a single {@link Flyweight} obtained from the given factory and
+ * re-wraps it over every frame, so decoding does not allocate. The emitted flyweight is
+ * only valid until the next frame is decoded; copy the values out (or
+ * {@link Flyweight#copyTo(Buffer)}) to retain them.
+ * <p>
+ * Since both {@link reactor.io.buffer.Buffer} streams from a TCP connection and from
+ * an Aeron subscription can be passed to {@link #decode(org.reactivestreams.Publisher)},
+ * the same codec serves both transports.
+ *
+ * @param <F> the flyweight type
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class FlyweightCodec<F extends Flyweight> extends BufferCodec<F, F> {
+
+	final int blockLength;
+
+	/**
+	 * Create a codec for {@link Flyweight} produced by the given factory.
+	 *
+	 * @param flyweights the factory called once per decoder to create its reused flyweight
+	 */
+	public FlyweightCodec(Supplier<? extends F> flyweights) {
+		super(null, flyweights);
+		F sample = flyweights.get();
+		if (sample == null) {
+			throw new IllegalArgumentException("The flyweight factory returned null");
+		}
+		this.blockLength = sample.schema().blockLength();
+	}
+
+	/**
+	 * Create a codec for untyped {@link Flyweight} over the given schema.
+	 *
+	 * @param schema the message layout
+	 * @return a new codec
+	 */
+	public static FlyweightCodec<Flyweight> of(final FlyweightSchema schema) {
+		return new FlyweightCodec<>(() -> new Flyweight(schema));
+	}
+
+	/**
+	 * Return the encoded length of a single message.
+	 *
+	 * @return the encoded length of a single message
+	 */
+	public int blockLength() {
+		return blockLength;
+	}
+
+	@Override
+	protected <C> Function<Buffer, F> decoder(Consumer<F> next, C context) {
+		return new BufferInvokeOrReturnFunction<>(next, context);
+	}
+
+	@Override
+	protected int canDecodeNext(Buffer buffer, Object context) {
+		return buffer.remaining() >= blockLength ? buffer.position() + blockLength : -1;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected F decodeNext(Buffer buffer, Object context) {
+		if (buffer.remaining() < blockLength) {
+			return null;
+		}
+		F flyweight = (F) context;
+		flyweight.wrap(buffer);
+		buffer.skip(blockLength);
+		return flyweight;
+	}
+
+	@Override
+	protected Buffer encodeNext(F flyweight) {
+		return flyweight.copyTo(new Buffer(blockLength, true))
+		                .flip();
+	}
+}
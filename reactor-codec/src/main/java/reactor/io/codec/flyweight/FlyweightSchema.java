@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.flyweight;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable fixed-length message layout. Each {@link Field} is assigned an offset
+ * in declaration order so that a {@link Flyweight} can read and write it directly
+ * without any intermediate object.
+ * <pre>
+ * {@code
+ * static final FlyweightSchema QUOTE = FlyweightSchema.builder()
+ *                                                     .int64("instrument")
+ *                                                     .float64("price")
+ *                                                     .int32("size")
+ *                                                     .build();
+ * }
+ * </pre>
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class FlyweightSchema {
+
+	/**
+	 * Create a new schema {@link Builder} using {@link ByteOrder#LITTLE_ENDIAN}.
+	 *
+	 * @return a new {@link Builder}
+	 */
+	public static Builder builder() {
+		return new Builder(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Create a new schema {@link Builder} using the given byte order.
+	 *
+	 * @param order the byte order of every multi-byte field
+	 * @return a new {@link Builder}
+	 */
+	public static Builder builder(ByteOrder order) {
+		return new Builder(order);
+	}
+
+	final ByteOrder          order;
+	final int                blockLength;
+	final List<Field>        fields;
+	final Map<String, Field> fieldsByName;
+
+	FlyweightSchema(ByteOrder order, int blockLength, List<Field> fields) {
+		this.order = order;
+		this.blockLength = blockLength;
+		this.fields = Collections.unmodifiableList(fields);
+		Map<String, Field> byName = new LinkedHashMap<>();
+		for (Field field : fields) {
+			byName.put(field.name, field);
+		}
+		this.fieldsByName = byName;
+	}
+
+	/**
+	 * Return the total encoded length of a single message.
+	 *
+	 * @return the total encoded length of a single message
+	 */
+	public int blockLength() {
+		return blockLength;
+	}
+
+	/**
+	 * Return the byte order used by every multi-byte field.
+	 *
+	 * @return the schema byte order
+	 */
+	public ByteOrder order() {
+		return order;
+	}
+
+	/**
+	 * Return the fields in declaration order.
+	 *
+	 * @return the fields in declaration order
+	 */
+	public List<Field> fields() {
+		return fields;
+	}
+
+	/**
+	 * Find a field by name.
+	 *
+	 * @param name the field name
+	 * @return the matching {@link Field}
+	 * @throws IllegalArgumentException if no such field exists
+	 */
+	public Field field(String name) {
+		Field field = fieldsByName.get(name);
+		if (field == null) {
+			throw new IllegalArgumentException("No field named " + name + " in " + this);
+		}
+		return field;
+	}
+
+	@Override
+	public String toString() {
+		return "FlyweightSchema{" +
+				"order=" + order +
+				", blockLength=" + blockLength +
+				", fields=" + fields +
+				'}';
+	}
+
+	/**
+	 * Primitive types supported by a {@link FlyweightSchema}.
+	 */
+	public enum Type {
+		INT8(1), INT16(2), INT32(4), INT64(8), FLOAT32(4), FLOAT64(8), BYTES(-1);
+
+		final int size;
+
+		Type(int size) {
+			this.size = size;
+		}
+	}
+
+	/**
+	 * A named value at a fixed offset of a {@link FlyweightSchema}.
+	 */
+	public static final class Field {
+
+		final String name;
+		final Type   type;
+		final int    offset;
+		final int    length;
+
+		Field(String name, Type type, int offset, int length) {
+			this.name = name;
+			this.type = type;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public Type type() {
+			return type;
+		}
+
+		public int offset() {
+			return offset;
+		}
+
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public String toString() {
+			return name + ":" + type + "@" + offset + "[" + length + "]";
+		}
+	}
+
+	/**
+	 * A fluent builder that lays out fields sequentially.
+	 */
+	public static final class Builder {
+
+		final ByteOrder   order;
+		final List<Field> fields = new ArrayList<>();
+
+		int offset;
+
+		Builder(ByteOrder order) {
+			if (order == null) {
+				throw new IllegalArgumentException("A byte order is required");
+			}
+			this.order = order;
+		}
+
+		public Builder int8(String name) {
+			return add(name, Type.INT8, Type.INT8.size);
+		}
+
+		public Builder int16(String name) {
+			return add(name, Type.INT16, Type.INT16.size);
+		}
+
+		public Builder int32(String name) {
+			return add(name, Type.INT32, Type.INT32.size);
+		}
+
+		public Builder int64(String name) {
+			return add(name, Type.INT64, Type.INT64.size);
+		}
+
+		public Builder float32(String name) {
+			return add(name, Type.FLOAT32, Type.FLOAT32.size);
+		}
+
+		public Builder float64(String name) {
+			return add(name, Type.FLOAT64, Type.FLOAT64.size);
+		}
+
+		/**
+		 * Add a fixed-length byte array field, e.g. a padded ASCII symbol.
+		 *
+		 * @param name the field name
+		 * @param length the fixed number of bytes
+		 * @return this builder
+		 */
+		public Builder bytes(String name, int length) {
+			if (length <= 0) {
+				throw new IllegalArgumentException("length must be > 0");
+			}
+			return add(name, Type.BYTES, length);
+		}
+
+		/**
+		 * Skip a number of unused bytes, e.g. to align the next field.
+		 *
+		 * @param length the number of bytes to skip
+		 * @return this builder
+		 */
+		public Builder padding(int length) {
+			if (length < 0) {
+				throw new IllegalArgumentException("length must be >= 0");
+			}
+			offset += length;
+			return this;
+		}
+
+		public FlyweightSchema build() {
+			if (offset == 0) {
+				throw new IllegalStateException("A schema requires at least one field");
+			}
+			return new FlyweightSchema(order, offset, new ArrayList<>(fields));
+		}
+
+		Builder add(String name, Type type, int length) {
+			if (name == null) {
+				throw new IllegalArgumentException("A field name is required");
+			}
+			for (Field field : fields) {
+				if (field.name.equals(name)) {
+					throw new IllegalArgumentException("Duplicate field " + name);
+				}
+			}
+			fields.add(new Field(name, type, offset, length));
+			offset += length;
+			return this;
+		}
+	}
+}
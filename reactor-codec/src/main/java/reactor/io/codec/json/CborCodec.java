@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import reactor.io.buffer.Buffer;
+
+/**
+ * A codec for decoding CBOR into Java objects and encoding Java objects into CBOR, using
+ * the same Jackson databind model and configuration as {@link JsonCodec}.
+ * <p>
+ * CBOR documents cannot be framed by scanning brackets, each decoded {@link Buffer} must
+ * contain exactly one document. Wrap this codec in a
+ * {@link reactor.io.codec.LengthFieldCodec} to decode a stream of documents.
+ *
+ * @param <IN> The type to decode CBOR into
+ * @param <OUT> The type to encode into CBOR
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class CborCodec<IN, OUT> extends JsonCodec<IN, OUT> {
+
+	/**
+	 * Creates a new {@code CborCodec} that will create instances of {@code inputType}
+	 * when decoding.
+	 * @param inputType The type to create when decoding.
+	 */
+	public CborCodec(Class<IN> inputType) {
+		this(inputType, null);
+	}
+
+	/**
+	 * Creates a new {@code CborCodec} that will create instances of {@code inputType}
+	 * when decoding. The {@code customModule} will be registered with the underlying
+	 * {@link ObjectMapper}.
+	 * @param inputType The type to create when decoding.
+	 * @param customModule The module to register with the underlying ObjectMapper
+	 */
+	public CborCodec(Class<IN> inputType, Module customModule) {
+		super(inputType, customModule, null, new ObjectMapper(new CBORFactory()));
+	}
+
+	@Override
+	protected int canDecodeNext(Buffer buffer, Object context) {
+		return buffer.remaining() > 0 ? buffer.limit() : -1;
+	}
+
+	@Override
+	protected Buffer encodeNext(OUT out) {
+		try {
+			return Buffer.wrap(getMapper().writeValueAsBytes(out));
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -19,13 +19,22 @@ package reactor.io.codec.json;
 import java.io.IOException;
 import java.util.Objects;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.TextNode;
 import reactor.io.buffer.Buffer;
 import reactor.io.buffer.StringBuffer;
+import reactor.io.buffer.StringCache;
 import reactor.io.codec.BufferCodec;
 import reactor.io.codec.Codec;
 
@@ -71,16 +80,63 @@ public class JsonCodec<IN, OUT> extends BufferCodec<IN, OUT> {
 	 */
 	@SuppressWarnings("unchecked")
 	public JsonCodec(Class<IN> inputType, Module customModule, Byte delimiter) {
+		this(inputType, customModule, delimiter, new ObjectMapper());
+	}
+
+	/**
+	 * Creates a new {@code JsonCodec} sharing decoded String values, including
+	 * {@link JsonNode} text values, through the given {@link StringCache}.
+	 * @param inputType The type to create when decoding.
+	 * @param customModule The module to register with the underlying ObjectMapper
+	 * @param delimiter A nullable delimiting byte for batch decoding
+	 * @param cache The cache of decoded String values
+	 */
+	public JsonCodec(Class<IN> inputType, Module customModule, Byte delimiter, StringCache cache) {
+		this(inputType, customModule, delimiter, new ObjectMapper());
+		useStringCache(mapper, cache);
+	}
+
+	/**
+	 * Creates a new {@code JsonCodec} using the given {@link ObjectMapper}, e.g. one
+	 * created from a binary {@link com.fasterxml.jackson.core.JsonFactory}. The mapper
+	 * is configured as any other {@code JsonCodec} mapper.
+	 * @param inputType The type to create when decoding.
+	 * @param customModule The module to register with the underlying ObjectMapper
+	 * @param delimiter A nullable delimiting byte for batch decoding
+	 * @param mapper The ObjectMapper to configure and use
+	 */
+	protected JsonCodec(Class<IN> inputType, Module customModule, Byte delimiter, ObjectMapper mapper) {
 		super(delimiter);
 		this.inputType = Objects.requireNonNull(inputType, "inputType must not be null");
 
-		this.mapper = new ObjectMapper();
+		this.mapper = Objects.requireNonNull(mapper, "mapper must not be null");
 		mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
 		if (null != customModule) {
 			this.mapper.registerModule(customModule);
 		}
 	}
 
+	/**
+	 * Configure the given {@link ObjectMapper} to look up String values in the given
+	 * {@link StringCache} before allocating them. Field names are already canonicalized
+	 * by Jackson.
+	 * @param mapper The ObjectMapper to configure
+	 * @param cache The cache of decoded String values
+	 * @return the configured mapper
+	 */
+	public static ObjectMapper useStringCache(ObjectMapper mapper, final StringCache cache) {
+		Objects.requireNonNull(cache, "cache must not be null");
+		mapper.registerModule(new SimpleModule("stringCache").addDeserializer(String.class,
+				new CachingStringDeserializer(cache)));
+		mapper.setNodeFactory(new JsonNodeFactory() {
+			@Override
+			public TextNode textNode(String text) {
+				return super.textNode(cache.intern(text));
+			}
+		});
+		return mapper;
+	}
+
 	public ObjectMapper getMapper() {
 		return mapper;
 	}
@@ -138,7 +194,7 @@ public class JsonCodec<IN, OUT> extends BufferCodec<IN, OUT> {
 	}
 
 	@Override
-	public Buffer apply(OUT out) {
+	protected Buffer encodeNext(OUT out) {
 		try {
 			return StringBuffer.wrap(mapper.writeValueAsBytes(out));
 		}
@@ -147,4 +203,22 @@ public class JsonCodec<IN, OUT> extends BufferCodec<IN, OUT> {
 		}
 	}
 
+	static final class CachingStringDeserializer extends StdScalarDeserializer<String> {
+
+		final StringCache cache;
+
+		CachingStringDeserializer(StringCache cache) {
+			super(String.class);
+			this.cache = cache;
+		}
+
+		@Override
+		public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+				return cache.get(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+			}
+			return StringDeserializer.instance.deserialize(p, ctxt);
+		}
+	}
+
 }
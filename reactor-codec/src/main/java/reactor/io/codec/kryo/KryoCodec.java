@@ -17,24 +17,61 @@
 package reactor.io.codec.kryo;
 
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.UnsafeMemoryInput;
 import com.esotericsoftware.kryo.io.UnsafeMemoryOutput;
 import reactor.core.util.PlatformDependent;
 import reactor.io.codec.SerializationCodec;
+import reactor.io.codec.ThreadAffineContext;
 
 /**
  * @author Jon Brisbin
  */
 public class KryoCodec<IN, OUT> extends SerializationCodec<Kryo, IN, OUT> {
 
+	private static final ThreadAffineContext<UnsafeMemoryOutput> OUTPUTS =
+			ThreadAffineContext.of(() -> new UnsafeMemoryOutput(PlatformDependent.SMALL_IO_BUFFER_SIZE,
+					PlatformDependent.SMALL_IO_BUFFER_SIZE));
+
+	private final ThreadAffineContext<Kryo> engines;
+
+	/**
+	 * Create a length-field framed codec using one default {@link Kryo} instance per
+	 * thread.
+	 */
 	public KryoCodec() {
-		super(new Kryo(), true);
+		this(Kryo::new, true);
 	}
 
+	/**
+	 * Create a codec using the given {@link Kryo} instance, which is not thread-safe: the
+	 * codec must then not be used from several threads at once.
+	 *
+	 * @param engine the engine to use
+	 * @param lengthFieldFraming {@code true} to prepend a length field, or {@code false} to skip
+	 */
 	public KryoCodec(Kryo engine, boolean lengthFieldFraming) {
 		super(engine, lengthFieldFraming);
+		this.engines = null;
+	}
+
+	/**
+	 * Create a codec using one {@link Kryo} instance per thread, created by the given
+	 * factory on first use, since a {@link Kryo} instance is not thread-safe.
+	 *
+	 * @param engines the factory called once per thread, it should register the same classes
+	 * @param lengthFieldFraming {@code true} to prepend a length field, or {@code false} to skip
+	 */
+	public KryoCodec(Supplier<Kryo> engines, boolean lengthFieldFraming) {
+		super(engines.get(), lengthFieldFraming);
+		this.engines = ThreadAffineContext.scoped(engines);
+	}
+
+	final Kryo engine(Kryo engine) {
+		ThreadAffineContext<Kryo> engines = this.engines;
+		return engines != null ? engines.get() : engine;
 	}
 
 	@Override
@@ -43,7 +80,7 @@ public class KryoCodec<IN, OUT> extends SerializationCodec<Kryo, IN, OUT> {
 		return new Function<byte[], IN>() {
 			@Override
 			public IN apply(byte[] bytes) {
-				return engine.readObject(new UnsafeMemoryInput(bytes), type);
+				return engine(engine).readObject(new UnsafeMemoryInput(bytes), type);
 			}
 		};
 	}
@@ -53,8 +90,9 @@ public class KryoCodec<IN, OUT> extends SerializationCodec<Kryo, IN, OUT> {
 		return new Function<OUT, byte[]>() {
 			@Override
 			public byte[] apply(OUT o) {
-				UnsafeMemoryOutput out = new UnsafeMemoryOutput(PlatformDependent.SMALL_IO_BUFFER_SIZE, PlatformDependent.SMALL_IO_BUFFER_SIZE);
-				engine.writeObject(out, o);
+				UnsafeMemoryOutput out = OUTPUTS.get();
+				out.clear();
+				engine(engine).writeObject(out, o);
 				out.flush();
 				return out.toBytes();
 			}
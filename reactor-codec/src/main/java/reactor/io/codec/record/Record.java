@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.record;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import reactor.io.buffer.Buffer;
+import reactor.io.buffer.Slice;
+import reactor.io.buffer.StringCache;
+
+/**
+ * A reusable view over the fields of a single decoded record. Each field is kept as an
+ * offset and a length into the source {@link Buffer}, values are only materialized by the
+ * typed accessors. Quoted fields are exposed without their enclosing quotes; a field with
+ * escaped (doubled) quotes is unescaped when read as a String or a {@link Slice}.
+ * <p>
+ * A {@literal Record} emitted by a {@link RecordCodec} decoder is only valid until the
+ * next record is decoded, use {@link #toArray()} or {@link #getSlice(int)} to retain
+ * values.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class Record implements Iterable<String> {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final byte quote;
+
+	private Buffer     source;
+	private ByteBuffer bytes;
+	private int        size;
+	private int[]      offsets = new int[16];
+	private int[]      lengths = new int[16];
+	private boolean[]  escaped = new boolean[16];
+
+	Record(byte quote) {
+		this.quote = quote;
+	}
+
+	void wrap(Buffer source) {
+		this.source = source;
+		this.bytes = source.byteBuffer();
+		this.size = 0;
+	}
+
+	void set(int index, int offset, int length, boolean escaped) {
+		ensureSlot(index);
+		offsets[index] = offset;
+		lengths[index] = length;
+		this.escaped[index] = escaped;
+		if (index >= size) {
+			size = index + 1;
+		}
+	}
+
+	void size(int size) {
+		ensureSlot(size - 1);
+		for (int i = this.size; i < size; i++) {
+			offsets[i] = 0;
+			lengths[i] = 0;
+			escaped[i] = false;
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Return the number of fields in this record, or the number of projected columns.
+	 *
+	 * @return the number of fields
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the absolute offset of a field in the source {@link Buffer}.
+	 *
+	 * @param index the field index
+	 * @return the absolute offset of the field, after any opening quote
+	 */
+	public int offset(int index) {
+		checkIndex(index);
+		return offsets[index];
+	}
+
+	/**
+	 * Return the length of a field in the source {@link Buffer}, excluding enclosing
+	 * quotes.
+	 *
+	 * @param index the field index
+	 * @return the length of the field
+	 */
+	public int length(int index) {
+		checkIndex(index);
+		return lengths[index];
+	}
+
+	/**
+	 * @param index the field index
+	 * @return {@literal true} if the field has no content
+	 */
+	public boolean isEmpty(int index) {
+		return length(index) == 0;
+	}
+
+	/**
+	 * Compare a field with the given bytes in place. Escaped fields are compared with
+	 * their raw content.
+	 *
+	 * @param index the field index
+	 * @param expected the expected content
+	 * @return {@literal true} if the field has exactly the given content
+	 */
+	public boolean contentEquals(int index, byte[] expected) {
+		int len = length(index);
+		if (len != expected.length) {
+			return false;
+		}
+		int offset = offsets[index];
+		for (int i = 0; i < len; i++) {
+			if (bytes.get(offset + i) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parse a field as a decimal {@code int} without allocating.
+	 *
+	 * @param index the field index
+	 * @return the parsed value
+	 * @throws NumberFormatException if the field is not a valid {@code int}
+	 */
+	public int getInt(int index) {
+		return source.parseInt(offset(index), lengths[index]);
+	}
+
+	/**
+	 * Parse a field as a decimal {@code long} without allocating.
+	 *
+	 * @param index the field index
+	 * @return the parsed value
+	 * @throws NumberFormatException if the field is not a valid {@code long}
+	 */
+	public long getLong(int index) {
+		return source.parseLong(offset(index), lengths[index]);
+	}
+
+	/**
+	 * Parse a field as a decimal {@code double}.
+	 *
+	 * @param index the field index
+	 * @return the parsed value
+	 * @throws NumberFormatException if the field is not a valid {@code double}
+	 */
+	public double getDouble(int index) {
+		return source.parseDouble(offset(index), lengths[index]);
+	}
+
+	/**
+	 * Read a field as a {@code boolean}, {@literal true} if it is {@code true} ignoring
+	 * case or {@code 1}.
+	 *
+	 * @param index the field index
+	 * @return the field value
+	 */
+	public boolean getBoolean(int index) {
+		int len = length(index);
+		int offset = offsets[index];
+		if (len == 1) {
+			return bytes.get(offset) == '1';
+		}
+		return len == 4 &&
+				(bytes.get(offset) | 0x20) == 't' &&
+				(bytes.get(offset + 1) | 0x20) == 'r' &&
+				(bytes.get(offset + 2) | 0x20) == 'u' &&
+				(bytes.get(offset + 3) | 0x20) == 'e';
+	}
+
+	/**
+	 * Decode a field as a UTF-8 String.
+	 *
+	 * @param index the field index
+	 * @return the field value
+	 */
+	public String getString(int index) {
+		return getString(index, UTF8);
+	}
+
+	/**
+	 * Decode a field using the given charset.
+	 *
+	 * @param index the field index
+	 * @param charset the charset to decode with
+	 * @return the field value
+	 */
+	public String getString(int index, Charset charset) {
+		return getSlice(index).asString(charset);
+	}
+
+	/**
+	 * Decode a field through the given {@link StringCache}, sharing the String instance
+	 * with previous records holding the same value.
+	 *
+	 * @param index the field index
+	 * @param cache the cache to look the value up in
+	 * @return the field value
+	 */
+	public String getString(int index, StringCache cache) {
+		int offset = offset(index);
+		if (escaped[index]) {
+			return cache.intern(getString(index, cache.charset()));
+		}
+		return cache.get(bytes, offset, lengths[index]);
+	}
+
+	/**
+	 * Return an immutable {@link Slice} of a field that can be retained after the next
+	 * record is decoded as long as the source {@link Buffer} is not reused. Escaped fields
+	 * are copied.
+	 *
+	 * @param index the field index
+	 * @return an immutable {@link Slice} of the field
+	 */
+	public Slice getSlice(int index) {
+		int offset = offset(index);
+		int len = lengths[index];
+		if (!escaped[index]) {
+			return source.asSlice(offset, offset + len);
+		}
+		Buffer unescaped = new Buffer(len, true);
+		for (int i = offset; i < offset + len; i++) {
+			byte b = bytes.get(i);
+			unescaped.append(b);
+			if (b == quote) {
+				i++;
+			}
+		}
+		return unescaped.flip()
+		                .asSlice();
+	}
+
+	/**
+	 * Copy every field into a new array of Strings.
+	 *
+	 * @return the field values
+	 */
+	public String[] toArray() {
+		String[] values = new String[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = getString(i);
+		}
+		return values;
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			int i;
+
+			@Override
+			public boolean hasNext() {
+				return i < size;
+			}
+
+			@Override
+			public String next() {
+				if (i >= size) {
+					throw new NoSuchElementException();
+				}
+				return getString(i++);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	boolean escaped(int index) {
+		return escaped[index];
+	}
+
+	ByteBuffer bytes() {
+		return bytes;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("field " + index + " out of " + size);
+		}
+	}
+
+	private void ensureSlot(int index) {
+		if (index >= offsets.length) {
+			int length = Math.max(index + 1, offsets.length * 2);
+			offsets = Arrays.copyOf(offsets, length);
+			lengths = Arrays.copyOf(lengths, length);
+			escaped = Arrays.copyOf(escaped, length);
+		}
+	}
+}
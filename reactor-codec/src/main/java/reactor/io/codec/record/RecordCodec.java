@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.record;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import reactor.io.buffer.Buffer;
+import reactor.io.codec.BufferCodec;
+
+/**
+ * A {@link BufferCodec} for delimited records such as CSV or TSV. Records are framed on
+ * {@code '\n'} (a preceding {@code '\r'} is dropped) except within quoted fields, so
+ * quoted line breaks are part of the field.
+ * <p>
+ * Decoding does not copy field content: each decoder owns a single {@link Record} that is
+ * re-pointed at every frame and exposes fields as offsets into the received
+ * {@link Buffer} with typed accessors. A projection restricts the decoded fields to the
+ * given columns, other columns are skipped and scanning stops after the last projected
+ * column.
+ * <p>
+ * Encoding writes any {@link Iterable} as one record, quoting fields when needed. A
+ * decoded {@link Record} is written back from its source bytes.
+ * <pre>
+ * {@code
+ * RecordCodec.csv()
+ *            .project(0, 3)
+ *            .decode(input)
+ *            .map(r -> new Trade(r.getString(0), r.getDouble(1)))
+ * }
+ * </pre>
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class RecordCodec extends BufferCodec<Record, Iterable<?>> {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Create a comma separated codec with {@code '"'} quoting.
+	 *
+	 * @return a new CSV codec
+	 */
+	public static RecordCodec csv() {
+		return new RecordCodec((byte) ',', (byte) '"');
+	}
+
+	/**
+	 * Create a tab separated codec without quoting.
+	 *
+	 * @return a new TSV codec
+	 */
+	public static RecordCodec tsv() {
+		return new RecordCodec((byte) '\t', (byte) 0);
+	}
+
+	final byte  separator;
+	final byte  quote;
+	final int[] projection;
+	final int[] slots;
+
+	/**
+	 * Create a codec for records with the given separator and quote.
+	 *
+	 * @param separator the field separator
+	 * @param quote the quote character or {@code 0} to disable quoting
+	 */
+	public RecordCodec(byte separator, byte quote) {
+		this(separator, quote, null);
+	}
+
+	RecordCodec(byte separator, byte quote, int[] projection) {
+		super(null, () -> new ScanState(new Record(quote)));
+		if (separator == '\n' || separator == '\r' || (quote != 0 && separator == quote)) {
+			throw new IllegalArgumentException("Invalid separator " + separator);
+		}
+		this.separator = separator;
+		this.quote = quote;
+		this.projection = projection;
+		if (projection != null) {
+			int max = -1;
+			for (int column : projection) {
+				if (column < 0) {
+					throw new IllegalArgumentException("Invalid column " + column);
+				}
+				max = Math.max(max, column);
+			}
+			this.slots = new int[max + 1];
+			Arrays.fill(slots, -1);
+			for (int i = 0; i < projection.length; i++) {
+				if (slots[projection[i]] != -1) {
+					throw new IllegalArgumentException("Duplicate column " + projection[i]);
+				}
+				slots[projection[i]] = i;
+			}
+		}
+		else {
+			this.slots = null;
+		}
+	}
+
+	/**
+	 * Create a codec decoding only the given columns, in the given order. Field
+	 * {@code i} of the decoded {@link Record} is column {@code columns[i]} of the
+	 * input; missing columns are decoded as empty fields.
+	 *
+	 * @param columns the zero-based input columns to decode
+	 * @return a new codec with the same separator and quote
+	 */
+	public RecordCodec project(int... columns) {
+		if (columns == null || columns.length == 0) {
+			throw new IllegalArgumentException("At least one column is required");
+		}
+		return new RecordCodec(separator, quote, columns.clone());
+	}
+
+	@Override
+	protected <C> Function<Buffer, Record> decoder(Consumer<Record> next, C context) {
+		return new BufferInvokeOrReturnFunction<>(next, context);
+	}
+
+	@Override
+	protected int canDecodeNext(Buffer buffer, Object context) {
+		ByteBuffer bytes = buffer.byteBuffer();
+		if (bytes == null) {
+			return -1;
+		}
+		int start = buffer.position();
+		// framing, iterating and decoding a record scan it three times, remember the
+		// last complete frame. Decoded views are duplicates sharing the backing array.
+		Object source = bytes.hasArray() ? bytes.array() : bytes;
+		int offset = bytes.hasArray() ? bytes.arrayOffset() : 0;
+		ScanState state = (ScanState) context;
+		if (state != null && state.source == source && state.start == offset + start &&
+				state.end - offset <= buffer.limit()) {
+			return state.end - offset;
+		}
+		int end = scan(bytes, start, buffer.limit());
+		if (state != null && end != -1) {
+			state.source = source;
+			state.start = offset + start;
+			state.end = offset + end;
+		}
+		return end;
+	}
+
+	@Override
+	protected Record decodeNext(Buffer buffer, Object context) {
+		int end = canDecodeNext(buffer, context);
+		if (end == -1) {
+			return null;
+		}
+		ByteBuffer bytes = buffer.byteBuffer();
+		int lineEnd = end - 1;
+		if (lineEnd > buffer.position() && bytes.get(lineEnd - 1) == '\r') {
+			lineEnd--;
+		}
+
+		ScanState state = (ScanState) context;
+		state.source = null;
+		Record record = state.record;
+		record.wrap(buffer);
+		if (projection != null) {
+			record.size(projection.length);
+		}
+
+		int maxColumn = slots != null ? slots.length - 1 : Integer.MAX_VALUE;
+		int column = 0;
+		int i = buffer.position();
+		for (; ; ) {
+			int fieldStart = i;
+			int fieldEnd;
+			boolean escaped = false;
+			if (quote != 0 && i < lineEnd && bytes.get(i) == quote) {
+				fieldStart = ++i;
+				while (i < lineEnd) {
+					if (bytes.get(i) == quote) {
+						if (i + 1 < lineEnd && bytes.get(i + 1) == quote) {
+							escaped = true;
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				fieldEnd = i;
+				while (i < lineEnd && bytes.get(i) != separator) {
+					i++;
+				}
+			}
+			else {
+				while (i < lineEnd && bytes.get(i) != separator) {
+					i++;
+				}
+				fieldEnd = i;
+			}
+
+			int slot = slots == null ? column : (column <= maxColumn ? slots[column] : -1);
+			if (slot != -1) {
+				record.set(slot, fieldStart, fieldEnd - fieldStart, escaped);
+			}
+			if (i >= lineEnd || ++column > maxColumn) {
+				break;
+			}
+			i++;
+		}
+
+		buffer.position(end);
+		return record;
+	}
+
+	@Override
+	protected Buffer encodeNext(Iterable<?> values) {
+		Buffer out = new Buffer();
+		if (values instanceof Record) {
+			appendRecord(out, (Record) values);
+		}
+		else {
+			boolean first = true;
+			for (Object value : values) {
+				if (!first) {
+					out.append(separator);
+				}
+				first = false;
+				appendValue(out, value);
+			}
+		}
+		return out.append((byte) '\n')
+		          .flip();
+	}
+
+	void appendValue(Buffer out, Object value) {
+		if (value == null) {
+			return;
+		}
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			out.appendAscii(((Number) value).intValue());
+			return;
+		}
+		if (value instanceof Long) {
+			out.appendAscii((Long) value);
+			return;
+		}
+		byte[] bytes = value.toString()
+		                    .getBytes(UTF8);
+		boolean needsQuote = false;
+		for (byte b : bytes) {
+			if (isSpecial(b)) {
+				needsQuote = true;
+				break;
+			}
+		}
+		if (!needsQuote) {
+			out.append(bytes);
+			return;
+		}
+		checkQuoting();
+		out.append(quote);
+		for (byte b : bytes) {
+			out.append(b);
+			if (b == quote) {
+				out.append(quote);
+			}
+		}
+		out.append(quote);
+	}
+
+	void appendRecord(Buffer out, Record record) {
+		ByteBuffer bytes = record.bytes();
+		for (int i = 0; i < record.size(); i++) {
+			if (i > 0) {
+				out.append(separator);
+			}
+			int offset = record.offset(i);
+			int len = record.length(i);
+			boolean needsQuote = record.escaped(i);
+			for (int j = offset; !needsQuote && j < offset + len; j++) {
+				needsQuote = isSpecial(bytes.get(j));
+			}
+			if (len == 0) {
+				continue;
+			}
+			ByteBuffer field = bytes.duplicate();
+			field.limit(offset + len)
+			     .position(offset);
+			if (needsQuote) {
+				checkQuoting();
+				// escaped quotes are still doubled in the source
+				out.append(quote)
+				   .append(field)
+				   .append(quote);
+			}
+			else {
+				out.append(field);
+			}
+		}
+	}
+
+	int scan(ByteBuffer bytes, int start, int limit) {
+		boolean quoted = false;
+		for (int i = start; i < limit; i++) {
+			byte b = bytes.get(i);
+			if (quote != 0 && b == quote) {
+				// an escaped quote toggles twice
+				quoted = !quoted;
+			}
+			else if (b == '\n' && !quoted) {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isSpecial(byte b) {
+		return b == separator || b == '\n' || b == '\r' || (quote != 0 && b == quote);
+	}
+
+	private void checkQuoting() {
+		if (quote == 0) {
+			throw new IllegalArgumentException("A field contains a separator or a line break " +
+					"and this codec has no quote character");
+		}
+	}
+
+	static final class ScanState {
+
+		final Record record;
+
+		Object source;
+		int    start;
+		int    end;
+
+		ScanState(Record record) {
+			this.record = record;
+		}
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.resp;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import reactor.io.buffer.Buffer;
+import reactor.io.buffer.Slice;
+
+/**
+ * A RESP2 value: a simple string, an error, an integer, a bulk string or an array of
+ * values. Strings are kept as {@link Slice Slices}; a decoded value shares the bytes of
+ * the received {@link Buffer}, use {@link #copy()} to retain it after the source is
+ * recycled.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class Resp {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The RESP2 value types and their prefix
+	 */
+	public enum Type {
+		SIMPLE_STRING('+'), ERROR('-'), INTEGER(':'), BULK_STRING('$'), ARRAY('*');
+
+		final byte prefix;
+
+		Type(char prefix) {
+			this.prefix = (byte) prefix;
+		}
+
+		/**
+		 * @return the byte starting a value of this type
+		 */
+		public byte prefix() {
+			return prefix;
+		}
+	}
+
+	static final Resp NULL_BULK  = new Resp(Type.BULK_STRING, null, 0L, null);
+	static final Resp NULL_ARRAY = new Resp(Type.ARRAY, null, 0L, null);
+	static final Resp OK         = simple("OK");
+
+	/**
+	 * @param value the content, without line breaks
+	 * @return a new simple string
+	 */
+	public static Resp simple(String value) {
+		return new Resp(Type.SIMPLE_STRING, slice(value), 0L, null);
+	}
+
+	/**
+	 * @param message the error message, without line breaks
+	 * @return a new error
+	 */
+	public static Resp error(String message) {
+		return new Resp(Type.ERROR, slice(message), 0L, null);
+	}
+
+	/**
+	 * @param value the value
+	 * @return a new integer
+	 */
+	public static Resp integer(long value) {
+		return new Resp(Type.INTEGER, null, value, null);
+	}
+
+	/**
+	 * @param value the UTF-8 content or null
+	 * @return a new bulk string
+	 */
+	public static Resp bulk(String value) {
+		return value == null ? NULL_BULK : new Resp(Type.BULK_STRING, slice(value), 0L, null);
+	}
+
+	/**
+	 * @param value the content or null
+	 * @return a new bulk string sharing the given bytes
+	 */
+	public static Resp bulk(byte[] value) {
+		return value == null ? NULL_BULK :
+				new Resp(Type.BULK_STRING, Buffer.wrap(value).asSlice(), 0L, null);
+	}
+
+	/**
+	 * @param value the content or null
+	 * @return a new bulk string sharing the given {@link Slice}
+	 */
+	public static Resp bulk(Slice value) {
+		return value == null ? NULL_BULK : new Resp(Type.BULK_STRING, value, 0L, null);
+	}
+
+	/**
+	 * @param elements the values
+	 * @return a new array
+	 */
+	public static Resp array(Resp... elements) {
+		return elements == null ? NULL_ARRAY : array(Arrays.asList(elements));
+	}
+
+	/**
+	 * @param elements the values or null
+	 * @return a new array
+	 */
+	public static Resp array(List<Resp> elements) {
+		return elements == null ? NULL_ARRAY :
+				new Resp(Type.ARRAY, null, 0L, Collections.unmodifiableList(elements));
+	}
+
+	/**
+	 * @return the null bulk string
+	 */
+	public static Resp nullBulk() {
+		return NULL_BULK;
+	}
+
+	/**
+	 * @return the null array
+	 */
+	public static Resp nullArray() {
+		return NULL_ARRAY;
+	}
+
+	final Type       type;
+	final Slice      content;
+	final long       integer;
+	final List<Resp> elements;
+
+	Resp(Type type, Slice content, long integer, List<Resp> elements) {
+		this.type = type;
+		this.content = content;
+		this.integer = integer;
+		this.elements = elements;
+	}
+
+	/**
+	 * @return the type of this value
+	 */
+	public Type type() {
+		return type;
+	}
+
+	/**
+	 * @return {@literal true} if this is the null bulk string or the null array
+	 */
+	public boolean isNull() {
+		return this == NULL_BULK || this == NULL_ARRAY;
+	}
+
+	/**
+	 * @return {@literal true} if this is an error
+	 */
+	public boolean isError() {
+		return type == Type.ERROR;
+	}
+
+	/**
+	 * Return the content of a simple string, an error or a bulk string without copy.
+	 *
+	 * @return the content or null for the null bulk string
+	 * @throws IllegalStateException if this value has no string content
+	 */
+	public Slice asSlice() {
+		if (type == Type.INTEGER || type == Type.ARRAY) {
+			throw new IllegalStateException("Not a string: " + type);
+		}
+		return content;
+	}
+
+	/**
+	 * @return the UTF-8 content or null for the null bulk string, integers are
+	 * formatted
+	 */
+	public String asString() {
+		if (type == Type.INTEGER) {
+			return Long.toString(integer);
+		}
+		Slice s = asSlice();
+		return s == null ? null : s.asString(UTF8);
+	}
+
+	/**
+	 * @return a copy of the content or null for the null bulk string
+	 */
+	public byte[] asBytes() {
+		Slice s = asSlice();
+		return s == null ? null : s.asBytes();
+	}
+
+	/**
+	 * Return the value of an integer, or parse a string value.
+	 *
+	 * @return the value
+	 * @throws NumberFormatException if a string value is not a valid {@code long}
+	 */
+	public long asLong() {
+		if (type == Type.INTEGER) {
+			return integer;
+		}
+		Slice s = asSlice();
+		if (s == null) {
+			throw new NumberFormatException("null");
+		}
+		return s.toBuffer()
+		        .parseLong(0, s.length());
+	}
+
+	/**
+	 * @return the elements of an array, null for the null array
+	 * @throws IllegalStateException if this value is not an array
+	 */
+	public List<Resp> elements() {
+		if (type != Type.ARRAY) {
+			throw new IllegalStateException("Not an array: " + type);
+		}
+		return elements;
+	}
+
+	/**
+	 * @param index the element index
+	 * @return the element of an array at the given index
+	 */
+	public Resp get(int index) {
+		return elements().get(index);
+	}
+
+	/**
+	 * @return the number of elements of an array, or -1 for the null array
+	 */
+	public int size() {
+		List<Resp> e = elements();
+		return e == null ? -1 : e.size();
+	}
+
+	/**
+	 * Copy the string content of this value and of any nested value, so that it does
+	 * not share the bytes of a received {@link Buffer} anymore.
+	 *
+	 * @return a value owning its content
+	 */
+	public Resp copy() {
+		switch (type) {
+			case INTEGER:
+				return this;
+			case ARRAY:
+				if (elements == null) {
+					return this;
+				}
+				List<Resp> copies = new ArrayList<>(elements.size());
+				for (Resp e : elements) {
+					copies.add(e.copy());
+				}
+				return new Resp(type, null, 0L, Collections.unmodifiableList(copies));
+			default:
+				if (content == null) {
+					return this;
+				}
+				return new Resp(type, Buffer.wrap(content.asBytes())
+				                            .asSlice(), 0L, null);
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Resp)) {
+			return false;
+		}
+		Resp that = (Resp) o;
+		if (type != that.type || integer != that.integer) {
+			return false;
+		}
+		if (content != null ? !content.equals(that.content) : that.content != null) {
+			return false;
+		}
+		return elements != null ? elements.equals(that.elements) : that.elements == null;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = type.hashCode();
+		h = 31 * h + (int) (integer ^ (integer >>> 32));
+		h = 31 * h + (content != null ? content.hashCode() : 0);
+		return 31 * h + (elements != null ? elements.hashCode() : 0);
+	}
+
+	@Override
+	public String toString() {
+		switch (type) {
+			case INTEGER:
+				return ":" + integer;
+			case ARRAY:
+				return elements == null ? "*-1" : elements.toString();
+			default:
+				return content == null ? "$-1" : (char) type.prefix + asString();
+		}
+	}
+
+	static Slice slice(String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("A value is required");
+		}
+		return Buffer.wrap(value.getBytes(UTF8))
+		             .asSlice();
+	}
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.resp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import reactor.io.buffer.Buffer;
+import reactor.io.buffer.Slice;
+import reactor.io.codec.BufferCodec;
+
+/**
+ * A {@link BufferCodec} for the Redis serialization protocol (RESP2). Each decoded
+ * {@link Resp} is a complete value, possibly a nested array, and its strings are
+ * {@link Slice Slices} of the received {@link Buffer}: bulk strings are never copied
+ * while decoding.
+ * <p>
+ * Encoding writes a {@link Resp} as is. Any other value is written as a bulk string,
+ * except a top-level {@link Number} written as an integer; an {@code Object[]} or an
+ * {@link Iterable} is written as an array whose plain elements are bulk strings, which is
+ * the form of a command:
+ * <pre>
+ * {@code
+ * codec.apply(Arrays.asList("SET", "key", 42)) // *3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$2\r\n42\r\n
+ * }
+ * </pre>
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class RespCodec extends BufferCodec<Resp, Object> {
+
+	/**
+	 * Default maximum length of a bulk string, as in Redis
+	 */
+	public static final int DEFAULT_MAX_BULK_LENGTH = 512 * 1024 * 1024;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static final byte CR = '\r';
+	static final byte LF = '\n';
+
+	final int maxBulkLength;
+
+	/**
+	 * Create a codec accepting bulk strings up to {@link #DEFAULT_MAX_BULK_LENGTH}.
+	 */
+	public RespCodec() {
+		this(DEFAULT_MAX_BULK_LENGTH);
+	}
+
+	/**
+	 * Create a codec rejecting bulk strings and arrays longer than the given length.
+	 *
+	 * @param maxBulkLength the maximum number of bytes of a bulk string or elements of
+	 * an array
+	 */
+	public RespCodec(int maxBulkLength) {
+		super(null, ScanState::new);
+		if (maxBulkLength < 0) {
+			throw new IllegalArgumentException("maxBulkLength must be >= 0");
+		}
+		this.maxBulkLength = maxBulkLength;
+	}
+
+	@Override
+	protected <C> Function<Buffer, Resp> decoder(Consumer<Resp> next, C context) {
+		return new BufferInvokeOrReturnFunction<>(next, context);
+	}
+
+	@Override
+	protected int canDecodeNext(Buffer buffer, Object context) {
+		ByteBuffer bytes = buffer.byteBuffer();
+		if (bytes == null) {
+			return -1;
+		}
+		int start = buffer.position();
+		// framing, iterating and decoding a value scan it three times, remember the
+		// last complete frame
+		ScanState state = (ScanState) context;
+		if (state != null && state.bytes == bytes && state.start == start && state.end <= buffer.limit()) {
+			return state.end;
+		}
+		int end = scan(buffer, bytes, start, buffer.limit());
+		if (state != null && end != -1) {
+			state.bytes = bytes;
+			state.start = start;
+			state.end = end;
+		}
+		return end;
+	}
+
+	@Override
+	protected Resp decodeNext(Buffer buffer, Object context) {
+		int end = canDecodeNext(buffer, context);
+		if (end == -1) {
+			return null;
+		}
+		Resp value = parse(buffer, buffer.byteBuffer(), new int[]{buffer.position()});
+		buffer.position(end);
+		if (context != null) {
+			((ScanState) context).bytes = null;
+		}
+		return value;
+	}
+
+	@Override
+	protected Buffer encodeNext(Object value) {
+		Buffer out = new Buffer();
+		if (value instanceof Number && !(value instanceof Double || value instanceof Float)) {
+			writeInteger(out, ((Number) value).longValue());
+		}
+		else {
+			write(out, value);
+		}
+		return out.flip();
+	}
+
+	/**
+	 * Scan a complete value from the given absolute index.
+	 *
+	 * @return the absolute index after the value or -1 if the value is incomplete
+	 */
+	int scan(Buffer buffer, ByteBuffer bytes, int i, int limit) {
+		if (i >= limit) {
+			return -1;
+		}
+		byte type = bytes.get(i);
+		int lineEnd = lineEnd(bytes, i + 1, limit);
+		if (lineEnd == -1) {
+			return -1;
+		}
+		switch (type) {
+			case '+':
+			case '-':
+			case ':':
+				return lineEnd + 2;
+			case '$': {
+				long len = length(buffer, i + 1, lineEnd);
+				if (len == -1L) {
+					return lineEnd + 2;
+				}
+				long end = lineEnd + 2 + len + 2;
+				return end > limit ? -1 : (int) end;
+			}
+			case '*': {
+				long count = length(buffer, i + 1, lineEnd);
+				int next = lineEnd + 2;
+				for (long n = 0; n < count && next != -1; n++) {
+					next = scan(buffer, bytes, next, limit);
+				}
+				return next;
+			}
+			default:
+				throw new IllegalStateException("Invalid RESP type '" + (char) type + "' at " + i);
+		}
+	}
+
+	/**
+	 * Parse a complete value from {@code cursor[0]} and move the cursor after it.
+	 */
+	Resp parse(Buffer buffer, ByteBuffer bytes, int[] cursor) {
+		int i = cursor[0];
+		int lineEnd = lineEnd(bytes, i + 1, bytes.limit());
+		cursor[0] = lineEnd + 2;
+		switch (bytes.get(i)) {
+			case '+':
+				return new Resp(Resp.Type.SIMPLE_STRING, buffer.asSlice(i + 1, lineEnd), 0L, null);
+			case '-':
+				return new Resp(Resp.Type.ERROR, buffer.asSlice(i + 1, lineEnd), 0L, null);
+			case ':':
+				return Resp.integer(buffer.parseLong(i + 1, lineEnd - i - 1));
+			case '$': {
+				int len = (int) length(buffer, i + 1, lineEnd);
+				if (len == -1) {
+					return Resp.NULL_BULK;
+				}
+				int start = lineEnd + 2;
+				cursor[0] = start + len + 2;
+				return new Resp(Resp.Type.BULK_STRING, buffer.asSlice(start, start + len), 0L, null);
+			}
+			default: {
+				int count = (int) length(buffer, i + 1, lineEnd);
+				if (count == -1) {
+					return Resp.NULL_ARRAY;
+				}
+				List<Resp> elements = new ArrayList<>(count);
+				for (int n = 0; n < count; n++) {
+					elements.add(parse(buffer, bytes, cursor));
+				}
+				return new Resp(Resp.Type.ARRAY, null, 0L, Collections.unmodifiableList(elements));
+			}
+		}
+	}
+
+	long length(Buffer buffer, int offset, int lineEnd) {
+		long len = buffer.parseLong(offset, lineEnd - offset);
+		if (len < -1L || len > maxBulkLength) {
+			throw new IllegalStateException("Invalid RESP length " + len + " at " + offset);
+		}
+		return len;
+	}
+
+	static int lineEnd(ByteBuffer bytes, int from, int limit) {
+		for (int i = from; i < limit - 1; i++) {
+			if (bytes.get(i) == CR) {
+				if (bytes.get(i + 1) != LF) {
+					throw new IllegalStateException("Expected LF after CR at " + i);
+				}
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	void write(Buffer out, Object value) {
+		if (value instanceof Resp) {
+			writeResp(out, (Resp) value);
+		}
+		else if (value instanceof Object[]) {
+			Object[] values = (Object[]) value;
+			writeHeader(out, Resp.Type.ARRAY, values.length);
+			for (Object v : values) {
+				write(out, v);
+			}
+		}
+		else if (value instanceof Iterable) {
+			List<Object> values = new ArrayList<>();
+			for (Object v : (Iterable<?>) value) {
+				values.add(v);
+			}
+			writeHeader(out, Resp.Type.ARRAY, values.size());
+			for (Object v : values) {
+				write(out, v);
+			}
+		}
+		else {
+			writeBulk(out, value);
+		}
+	}
+
+	void writeResp(Buffer out, Resp value) {
+		switch (value.type) {
+			case INTEGER:
+				writeInteger(out, value.integer);
+				return;
+			case ARRAY:
+				if (value.elements == null) {
+					writeHeader(out, Resp.Type.ARRAY, -1);
+					return;
+				}
+				writeHeader(out, Resp.Type.ARRAY, value.elements.size());
+				for (Resp e : value.elements) {
+					writeResp(out, e);
+				}
+				return;
+			case BULK_STRING:
+				if (value.content == null) {
+					writeHeader(out, Resp.Type.BULK_STRING, -1);
+					return;
+				}
+				writeHeader(out, Resp.Type.BULK_STRING, value.content.length());
+				out.append(value.content.byteBuffer())
+				   .append(CR)
+				   .append(LF);
+				return;
+			default:
+				out.append(value.type.prefix)
+				   .append(value.content.byteBuffer())
+				   .append(CR)
+				   .append(LF);
+		}
+	}
+
+	void writeBulk(Buffer out, Object value) {
+		if (value == null) {
+			writeHeader(out, Resp.Type.BULK_STRING, -1);
+			return;
+		}
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			Buffer digits = new Buffer(20, true).appendAscii(((Number) value).longValue())
+			                                    .flip();
+			writeHeader(out, Resp.Type.BULK_STRING, digits.remaining());
+			out.append(digits);
+		}
+		else if (value instanceof byte[]) {
+			byte[] b = (byte[]) value;
+			writeHeader(out, Resp.Type.BULK_STRING, b.length);
+			out.append(b);
+		}
+		else if (value instanceof Slice) {
+			Slice s = (Slice) value;
+			writeHeader(out, Resp.Type.BULK_STRING, s.length());
+			out.append(s.byteBuffer());
+		}
+		else if (value instanceof Buffer) {
+			Buffer b = ((Buffer) value).duplicate();
+			writeHeader(out, Resp.Type.BULK_STRING, b.remaining());
+			out.append(b);
+		}
+		else {
+			byte[] b = value.toString()
+			                .getBytes(UTF8);
+			writeHeader(out, Resp.Type.BULK_STRING, b.length);
+			out.append(b);
+		}
+		out.append(CR)
+		   .append(LF);
+	}
+
+	static void writeInteger(Buffer out, long value) {
+		out.append(Resp.Type.INTEGER.prefix)
+		   .appendAscii(value)
+		   .append(CR)
+		   .append(LF);
+	}
+
+	static void writeHeader(Buffer out, Resp.Type type, long length) {
+		out.append(type.prefix)
+		   .appendAscii(length)
+		   .append(CR)
+		   .append(LF);
+	}
+
+	static final class ScanState {
+
+		ByteBuffer bytes;
+		int        start;
+		int        end;
+	}
+}
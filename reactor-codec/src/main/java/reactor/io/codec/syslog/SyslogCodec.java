@@ -22,6 +22,8 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 import reactor.io.buffer.Buffer;
+import reactor.io.buffer.BufferTokenizer;
+import reactor.io.buffer.StringCache;
 import reactor.io.codec.Codec;
 
 /**
@@ -39,8 +41,23 @@ public class SyslogCodec extends Codec<Buffer, SyslogMessage, Void> {
 	private static final int MAXIMUM_PRI      = (MAXIMUM_FACILITY * 8) + MAXIMUM_SEVERITY;
 	private static final int DEFAULT_PRI      = 13;
 
+	private final StringCache hosts;
+
+	public SyslogCodec() {
+		this(null);
+	}
+
+	/**
+	 * Create a codec sharing the decoded host names through the given {@link StringCache}.
+	 *
+	 * @param hosts a nullable cache of host names
+	 */
+	public SyslogCodec(StringCache hosts) {
+		this.hosts = hosts;
+	}
+
 	@Override
-	public Buffer apply(Void v) {
+	protected Buffer encodeNext(Void v) {
 		return null;
 	}
 
@@ -55,10 +72,12 @@ public class SyslogCodec extends Codec<Buffer, SyslogMessage, Void> {
 	}
 
 	private class SyslogMessageDecoder implements Function<Buffer, SyslogMessage> {
-		private final Calendar cal  = Calendar.getInstance();
-		private final int      year = cal.get(Calendar.YEAR);
+		private final Calendar                cal    = Calendar.getInstance();
+		private final int                     year   = cal.get(Calendar.YEAR);
+		private final BufferTokenizer         lines  = new BufferTokenizer();
+		private final BufferTokenizer         fields = new BufferTokenizer();
 		private final Consumer<SyslogMessage> next;
-		private       Buffer.View             remainder;
+		private       Buffer                  remainder;
 
 		private SyslogMessageDecoder(Consumer<SyslogMessage> next) {
 			this.next = next;
@@ -70,56 +89,52 @@ public class SyslogCodec extends Codec<Buffer, SyslogMessage, Void> {
 		}
 
 		private SyslogMessage parse(Buffer buffer) {
-			String line = null;
 			if (null != remainder) {
-				line = remainder.get().asString();
+				buffer = new Buffer(remainder.remaining() + buffer.remaining(), true).append(remainder)
+				                                                                   .append(buffer)
+				                                                                   .flip();
+				remainder = null;
 			}
 
-			int start = 0;
-			for (Buffer.View view : buffer.split('\n', false)) {
-				Buffer b = view.get();
-				if (b.last() != '\n') {
-					remainder = view;
-					return null;
-				}
-				String s = b.asString();
-				if (null != line) {
-					line += s;
-				} else {
-					line = s;
-				}
-				if (line.isEmpty()) {
+			lines.reset(buffer);
+			while (lines.next((byte) '\n')) {
+				if (lines.length() == 0) {
 					continue;
 				}
+				int base = lines.offset();
+				int lineEnd = base + lines.length();
 
 				int priority = DEFAULT_PRI;
 				int facility = priority / 8;
 				int severity = priority % 8;
 
-				int priStart = line.indexOf('<', start);
-				int priEnd = line.indexOf('>', start + 1);
-				if (priStart == 0) {
-					int pri = Buffer.parseInt(b, 1, priEnd);
+				int start = base;
+				int priEnd = BufferTokenizer.indexOf(buffer, (byte) '>', base + 1, Math.min(base + 5, lineEnd));
+				if (buffer.byteBuffer().get(base) == '<' && priEnd > base + 1) {
+					int pri = parsePriority(buffer, base + 1, priEnd - base - 1);
 					if (pri >= MINIMUM_PRI && pri <= MAXIMUM_PRI) {
 						priority = pri;
 						facility = priority / 8;
 						severity = priority % 8;
 					}
-					start = 4;
+					start = priEnd + 1;
 				}
 
-				Date tstamp = parseRfc3414Date(b, start, start + 15);
+				Date tstamp = parseRfc3414Date(buffer, start, start + 15);
 				String host = null;
 				if (null != tstamp) {
 					start += 16;
-					int end = line.indexOf(' ', start);
-					host = line.substring(start, end);
-					if (null != host) {
-						start += host.length() + 1;
+					int end = BufferTokenizer.indexOf(buffer, (byte) ' ', start, lineEnd);
+					if (end != -1) {
+						host = hosts != null ? hosts.get(buffer, start, end - start) :
+								field(buffer, start, end);
+						start = end + 1;
 					}
 				}
 
-				String msg = line.substring(start);
+				// the raw line and the message keep the delimiter
+				String line = field(buffer, base, lineEnd + 1);
+				String msg = field(buffer, start, lineEnd + 1);
 
 				SyslogMessage syslogMsg = new SyslogMessage(line,
 						priority,
@@ -131,17 +146,41 @@ public class SyslogCodec extends Codec<Buffer, SyslogMessage, Void> {
 				if (null != next) {
 					next.accept(syslogMsg);
 				} else {
+					buffer.position(lines.consumed());
 					return syslogMsg;
 				}
-
-				line = null;
-				start = 0;
 			}
 
+			buffer.position(lines.consumed());
+			if (buffer.remaining() > 0) {
+				// only a partial line is copied, to be completed by the next buffer
+				remainder = new Buffer(buffer.remaining(), true).append(buffer)
+				                                                .flip();
+			}
 			return null;
 		}
 
+		/**
+		 * Decode an absolute range of the buffer without slicing it.
+		 */
+		private String field(Buffer b, int start, int end) {
+			fields.reset(b, start, end);
+			return fields.last() ? fields.asString() : "";
+		}
+
+		private int parsePriority(Buffer b, int offset, int len) {
+			try {
+				return b.parseInt(offset, len);
+			}
+			catch (NumberFormatException nfe) {
+				return -1;
+			}
+		}
+
 		private Date parseRfc3414Date(Buffer b, int start, int end) {
+			if (end > b.limit()) {
+				return null;
+			}
 			b.snapshot();
 
 			b.byteBuffer().limit(end);
@@ -217,6 +256,7 @@ public class SyslogCodec extends Codec<Buffer, SyslogMessage, Void> {
 					b.read();
 					break;
 				default:
+					b.reset();
 					return null;
 			}
 
@@ -227,24 +267,29 @@ public class SyslogCodec extends Codec<Buffer, SyslogMessage, Void> {
 			while (b.read() != ' ') {
 			}
 			int dayEnd = b.position() - 1;
-			day = Buffer.parseInt(b, dayStart, dayEnd);
 
-			while (b.read() == ' ') {
-			}
+			try {
+				day = b.parseInt(dayStart, dayEnd - dayStart);
 
-			int timeStart = b.position() - 1;
-			hr = Buffer.parseInt(b, timeStart, timeStart + 2);
-			min = Buffer.parseInt(b, timeStart + 3, timeStart + 5);
-			sec = Buffer.parseInt(b, timeStart + 6, timeStart + 8);
+				while (b.read() == ' ') {
+				}
+
+				int timeStart = b.position() - 1;
+				hr = b.parseInt(timeStart, 2);
+				min = b.parseInt(timeStart + 3, 2);
+				sec = b.parseInt(timeStart + 6, 2);
 
-			try {
 				if (month < 0 || day < 0 || hr < 0 || min < 0 || sec < 0) {
 					return null;
 				} else {
 					cal.set(year, month, day, hr, min, sec);
 					return cal.getTime();
 				}
-			} finally {
+			}
+			catch (NumberFormatException nfe) {
+				return null;
+			}
+			finally {
 				b.reset();
 			}
 		}
@@ -21,7 +21,9 @@ import reactor.core.util.PlatformDependent
 import spock.lang.Specification
 
 import java.nio.BufferOverflowException
+import java.nio.BufferUnderflowException
 import java.nio.ByteBuffer
+import java.nio.ByteOrder
 
 /**
  * @author Jon Brisbin
@@ -484,4 +486,134 @@ class BufferSpec extends Specification {
 		then: "a BufferOverflowException is thrown"
 			thrown(BufferOverflowException)
 	}
+
+	def "Numbers can be parsed from a range without moving the position"() {
+		given: "a Buffer of ASCII numbers"
+			def buffer = Buffer.wrap("x-2147483648|9223372036854775807|-12.5|1.5e3|0.000123")
+
+		expect: "primitive values are parsed in place"
+			buffer.parseInt(1, 11) == Integer.MIN_VALUE
+			buffer.parseLong(13, 19) == Long.MAX_VALUE
+			buffer.parseDouble(33, 5) == -12.5d
+			buffer.parseDouble(39, 5) == 1500d
+			buffer.parseDouble(45, 8) == 0.000123d
+			buffer.position() == 0
+
+		when: "an invalid range is parsed"
+			buffer.parseInt(0, 3)
+
+		then: "a NumberFormatException is thrown"
+			thrown(NumberFormatException)
+
+		when: "an int overflows"
+			buffer.parseInt(13, 19)
+
+		then: "a NumberFormatException is thrown"
+			thrown(NumberFormatException)
+	}
+
+	def "Numbers can be appended as ASCII"() {
+		when: "numbers are appended"
+			def buffer = new Buffer()
+					.appendAscii(0)
+					.append((byte) ' ')
+					.appendAscii(-42)
+					.append((byte) ' ')
+					.appendAscii(Long.MIN_VALUE)
+					.append((byte) ' ')
+					.appendAscii(Long.MAX_VALUE)
+					.flip()
+
+		then: "the Buffer contains their decimal representation"
+			buffer.asString() == "0 -42 ${Long.MIN_VALUE} ${Long.MAX_VALUE}"
+	}
+
+	def "Variable-length and zigzag integers can be written and read back"() {
+		given: "a Buffer of varints"
+			def buffer = new Buffer()
+					.appendVarInt(1)
+					.appendVarInt(300)
+					.appendVarLong(Long.MAX_VALUE)
+					.appendZigZagInt(-1)
+					.appendZigZagLong(Long.MIN_VALUE)
+					.flip()
+
+		expect: "values are read back in order"
+			buffer.remaining() == 1 + 2 + 9 + 1 + 10
+			buffer.readVarInt() == 1
+			buffer.readVarInt() == 300
+			buffer.readVarLong() == Long.MAX_VALUE
+			buffer.readZigZagInt() == -1
+			buffer.readZigZagLong() == Long.MIN_VALUE
+			buffer.remaining() == 0
+	}
+
+	def "An incomplete varint does not move the position"() {
+		given: "a truncated varint"
+			def buffer = Buffer.wrap([(byte) 0x80, (byte) 0x80] as byte[])
+
+		when: "the varint is read"
+			buffer.readVarLong()
+
+		then: "a BufferUnderflowException is thrown and the position is unchanged"
+			thrown(BufferUnderflowException)
+			buffer.position() == 0
+	}
+
+	def "Slices are immutable and leave the parent untouched"() {
+		given: "a Buffer of lines"
+			def buffer = Buffer.wrap("one\ntwo\nthree")
+
+		when: "the Buffer is split into slices"
+			def slices = buffer.splitSlices(10, true).collect { it }
+
+		then: "complete lines are sliced and the parent position is unchanged"
+			slices*.asString() == ["one", "two"]
+			buffer.position() == 0
+			buffer.asSlice().length() == 13
+
+		when: "the parent moves"
+			buffer.position(8)
+
+		then: "existing slices are not affected"
+			slices[1].asString() == "two"
+			slices[1].get(0) == (byte) 't'
+			slices[1].slice(1, 3).asString() == "wo"
+	}
+
+	def "Slices keep the byte order of their parent"() {
+		given: "a little-endian Buffer"
+			def bytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+			bytes.putInt(0, 1).putInt(4, 2)
+			def buffer = new Buffer(bytes)
+
+		expect: "a slice reads integers in the same order"
+			buffer.asSlice(4, 8).getInt(0) == 2
+	}
+
+	def "Slices can be read concurrently"() {
+		given: "a large Buffer of delimited records"
+			def buffer = new Buffer()
+			(0..<1000).each { buffer.appendAscii(it).append((byte) ',') }
+			buffer.flip()
+
+		when: "every slice is parsed from several threads"
+			def slices = buffer.splitSlices(44, true).collect { it }
+			def results = Collections.synchronizedList([])
+			(1..4).collect {
+				Thread.start { results << slices.sum { it.toBuffer().parseInt(0, it.length()) } }
+			}*.join()
+
+		then: "every thread read every slice"
+			slices.size() == 1000
+			results == [(0..<1000).sum()] * 4
+	}
+
+	def "A Buffer can be sliced at positions without a List"() {
+		given: "a Buffer"
+			def buffer = Buffer.wrap("Hello World!")
+
+		expect: "slices match the positions"
+			buffer.slices(0, 5, 6).collect { it.asString() } == ["Hello", "World!"]
+	}
 }
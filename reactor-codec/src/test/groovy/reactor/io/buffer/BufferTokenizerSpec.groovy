@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.buffer
+
+import spock.lang.Specification
+
+class BufferTokenizerSpec extends Specification {
+
+	def "A tokenizer steps through delimited tokens without moving the buffer"() {
+		given: "a buffer of comma separated fields"
+			def buffer = Buffer.wrap("GET,42,-7,tail")
+			def tokenizer = new BufferTokenizer().reset(buffer)
+
+		when: "fields are read"
+			def first = tokenizer.next(44 as byte)
+			def method = tokenizer.contentEquals("GET".bytes)
+			def second = tokenizer.next(44 as byte)
+			def answer = tokenizer.parseInt()
+			def third = tokenizer.next(44 as byte)
+			def negative = tokenizer.parseLong()
+			def fourth = tokenizer.next(44 as byte)
+			def last = tokenizer.last()
+
+		then: "each token is exposed in place"
+			first && method && second && third
+			answer == 42
+			negative == -7L
+			!fourth
+			last
+			tokenizer.asString() == "tail"
+			tokenizer.offset() == 10
+			tokenizer.length() == 4
+			tokenizer.remaining() == 0
+			buffer.position() == 0
+	}
+
+	def "A tokenizer leaves an undelimited remainder unconsumed"() {
+		given: "lines with a partial trailing line"
+			def buffer = Buffer.wrap("one\ntwo\nthr")
+			def tokenizer = new BufferTokenizer().reset(buffer)
+			def lines = []
+
+		when: "lines are read"
+			while (tokenizer.next(10 as byte)) {
+				lines << tokenizer.asString()
+			}
+
+		then: "only complete lines are returned"
+			lines == ["one", "two"]
+			tokenizer.consumed() == 8
+			tokenizer.remaining() == 3
+	}
+
+	def "A token can be compared and searched in place"() {
+		given: "a header line"
+			def buffer = Buffer.wrap("Content-Type: text/plain\r\n")
+			def tokenizer = new BufferTokenizer().reset(buffer)
+
+		when: "the name is read"
+			tokenizer.next(58 as byte)
+
+		then: "it matches ignoring case"
+			tokenizer.contentEqualsIgnoreCase("content-type".bytes)
+			!tokenizer.contentEquals("content-type".bytes)
+			tokenizer.startsWith("Content".bytes)
+			tokenizer.indexOf(45 as byte) == 7
+			tokenizer.byteAt(0) == (67 as byte)
+			tokenizer.slice().asString() == "Content-Type"
+	}
+
+	def "A range of a buffer can be searched without moving its position"() {
+		given: "a buffer"
+			def buffer = Buffer.wrap("a;b;c")
+
+		expect: "the absolute index of the delimiter"
+			BufferTokenizer.indexOf(buffer, 59 as byte, 0, 5) == 1
+			BufferTokenizer.indexOf(buffer, 59 as byte, 2, 5) == 3
+			BufferTokenizer.indexOf(buffer, 59 as byte, 4, 5) == -1
+			buffer.position() == 0
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.buffer
+
+import reactor.core.publisher.Flux
+import reactor.io.codec.StandardCodecs
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class FileBuffersSpec extends Specification {
+
+	def "A file written through a FileChannel is read back in mapped windows"() {
+		given: "a temporary file"
+			def path = Files.createTempFile("reactor-io", ".log")
+			def lines = (1..100).collect { "line $it\n".toString() }
+
+		when: "lines are written with a small force threshold"
+			def written = FileBuffers.write(Flux.fromIterable(lines).map { Buffer.wrap(it) }, path, 64).get()
+
+		then: "every byte is on disk"
+			written == lines.join('').length()
+			Files.size(path) == written
+
+		when: "the file is decoded through windows smaller than a line"
+			def decoded = StandardCodecs.LINE_FEED_CODEC.decode(FileBuffers.read(path, 5)).toList().get()
+
+		then: "lines spanning windows are reassembled"
+			decoded == lines.collect { it.trim() }
+
+		cleanup:
+			Files.deleteIfExists(path)
+	}
+
+	def "A mapped sink appends and truncates to the written length"() {
+		given: "a temporary file with existing content"
+			def path = Files.createTempFile("reactor-io", ".bin")
+			Files.write(path, "head".bytes)
+
+		when: "buffers are written through mapped windows"
+			def written = FileBuffers.writeMapped(Flux.just(Buffer.wrap("Hello "), Buffer.wrap("World!")), path, 4, 8).get()
+
+		then: "content is appended and the file is not padded"
+			written == 12
+			new String(Files.readAllBytes(path)) == "headHello World!"
+
+		cleanup:
+			Files.deleteIfExists(path)
+	}
+
+	def "A failed mapped sink truncates to the written length"() {
+		given: "a temporary file with existing content"
+			def path = Files.createTempFile("reactor-io", ".bin")
+			Files.write(path, "head".bytes)
+
+		when: "the source fails after a buffer was written through a mapped window"
+			FileBuffers.writeMapped(Flux.just(Buffer.wrap("Hello "))
+			                            .concatWith(Flux.error(new IllegalStateException("boom"))), path, 4, 8).get()
+
+		then: "the error is propagated and the file is not padded"
+			thrown(IllegalStateException)
+			new String(Files.readAllBytes(path)) == "headHello "
+
+		cleanup:
+			Files.deleteIfExists(path)
+	}
+}
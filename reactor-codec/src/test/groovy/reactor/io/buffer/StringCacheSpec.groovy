@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.buffer
+
+import reactor.io.codec.StringCodec
+import reactor.io.codec.json.JsonCodec
+import spock.lang.Specification
+
+import java.nio.charset.Charset
+
+class StringCacheSpec extends Specification {
+
+	def "Repeated byte sequences share a single String"() {
+		given: "a cache and a buffer repeating a value"
+			def cache = new StringCache(16)
+			def buffer = Buffer.wrap("host-a,host-a,host-b")
+
+		when: "values are looked up in place"
+			def first = cache.get(buffer, 0, 6)
+			def second = cache.get(buffer, 7, 6)
+			def third = cache.get(buffer, 14, 6)
+
+		then: "equal values are the same instance"
+			first == "host-a"
+			first.is(second)
+			third == "host-b"
+			cache.hits() == 1
+			cache.misses() == 2
+			buffer.position() == 0
+	}
+
+	def "Byte, char and String lookups agree"() {
+		given: "a cache"
+			def cache = new StringCache(16)
+
+		when: "the same value is looked up in different forms"
+			def fromBytes = cache.get("level".bytes, 0, 5)
+			def fromChars = cache.get("xlevelx".toCharArray(), 1, 5)
+			def fromString = cache.intern(new String("level"))
+
+		then: "ASCII values are shared across forms"
+			fromBytes.is(fromChars)
+			fromBytes.is(fromString)
+	}
+
+	def "Byte lookups find values cached from chars and Strings"() {
+		given: "a cache"
+			def cache = new StringCache(16)
+
+		when: "values cached from chars and Strings are looked up by their bytes"
+			def fromString = cache.intern(new String("caf\u00e9"))
+			def fromChars = cache.get("level".toCharArray(), 0, 5)
+			def cafeBytes = cache.get("caf\u00e9".getBytes("UTF-8"), 0, 5)
+			def cafeChars = cache.get("caf\u00e9".toCharArray(), 0, 4)
+			def levelBytes = cache.get("level".getBytes("UTF-8"), 0, 5)
+
+		then: "each value is cached once"
+			cafeBytes.is(fromString)
+			cafeChars.is(fromString)
+			levelBytes.is(fromChars)
+			cache.misses() == 2
+			cache.hits() == 3
+			cache.evictions() == 0
+	}
+
+	def "Least recently used entries are evicted from a full set"() {
+		given: "a cache of a single set"
+			def cache = new StringCache(4)
+
+		when: "more distinct values than ways are looked up"
+			(0..9).each { cache.intern("value$it".toString()) }
+
+		then: "older values were evicted"
+			cache.capacity() == 4
+			cache.evictions() == 6
+			cache.misses() == 10
+	}
+
+	def "Long values bypass the cache"() {
+		given: "a cache with a small maximum length"
+			def cache = new StringCache(16, 4, Charset.forName("UTF-8"))
+
+		when: "a long value is looked up twice"
+			def first = cache.get("abcdef".bytes, 0, 6)
+			def second = cache.get("abcdef".bytes, 0, 6)
+
+		then: "it is never cached"
+			first == second
+			!first.is(second)
+			cache.hits() == 0
+			cache.misses() == 0
+	}
+
+	def "Codecs consult the cache before allocating"() {
+		given: "codecs sharing a cache"
+			def cache = new StringCache()
+			def strings = new StringCodec(null, Charset.forName("UTF-8"), cache)
+			def json = new JsonCodec<Map, Map>(Map, null, null, cache)
+
+		when: "the same values are decoded twice"
+			def s1 = strings.decoder(null).apply(Buffer.wrap("INFO"))
+			def s2 = strings.decoder(null).apply(Buffer.wrap("INFO"))
+			def j1 = json.decoder(null).apply(Buffer.wrap('{"level":"WARN"}'))
+			def j2 = json.decoder(null).apply(Buffer.wrap('{"level":"WARN"}'))
+
+		then: "the decoded Strings are shared"
+			s1.is(s2)
+			j1.level == "WARN"
+			cache.hits() >= 1
+	}
+}
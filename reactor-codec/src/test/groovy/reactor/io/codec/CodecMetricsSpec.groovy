@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec
+
+import reactor.core.publisher.Flux
+import reactor.io.buffer.Buffer
+import spock.lang.Specification
+
+import java.util.function.Consumer
+
+class CodecMetricsSpec extends Specification {
+
+	def "Decoding through a Consumer records buffers, bytes and frames"() {
+		given: "an instrumented line codec"
+			def metrics = new CodecMetrics("lines")
+			def codec = new DelimitedCodec<String, String>(true, StandardCodecs.STRING_CODEC).metrics(metrics)
+			def data = Buffer.wrap("a\nb\nc\n")
+
+		when: "a buffer of three lines is decoded"
+			def lines = []
+			codec.decoder({ lines << it } as Consumer<String>).apply(data)
+
+		then: "the counters match"
+			lines == ["a", "b", "c"]
+			metrics.buffersIn() == 1
+			metrics.bytesIn() == 6
+			metrics.messagesDecoded() == 3
+			metrics.decodeLatency().count() == 3
+			metrics.framesPerBuffer().max() == 3
+	}
+
+	def "Decoding a Flux records the aggregate high water mark and encoding records bytes out"() {
+		given: "an instrumented line codec"
+			def metrics = new CodecMetrics()
+			def codec = new DelimitedCodec<String, String>(true, StandardCodecs.STRING_CODEC).metrics(metrics)
+
+		when: "a line split across two buffers is decoded"
+			def lines = codec.decode(Flux.just(Buffer.wrap("Hello "), Buffer.wrap("World!\n"))).toList().get()
+
+		then: "the partial line was aggregated"
+			lines == ["Hello World!"]
+			metrics.buffersIn() == 2
+			metrics.aggregateHighWaterMark() >= 6
+
+		when: "lines are encoded"
+			codec.encode(Flux.just("a", "b")).toList().get()
+
+		then: "encoded bytes include delimiters"
+			metrics.messagesEncoded() == 2
+			metrics.bytesOut() == 4
+			metrics.encodeLatency().count() == 2
+	}
+
+	def "Encoding through apply and encoder() records each value once"() {
+		given: "instrumented line and string codecs"
+			def metrics = new CodecMetrics()
+			def codec = new DelimitedCodec<String, String>(true, StandardCodecs.STRING_CODEC).metrics(metrics)
+			def stringMetrics = new CodecMetrics()
+			def strings = StandardCodecs.STRING_CODEC.metrics(stringMetrics)
+
+		when: "values are encoded without a Flux"
+			codec.apply("a")
+			codec.encoder().apply("bc")
+			strings.encoder().apply("abc")
+
+		then: "the encode calls are counted"
+			metrics.messagesEncoded() == 2
+			metrics.bytesOut() == 5
+			metrics.encodeLatency().count() == 2
+			stringMetrics.messagesEncoded() == 1
+			stringMetrics.bytesOut() == 3
+	}
+
+	def "Instrumenting a shared codec leaves the original untouched"() {
+		given: "metrics attached to a standard codec"
+			def metrics = new CodecMetrics()
+			def codec = StandardCodecs.LINE_FEED_CODEC.metrics(metrics)
+
+		when: "the original codec decodes a line"
+			StandardCodecs.LINE_FEED_CODEC.decoder({} as Consumer<String>).apply(Buffer.wrap("a\n"))
+
+		then: "nothing is recorded and only the copy is instrumented"
+			!codec.is(StandardCodecs.LINE_FEED_CODEC)
+			StandardCodecs.LINE_FEED_CODEC.metrics() == null
+			codec.metrics().is(metrics)
+			metrics.messagesDecoded() == 0
+	}
+
+	def "Histogram percentiles are bounded by powers of two"() {
+		given: "a histogram"
+			def histogram = new CodecMetrics().decodeLatency()
+
+		when: "values are recorded"
+			(1..100).each { histogram.record(it) }
+
+		then: "percentiles and max are consistent"
+			histogram.count() == 100
+			histogram.max() == 100
+			histogram.percentile(50) >= 50
+			histogram.percentile(50) <= 63
+			histogram.percentile(100) == 100
+	}
+}
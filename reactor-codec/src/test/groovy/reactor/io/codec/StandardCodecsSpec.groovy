@@ -124,4 +124,17 @@ class StandardCodecsSpec extends Specification {
 			data.readInt() == 12
 			data.asString() == "Hello World!"
 	}
+
+	def "A codec can be warmed up with sample round-trips"() {
+		given: "an instrumented codec"
+			def metrics = new CodecMetrics()
+			def codec = new StringCodec().metrics(metrics)
+
+		when: "it is warmed up"
+			def nanos = codec.warmup("Hello World!", 10)
+
+		then: "each round-trip encoded and decoded the sample"
+			nanos >= 0
+			metrics.messagesDecoded() == 10
+	}
 }
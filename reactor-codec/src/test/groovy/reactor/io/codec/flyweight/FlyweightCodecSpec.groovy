@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.flyweight
+
+import reactor.io.buffer.Buffer
+import spock.lang.Specification
+
+import java.nio.ByteOrder
+import java.util.function.Consumer
+
+class FlyweightCodecSpec extends Specification {
+
+	static final FlyweightSchema QUOTE = FlyweightSchema.builder()
+	                                                    .int64("instrument")
+	                                                    .float64("price")
+	                                                    .int32("size")
+	                                                    .bytes("venue", 4)
+	                                                    .build()
+
+	def "A schema lays out fields sequentially"() {
+		expect: 'offsets follow declaration order'
+		QUOTE.blockLength() == 24
+		QUOTE.field("instrument").offset() == 0
+		QUOTE.field("price").offset() == 8
+		QUOTE.field("size").offset() == 16
+		QUOTE.field("venue").offset() == 20
+
+		when: 'an unknown field is requested'
+		QUOTE.field("bid")
+
+		then: 'it is rejected'
+		thrown IllegalArgumentException
+	}
+
+	def "A flyweight reads what it wrote regardless of the buffer byte order"() {
+		given: 'a big endian schema and a little endian buffer'
+		def schema = FlyweightSchema.builder(ByteOrder.BIG_ENDIAN).int16("a").int64("b").build()
+		def target = new Buffer(schema.blockLength(), true)
+		target.byteBuffer().order(ByteOrder.LITTLE_ENDIAN)
+		def flyweight = new Flyweight(schema).wrap(target)
+
+		when: 'values are written'
+		flyweight.putShort(schema.field("a"), (short) 0x0102).putLong(schema.field("b"), 42L)
+
+		then: 'they are laid out big endian and read back'
+		target.byteBuffer().get(0) == (byte) 0x01
+		flyweight.getShort(schema.field("a")) == (short) 0x0102
+		flyweight.getLong(schema.field("b")) == 42L
+	}
+
+	def "Frames are decoded into a single reused flyweight"() {
+		given: 'a codec and two encoded quotes'
+		def codec = FlyweightCodec.of(QUOTE)
+		def writer = new Flyweight(QUOTE)
+		def data = new Buffer()
+		[1L, 2L].each { id ->
+			def frame = new Buffer(QUOTE.blockLength(), true)
+			writer.wrap(frame)
+			      .putLong(QUOTE.field("instrument"), id)
+			      .putDouble(QUOTE.field("price"), id * 1.5d)
+			      .putInt(QUOTE.field("size"), 100)
+			      .putBytes(QUOTE.field("venue"), "XLON".bytes)
+			data.append(codec.apply(writer))
+		}
+		data.flip()
+
+		when: 'the frames are decoded'
+		def seen = []
+		def instances = [] as Set
+		codec.decoder({ Flyweight f ->
+			instances << System.identityHashCode(f)
+			def venue = new byte[4]
+			f.getBytes(QUOTE.field("venue"), venue)
+			seen << [f.getLong(QUOTE.field("instrument")), f.getDouble(QUOTE.field("price")), new String(venue)]
+		} as Consumer<Flyweight>).apply(data)
+
+		then: 'every frame was visited with the same flyweight'
+		seen == [[1L, 1.5d, "XLON"], [2L, 3.0d, "XLON"]]
+		instances.size() == 1
+		data.remaining() == 0
+	}
+
+	def "A partial frame is not decoded"() {
+		given: 'a codec and a truncated frame'
+		def codec = FlyweightCodec.of(QUOTE)
+		def data = Buffer.wrap(new byte[QUOTE.blockLength() - 1])
+
+		expect: 'nothing is decoded'
+		codec.decoder().apply(data) == null
+	}
+}
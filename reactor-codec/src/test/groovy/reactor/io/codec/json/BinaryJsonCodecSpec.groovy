@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.json
+
+import reactor.core.publisher.Flux
+import reactor.io.buffer.Buffer
+import reactor.io.codec.LengthFieldCodec
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class BinaryJsonCodecSpec extends Specification {
+
+	@Unroll
+	def "#name round-trips a Map"() {
+		when: 'A map is encoded and decoded back'
+		Buffer encoded = codec.apply([a: 'alpha', b: 1])
+		Map<String, Object> decoded = codec.decoder().apply(encoded)
+
+		then: 'The decoded map has the expected entries and is not JSON text'
+		encoded.byteBuffer().get(0) != (byte) '{'
+		decoded == [a: 'alpha', b: 1]
+
+		where:
+		name    | codec
+		'Smile' | new SmileCodec<Map, Map>(Map)
+		'CBOR'  | new CborCodec<Map, Map>(Map)
+	}
+
+	def "Length-prefixed Smile documents are decoded across buffer boundaries"() {
+		given: 'A length-prefixed Smile codec and two encoded documents in one buffer'
+		def codec = new LengthFieldCodec<Map, Map>(new SmileCodec<Map, Map>(Map))
+		def all = new Buffer().append(codec.apply([id: 1]), codec.apply([id: 2])).flip()
+		def bytes = all.asBytes()
+		def split = 5
+
+		when: 'The stream is split in the middle of the first document'
+		def decoded = codec.decode(Flux.just(Buffer.wrap(Arrays.copyOfRange(bytes, 0, split)),
+				Buffer.wrap(Arrays.copyOfRange(bytes, split, bytes.length)))).toList().get()
+
+		then: 'Both documents are decoded'
+		decoded == [[id: 1], [id: 2]]
+	}
+}
@@ -39,7 +39,29 @@ class KryoCodecSpec extends Specification {
 
 	}
 
-	static class RichObject {
+	def "uses one Kryo instance per thread when created from a factory"() {
+
+		given: "a Kryo codec created from a factory"
+			def created = new java.util.concurrent.atomic.AtomicInteger()
+			def codec = new KryoCodec<RichObject, RichObject>({ created.incrementAndGet(); new Kryo() } as java.util.function.Supplier<Kryo>, true)
+
+		when: "objects are round-tripped from several threads"
+			def results = (1..4).collect { i ->
+				def result = []
+				def t = Thread.start {
+					2.times {
+						result << codec.decoder(null).apply(codec.apply(new RichObject("t$i".toString(), 0.5f, i as Long))).name
+					}
+				}
+				[t, result]
+			}.collect { it[0].join(); it[1] }
+
+		then: "each thread used its own engine"
+			results == (1..4).collect { ["t$it".toString(), "t$it".toString()] }
+			created.get() == 5
+	}
+
+		static class RichObject {
 		String name
 		Float percent
 		Long total
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.record
+
+import reactor.core.publisher.Flux
+import reactor.io.buffer.Buffer
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.util.function.Consumer
+
+class RecordCodecSpec extends Specification {
+
+	def "CSV records are framed and fields are read in place"() {
+		given: 'a csv codec and records with a quoted line break'
+		def codec = RecordCodec.csv()
+		def data = Buffer.wrap('AAPL,101.5,200,true\r\n"multi\nline","say ""hi""",-3,0\n')
+		def records = []
+
+		when: 'records are decoded'
+		codec.decoder({ Record r -> records << [r.size(), r.toArray()] } as Consumer<Record>).apply(data)
+
+		then: 'quotes delimit fields and escaped quotes are unescaped'
+		records.size() == 2
+		records[0][0] == 4
+		records[0][1] == ['AAPL', '101.5', '200', 'true'] as String[]
+		records[1][1] == ['multi\nline', 'say "hi"', '-3', '0'] as String[]
+	}
+
+	def "Typed accessors parse fields without copying"() {
+		given: 'a single record'
+		def record = RecordCodec.csv().decoder(null).apply(Buffer.wrap('AAPL,101.5,200,TRUE,,9000000000\n'))
+
+		expect: 'primitives are parsed from the buffer'
+		record.contentEquals(0, 'AAPL'.bytes)
+		record.getDouble(1) == 101.5d
+		record.getInt(2) == 200
+		record.getBoolean(3)
+		record.isEmpty(4)
+		record.getLong(5) == 9000000000L
+	}
+
+	def "A projection only decodes the selected columns"() {
+		given: 'a codec projecting two columns in reverse order'
+		def codec = RecordCodec.csv().project(3, 0)
+		def records = []
+
+		when: 'records are decoded, one missing a column'
+		codec.decoder({ Record r -> records << r.toArray() } as Consumer<Record>)
+		     .apply(Buffer.wrap('a,b,c,d,e\nx,y\n'))
+
+		then: 'fields follow the projection and missing columns are empty'
+		records == [['d', 'a'] as String[], ['', 'x'] as String[]]
+
+		when: 'a column is projected twice'
+		codec.project(1, 1)
+
+		then: 'it is rejected'
+		thrown IllegalArgumentException
+	}
+
+	def "Records split across buffers are aggregated"() {
+		given: 'a tsv codec and a record split in two buffers'
+		def codec = RecordCodec.tsv()
+
+		when: 'the buffers are decoded'
+		def values = codec.decode(Flux.just(Buffer.wrap('1\tone\n2\tt'), Buffer.wrap('wo\n')))
+		                  .map { it.getInt(0) + ':' + it.getString(1) }
+		                  .toList()
+		                  .get()
+
+		then: 'both records are decoded'
+		values == ['1:one', '2:two']
+	}
+
+	def "Each record is scanned once for framing and decoding"() {
+		given: 'a codec counting its scans'
+		def codec = new CountingRecordCodec()
+
+		when: 'two records are decoded'
+		def values = codec.decode(Flux.just(Buffer.wrap('a,b\nc,d\n')))
+		                  .map { it.getString(0) }
+		                  .toList()
+		                  .get()
+
+		then: 'the frame end found by framing is reused, only the end of the buffer is scanned again'
+		values == ['a', 'c']
+		codec.scans == 3
+	}
+
+	def "Values and decoded records are encoded with quoting when needed"() {
+		given: 'a csv codec'
+		def codec = RecordCodec.csv()
+
+		when: 'values are encoded'
+		def encoded = codec.apply(['a', 42, 7L, 'b,c', 'say "hi"', null]).asString()
+
+		then: 'special fields are quoted'
+		encoded == 'a,42,7,"b,c","say ""hi""",\n'
+
+		when: 'a decoded record is encoded back'
+		def record = codec.decoder(null).apply(Buffer.wrap(encoded))
+		def roundTrip = codec.apply(record).asString()
+
+		then: 'the original bytes are written'
+		roundTrip == encoded
+
+		when: 'a tsv field contains a tab'
+		RecordCodec.tsv().apply(['a\tb'])
+
+		then: 'it cannot be written'
+		thrown IllegalArgumentException
+	}
+}
+
+class CountingRecordCodec extends RecordCodec {
+
+	int scans
+
+	CountingRecordCodec() {
+		super((byte) ',', (byte) '"')
+	}
+
+	@Override
+	int scan(ByteBuffer bytes, int start, int limit) {
+		scans++
+		super.scan(bytes, start, limit)
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.codec.resp
+
+import reactor.core.publisher.Flux
+import reactor.io.buffer.Buffer
+import spock.lang.Specification
+
+import java.util.function.Consumer
+
+class RespCodecSpec extends Specification {
+
+	def "Every RESP2 type is decoded"() {
+		given: 'a codec and a buffer of replies'
+		def codec = new RespCodec()
+		def data = Buffer.wrap('+OK\r\n-ERR unknown\r\n:-42\r\n$5\r\nhello\r\n$0\r\n\r\n$-1\r\n*-1\r\n' +
+				'*3\r\n$3\r\nfoo\r\n:1\r\n*1\r\n+nested\r\n')
+		def values = []
+
+		when: 'the replies are decoded'
+		codec.decoder({ Resp r -> values << r } as Consumer<Resp>).apply(data)
+
+		then: 'each value has its type and content'
+		values.size() == 8
+		values[0] == Resp.simple('OK')
+		values[1].isError()
+		values[1].asString() == 'ERR unknown'
+		values[2].asLong() == -42L
+		values[3].asString() == 'hello'
+		values[4].asString() == ''
+		values[5].isNull() && values[5].type() == Resp.Type.BULK_STRING
+		values[6].isNull() && values[6].type() == Resp.Type.ARRAY
+		values[7].size() == 3
+		values[7].get(0).asString() == 'foo'
+		values[7].get(1).asLong() == 1L
+		values[7].get(2).get(0).asString() == 'nested'
+	}
+
+	def "Bulk strings are views of the received buffer"() {
+		given: 'a decoded bulk string'
+		def data = Buffer.wrap('$5\r\nhello\r\n')
+		def value = new RespCodec().decoder(null).apply(data)
+		def copy = value.copy()
+
+		when: 'the received bytes are overwritten'
+		data.byteBuffer().put(4, ('j' as char) as byte)
+
+		then: 'the value shares them, its copy does not'
+		value.asString() == 'jello'
+		copy.asString() == 'hello'
+	}
+
+	def "Values split across buffers are aggregated"() {
+		given: 'an array split within a bulk string'
+		def codec = new RespCodec()
+
+		when: 'the buffers are decoded'
+		def values = codec.decode(Flux.just(Buffer.wrap('*2\r\n$3\r\nfo'), Buffer.wrap('o\r\n:7\r\n+PONG\r'),
+				Buffer.wrap('\n')))
+		                  .map { it.toString() }
+		                  .toList()
+		                  .get()
+
+		then: 'complete values are emitted in order'
+		values == ['[$foo, :7]', '+PONG']
+	}
+
+	def "Commands and replies are encoded"() {
+		given: 'a codec'
+		def codec = new RespCodec()
+
+		expect: 'a command is an array of bulk strings'
+		codec.apply(['SET', 'key', 42]).asString() == '*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$2\r\n42\r\n'
+		codec.apply(['GET', 'k'] as Object[]).asString() == '*2\r\n$3\r\nGET\r\n$1\r\nk\r\n'
+
+		and: 'replies keep their type'
+		codec.apply(7).asString() == ':7\r\n'
+		codec.apply(Resp.simple('OK')).asString() == '+OK\r\n'
+		codec.apply(Resp.array(Resp.nullBulk(), Resp.error('ERR'))).asString() == '*2\r\n$-1\r\n-ERR\r\n'
+
+		and: 'encoded values decode back'
+		codec.decoder(null).apply(codec.apply(['a', 'b'])) == Resp.array(Resp.bulk('a'), Resp.bulk('b'))
+	}
+
+	def "Invalid input is rejected"() {
+		when: 'a bulk string exceeds the maximum length'
+		new RespCodec(4).decoder(null).apply(Buffer.wrap('$5\r\nhello\r\n'))
+
+		then: 'it is rejected'
+		thrown IllegalStateException
+
+		when: 'an unknown type is received'
+		new RespCodec().decoder(null).apply(Buffer.wrap('?\r\n'))
+
+		then: 'it is rejected'
+		thrown IllegalStateException
+	}
+}
@@ -37,4 +37,39 @@ class SyslogCodecSpec extends Specification{
 			host == "mymachine"
 	}
 
+	def "SyslogCodec can decode several syslog messages from one buffer"() {
+		given: "syslog data"
+			def codec = new SyslogCodec()
+			def data = Buffer.wrap("<34>Oct 11 22:14:15 mymachine su: first\n<13>Feb  5 17:32:18 othermachine su: second\n")
+			def msgs = []
+
+		when: "data is decoded"
+			codec.decoder({ msgs << it } as java.util.function.Consumer<SyslogMessage>).apply(data)
+
+		then: "each message carries its own priority and host"
+			msgs.size() == 2
+			msgs[0].priority == 34
+			msgs[0].host == "mymachine"
+			msgs[1].priority == 13
+			msgs[1].host == "othermachine"
+	}
+
+	def "SyslogCodec completes a partial line with the next buffer"() {
+		given: "syslog data split in two buffers"
+			def codec = new SyslogCodec()
+			def msgs = []
+			def decoder = codec.decoder({ msgs << it } as java.util.function.Consumer<SyslogMessage>)
+
+		when: "both buffers are decoded"
+			decoder.apply(Buffer.wrap("<6>Oct 11 22:14:15 mymachine kernel: fir"))
+			def beforeSecond = msgs.size()
+			decoder.apply(Buffer.wrap("st\n"))
+
+		then: "a single message is decoded once the line is complete"
+			beforeSecond == 0
+			msgs.size() == 1
+			msgs[0].priority == 6
+			msgs[0].host == "mymachine"
+	}
+
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscriber;
+import reactor.core.publisher.Mono;
+import reactor.io.ipc.ChannelHandler;
+
+/**
+ * Select the handler of a request among a growing number of routes with each
+ * {@link HttpMappings} implementation. The simple mappings compare literal paths since
+ * they cannot capture path variables, the registry and router ones match templates.
+ *
+ * @author Stephane Maldini
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpMappingsBenchmark {
+
+	@Param({"10", "100", "500"})
+	int routes;
+
+	@Param({"simple", "registry", "router"})
+	String mappings;
+
+	HttpMappings httpMappings;
+	HttpChannel  first;
+	HttpChannel  middle;
+	HttpChannel  missing;
+
+	@Setup
+	public void setup() {
+		ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler = channel -> Mono.empty();
+		switch (mappings) {
+			case "simple":
+				httpMappings = new HttpMappings.SimpleHttpMappings();
+				for (int i = 0; i < routes; i++) {
+					httpMappings.add(new HttpMappings.HttpPredicate(path(i, "42"), null, HttpMethod.GET), handler);
+				}
+				break;
+			case "registry":
+				httpMappings = new RegistryHttpMappings();
+				for (int i = 0; i < routes; i++) {
+					httpMappings.add(new RegistryHttpMappings.HttpSelector(path(i, "{id}"), null, HttpMethod.GET),
+							handler);
+				}
+				break;
+			case "router":
+				httpMappings = new RouterHttpMappings();
+				for (int i = 0; i < routes; i++) {
+					httpMappings.add(new HttpMappings.HttpPredicate(path(i, "{id}"), null, HttpMethod.GET), handler);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown mappings " + mappings);
+		}
+		first = channel(path(0, "42"));
+		middle = channel(path(routes / 2, "42"));
+		missing = channel("/api/v1/missing/42");
+	}
+
+	@Benchmark
+	public void selectFirst(Blackhole bh) {
+		select(first, bh);
+	}
+
+	@Benchmark
+	public void selectMiddle(Blackhole bh) {
+		select(middle, bh);
+	}
+
+	@Benchmark
+	public void selectMissing(Blackhole bh) {
+		select(missing, bh);
+	}
+
+	void select(HttpChannel channel, Blackhole bh) {
+		for (ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler : httpMappings.apply(channel)) {
+			bh.consume(handler);
+		}
+	}
+
+	static String path(int route, String id) {
+		return "/api/v1/resource" + route + "/items/" + id;
+	}
+
+	static HttpChannel channel(String uri) {
+		return new NettyHttpChannel(null, new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri)) {
+			@Override
+			protected void doSubscribeHeaders(Subscriber<? super Void> s) {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.common;
+
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.state.Introspectable;
+import reactor.core.subscriber.SubscriberBarrier;
+import reactor.core.util.Exceptions;
+
+/**
+ * A codec working directly against Netty {@link ByteBuf}, bypassing the
+ * {@link reactor.io.buffer.Buffer} conversion of {@link reactor.io.codec.Codec}.
+ * <p>
+ * Inbound buffers are decoded in place. Only an incomplete trailing frame is copied into a
+ * cumulation buffer obtained from the inbound buffer allocator, so pooling is preserved.
+ * Outbound values are encoded into buffers obtained from the channel allocator.
+ * <p>
+ * Use {@link NettyCodec#from(ByteBufCodec)} to plug an implementation into
+ * {@link NettyInbound#receive(NettyCodec)} and {@link NettyOutbound#send(Publisher, NettyCodec)}.
+ *
+ * @param <IN> The type produced by decoding
+ * @param <OUT> The type consumed by encoding
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public abstract class ByteBufCodec<IN, OUT> {
+
+	/**
+	 * A codec for {@code '\n'} delimited lines, the delimiter is stripped when decoding and
+	 * appended when encoding.
+	 *
+	 * @param charset the charset of the lines
+	 * @return a line codec
+	 */
+	public static ByteBufCodec<String, String> linefeed(Charset charset) {
+		return new LineCodec(charset);
+	}
+
+	/**
+	 * Decode the next value from the readable bytes of the given buffer and advance its
+	 * reader index past it.
+	 *
+	 * @param buffer the buffer to read from, only valid for the duration of the call
+	 * @return the decoded value or null if the buffer does not contain a complete frame,
+	 * in which case the reader index must be left untouched
+	 */
+	protected abstract IN decodeNext(ByteBuf buffer);
+
+	/**
+	 * Decode the next value with the state of the decoded sequence, e.g. how far an
+	 * incomplete frame has already been scanned. The buffer indexes may change between
+	 * calls, the state should be kept relative to the reader index.
+	 *
+	 * @param buffer the buffer to read from, only valid for the duration of the call
+	 * @param context the state created by {@link #newDecoderContext()} for this sequence
+	 * @return the decoded value or null if the buffer does not contain a complete frame,
+	 * in which case the reader index must be left untouched
+	 */
+	protected IN decodeNext(ByteBuf buffer, Object context) {
+		return decodeNext(buffer);
+	}
+
+	/**
+	 * Create the state carried across the {@link #decodeNext(ByteBuf, Object)} calls of a
+	 * single decoded sequence.
+	 *
+	 * @return a new decoder state or null if this codec is stateless
+	 */
+	protected Object newDecoderContext() {
+		return null;
+	}
+
+	/**
+	 * Encode the given value into the given buffer.
+	 *
+	 * @param value the value to encode
+	 * @param buffer the buffer to write to
+	 */
+	protected abstract void encode(OUT value, ByteBuf buffer);
+
+	/**
+	 * Decode a sequence of {@link ByteBuf}. Each inbound buffer is only read during
+	 * its {@code onNext} signal as the channel releases it right after. Buffers are
+	 * requested one at a time while decoded values are requested, so a bounded subscriber
+	 * paces the reads of the channel.
+	 *
+	 * @param source the inbound buffers
+	 * @return the decoded values
+	 */
+	public Flux<IN> decode(Publisher<? extends ByteBuf> source) {
+		return new DecoderOperator(source);
+	}
+
+	/**
+	 * Encode a sequence of values into buffers obtained from the given allocator.
+	 *
+	 * @param source the values to encode
+	 * @param alloc the allocator to use, typically the channel allocator
+	 * @return the encoded buffers
+	 */
+	public Flux<ByteBuf> encode(Publisher<? extends OUT> source, ByteBufAllocator alloc) {
+		Objects.requireNonNull(alloc, "alloc");
+		return Flux.from(source)
+		           .map(value -> {
+			           ByteBuf buffer = alloc.ioBuffer();
+			           try {
+				           encode(value, buffer);
+				           return buffer;
+			           }
+			           catch (Throwable t) {
+				           buffer.release();
+				           throw Exceptions.propagate(t);
+			           }
+		           });
+	}
+
+	/**
+	 * Encode a sequence of values into buffers of about {@code chunkSize} bytes obtained
+	 * from the given allocator, so that consecutive small values are written, and sent as
+	 * HTTP chunks, together. A buffer is emitted once it holds {@code chunkSize} bytes,
+	 * when the sequence terminates or {@code maxDelayMillis} after its first value, which
+	 * bounds the latency of a slow sequence.
+	 *
+	 * @param source the values to encode
+	 * @param alloc the allocator to use, typically the channel allocator
+	 * @param chunkSize the number of bytes after which a buffer is emitted
+	 * @param maxDelayMillis the maximum time a value is held before being emitted, 0 to
+	 * only emit full buffers and the last one
+	 * @return the encoded buffers
+	 */
+	public Flux<ByteBuf> encode(Publisher<? extends OUT> source,
+			ByteBufAllocator alloc,
+			int chunkSize,
+			long maxDelayMillis) {
+		Objects.requireNonNull(alloc, "alloc");
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be > 0");
+		}
+		if (maxDelayMillis < 0L) {
+			throw new IllegalArgumentException("maxDelayMillis must be >= 0");
+		}
+		return new ChunkedEncoder<>(source, this, alloc, chunkSize, maxDelayMillis);
+	}
+
+	final class DecoderOperator extends Flux<IN> {
+
+		final Publisher<? extends ByteBuf> source;
+
+		DecoderOperator(Publisher<? extends ByteBuf> source) {
+			this.source = source;
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super IN> s) {
+			source.subscribe(new DecoderBarrier<>(ByteBufCodec.this, s));
+		}
+	}
+
+	/**
+	 * Decode inbound buffers in place while honouring downstream demand: complete frames
+	 * left over when demand is exhausted stay in the cumulation buffer until requested, and
+	 * a single buffer is requested at a time from the channel, which then only reads when
+	 * values are requested. An unbounded demand is passed through and lets the channel
+	 * read freely.
+	 * <p>
+	 * Emission is serialized with a work-in-progress counter: a buffer arriving while
+	 * another thread drains is copied and queued for the draining thread.
+	 */
+	static final class DecoderBarrier<IN> extends SubscriberBarrier<ByteBuf, IN>
+			implements Introspectable {
+
+		static final AtomicIntegerFieldUpdater<DecoderBarrier> WIP =
+				AtomicIntegerFieldUpdater.newUpdater(DecoderBarrier.class, "wip");
+
+		static final AtomicLongFieldUpdater<DecoderBarrier> REQUESTED =
+				AtomicLongFieldUpdater.newUpdater(DecoderBarrier.class, "requested");
+
+		final ByteBufCodec<IN, ?>            codec;
+		final Object                         context;
+		final ConcurrentLinkedQueue<ByteBuf> queue = new ConcurrentLinkedQueue<>();
+
+		// only accessed by the draining thread
+		ByteBuf cumulation;
+
+		Throwable        error;
+		volatile boolean done;
+		volatile boolean cancelled;
+		volatile boolean upstreamPending;
+		volatile boolean unbounded;
+		volatile long    requested;
+		volatile int     wip;
+
+		DecoderBarrier(ByteBufCodec<IN, ?> codec, Subscriber<? super IN> subscriber) {
+			super(subscriber);
+			this.codec = codec;
+			this.context = codec.newDecoderContext();
+		}
+
+		@Override
+		protected void doRequest(long n) {
+			for (; ; ) {
+				long r = requested;
+				long u = r + n;
+				if (REQUESTED.compareAndSet(this, r, u < 0L ? Long.MAX_VALUE : u)) {
+					break;
+				}
+			}
+			if (WIP.getAndIncrement(this) == 0) {
+				drain(null);
+			}
+		}
+
+		@Override
+		protected void doNext(ByteBuf in) {
+			if (cancelled) {
+				return;
+			}
+			if (!unbounded) {
+				upstreamPending = false;
+			}
+			if (queue.isEmpty() && WIP.compareAndSet(this, 0, 1)) {
+				drain(in);
+				return;
+			}
+			// the channel releases the inbound buffer after this call
+			queue.offer(in.alloc()
+			              .buffer(in.readableBytes())
+			              .writeBytes(in));
+			if (WIP.getAndIncrement(this) == 0) {
+				drain(null);
+			}
+			else if (cancelled) {
+				releaseQueue();
+			}
+		}
+
+		/**
+		 * Emit the complete frames while there is demand, then request more buffers or
+		 * complete, must be called by the thread which moved the counter from 0.
+		 *
+		 * @param in the inbound buffer to decode in place first, or null
+		 */
+		void drain(ByteBuf in) {
+			int missed = 1;
+			for (; ; ) {
+				if (cancelled) {
+					releaseCumulation();
+					releaseQueue();
+					return;
+				}
+				Throwable e = error;
+				if (e != null) {
+					cancelled = true;
+					releaseCumulation();
+					releaseQueue();
+					super.doError(e);
+					return;
+				}
+				boolean d = done;
+
+				ByteBuf queued;
+				while ((queued = queue.poll()) != null) {
+					if (cumulation == null) {
+						cumulation = queued;
+					}
+					else {
+						cumulate(queued);
+						queued.release();
+					}
+				}
+
+				ByteBuf source = cumulation;
+				if (in != null) {
+					source = source == null ? in : cumulate(in);
+				}
+				if (!emit(source)) {
+					return;
+				}
+				if (source == in && in.isReadable()) {
+					cumulation = in.alloc()
+					               .buffer(in.readableBytes())
+					               .writeBytes(in);
+				}
+				in = null;
+
+				ByteBuf cumulation = this.cumulation;
+				if (cumulation != null) {
+					if (cumulation.isReadable()) {
+						cumulation.discardSomeReadBytes();
+					}
+					else {
+						releaseCumulation();
+					}
+				}
+
+				if (d) {
+					// with demand left, the remaining bytes do not hold a complete frame
+					if (requested != 0L || this.cumulation == null) {
+						cancelled = true;
+						releaseCumulation();
+						super.doComplete();
+						return;
+					}
+				}
+				else if (requested != 0L && !upstreamPending) {
+					upstreamPending = true;
+					if (requested == Long.MAX_VALUE) {
+						unbounded = true;
+						subscription.request(Long.MAX_VALUE);
+					}
+					else {
+						subscription.request(1L);
+					}
+				}
+
+				missed = WIP.addAndGet(this, -missed);
+				if (missed == 0) {
+					break;
+				}
+			}
+		}
+
+		/**
+		 * @param source the buffer to decode, or null
+		 * @return false if the sequence has been terminated
+		 */
+		boolean emit(ByteBuf source) {
+			if (source == null) {
+				return true;
+			}
+			long r = requested;
+			long e = 0L;
+			try {
+				IN next;
+				while (e != r && source.isReadable() && (next = codec.decodeNext(source, context)) != null) {
+					subscriber.onNext(next);
+					e++;
+					if (cancelled) {
+						releaseCumulation();
+						releaseQueue();
+						return false;
+					}
+				}
+			}
+			catch (Throwable t) {
+				Exceptions.throwIfFatal(t);
+				cancelled = true;
+				releaseCumulation();
+				releaseQueue();
+				subscription.cancel();
+				super.doError(t);
+				return false;
+			}
+			if (e != 0L && r != Long.MAX_VALUE) {
+				REQUESTED.addAndGet(this, -e);
+			}
+			return true;
+		}
+
+		ByteBuf cumulate(ByteBuf in) {
+			ByteBuf cumulation = this.cumulation;
+			if (cumulation.writableBytes() < in.readableBytes()) {
+				ByteBuf expanded = cumulation.alloc()
+				                             .buffer(cumulation.readableBytes() + in.readableBytes());
+				expanded.writeBytes(cumulation);
+				cumulation.release();
+				cumulation = expanded;
+			}
+			cumulation.writeBytes(in);
+			this.cumulation = cumulation;
+			return cumulation;
+		}
+
+		void releaseCumulation() {
+			ByteBuf cumulation = this.cumulation;
+			if (cumulation != null) {
+				this.cumulation = null;
+				cumulation.release();
+			}
+		}
+
+		void releaseQueue() {
+			ByteBuf queued;
+			while ((queued = queue.poll()) != null) {
+				queued.release();
+			}
+		}
+
+		@Override
+		protected void doComplete() {
+			done = true;
+			if (WIP.getAndIncrement(this) == 0) {
+				drain(null);
+			}
+		}
+
+		@Override
+		protected void doError(Throwable throwable) {
+			if (done) {
+				return;
+			}
+			error = throwable;
+			done = true;
+			if (WIP.getAndIncrement(this) == 0) {
+				drain(null);
+			}
+		}
+
+		@Override
+		protected void doCancel() {
+			cancelled = true;
+			if (WIP.getAndIncrement(this) == 0) {
+				releaseCumulation();
+			}
+			releaseQueue();
+			super.doCancel();
+		}
+
+		@Override
+		public int getMode() {
+			return 0;
+		}
+
+		@Override
+		public String getName() {
+			return codec.getClass().getSimpleName().replaceAll("Codec", "Decoder");
+		}
+	}
+
+	static final class LineCodec extends ByteBufCodec<String, String> {
+
+		final Charset charset;
+
+		LineCodec(Charset charset) {
+			this.charset = Objects.requireNonNull(charset, "charset");
+		}
+
+		@Override
+		protected String decodeNext(ByteBuf buffer) {
+			int start = buffer.readerIndex();
+			int end = buffer.indexOf(start, buffer.writerIndex(), (byte) '\n');
+			if (end == -1) {
+				return null;
+			}
+			int len = end - start;
+			if (len > 0 && buffer.getByte(end - 1) == '\r') {
+				len--;
+			}
+			String line = buffer.toString(start, len, charset);
+			buffer.readerIndex(end + 1);
+			return line;
+		}
+
+		@Override
+		protected void encode(String value, ByteBuf buffer) {
+			buffer.writeBytes(value.getBytes(charset))
+			      .writeByte('\n');
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.common;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Timer;
+import reactor.core.util.BackpressureUtils;
+import reactor.core.util.Exceptions;
+
+/**
+ * Encode values with a {@link ByteBufCodec} into shared buffers of about
+ * {@code chunkSize} bytes.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ * @see ByteBufCodec#encode(Publisher, ByteBufAllocator, int, long)
+ */
+final class ChunkedEncoder<OUT> extends Flux<ByteBuf> {
+
+	static final int PREFETCH = 256;
+
+	final Publisher<? extends OUT> source;
+	final ByteBufCodec<?, OUT>     codec;
+	final ByteBufAllocator         alloc;
+	final int                      chunkSize;
+	final long                     maxDelayMillis;
+
+	ChunkedEncoder(Publisher<? extends OUT> source,
+			ByteBufCodec<?, OUT> codec,
+			ByteBufAllocator alloc,
+			int chunkSize,
+			long maxDelayMillis) {
+		this.source = source;
+		this.codec = codec;
+		this.alloc = alloc;
+		this.chunkSize = chunkSize;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super ByteBuf> s) {
+		source.subscribe(new ChunkedEncoderSubscriber<>(this, s));
+	}
+
+	static final class ChunkedEncoderSubscriber<OUT>
+			implements Subscriber<OUT>, Subscription, Runnable {
+
+		static final AtomicIntegerFieldUpdater<ChunkedEncoderSubscriber> WIP =
+				AtomicIntegerFieldUpdater.newUpdater(ChunkedEncoderSubscriber.class, "wip");
+
+		static final int LIMIT = PREFETCH - (PREFETCH >> 2);
+
+		final ChunkedEncoder<OUT>        parent;
+		final Subscriber<? super ByteBuf> actual;
+
+		Subscription s;
+
+		// guarded by this
+		final ArrayDeque<ByteBuf> chunks = new ArrayDeque<>();
+		ByteBuf   current;
+		long      requested;
+		int       produced;
+		boolean   started;
+		boolean   flushScheduled;
+		boolean   done;
+		boolean   cancelled;
+		Throwable error;
+
+		volatile int wip;
+
+		ChunkedEncoderSubscriber(ChunkedEncoder<OUT> parent, Subscriber<? super ByteBuf> actual) {
+			this.parent = parent;
+			this.actual = actual;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			if (BackpressureUtils.validate(this.s, s)) {
+				this.s = s;
+				actual.onSubscribe(this);
+			}
+		}
+
+		@Override
+		public void onNext(OUT value) {
+			boolean schedule = false;
+			synchronized (this) {
+				if (done || cancelled) {
+					return;
+				}
+				ByteBuf current = this.current;
+				if (current == null) {
+					current = parent.alloc.ioBuffer(parent.chunkSize);
+					this.current = current;
+				}
+				boolean empty = !current.isReadable();
+				int mark = current.writerIndex();
+				try {
+					parent.codec.encode(value, current);
+				}
+				catch (Throwable t) {
+					Exceptions.throwIfFatal(t);
+					current.writerIndex(mark);
+					s.cancel();
+					fail(t);
+					return;
+				}
+				produced++;
+				if (current.readableBytes() >= parent.chunkSize) {
+					chunks.offer(current);
+					this.current = null;
+				}
+				else if (empty && parent.maxDelayMillis != 0L && !flushScheduled) {
+					flushScheduled = true;
+					schedule = true;
+				}
+			}
+			if (schedule) {
+				Timer.global()
+				     .schedule(this, parent.maxDelayMillis, TimeUnit.MILLISECONDS);
+			}
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			synchronized (this) {
+				if (done) {
+					return;
+				}
+				fail(t);
+			}
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			synchronized (this) {
+				if (done) {
+					return;
+				}
+				done = true;
+				ByteBuf current = this.current;
+				this.current = null;
+				if (current != null) {
+					if (current.isReadable()) {
+						chunks.offer(current);
+					}
+					else {
+						current.release();
+					}
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (BackpressureUtils.checkRequest(n, actual)) {
+				synchronized (this) {
+					long r = requested + n;
+					requested = r < 0L ? Long.MAX_VALUE : r;
+				}
+				drain();
+			}
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				if (cancelled) {
+					return;
+				}
+				cancelled = true;
+				releaseAll();
+			}
+			s.cancel();
+		}
+
+		/**
+		 * Emit the partial buffer once the maximum delay has elapsed.
+		 */
+		@Override
+		public void run() {
+			synchronized (this) {
+				flushScheduled = false;
+				ByteBuf current = this.current;
+				if (current == null || !current.isReadable() || cancelled) {
+					return;
+				}
+				chunks.offer(current);
+				this.current = null;
+			}
+			drain();
+		}
+
+		void drain() {
+			if (WIP.getAndIncrement(this) != 0) {
+				return;
+			}
+			int missed = 1;
+			for (; ; ) {
+				for (; ; ) {
+					ByteBuf chunk = null;
+					long upstream = 0L;
+					boolean terminate = false;
+					synchronized (this) {
+						if (cancelled) {
+							return;
+						}
+						if (error != null) {
+							cancelled = true;
+							terminate = true;
+						}
+						else if (requested != 0L && (chunk = chunks.poll()) != null) {
+							if (requested != Long.MAX_VALUE) {
+								requested--;
+							}
+						}
+						else if (done && chunks.isEmpty()) {
+							cancelled = true;
+							terminate = true;
+						}
+						else {
+							// refill upstream once downstream keeps up with the chunks
+							if (requested != 0L && chunks.isEmpty() && !done) {
+								if (!started) {
+									started = true;
+									upstream = PREFETCH;
+								}
+								else if (produced >= LIMIT) {
+									upstream = produced;
+									produced = 0;
+								}
+							}
+						}
+					}
+					if (chunk != null) {
+						actual.onNext(chunk);
+						continue;
+					}
+					if (terminate) {
+						Throwable e = error;
+						if (e != null) {
+							actual.onError(e);
+						}
+						else {
+							actual.onComplete();
+						}
+						return;
+					}
+					if (upstream != 0L) {
+						s.request(upstream);
+					}
+					break;
+				}
+				missed = WIP.addAndGet(this, -missed);
+				if (missed == 0) {
+					break;
+				}
+			}
+		}
+
+		void fail(Throwable t) {
+			done = true;
+			error = t;
+			releaseAll();
+		}
+
+		void releaseAll() {
+			ByteBuf current = this.current;
+			this.current = null;
+			if (current != null) {
+				current.release();
+			}
+			ByteBuf chunk;
+			while ((chunk = chunks.poll()) != null) {
+				chunk.release();
+			}
+		}
+	}
+}
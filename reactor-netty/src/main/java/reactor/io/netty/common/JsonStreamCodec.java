@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.util.ByteProcessor;
+
+/**
+ * A {@link ByteBufCodec} for streams of JSON texts: newline-delimited JSON
+ * ({@value #APPLICATION_NDJSON}) or RFC 7464 JSON text sequences
+ * ({@value #APPLICATION_JSON_SEQ}).
+ * <p>
+ * Newline-delimited texts are framed on line feeds, a leading record separator,
+ * surrounding whitespace and blank lines are ignored. JSON text sequences are framed on
+ * record separators and may span several lines, e.g. pretty-printed texts: a text ends at
+ * the next record separator or at the line feed closing a complete JSON value, so that it
+ * is not held until the next text arrives. Each text is parsed in place from the inbound
+ * buffer, an incomplete text is not scanned again when more bytes arrive and is rejected
+ * once longer than the maximum length, which bounds the buffered bytes. Encoding writes
+ * each value on a single line, use
+ * {@link ByteBufCodec#encode(org.reactivestreams.Publisher, io.netty.buffer.ByteBufAllocator, int, long)}
+ * or {@link NettyCodec#ndjson(Class)} to write them in chunks.
+ *
+ * @param <IN> The type to decode JSON into
+ * @param <OUT> The type to encode into JSON
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class JsonStreamCodec<IN, OUT> extends ByteBufCodec<IN, OUT> {
+
+	/**
+	 * Media type of newline-delimited JSON
+	 */
+	public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+	/**
+	 * Media type of RFC 7464 JSON text sequences
+	 */
+	public static final String APPLICATION_JSON_SEQ = "application/json-seq";
+
+	/**
+	 * Default maximum length of a single JSON text
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 1024 * 1024;
+
+	static final byte RS = 0x1E;
+	static final byte LF = '\n';
+
+	static final ObjectMapper DEFAULT_MAPPER =
+			new ObjectMapper().configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
+	/**
+	 * @param type the type to decode JSON into
+	 * @param <T> the decoded and encoded type
+	 * @return a newline-delimited JSON codec sharing a default {@link ObjectMapper}
+	 */
+	public static <T> JsonStreamCodec<T, T> ndjson(Class<T> type) {
+		return new JsonStreamCodec<>(type, DEFAULT_MAPPER, false, DEFAULT_MAX_LENGTH);
+	}
+
+	/**
+	 * @param type the type to decode JSON into
+	 * @param <T> the decoded and encoded type
+	 * @return a JSON text sequence codec sharing a default {@link ObjectMapper}
+	 */
+	public static <T> JsonStreamCodec<T, T> jsonSeq(Class<T> type) {
+		return new JsonStreamCodec<>(type, DEFAULT_MAPPER, true, DEFAULT_MAX_LENGTH);
+	}
+
+	final ObjectReader reader;
+	final ObjectWriter writer;
+	final boolean      recordSeparator;
+	final int          maxLength;
+
+	/**
+	 * @param type the type to decode JSON into
+	 * @param mapper the mapper to read and write with, indented output is disabled
+	 * @param recordSeparator true to write RFC 7464 JSON text sequences
+	 * @param maxLength the maximum length in bytes of a single JSON text
+	 */
+	public JsonStreamCodec(Class<IN> type, ObjectMapper mapper, boolean recordSeparator, int maxLength) {
+		Objects.requireNonNull(type, "type must not be null");
+		Objects.requireNonNull(mapper, "mapper must not be null");
+		if (maxLength <= 0) {
+			throw new IllegalArgumentException("maxLength must be > 0");
+		}
+		this.reader = mapper.reader(type);
+		this.writer = mapper.writer()
+		                    .without(SerializationFeature.INDENT_OUTPUT);
+		this.recordSeparator = recordSeparator;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * @return the media type of the encoded stream
+	 */
+	public String mediaType() {
+		return recordSeparator ? APPLICATION_JSON_SEQ : APPLICATION_NDJSON;
+	}
+
+	@Override
+	protected IN decodeNext(ByteBuf buffer) {
+		return decodeNext(buffer, newDecoderContext());
+	}
+
+	@Override
+	protected IN decodeNext(ByteBuf buffer, Object context) {
+		ScanState state = (ScanState) context;
+		for (; ; ) {
+			int start = buffer.readerIndex();
+			int from = start + state.scanned;
+			int end = recordSeparator ?
+					buffer.forEachByte(from, buffer.writerIndex() - from, state) :
+					buffer.indexOf(from, buffer.writerIndex(), LF);
+			if (end == -1) {
+				state.scanned = buffer.readableBytes();
+				if (state.scanned > maxLength) {
+					throw new IllegalStateException("JSON text longer than " + maxLength + " bytes");
+				}
+				return null;
+			}
+			// a record separator starts the next text and is kept for it
+			int next = buffer.getByte(end) == RS ? end : end + 1;
+			state.reset();
+			while (start < end && isSkipped(buffer.getByte(start))) {
+				start++;
+			}
+			while (end > start && isSkipped(buffer.getByte(end - 1))) {
+				end--;
+			}
+			buffer.readerIndex(next);
+			if (start == end) {
+				continue;
+			}
+			if (end - start > maxLength) {
+				throw new IllegalStateException("JSON text longer than " + maxLength + " bytes");
+			}
+			return read(buffer, start, end - start);
+		}
+	}
+
+	@Override
+	protected Object newDecoderContext() {
+		return new ScanState();
+	}
+
+	@Override
+	protected void encode(OUT value, ByteBuf buffer) {
+		if (recordSeparator) {
+			buffer.writeByte(RS);
+		}
+		try {
+			writer.writeValue((OutputStream) new ByteBufOutputStream(buffer), value);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		buffer.writeByte(LF);
+	}
+
+	IN read(ByteBuf buffer, int index, int length) {
+		try {
+			if (buffer.hasArray()) {
+				return reader.readValue(buffer.array(), buffer.arrayOffset() + index, length);
+			}
+			return reader.readValue(new ByteBufInputStream(buffer.slice(index, length)));
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static boolean isSkipped(byte b) {
+		return b == RS || b == ' ' || b == '\t' || b == '\r' || b == LF;
+	}
+
+	/**
+	 * How far the pending text has been scanned from the reader index, and for JSON
+	 * text sequences the structure of its JSON value so far.
+	 */
+	static final class ScanState implements ByteProcessor {
+
+		int     scanned;
+		int     depth;
+		boolean content;
+		boolean string;
+		boolean escaped;
+
+		/**
+		 * @return false on the byte ending the pending text
+		 */
+		@Override
+		public boolean process(byte b) {
+			if (b == RS) {
+				// always a frame boundary, even within a truncated text
+				return !content;
+			}
+			if (string) {
+				if (escaped) {
+					escaped = false;
+				}
+				else if (b == '\\') {
+					escaped = true;
+				}
+				else if (b == '"') {
+					string = false;
+				}
+				return true;
+			}
+			switch (b) {
+				case LF:
+					return !content || depth > 0;
+				case ' ':
+				case '\t':
+				case '\r':
+					return true;
+				case '"':
+					string = true;
+					break;
+				case '{':
+				case '[':
+					depth++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					break;
+				default:
+					break;
+			}
+			content = true;
+			return true;
+		}
+
+		void reset() {
+			scanned = 0;
+			depth = 0;
+			content = false;
+			string = false;
+			escaped = false;
+		}
+	}
+}
@@ -20,16 +20,21 @@ import java.util.Objects;
 import java.util.function.Function;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.io.buffer.Buffer;
 import reactor.io.codec.Codec;
 import reactor.io.codec.DelimitedCodec;
+import reactor.io.codec.LengthFieldCodec;
 import reactor.io.codec.StandardCodecs;
 import reactor.io.codec.StringCodec;
 import reactor.io.codec.compress.GzipCodec;
+import reactor.io.codec.json.CborCodec;
 import reactor.io.codec.json.JsonCodec;
+import reactor.io.codec.json.SmileCodec;
 
 /**
  * @author Stephane Maldini
@@ -37,6 +42,16 @@ import reactor.io.codec.json.JsonCodec;
  */
 public final class NettyCodec<IN, OUT> {
 
+	/**
+	 * Default size of the buffers written by {@link #chunked(int)} codecs
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+	/**
+	 * Default maximum time a value is held by {@link #chunked(int)} codecs
+	 */
+	public static final long DEFAULT_CHUNK_DELAY_MILLIS = 50L;
+
 	static {
 		try {
 			NettyCodec.class.getClassLoader()
@@ -83,7 +98,19 @@ public final class NettyCodec<IN, OUT> {
 	 * @return
 	 */
 	static public <IN,OUT> NettyCodec<IN, OUT> from(Codec<Buffer, IN, OUT> codec){
-		return new NettyCodec<>(codec);
+		return new NettyCodec<>(Objects.requireNonNull(codec, "Delegate codec cannot be null"), null, 0, 0L);
+	}
+
+	/**
+	 * Decode and encode {@link ByteBuf} directly without converting to {@link Buffer}.
+	 *
+	 * @param codec
+	 * @param <IN>
+	 * @param <OUT>
+	 * @return
+	 */
+	static public <IN,OUT> NettyCodec<IN, OUT> from(ByteBufCodec<IN, OUT> codec){
+		return new NettyCodec<>(null, Objects.requireNonNull(codec, "Delegate codec cannot be null"), 0, 0L);
 	}
 
 	/**
@@ -105,6 +132,72 @@ public final class NettyCodec<IN, OUT> {
 		return from(new JsonCodec<T, T>(tClass));
 	}
 
+	/**
+	 * Newline-delimited JSON, written in chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+	 *
+	 * @param tClass
+	 * @param <T>
+	 *
+	 * @return
+	 * @see JsonStreamCodec
+	 */
+	static public <T> NettyCodec<T, T> ndjson(Class<T> tClass){
+		return from(JsonStreamCodec.ndjson(tClass)).chunked(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * RFC 7464 JSON text sequences, written in chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+	 *
+	 * @param tClass
+	 * @param <T>
+	 *
+	 * @return
+	 * @see JsonStreamCodec
+	 */
+	static public <T> NettyCodec<T, T> jsonSeq(Class<T> tClass){
+		return from(JsonStreamCodec.jsonSeq(tClass)).chunked(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * RFC 7464 JSON text sequences if the content type is
+	 * {@value JsonStreamCodec#APPLICATION_JSON_SEQ}, newline-delimited JSON otherwise.
+	 *
+	 * @param contentType the content type of the stream, may be null
+	 * @param tClass
+	 * @param <T>
+	 *
+	 * @return
+	 * @see JsonStreamCodec
+	 */
+	static public <T> NettyCodec<T, T> jsonStream(String contentType, Class<T> tClass){
+		return contentType != null && contentType.startsWith(JsonStreamCodec.APPLICATION_JSON_SEQ) ?
+				jsonSeq(tClass) : ndjson(tClass);
+	}
+
+	/**
+	 * Smile documents, each prefixed with its length as an int.
+	 *
+	 * @param tClass
+	 * @param <T>
+	 *
+	 * @return
+	 */
+	static public <T> NettyCodec<T, T> smile(Class<T> tClass){
+		return from(new LengthFieldCodec<>(new SmileCodec<T, T>(tClass)));
+	}
+
+	/**
+	 * CBOR documents, each prefixed with its length as an int.
+	 *
+	 * @param tClass
+	 * @param <T>
+	 *
+	 * @return
+	 */
+	static public <T> NettyCodec<T, T> cbor(Class<T> tClass){
+		return from(new LengthFieldCodec<>(new CborCodec<T, T>(tClass)));
+	}
+
 	/**
 	 *
 	 * @return
@@ -154,11 +247,55 @@ public final class NettyCodec<IN, OUT> {
 
 
 	private final Codec<Buffer, IN, OUT> codec;
+	private final ByteBufCodec<IN, OUT>  byteBufCodec;
+	private final int                    chunkSize;
+	private final long                   chunkDelayMillis;
 
 	private NettyCodec(
-			Codec<Buffer, IN, OUT> codec
+			Codec<Buffer, IN, OUT> codec,
+			ByteBufCodec<IN, OUT> byteBufCodec,
+			int chunkSize,
+			long chunkDelayMillis
 	) {
-		this.codec = Objects.requireNonNull(codec, "Delegate codec cannot be null");
+		this.codec = codec;
+		this.byteBufCodec = byteBufCodec;
+		this.chunkSize = chunkSize;
+		this.chunkDelayMillis = chunkDelayMillis;
+	}
+
+	/**
+	 * Encode consecutive values into shared buffers of about {@code chunkSize} bytes, a
+	 * value is held at most {@link #DEFAULT_CHUNK_DELAY_MILLIS}.
+	 *
+	 * @param chunkSize
+	 * @return a new chunked {@link NettyCodec}
+	 * @see ByteBufCodec#encode(Publisher, ByteBufAllocator, int, long)
+	 */
+	public NettyCodec<IN, OUT> chunked(int chunkSize) {
+		return chunked(chunkSize, DEFAULT_CHUNK_DELAY_MILLIS);
+	}
+
+	/**
+	 * Encode consecutive values into shared buffers of about {@code chunkSize} bytes.
+	 *
+	 * @param chunkSize
+	 * @param maxDelayMillis the maximum time a value is held, 0 to only write full
+	 * buffers and the last one
+	 * @return a new chunked {@link NettyCodec}
+	 * @throws IllegalStateException if the delegate is not a {@link ByteBufCodec}
+	 * @see ByteBufCodec#encode(Publisher, ByteBufAllocator, int, long)
+	 */
+	public NettyCodec<IN, OUT> chunked(int chunkSize, long maxDelayMillis) {
+		if (byteBufCodec == null) {
+			throw new IllegalStateException("Only ByteBufCodec delegates can be chunked");
+		}
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be > 0");
+		}
+		if (maxDelayMillis < 0L) {
+			throw new IllegalArgumentException("maxDelayMillis must be >= 0");
+		}
+		return new NettyCodec<>(null, byteBufCodec, chunkSize, maxDelayMillis);
 	}
 
 	/**
@@ -166,6 +303,9 @@ public final class NettyCodec<IN, OUT> {
 	 * @return
 	 */
 	public Function<? super Flux<ByteBuf>, ? extends Publisher<IN>> decoder() {
+		if (byteBufCodec != null) {
+			return byteBufCodec::decode;
+		}
 		return flux -> codec.decode(flux.map(bb -> new Buffer(bb.nioBuffer())));
 	}
 
@@ -174,6 +314,23 @@ public final class NettyCodec<IN, OUT> {
 	 * @return
 	 */
 	public Function<Flux<? extends OUT>, ? extends Publisher<ByteBuf>> encoder() {
+		return encoder(PooledByteBufAllocator.DEFAULT);
+	}
+
+	/**
+	 * Encode into buffers from the given allocator when the delegate is a
+	 * {@link ByteBufCodec}, {@link Buffer} codecs are wrapped without copy.
+	 *
+	 * @param alloc
+	 * @return
+	 */
+	public Function<Flux<? extends OUT>, ? extends Publisher<ByteBuf>> encoder(ByteBufAllocator alloc) {
+		if (byteBufCodec != null) {
+			if (chunkSize > 0) {
+				return flux -> byteBufCodec.encode(flux, alloc, chunkSize, chunkDelayMillis);
+			}
+			return flux -> byteBufCodec.encode(flux, alloc);
+		}
 		return flux -> codec.encode(flux).map(b -> Unpooled.wrappedBuffer(b.byteBuffer()));
 	}
 }
@@ -64,7 +64,7 @@ public interface NettyOutbound extends Outbound<ByteBuf> {
 	 * @return A {@link Mono} to signal successful sequence write (e.g. after "flush") or any error during write
 	 */
 	default <OLD_OUT> Mono<Void> send(Publisher<? extends OLD_OUT> dataStream, NettyCodec<?, OLD_OUT> codec) {
-		return send(dataStream, codec.encoder());
+		return send(dataStream, codec.encoder(delegate().alloc()));
 	}
 
 	/**
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodings and conditions of the compression of HTTP bodies.
+ * <p>
+ * A response is compressed with the preferred encoding of the request
+ * {@code Accept-Encoding} among those enabled, if its {@code Content-Type} starts with
+ * one of {@link #mimeTypes()} and its {@code Content-Length}, when known, is at least
+ * {@link #minResponseSize()}. A chunked response is compressed as it is written.
+ * <p>
+ * A request body is compressed under the same {@code Content-Type} condition if its
+ * {@code Content-Length}, when known, is at least {@link #minRequestSize()}.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class CompressionOptions {
+
+	/**
+	 * Default minimum {@code Content-Length} of a compressed response
+	 */
+	public static final int DEFAULT_MIN_RESPONSE_SIZE = 1024;
+
+	/**
+	 * Default minimum {@code Content-Length} of a compressed request
+	 */
+	public static final int DEFAULT_MIN_REQUEST_SIZE = 1024;
+
+	/**
+	 * Default deflate compression level
+	 */
+	public static final int DEFAULT_LEVEL = 6;
+
+	/**
+	 * Default prefixes of the compressed content types
+	 */
+	public static final List<String> DEFAULT_MIME_TYPES = Collections.unmodifiableList(Arrays.asList(
+			"text/",
+			"application/json",
+			"application/x-ndjson",
+			"application/json-seq",
+			"application/javascript",
+			"application/xml",
+			"image/svg+xml"));
+
+	/**
+	 * @return gzip and deflate compression of the {@link #DEFAULT_MIME_TYPES}
+	 */
+	public static CompressionOptions create() {
+		return new CompressionOptions();
+	}
+
+	private int          minResponseSize = DEFAULT_MIN_RESPONSE_SIZE;
+	private int          minRequestSize  = DEFAULT_MIN_REQUEST_SIZE;
+	private int          level           = DEFAULT_LEVEL;
+	private List<String> mimeTypes       = DEFAULT_MIME_TYPES;
+	private boolean      gzip            = true;
+	private boolean      deflate         = true;
+	private boolean      snappy          = false;
+
+	CompressionOptions() {
+	}
+
+	/**
+	 * Set the minimum {@code Content-Length} of a compressed response, responses of
+	 * unknown length are always compressed.
+	 *
+	 * @param minResponseSize the minimum size in bytes
+	 * @return {@code this}
+	 */
+	public CompressionOptions minResponseSize(int minResponseSize) {
+		if (minResponseSize < 0) {
+			throw new IllegalArgumentException("minResponseSize must be >= 0");
+		}
+		this.minResponseSize = minResponseSize;
+		return this;
+	}
+
+	/**
+	 * Returns the minimum {@code Content-Length} of a compressed response.
+	 *
+	 * @return the minimum size in bytes
+	 */
+	public int minResponseSize() {
+		return minResponseSize;
+	}
+
+	/**
+	 * Set the minimum {@code Content-Length} of a compressed request body, bodies of
+	 * unknown length are always compressed.
+	 *
+	 * @param minRequestSize the minimum size in bytes
+	 * @return {@code this}
+	 */
+	public CompressionOptions minRequestSize(int minRequestSize) {
+		if (minRequestSize < 0) {
+			throw new IllegalArgumentException("minRequestSize must be >= 0");
+		}
+		this.minRequestSize = minRequestSize;
+		return this;
+	}
+
+	/**
+	 * Returns the minimum {@code Content-Length} of a compressed request body.
+	 *
+	 * @return the minimum size in bytes
+	 */
+	public int minRequestSize() {
+		return minRequestSize;
+	}
+
+	/**
+	 * Set the gzip and deflate compression level, from {@code 1} for the fastest to
+	 * {@code 9} for the smallest output.
+	 *
+	 * @param level the compression level
+	 * @return {@code this}
+	 */
+	public CompressionOptions level(int level) {
+		if (level < 1 || level > 9) {
+			throw new IllegalArgumentException("level must be between 1 and 9");
+		}
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Returns the gzip and deflate compression level.
+	 *
+	 * @return the compression level
+	 */
+	public int level() {
+		return level;
+	}
+
+	/**
+	 * Set the prefixes of the compressed content types, e.g. {@code "text/"} or
+	 * {@code "application/json"}. No prefix compresses any response with a
+	 * {@code Content-Type}.
+	 *
+	 * @param mimeTypes the content type prefixes
+	 * @return {@code this}
+	 */
+	public CompressionOptions mimeTypes(String... mimeTypes) {
+		this.mimeTypes = Collections.unmodifiableList(Arrays.asList(mimeTypes.clone()));
+		return this;
+	}
+
+	/**
+	 * Returns the prefixes of the compressed content types.
+	 *
+	 * @return the content type prefixes
+	 */
+	public List<String> mimeTypes() {
+		return mimeTypes;
+	}
+
+	/**
+	 * @param contentType a {@code Content-Type}, possibly with parameters
+	 * @return true if a body of this type is compressed
+	 */
+	public boolean isCompressible(CharSequence contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		if (mimeTypes.isEmpty()) {
+			return true;
+		}
+		String type = contentType.toString();
+		for (String mimeType : mimeTypes) {
+			if (type.regionMatches(true, 0, mimeType, 0, mimeType.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param gzip true to offer the {@code gzip} encoding
+	 * @return {@code this}
+	 */
+	public CompressionOptions gzip(boolean gzip) {
+		this.gzip = gzip;
+		return this;
+	}
+
+	/**
+	 * @return true if the {@code gzip} encoding is offered
+	 */
+	public boolean gzip() {
+		return gzip;
+	}
+
+	/**
+	 * @param deflate true to offer the {@code deflate} encoding
+	 * @return {@code this}
+	 */
+	public CompressionOptions deflate(boolean deflate) {
+		this.deflate = deflate;
+		return this;
+	}
+
+	/**
+	 * @return true if the {@code deflate} encoding is offered
+	 */
+	public boolean deflate() {
+		return deflate;
+	}
+
+	/**
+	 * Offer the framed Snappy format as the {@code x-snappy-framed} encoding. It trades
+	 * compression ratio for speed, for clients of the same system asking for it: it is
+	 * preferred over gzip and deflate when accepted with the same quality.
+	 *
+	 * @param snappy true to offer the {@code x-snappy-framed} encoding
+	 * @return {@code this}
+	 */
+	public CompressionOptions snappy(boolean snappy) {
+		this.snappy = snappy;
+		return this;
+	}
+
+	/**
+	 * @return true if the {@code x-snappy-framed} encoding is offered
+	 */
+	public boolean snappy() {
+		return snappy;
+	}
+
+	@Override
+	public String toString() {
+		return "CompressionOptions{" +
+				"minResponseSize=" + minResponseSize +
+				", minRequestSize=" + minRequestSize +
+				", level=" + level +
+				", mimeTypes=" + mimeTypes +
+				", gzip=" + gzip +
+				", deflate=" + deflate +
+				", snappy=" + snappy +
+				'}';
+	}
+}
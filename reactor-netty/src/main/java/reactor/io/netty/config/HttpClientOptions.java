@@ -46,7 +46,28 @@ public class HttpClientOptions extends ClientOptions {
 		return create().connect(host, port);
 	}
 
+	/**
+	 * Default maximum number of connections pooled per host
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+	/**
+	 * Default maximum number of requests waiting for a pooled connection per host
+	 */
+	public static final int DEFAULT_MAX_PENDING_ACQUIRES = 1024;
+
+	/**
+	 * Default time in milliseconds an idle pooled connection is kept open
+	 */
+	public static final long DEFAULT_POOL_IDLE_TIMEOUT = 30_000L;
+
 	int followRedirect = 0;
+	int  maxConnections     = DEFAULT_MAX_CONNECTIONS;
+	int  maxPendingAcquires = DEFAULT_MAX_PENDING_ACQUIRES;
+	long poolIdleTimeout    = DEFAULT_POOL_IDLE_TIMEOUT;
+	boolean http2;
+	boolean decompress;
+	CompressionOptions compression;
 
 	HttpClientOptions(){
 
@@ -114,6 +135,147 @@ public class HttpClientOptions extends ClientOptions {
 		return followRedirect;
 	}
 
+	/**
+	 * Set the maximum number of connections opened to a single host. Connections are
+	 * reused for subsequent requests when both sides keep them alive.
+	 *
+	 * @param maxConnections the maximum number of connections per host, {@code 0} to
+	 * open a new connection for each request and close it after the response
+	 * @return {@literal this}
+	 */
+	public HttpClientOptions maxConnections(int maxConnections) {
+		if (maxConnections < 0) {
+			throw new IllegalArgumentException("maxConnections must be >= 0");
+		}
+		this.maxConnections = maxConnections;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of connections opened to a single host.
+	 *
+	 * @return the maximum number of connections per host, {@code 0} if not pooled
+	 */
+	public int maxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of requests waiting for a connection to a single host once
+	 * all its connections are in use, further requests fail.
+	 *
+	 * @param maxPendingAcquires the maximum number of waiting requests per host
+	 * @return {@literal this}
+	 */
+	public HttpClientOptions maxPendingAcquires(int maxPendingAcquires) {
+		if (maxPendingAcquires < 0) {
+			throw new IllegalArgumentException("maxPendingAcquires must be >= 0");
+		}
+		this.maxPendingAcquires = maxPendingAcquires;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of requests waiting for a connection to a single host.
+	 *
+	 * @return the maximum number of waiting requests per host
+	 */
+	public int maxPendingAcquires() {
+		return maxPendingAcquires;
+	}
+
+	/**
+	 * Set the time an unused pooled connection is kept open.
+	 *
+	 * @param poolIdleTimeout the idle time in milliseconds, {@code 0} to keep idle
+	 * connections until the server closes them
+	 * @return {@literal this}
+	 */
+	public HttpClientOptions poolIdleTimeout(long poolIdleTimeout) {
+		if (poolIdleTimeout < 0L) {
+			throw new IllegalArgumentException("poolIdleTimeout must be >= 0");
+		}
+		this.poolIdleTimeout = poolIdleTimeout;
+		return this;
+	}
+
+	/**
+	 * Returns the time an unused pooled connection is kept open.
+	 *
+	 * @return the idle time in milliseconds, {@code 0} if unbounded
+	 */
+	public long poolIdleTimeout() {
+		return poolIdleTimeout;
+	}
+
+	/**
+	 * Send requests as concurrent streams of shared HTTP/2 connections, with prior
+	 * knowledge for {@code http} URLs and negotiated with ALPN for {@code https} URLs. A
+	 * server not speaking HTTP/2 fails the requests.
+	 *
+	 * @param http2 true to use HTTP/2
+	 * @return {@literal this}
+	 */
+	public HttpClientOptions http2(boolean http2) {
+		this.http2 = http2;
+		return this;
+	}
+
+	/**
+	 * Returns true if requests are sent over HTTP/2.
+	 *
+	 * @return true if requests are sent over HTTP/2
+	 */
+	public boolean http2() {
+		return http2;
+	}
+
+	/**
+	 * Advertise gzip and deflate with {@code Accept-Encoding} unless a request sets it,
+	 * and decompress the response bodies as they are received, before
+	 * {@link reactor.io.netty.http.HttpInbound#receive()}.
+	 *
+	 * @param decompress true to decompress the responses
+	 * @return {@literal this}
+	 */
+	public HttpClientOptions decompress(boolean decompress) {
+		this.decompress = decompress;
+		return this;
+	}
+
+	/**
+	 * Returns true if the response bodies are decompressed.
+	 *
+	 * @return true if the response bodies are decompressed
+	 */
+	public boolean decompress() {
+		return decompress;
+	}
+
+	/**
+	 * Compress the request bodies with the first encoding enabled among Snappy, gzip
+	 * and deflate. The server must accept the encoding: it is not negotiated. A request
+	 * with a known {@code Content-Length} below
+	 * {@link CompressionOptions#minRequestSize()}, or a {@code Content-Type} not in
+	 * {@link CompressionOptions#mimeTypes()}, is sent as is.
+	 *
+	 * @param compression the compression options, null to send bodies as is
+	 * @return {@literal this}
+	 */
+	public HttpClientOptions compression(CompressionOptions compression) {
+		this.compression = compression;
+		return this;
+	}
+
+	/**
+	 * Returns the compression of the request bodies.
+	 *
+	 * @return the compression options or null if requests are not compressed
+	 */
+	public CompressionOptions compression() {
+		return compression;
+	}
+
 	/**
 	 * The host and port to which this client should connect.
 	 *
@@ -234,6 +396,36 @@ public class HttpClientOptions extends ClientOptions {
 			return options.followRedirects();
 		}
 
+		@Override
+		public int maxConnections() {
+			return options.maxConnections();
+		}
+
+		@Override
+		public int maxPendingAcquires() {
+			return options.maxPendingAcquires();
+		}
+
+		@Override
+		public long poolIdleTimeout() {
+			return options.poolIdleTimeout();
+		}
+
+		@Override
+		public boolean http2() {
+			return options.http2();
+		}
+
+		@Override
+		public boolean decompress() {
+			return options.decompress();
+		}
+
+		@Override
+		public CompressionOptions compression() {
+			return options.compression();
+		}
+
 		@Override
 		public HttpClientOptions toImmutable() {
 			return this;
@@ -377,6 +569,36 @@ public class HttpClientOptions extends ClientOptions {
 			throw new UnsupportedOperationException("Immutable Options");
 		}
 
+		@Override
+		public HttpClientOptions maxConnections(int maxConnections) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public HttpClientOptions maxPendingAcquires(int maxPendingAcquires) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public HttpClientOptions poolIdleTimeout(long poolIdleTimeout) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public HttpClientOptions http2(boolean http2) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public HttpClientOptions decompress(boolean decompress) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public HttpClientOptions compression(CompressionOptions compression) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
 		@Override
 		public HttpClientOptions tcpNoDelay(boolean tcpNoDelay) {
 			throw new UnsupportedOperationException("Immutable Options");
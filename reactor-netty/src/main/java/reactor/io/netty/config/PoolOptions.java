@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.config;
+
+/**
+ * Sizing and eviction options of a pool of client connections.
+ * <p>
+ * A fixed pool keeps {@link #minConnections()} connections open, re-opening them as they
+ * close or expire. An elastic pool opens connections on demand up to
+ * {@link #maxConnections()} and closes those above {@link #minConnections()} once idle
+ * for {@link #idleTimeout()}.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class PoolOptions {
+
+	/**
+	 * Default time in milliseconds an idle connection is kept open
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 30_000L;
+
+	/**
+	 * Default maximum number of leases waiting for a connection
+	 */
+	public static final int DEFAULT_MAX_PENDING_ACQUIRES = 1024;
+
+	/**
+	 * @param size the number of connections
+	 * @return a pool of {@code size} connections opened on warm-up
+	 */
+	public static PoolOptions fixed(int size) {
+		return new PoolOptions().maxConnections(size)
+		                        .minConnections(size);
+	}
+
+	/**
+	 * @param maxConnections the maximum number of connections
+	 * @return a pool opening up to {@code maxConnections} connections on demand
+	 */
+	public static PoolOptions elastic(int maxConnections) {
+		return new PoolOptions().maxConnections(maxConnections);
+	}
+
+	private int  minConnections     = 0;
+	private int  maxConnections     = 1;
+	private int  maxPendingAcquires = DEFAULT_MAX_PENDING_ACQUIRES;
+	private long idleTimeout        = DEFAULT_IDLE_TIMEOUT;
+	private long maxLifetime        = 0L;
+
+	PoolOptions() {
+	}
+
+	/**
+	 * Set the number of connections opened on warm-up and kept open.
+	 *
+	 * @param minConnections the minimum number of connections
+	 * @return {@code this}
+	 */
+	public PoolOptions minConnections(int minConnections) {
+		if (minConnections < 0) {
+			throw new IllegalArgumentException("minConnections must be >= 0");
+		}
+		if (minConnections > maxConnections) {
+			throw new IllegalArgumentException("minConnections must be <= maxConnections");
+		}
+		this.minConnections = minConnections;
+		return this;
+	}
+
+	/**
+	 * Returns the number of connections opened on warm-up and kept open.
+	 *
+	 * @return the minimum number of connections
+	 */
+	public int minConnections() {
+		return minConnections;
+	}
+
+	/**
+	 * Set the maximum number of open connections, further leases wait for a release.
+	 *
+	 * @param maxConnections the maximum number of connections
+	 * @return {@code this}
+	 */
+	public PoolOptions maxConnections(int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("maxConnections must be >= 1");
+		}
+		if (maxConnections < minConnections) {
+			throw new IllegalArgumentException("maxConnections must be >= minConnections");
+		}
+		this.maxConnections = maxConnections;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of open connections.
+	 *
+	 * @return the maximum number of connections
+	 */
+	public int maxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of leases waiting for a connection, further leases fail.
+	 *
+	 * @param maxPendingAcquires the maximum number of waiting leases
+	 * @return {@code this}
+	 */
+	public PoolOptions maxPendingAcquires(int maxPendingAcquires) {
+		if (maxPendingAcquires < 0) {
+			throw new IllegalArgumentException("maxPendingAcquires must be >= 0");
+		}
+		this.maxPendingAcquires = maxPendingAcquires;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of leases waiting for a connection.
+	 *
+	 * @return the maximum number of waiting leases
+	 */
+	public int maxPendingAcquires() {
+		return maxPendingAcquires;
+	}
+
+	/**
+	 * Set the time a connection above {@link #minConnections()} is kept open while idle.
+	 *
+	 * @param idleTimeout the idle time in milliseconds, {@code 0} to keep idle
+	 * connections open
+	 * @return {@code this}
+	 */
+	public PoolOptions idleTimeout(long idleTimeout) {
+		if (idleTimeout < 0L) {
+			throw new IllegalArgumentException("idleTimeout must be >= 0");
+		}
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * Returns the time an idle connection is kept open.
+	 *
+	 * @return the idle time in milliseconds, {@code 0} if unbounded
+	 */
+	public long idleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Set the time after which a connection is closed instead of being leased again.
+	 *
+	 * @param maxLifetime the lifetime in milliseconds, {@code 0} for no limit
+	 * @return {@code this}
+	 */
+	public PoolOptions maxLifetime(long maxLifetime) {
+		if (maxLifetime < 0L) {
+			throw new IllegalArgumentException("maxLifetime must be >= 0");
+		}
+		this.maxLifetime = maxLifetime;
+		return this;
+	}
+
+	/**
+	 * Returns the time after which a connection is not leased again.
+	 *
+	 * @return the lifetime in milliseconds, {@code 0} if unbounded
+	 */
+	public long maxLifetime() {
+		return maxLifetime;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolOptions{" +
+				"minConnections=" + minConnections +
+				", maxConnections=" + maxConnections +
+				", maxPendingAcquires=" + maxPendingAcquires +
+				", idleTimeout=" + idleTimeout +
+				", maxLifetime=" + maxLifetime +
+				'}';
+	}
+}
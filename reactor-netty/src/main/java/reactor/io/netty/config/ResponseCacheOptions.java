@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Time to live, memory bounds and key of the responses kept by an HTTP response cache.
+ * <p>
+ * A response is cached under its request method, URI and the values of the
+ * {@link #keyHeaders()} of its request, for at most {@link #ttl()} milliseconds. The
+ * least recently used responses are evicted once their bodies take more than
+ * {@link #maxBytes()}.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class ResponseCacheOptions {
+
+	/**
+	 * Default time in milliseconds a response is served from the cache
+	 */
+	public static final long DEFAULT_TTL = 1000L;
+
+	/**
+	 * Default maximum size in bytes of the cached bodies
+	 */
+	public static final long DEFAULT_MAX_BYTES = 32L * 1024L * 1024L;
+
+	/**
+	 * Default maximum size in bytes of a cached body
+	 */
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+	/**
+	 * @return options caching responses for {@link #DEFAULT_TTL} milliseconds
+	 */
+	public static ResponseCacheOptions create() {
+		return new ResponseCacheOptions();
+	}
+
+	private long         ttl          = DEFAULT_TTL;
+	private long         maxBytes     = DEFAULT_MAX_BYTES;
+	private int          maxEntrySize = DEFAULT_MAX_ENTRY_SIZE;
+	private List<String> keyHeaders   = Collections.emptyList();
+
+	ResponseCacheOptions() {
+	}
+
+	/**
+	 * Set the time a response is served from the cache after it has been produced.
+	 *
+	 * @param ttl the time to live in milliseconds
+	 * @return {@code this}
+	 */
+	public ResponseCacheOptions ttl(long ttl) {
+		if (ttl < 1L) {
+			throw new IllegalArgumentException("ttl must be >= 1");
+		}
+		this.ttl = ttl;
+		return this;
+	}
+
+	/**
+	 * Returns the time a response is served from the cache.
+	 *
+	 * @return the time to live in milliseconds
+	 */
+	public long ttl() {
+		return ttl;
+	}
+
+	/**
+	 * Set the maximum size of the cached bodies, the least recently used being evicted
+	 * beyond.
+	 *
+	 * @param maxBytes the maximum size in bytes
+	 * @return {@code this}
+	 */
+	public ResponseCacheOptions maxBytes(long maxBytes) {
+		if (maxBytes < 1L) {
+			throw new IllegalArgumentException("maxBytes must be >= 1");
+		}
+		this.maxBytes = maxBytes;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum size of the cached bodies.
+	 *
+	 * @return the maximum size in bytes
+	 */
+	public long maxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Set the maximum size of a cached body, larger responses being sent without being
+	 * cached.
+	 *
+	 * @param maxEntrySize the maximum size in bytes
+	 * @return {@code this}
+	 */
+	public ResponseCacheOptions maxEntrySize(int maxEntrySize) {
+		if (maxEntrySize < 0) {
+			throw new IllegalArgumentException("maxEntrySize must be >= 0");
+		}
+		this.maxEntrySize = maxEntrySize;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum size of a cached body.
+	 *
+	 * @return the maximum size in bytes
+	 */
+	public int maxEntrySize() {
+		return maxEntrySize;
+	}
+
+	/**
+	 * Set the request headers whose values are part of the cache key, e.g.
+	 * {@code Accept} for a response negotiated from it.
+	 *
+	 * @param keyHeaders the request header names
+	 * @return {@code this}
+	 */
+	public ResponseCacheOptions keyHeaders(String... keyHeaders) {
+		this.keyHeaders = Collections.unmodifiableList(Arrays.asList(keyHeaders.clone()));
+		return this;
+	}
+
+	/**
+	 * Returns the request headers whose values are part of the cache key.
+	 *
+	 * @return the request header names
+	 */
+	public List<String> keyHeaders() {
+		return keyHeaders;
+	}
+
+	@Override
+	public String toString() {
+		return "ResponseCacheOptions{" +
+				"ttl=" + ttl +
+				", maxBytes=" + maxBytes +
+				", maxEntrySize=" + maxEntrySize +
+				", keyHeaders=" + keyHeaders +
+				'}';
+	}
+}
@@ -19,15 +19,22 @@ package reactor.io.netty.config;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.net.ProtocolFamily;
+import java.nio.charset.StandardCharsets;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.SelfSignedCertificate;
 import reactor.core.scheduler.TimedScheduler;
 import reactor.core.util.Exceptions;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
 import reactor.io.netty.common.Peer;
 
 /**
@@ -61,11 +68,47 @@ public class ServerOptions extends NettyOptions<ServerOptions> {
 		return new ServerOptions().listen(address, port);
 	}
 
+	/**
+	 * Default maximum duration of a warm-up phase in milliseconds
+	 */
+	public static final long DEFAULT_WARMUP_TIMEOUT = 10_000L;
+
+	/**
+	 * Default maximum number of HTTP requests served on a connection
+	 */
+	public static final int DEFAULT_MAX_KEEP_ALIVE_REQUESTS = 1000;
+
+	/**
+	 * Default time in milliseconds an idle HTTP connection is kept open
+	 */
+	public static final long DEFAULT_KEEP_ALIVE_TIMEOUT = 60_000L;
+
+	/**
+	 * Default maximum number of pipelined HTTP requests in flight on a connection
+	 */
+	public static final int DEFAULT_MAX_PIPELINED_REQUESTS = 16;
+
+	/**
+	 * Default maximum number of concurrent HTTP/2 streams per connection
+	 */
+	public static final long DEFAULT_MAX_CONCURRENT_STREAMS = 100L;
+
 	protected InetSocketAddress listenAddress;
 	private   NetworkInterface  multicastInterface;
 	private int            backlog        = 1000;
 	private boolean        reuseAddr      = true;
 	private ProtocolFamily protocolFamily = null;
+	private int            warmupIterations = 0;
+	private long           warmupTimeout    = DEFAULT_WARMUP_TIMEOUT;
+	private final List<byte[]>   warmupRequests = new ArrayList<>();
+	private final List<Runnable> warmupTasks    = new ArrayList<>();
+	private ChannelHandler<ByteBuf, ByteBuf, NettyChannel> warmupHandler;
+	private int            maxKeepAliveRequests = DEFAULT_MAX_KEEP_ALIVE_REQUESTS;
+	private long           keepAliveTimeout     = DEFAULT_KEEP_ALIVE_TIMEOUT;
+	private int            maxPipelinedRequests = DEFAULT_MAX_PIPELINED_REQUESTS;
+	private boolean        http2                = false;
+	private long           maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+	private CompressionOptions compression      = null;
 
 	ServerOptions(){
 
@@ -193,6 +236,287 @@ public class ServerOptions extends NettyOptions<ServerOptions> {
 		return this;
 	}
 
+	/**
+	 * Enable a warm-up phase at start: the warm-up tasks are run the given number of
+	 * times, then as many loopback connections are made to a temporary local binding of
+	 * the server pipeline, each sending the warm-up requests, before the server binds its
+	 * listen address. These connections are served by the server handler, e.g. the
+	 * {@code HttpServer} routes and codecs, unless a {@link #warmupHandler} is set. The
+	 * warm-up runs off the start caller thread.
+	 *
+	 * @param iterations the number of warm-up cycles, {@code 0} to disable
+	 * @return {@code this}
+	 */
+	public ServerOptions warmup(int iterations) {
+		return warmup(iterations, DEFAULT_WARMUP_TIMEOUT);
+	}
+
+	/**
+	 * Enable a warm-up phase at start bounded by the given duration.
+	 *
+	 * @param iterations the number of warm-up cycles, {@code 0} to disable
+	 * @param timeoutMillis the maximum duration of the warm-up phase in milliseconds
+	 * @return {@code this}
+	 * @see #warmup(int)
+	 */
+	public ServerOptions warmup(int iterations, long timeoutMillis) {
+		if (iterations < 0) {
+			throw new IllegalArgumentException("iterations must be >= 0");
+		}
+		if (timeoutMillis <= 0L) {
+			throw new IllegalArgumentException("timeoutMillis must be > 0");
+		}
+		this.warmupIterations = iterations;
+		this.warmupTimeout = timeoutMillis;
+		return this;
+	}
+
+	/**
+	 * Returns the number of warm-up cycles run at start.
+	 *
+	 * @return the number of warm-up cycles, {@code 0} if disabled
+	 */
+	public int warmupIterations() {
+		return warmupIterations;
+	}
+
+	/**
+	 * Returns the maximum duration of the warm-up phase.
+	 *
+	 * @return the maximum duration of the warm-up phase in milliseconds
+	 */
+	public long warmupTimeout() {
+		return warmupTimeout;
+	}
+
+	/**
+	 * Add raw bytes to send on each warm-up connection, e.g. a representative request.
+	 *
+	 * @param request the bytes to send
+	 * @return {@code this}
+	 */
+	public ServerOptions warmupRequest(byte[] request) {
+		if (request == null) {
+			throw new IllegalArgumentException("A warm-up request is required");
+		}
+		this.warmupRequests.add(request.clone());
+		return this;
+	}
+
+	/**
+	 * Add a UTF-8 encoded request to send on each warm-up connection, e.g.
+	 * {@code "GET /health HTTP/1.1\r\nHost: localhost\r\n\r\n"}.
+	 *
+	 * @param request the request to send
+	 * @return {@code this}
+	 */
+	public ServerOptions warmupRequest(String request) {
+		if (request == null) {
+			throw new IllegalArgumentException("A warm-up request is required");
+		}
+		return warmupRequest(request.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the requests sent on each warm-up connection.
+	 *
+	 * @return the warm-up requests
+	 */
+	public List<byte[]> warmupRequests() {
+		return Collections.unmodifiableList(warmupRequests);
+	}
+
+	/**
+	 * Add a task run on each warm-up cycle before any connection is made, typically a
+	 * codec round-trip such as {@code () -> codec.warmup(sample, 1)}.
+	 *
+	 * @param task the task to run
+	 * @return {@code this}
+	 */
+	public ServerOptions warmupTask(Runnable task) {
+		if (task == null) {
+			throw new IllegalArgumentException("A warm-up task is required");
+		}
+		this.warmupTasks.add(task);
+		return this;
+	}
+
+	/**
+	 * Returns the tasks run on each warm-up cycle.
+	 *
+	 * @return the warm-up tasks
+	 */
+	public List<Runnable> warmupTasks() {
+		return Collections.unmodifiableList(warmupTasks);
+	}
+
+	/**
+	 * Set the handler serving the warm-up connections in place of the server handler,
+	 * e.g. when the server handler has side effects warm-up traffic must not trigger.
+	 *
+	 * @param handler the warm-up handler
+	 * @return {@code this}
+	 */
+	public ServerOptions warmupHandler(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+		if (handler == null) {
+			throw new IllegalArgumentException("A warm-up handler is required");
+		}
+		this.warmupHandler = handler;
+		return this;
+	}
+
+	/**
+	 * Returns the handler serving the warm-up connections.
+	 *
+	 * @return the warm-up handler or null to use the server handler
+	 */
+	public ChannelHandler<ByteBuf, ByteBuf, NettyChannel> warmupHandler() {
+		return warmupHandler;
+	}
+
+	/**
+	 * Set the maximum number of HTTP requests served on a persistent connection, the
+	 * response to the last one closes the connection.
+	 *
+	 * @param maxKeepAliveRequests the maximum number of requests per connection, {@code 1}
+	 * to close the connection after each response
+	 * @return {@code this}
+	 */
+	public ServerOptions maxKeepAliveRequests(int maxKeepAliveRequests) {
+		if (maxKeepAliveRequests < 1) {
+			throw new IllegalArgumentException("maxKeepAliveRequests must be >= 1");
+		}
+		this.maxKeepAliveRequests = maxKeepAliveRequests;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of HTTP requests served on a connection.
+	 *
+	 * @return the maximum number of requests per connection
+	 */
+	public int maxKeepAliveRequests() {
+		return maxKeepAliveRequests;
+	}
+
+	/**
+	 * Set the time an HTTP connection waiting for its next request is kept open.
+	 *
+	 * @param keepAliveTimeout the idle time in milliseconds, {@code 0} to wait
+	 * indefinitely
+	 * @return {@code this}
+	 */
+	public ServerOptions keepAliveTimeout(long keepAliveTimeout) {
+		if (keepAliveTimeout < 0L) {
+			throw new IllegalArgumentException("keepAliveTimeout must be >= 0");
+		}
+		this.keepAliveTimeout = keepAliveTimeout;
+		return this;
+	}
+
+	/**
+	 * Returns the time an idle HTTP connection is kept open.
+	 *
+	 * @return the idle time in milliseconds, {@code 0} if unbounded
+	 */
+	public long keepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	/**
+	 * Set the maximum number of HTTP requests read ahead of their responses on a
+	 * connection. Their handlers run concurrently and the responses are written in
+	 * request order.
+	 *
+	 * @param maxPipelinedRequests the maximum number of requests in flight per
+	 * connection, {@code 1} to read the next request after the current response
+	 * @return {@code this}
+	 */
+	public ServerOptions maxPipelinedRequests(int maxPipelinedRequests) {
+		if (maxPipelinedRequests < 1) {
+			throw new IllegalArgumentException("maxPipelinedRequests must be >= 1");
+		}
+		this.maxPipelinedRequests = maxPipelinedRequests;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of HTTP requests in flight on a connection.
+	 *
+	 * @return the maximum number of pipelined requests per connection
+	 */
+	public int maxPipelinedRequests() {
+		return maxPipelinedRequests;
+	}
+
+	/**
+	 * Serve HTTP/2 next to HTTP/1.x: over SSL the protocol is negotiated with ALPN,
+	 * otherwise cleartext HTTP/2 is accepted with prior knowledge or upgraded from
+	 * HTTP/1.1.
+	 *
+	 * @param http2 true to serve HTTP/2
+	 * @return {@code this}
+	 */
+	public ServerOptions http2(boolean http2) {
+		this.http2 = http2;
+		return this;
+	}
+
+	/**
+	 * Returns true if HTTP/2 is served next to HTTP/1.x.
+	 *
+	 * @return true if HTTP/2 is served
+	 */
+	public boolean http2() {
+		return http2;
+	}
+
+	/**
+	 * Set the maximum number of HTTP/2 streams a client can open concurrently on a
+	 * connection, advertised with {@code SETTINGS_MAX_CONCURRENT_STREAMS}.
+	 *
+	 * @param maxConcurrentStreams the maximum number of concurrent streams per connection
+	 * @return {@code this}
+	 */
+	public ServerOptions maxConcurrentStreams(long maxConcurrentStreams) {
+		if (maxConcurrentStreams < 1L) {
+			throw new IllegalArgumentException("maxConcurrentStreams must be >= 1");
+		}
+		this.maxConcurrentStreams = maxConcurrentStreams;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent HTTP/2 streams per connection.
+	 *
+	 * @return the maximum number of concurrent streams per connection
+	 */
+	public long maxConcurrentStreams() {
+		return maxConcurrentStreams;
+	}
+
+	/**
+	 * Set the compression of the responses, negotiated with each request
+	 * {@code Accept-Encoding}. A route can override it with
+	 * {@link reactor.io.netty.http.HttpChannel#compression(CompressionOptions)}.
+	 *
+	 * @param compression the compression options, null to send bodies as is
+	 * @return {@code this}
+	 */
+	public ServerOptions compression(CompressionOptions compression) {
+		this.compression = compression;
+		return this;
+	}
+
+	/**
+	 * Returns the compression of the responses.
+	 *
+	 * @return the compression options or null if responses are not compressed
+	 */
+	public CompressionOptions compression() {
+		return compression;
+	}
+
 	/**
 	 * Enable SSL service with a self-signed certificate
 	 *
@@ -251,6 +575,61 @@ public class ServerOptions extends NettyOptions<ServerOptions> {
 			return options.reuseAddr();
 		}
 
+		@Override
+		public int warmupIterations() {
+			return options.warmupIterations();
+		}
+
+		@Override
+		public long warmupTimeout() {
+			return options.warmupTimeout();
+		}
+
+		@Override
+		public List<byte[]> warmupRequests() {
+			return options.warmupRequests();
+		}
+
+		@Override
+		public List<Runnable> warmupTasks() {
+			return options.warmupTasks();
+		}
+
+		@Override
+		public ChannelHandler<ByteBuf, ByteBuf, NettyChannel> warmupHandler() {
+			return options.warmupHandler();
+		}
+
+		@Override
+		public int maxKeepAliveRequests() {
+			return options.maxKeepAliveRequests();
+		}
+
+		@Override
+		public long keepAliveTimeout() {
+			return options.keepAliveTimeout();
+		}
+
+		@Override
+		public int maxPipelinedRequests() {
+			return options.maxPipelinedRequests();
+		}
+
+		@Override
+		public boolean http2() {
+			return options.http2();
+		}
+
+		@Override
+		public long maxConcurrentStreams() {
+			return options.maxConcurrentStreams();
+		}
+
+		@Override
+		public CompressionOptions compression() {
+			return options.compression();
+		}
+
 		@Override
 		public EventLoopGroup eventLoopGroup() {
 			return options.eventLoopGroup();
@@ -341,6 +720,66 @@ public class ServerOptions extends NettyOptions<ServerOptions> {
 			throw new UnsupportedOperationException("Immutable Options");
 		}
 
+		@Override
+		public ServerOptions warmup(int iterations) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions warmup(int iterations, long timeoutMillis) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions warmupRequest(byte[] request) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions warmupRequest(String request) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions warmupTask(Runnable task) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions warmupHandler(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions maxKeepAliveRequests(int maxKeepAliveRequests) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions keepAliveTimeout(long keepAliveTimeout) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions maxPipelinedRequests(int maxPipelinedRequests) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions http2(boolean http2) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions maxConcurrentStreams(long maxConcurrentStreams) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
+		@Override
+		public ServerOptions compression(CompressionOptions compression) {
+			throw new UnsupportedOperationException("Immutable Options");
+		}
+
 		@Override
 		public ServerOptions eventLoopGroup(EventLoopGroup eventLoopGroup) {
 			throw new UnsupportedOperationException("Immutable Options");
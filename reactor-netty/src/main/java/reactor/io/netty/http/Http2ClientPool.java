@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.SocketChannel;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+import reactor.core.subscriber.BaseSubscriber;
+import reactor.core.util.Logger;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.config.HttpClientOptions;
+
+/**
+ * The HTTP/2 connections of an {@link HttpClient} to a single host, each carrying many
+ * concurrent requests as separate streams.
+ * <p>
+ * A request opens a stream on the first connection below the
+ * {@code SETTINGS_MAX_CONCURRENT_STREAMS} advertised by the server, a new connection only
+ * opens once all of them are saturated, up to {@link HttpClientOptions#maxConnections()}.
+ * Until its settings are received a new connection carries a single stream, so that a
+ * burst of requests waits for them instead of opening a connection each. Further
+ * requests wait in a bounded queue and are served in order as streams close. A connection
+ * receiving a {@code GOAWAY} frame serves its open streams but no new one.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ * @see HttpClient#http2Pools()
+ */
+public final class Http2ClientPool {
+
+	final HttpClient.TcpBridgeClient client;
+	final InetSocketAddress          address;
+	final boolean                    secure;
+	final int                        maxConnections;
+	final int                        maxPendingAcquires;
+
+	// guarded by this
+	final List<NettyHttp2ClientHandler>      connections = new ArrayList<>();
+	final ArrayDeque<HttpClientPool.Acquire> pending     = new ArrayDeque<>();
+	int     connecting;
+	boolean closed;
+
+	final AtomicLong created = new AtomicLong();
+	final AtomicLong streams = new AtomicLong();
+
+	Http2ClientPool(HttpClient.TcpBridgeClient client,
+			InetSocketAddress address,
+			boolean secure,
+			int maxConnections,
+			int maxPendingAcquires) {
+		this.client = client;
+		this.address = address;
+		this.secure = secure;
+		this.maxConnections = Math.max(1, maxConnections);
+		this.maxPendingAcquires = maxPendingAcquires;
+	}
+
+	/**
+	 * @return the address of the pooled host
+	 */
+	public InetSocketAddress address() {
+		return address;
+	}
+
+	/**
+	 * @return true if the pooled connections are secured
+	 */
+	public boolean isSecure() {
+		return secure;
+	}
+
+	/**
+	 * @return the number of open or opening connections
+	 */
+	public synchronized int connections() {
+		return connections.size() + connecting;
+	}
+
+	/**
+	 * @return the number of streams currently open on the pooled connections
+	 */
+	public synchronized int activeStreams() {
+		int active = 0;
+		for (NettyHttp2ClientHandler connection : connections) {
+			active += connection.activeStreams;
+		}
+		return active;
+	}
+
+	/**
+	 * @return the number of requests waiting for a stream
+	 */
+	public synchronized int pendingAcquires() {
+		return pending.size();
+	}
+
+	/**
+	 * @return the number of connections opened since this pool was created
+	 */
+	public long createdConnections() {
+		return created.get();
+	}
+
+	/**
+	 * @return the number of streams opened since this pool was created
+	 */
+	public long createdStreams() {
+		return streams.get();
+	}
+
+	/**
+	 * Run the given handler on a new stream, opening a connection if all are saturated.
+	 *
+	 * @param handler the request handler
+	 * @return a {@link Mono} completing once the handler runs on a stream
+	 */
+	Mono<Void> acquire(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+		return Mono.defer(() -> {
+			HttpClientPool.Acquire acquire = new HttpClientPool.Acquire(handler);
+			acquire(acquire);
+			return acquire.result;
+		});
+	}
+
+	void acquire(HttpClientPool.Acquire acquire) {
+		NettyHttp2ClientHandler connection = null;
+		boolean connect = false;
+		String rejected = null;
+		synchronized (this) {
+			if (closed) {
+				rejected = "Connection pool to " + address + " is closed";
+			}
+			else if ((connection = available()) != null) {
+				connection.activeStreams++;
+			}
+			else if (connecting == 0 && connections.size() < maxConnections) {
+				connecting++;
+				connect = true;
+			}
+			else if (pending.size() < maxPendingAcquires) {
+				pending.add(acquire);
+			}
+			else {
+				rejected = "Too many requests waiting for a stream to " + address;
+			}
+		}
+		if (rejected != null) {
+			acquire.result.onError(new IllegalStateException(rejected));
+		}
+		else if (connection != null) {
+			streams.incrementAndGet();
+			connection.lease(acquire);
+		}
+		else if (connect) {
+			connect(acquire);
+		}
+	}
+
+	/**
+	 * Account for a closed stream of the given connection, called from its event loop.
+	 */
+	void release(NettyHttp2ClientHandler connection) {
+		boolean close;
+		synchronized (this) {
+			connection.activeStreams--;
+			// retired connections and those of a closed pool close with their last stream
+			close = (closed || !connections.contains(connection)) && connection.activeStreams == 0;
+		}
+		if (close) {
+			connection.close();
+		}
+		else {
+			drain();
+		}
+	}
+
+	/**
+	 * Update the number of concurrent streams a connection accepts, called from its event
+	 * loop once the server settings are read.
+	 */
+	void maxStreams(NettyHttp2ClientHandler connection, int maxStreams) {
+		synchronized (this) {
+			connection.maxStreams = maxStreams;
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Connection to {} accepts {} concurrent streams", address, maxStreams);
+		}
+		drain();
+	}
+
+	/**
+	 * Stop opening streams on a connection the server is shutting down.
+	 */
+	void retire(NettyHttp2ClientHandler connection) {
+		synchronized (this) {
+			connections.remove(connection);
+		}
+		drain();
+	}
+
+	/**
+	 * Fail waiting requests and close connections, those with open streams once their
+	 * last stream closes.
+	 */
+	void close() {
+		List<NettyHttp2ClientHandler> idle = new ArrayList<>();
+		List<HttpClientPool.Acquire> pending;
+		synchronized (this) {
+			closed = true;
+			for (NettyHttp2ClientHandler connection : connections) {
+				if (connection.activeStreams == 0) {
+					idle.add(connection);
+				}
+			}
+			pending = new ArrayList<>(this.pending);
+			this.pending.clear();
+		}
+		for (NettyHttp2ClientHandler connection : idle) {
+			connection.close();
+		}
+		for (HttpClientPool.Acquire acquire : pending) {
+			acquire.result.onError(new IllegalStateException("Connection pool to " + address + " is closed"));
+		}
+	}
+
+	/**
+	 * Track a connection opened by this pool until it is closed, its first stream being
+	 * the request it has been opened for.
+	 */
+	void register(PooledConnect connect, SocketChannel ch, NettyHttp2ClientHandler connection) {
+		connect.registered = true;
+		synchronized (this) {
+			connecting--;
+			connection.activeStreams = 1;
+			connections.add(connection);
+		}
+		streams.incrementAndGet();
+		ch.closeFuture()
+		  .addListener(f -> closed(connection));
+	}
+
+	/**
+	 * @return the first connection below its stream limit
+	 */
+	NettyHttp2ClientHandler available() {
+		for (NettyHttp2ClientHandler connection : connections) {
+			if (connection.activeStreams < connection.maxStreams && connection.isReusable()) {
+				return connection;
+			}
+		}
+		return null;
+	}
+
+	void connect(HttpClientPool.Acquire acquire) {
+		created.incrementAndGet();
+		PooledConnect connect = new PooledConnect(acquire.handler);
+		client.doStart(connect, address, secure)
+		      .subscribe(new BaseSubscriber<Void>() {
+			      @Override
+			      public void onSubscribe(Subscription s) {
+				      s.request(Long.MAX_VALUE);
+			      }
+
+			      @Override
+			      public void onError(Throwable t) {
+				      if (!connect.registered) {
+					      // no channel has been created, nothing will release the slot
+					      synchronized (Http2ClientPool.this) {
+						      connecting--;
+					      }
+					      drain();
+				      }
+				      acquire.result.onError(t);
+			      }
+
+			      @Override
+			      public void onComplete() {
+				      acquire.result.onComplete();
+			      }
+		      });
+	}
+
+	void closed(NettyHttp2ClientHandler connection) {
+		synchronized (this) {
+			connections.remove(connection);
+		}
+		drain();
+	}
+
+	/**
+	 * Serve waiting requests on the connections below their stream limit, and open a
+	 * connection for the next one if they are all saturated.
+	 */
+	void drain() {
+		List<NettyHttp2ClientHandler> leased = null;
+		List<HttpClientPool.Acquire> acquires = null;
+		HttpClientPool.Acquire next = null;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			NettyHttp2ClientHandler connection;
+			while (!pending.isEmpty() && (connection = available()) != null) {
+				if (leased == null) {
+					leased = new ArrayList<>();
+					acquires = new ArrayList<>();
+				}
+				connection.activeStreams++;
+				leased.add(connection);
+				acquires.add(pending.poll());
+			}
+			if (!pending.isEmpty() && connecting == 0 && connections.size() < maxConnections) {
+				connecting++;
+				next = pending.poll();
+			}
+		}
+		if (leased != null) {
+			for (int i = 0; i < leased.size(); i++) {
+				streams.incrementAndGet();
+				leased.get(i)
+				      .lease(acquires.get(i));
+			}
+		}
+		if (next != null) {
+			connect(next);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ClientPool{" +
+				"address=" + address +
+				", connections=" + connections() +
+				", streams=" + activeStreams() +
+				", pending=" + pendingAcquires() +
+				'}';
+	}
+
+	/**
+	 * The handler of the first request on a new connection, binding the connection to
+	 * this pool.
+	 */
+	final class PooledConnect implements ChannelHandler<ByteBuf, ByteBuf, NettyChannel> {
+
+		final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+
+		volatile boolean registered;
+
+		PooledConnect(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+			this.handler = handler;
+		}
+
+		Http2ClientPool pool() {
+			return Http2ClientPool.this;
+		}
+
+		@Override
+		public Publisher<Void> apply(NettyChannel channel) {
+			return handler.apply(channel);
+		}
+	}
+
+	static final Logger log = Logger.getLogger(Http2ClientPool.class);
+}
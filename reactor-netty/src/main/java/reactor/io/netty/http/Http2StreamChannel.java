@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2Stream;
+import io.netty.util.ReferenceCountUtil;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.util.BackpressureUtils;
+import reactor.core.util.EmptySubscription;
+import reactor.io.netty.common.MonoChannelFuture;
+import reactor.io.netty.tcp.TcpChannel;
+
+/**
+ * An {@link HttpChannel} bound to one HTTP/2 stream of a connection, shared by the server
+ * and the client.
+ * <p>
+ * The inbound body is only acknowledged with {@code WINDOW_UPDATE} frames as its
+ * subscriber requests it, so that a slow reader stops the peer through HTTP/2 flow
+ * control. The outbound body is requested from its publisher as its {@code DATA} frames
+ * are written, at most {@link #MAX_PENDING_WRITES} ahead of what the peer window lets
+ * through. Unless stated otherwise, methods are called from the event loop.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+abstract class Http2StreamChannel extends NettyHttpChannel {
+
+	/**
+	 * Maximum number of outbound messages of a stream waiting to be written
+	 */
+	static final int MAX_PENDING_WRITES = 16;
+
+	final Http2ConnectionHandler connection;
+	final ChannelHandlerContext  context;
+
+	Http2Stream stream;
+
+	// inbound body state
+	final ArrayDeque<ByteBuf> received = new ArrayDeque<>();
+	Subscriber<? super Object> body;
+	long                       requested;
+	boolean                    bodyComplete;
+	boolean                    bodyCancelled;
+	boolean                    bodyTerminated;
+	boolean                    flowControlled = true;
+
+	// outbound state
+	boolean ended;
+	boolean closed;
+
+	Http2StreamChannel(TcpChannel tcpStream,
+			HttpRequest request,
+			Http2ConnectionHandler connection,
+			ChannelHandlerContext context) {
+		super(tcpStream, request);
+		this.connection = connection;
+		this.context = context;
+	}
+
+	/**
+	 * @return the headers to open or answer the stream with
+	 */
+	protected abstract Http2Headers outboundHeaders();
+
+	/**
+	 * Called once the stream has been created by the first outbound headers.
+	 */
+	protected void opened(Http2Stream stream) {
+	}
+
+	@Override
+	public boolean isKeepAlive() {
+		return true;
+	}
+
+	@Override
+	public HttpOutbound keepAlive(boolean keepAlive) {
+		// the connection outlives the stream
+		return this;
+	}
+
+	@Override
+	public boolean isWebsocket() {
+		return false;
+	}
+
+	@Override
+	public Mono<Void> upgradeToWebsocket(String protocols, boolean textPlain) {
+		return Mono.error(new IllegalStateException("WebSocket upgrade is not supported over HTTP/2"));
+	}
+
+	@Override
+	public Mono<Void> sendFile(File file, long position, long count) {
+		ByteBufAllocator alloc = delegate().alloc();
+		return send(Flux.fromIterable(() -> new FileChunks(file, position, count, alloc)));
+	}
+
+	// INBOUND body
+
+	@Override
+	public void subscribe(Subscriber<? super Object> subscriber) {
+		execute(() -> {
+			if (body != null || bodyCancelled) {
+				EmptySubscription.error(subscriber,
+						new IllegalStateException("Only one connection receive subscriber allowed."));
+				return;
+			}
+			body = subscriber;
+			subscriber.onSubscribe(new BodySubscription(subscriber));
+			drainBody();
+		});
+	}
+
+	/**
+	 * @return false if the data has been released since nobody will read it
+	 */
+	final boolean receive(ByteBuf data) {
+		if (bodyCancelled || closed) {
+			data.release();
+			return false;
+		}
+		received.add(data);
+		drainBody();
+		return true;
+	}
+
+	final void bodyComplete() {
+		bodyComplete = true;
+		drainBody();
+	}
+
+	final void drainBody() {
+		Subscriber<? super Object> body = this.body;
+		if (body == null || bodyTerminated) {
+			return;
+		}
+		int consumed = 0;
+		ByteBuf data;
+		while (requested != 0L && (data = received.poll()) != null) {
+			if (requested != Long.MAX_VALUE) {
+				requested--;
+			}
+			consumed += data.readableBytes();
+			try {
+				body.onNext(data);
+			}
+			finally {
+				ReferenceCountUtil.release(data);
+			}
+		}
+		consume(consumed);
+		if (received.isEmpty() && (bodyComplete || closed)) {
+			bodyTerminated = true;
+			body.onComplete();
+		}
+	}
+
+	/**
+	 * Release the inbound body nobody reads, and what comes next as it arrives.
+	 */
+	final void cancelBody() {
+		bodyCancelled = true;
+		body = null;
+		int consumed = 0;
+		ByteBuf data;
+		while ((data = received.poll()) != null) {
+			consumed += data.readableBytes();
+			data.release();
+		}
+		consume(consumed);
+	}
+
+	/**
+	 * Acknowledge read bytes to the peer.
+	 */
+	final void consume(int bytes) {
+		if (bytes == 0 || closed || !flowControlled || stream == null) {
+			return;
+		}
+		try {
+			connection.decoder()
+			          .flowController()
+			          .consumeBytes(stream, bytes);
+			context.flush();
+		}
+		catch (Http2Exception e) {
+			connection.onError(context, e);
+		}
+	}
+
+	// OUTBOUND
+
+	@Override
+	protected void doSubscribeHeaders(Subscriber<? super Void> s) {
+		execute(() -> {
+			if (ended || closed) {
+				EmptySubscription.error(s, new IllegalStateException("Stream closed"));
+				return;
+			}
+			MonoChannelFuture.from(writeHeaders(false))
+			                 .subscribe(s);
+		});
+	}
+
+	@Override
+	protected void doEmitWriter(Publisher<?> source, Subscriber<? super Void> s) {
+		source.subscribe(new Http2StreamWrite(this, s));
+	}
+
+	/**
+	 * Write the outbound headers, opening the stream with the next stream id if needed.
+	 */
+	final ChannelFuture writeHeaders(boolean endStream) {
+		int streamId = stream != null ? stream.id() : connection.connection()
+		                                                        .local()
+		                                                        .incrementAndGetNextStreamId();
+		ChannelPromise promise = context.newPromise();
+		connection.encoder()
+		          .writeHeaders(context, streamId, outboundHeaders(), 0, endStream, promise);
+		if (stream == null) {
+			stream = connection.connection()
+			                   .stream(streamId);
+			if (stream != null) {
+				opened(stream);
+			}
+		}
+		context.flush();
+		return promise;
+	}
+
+	final ChannelFuture writeData(ByteBuf data, boolean endStream) {
+		ChannelPromise promise = context.newPromise();
+		connection.encoder()
+		          .writeData(context, stream.id(), data, 0, endStream, promise);
+		context.flush();
+		return promise;
+	}
+
+	/**
+	 * End the outbound side of the stream, with its headers if they have not been sent.
+	 */
+	final void writeEnd() {
+		if (markHeadersAsFlushed() || stream == null) {
+			writeHeaders(true);
+		}
+		else {
+			ByteBuf tail = finishCompression();
+			writeData(tail != null ? tail : Unpooled.EMPTY_BUFFER, true);
+		}
+	}
+
+	final void reset(Http2Error error) {
+		if (stream == null || closed) {
+			return;
+		}
+		connection.resetStream(context, stream.id(), error.code(), context.newPromise());
+		context.flush();
+	}
+
+	/**
+	 * Release the inbound body once the stream has been closed or reset.
+	 */
+	void closed() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		releaseCompression();
+		ByteBuf data;
+		if (body == null) {
+			while ((data = received.poll()) != null) {
+				data.release();
+			}
+		}
+		else if (!bodyComplete) {
+			Subscriber<? super Object> body = this.body;
+			this.body = null;
+			while ((data = received.poll()) != null) {
+				data.release();
+			}
+			if (!bodyTerminated) {
+				bodyTerminated = true;
+				body.onError(new IOException("Stream " + (stream != null ? stream.id() : 0) + " closed"));
+			}
+		}
+	}
+
+	final void execute(Runnable task) {
+		NettyHttpServerHandler.execute(delegate(), task);
+	}
+
+	final class BodySubscription implements Subscription {
+
+		final Subscriber<? super Object> subscriber;
+
+		BodySubscription(Subscriber<? super Object> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (BackpressureUtils.checkRequest(n, subscriber)) {
+				execute(() -> {
+					long r = requested + n;
+					requested = r < 0L ? Long.MAX_VALUE : r;
+					drainBody();
+				});
+			}
+		}
+
+		@Override
+		public void cancel() {
+			execute(Http2StreamChannel.this::cancelBody);
+		}
+	}
+
+	/**
+	 * Write an outbound body as {@code DATA} frames, requesting more once written.
+	 */
+	static final class Http2StreamWrite implements Subscriber<Object> {
+
+		final Http2StreamChannel       channel;
+		final Subscriber<? super Void> s;
+
+		// only accessed from the event loop
+		Subscription  subscription;
+		ChannelFuture lastWrite;
+		boolean       done;
+
+		Http2StreamWrite(Http2StreamChannel channel, Subscriber<? super Void> s) {
+			this.channel = channel;
+			this.s = s;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			channel.execute(() -> {
+				if (BackpressureUtils.validate(subscription, s)) {
+					subscription = s;
+					s.request(MAX_PENDING_WRITES);
+				}
+			});
+		}
+
+		@Override
+		public void onNext(Object o) {
+			channel.execute(() -> next(o));
+		}
+
+		void next(Object o) {
+			if (done) {
+				ReferenceCountUtil.release(o);
+				return;
+			}
+			if (channel.ended || channel.closed) {
+				ReferenceCountUtil.release(o);
+				cancel(new IllegalStateException("Stream closed"));
+				return;
+			}
+			ByteBuf data;
+			if (o instanceof ByteBuf) {
+				data = (ByteBuf) o;
+			}
+			else if (o instanceof ByteBufHolder) {
+				data = ((ByteBufHolder) o).content();
+			}
+			else {
+				ReferenceCountUtil.release(o);
+				cancel(new IllegalArgumentException("Cannot write " + o.getClass()
+				                                                      .getName() + " on an HTTP/2 stream"));
+				return;
+			}
+			ChannelFuture write = channel.writeData(data, false);
+			lastWrite = write;
+			write.addListener(future -> {
+				if (future.isSuccess()) {
+					subscription.request(1L);
+				}
+				else {
+					cancel(future.cause());
+				}
+			});
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			channel.execute(() -> {
+				if (done) {
+					return;
+				}
+				done = true;
+				EmptySubscription.error(s, t);
+			});
+		}
+
+		@Override
+		public void onComplete() {
+			channel.execute(() -> {
+				if (done) {
+					return;
+				}
+				done = true;
+				ChannelFuture last = lastWrite != null ? lastWrite : channel.delegate()
+				                                                            .newSucceededFuture();
+				last.addListener(future -> {
+					s.onSubscribe(EmptySubscription.INSTANCE);
+					if (future.isSuccess()) {
+						s.onComplete();
+					}
+					else {
+						s.onError(future.cause());
+					}
+				});
+			});
+		}
+
+		void cancel(Throwable error) {
+			if (done) {
+				return;
+			}
+			done = true;
+			subscription.cancel();
+			EmptySubscription.error(s, error);
+		}
+	}
+}
@@ -25,6 +25,7 @@ import io.netty.handler.codec.http.cookie.Cookie;
 import reactor.core.publisher.Mono;
 import reactor.io.netty.common.MonoChannelFuture;
 import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.config.CompressionOptions;
 
 /**
  *
@@ -70,6 +71,15 @@ public interface HttpChannel extends NettyChannel, HttpOutbound, HttpInbound {
 	 */
 	HttpChannel paramsResolver(Function<? super String, Map<String, Object>> headerResolver);
 
+	/**
+	 * Set the compression of the response body, negotiated from the request
+	 * {@code Accept-Encoding} once the headers are sent.
+	 *
+	 * @param options the compression options, null to send the body as is
+	 * @return this
+	 */
+	HttpChannel compression(CompressionOptions options);
+
 	/**
 	 *
 	 */
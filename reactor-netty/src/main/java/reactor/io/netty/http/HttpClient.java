@@ -19,12 +19,19 @@ package reactor.io.netty.http;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.ssl.SslContextBuilder;
 import org.reactivestreams.Publisher;
 import reactor.core.flow.Loopback;
 import reactor.core.publisher.Mono;
@@ -34,12 +41,21 @@ import reactor.core.util.Exceptions;
 import reactor.io.ipc.ChannelHandler;
 import reactor.io.netty.common.NettyChannel;
 import reactor.io.netty.config.ClientOptions;
+import reactor.io.netty.config.CompressionOptions;
 import reactor.io.netty.config.HttpClientOptions;
 import reactor.io.netty.tcp.TcpChannel;
 import reactor.io.netty.tcp.TcpClient;
 
 /**
  * The base class for a Netty-based Http client.
+ * <p>
+ * Requests to the same host share a {@link HttpClientPool} of keep-alive connections,
+ * sized by {@link HttpClientOptions#maxConnections()}. With
+ * {@link HttpClientOptions#http2()} they share a {@link Http2ClientPool} instead, each
+ * connection carrying many requests at once.
+ * <p>
+ * With {@link HttpClientOptions#decompress()} responses are asked and read compressed,
+ * and with {@link HttpClientOptions#compression()} request bodies are sent compressed.
  *
  * @author Stephane Maldini
  */
@@ -70,10 +86,43 @@ public class HttpClient implements Loopback, Completable {
 		                           .connect(address, port));
 	}
 
-	final TcpBridgeClient client;
+	final TcpBridgeClient    client;
+	final int                maxConnections;
+	final int                maxPendingAcquires;
+	final long               poolIdleTimeout;
+	final boolean            http2;
+	final boolean            decompress;
+	final CompressionOptions compression;
+
+	final ConcurrentMap<InetSocketAddress, HttpClientPool> pools       = new ConcurrentHashMap<>();
+	final ConcurrentMap<InetSocketAddress, HttpClientPool> securePools = new ConcurrentHashMap<>();
+
+	final ConcurrentMap<InetSocketAddress, Http2ClientPool> http2Pools       = new ConcurrentHashMap<>();
+	final ConcurrentMap<InetSocketAddress, Http2ClientPool> secureHttp2Pools = new ConcurrentHashMap<>();
 
 	protected HttpClient(final ClientOptions options) {
-		this.client = new TcpBridgeClient(options);
+		if (options instanceof HttpClientOptions) {
+			HttpClientOptions httpOptions = (HttpClientOptions) options;
+			this.maxConnections = httpOptions.maxConnections();
+			this.maxPendingAcquires = httpOptions.maxPendingAcquires();
+			this.poolIdleTimeout = httpOptions.poolIdleTimeout();
+			this.http2 = httpOptions.http2();
+			this.decompress = httpOptions.decompress();
+			this.compression = httpOptions.compression();
+		}
+		else {
+			this.maxConnections = HttpClientOptions.DEFAULT_MAX_CONNECTIONS;
+			this.maxPendingAcquires = HttpClientOptions.DEFAULT_MAX_PENDING_ACQUIRES;
+			this.poolIdleTimeout = HttpClientOptions.DEFAULT_POOL_IDLE_TIMEOUT;
+			this.http2 = false;
+			this.decompress = false;
+			this.compression = null;
+		}
+		// ask for h2 on a copy, the given builder may be shared with other clients
+		this.client = new TcpBridgeClient(options,
+				http2 && options.ssl() != null ?
+						HttpServer.withProtocols(options.ssl(), NettyHttp2ClientHandler.ALPN) :
+						options.ssl());
 	}
 
 	@Override
@@ -261,10 +310,36 @@ public class HttpClient implements Loopback, Completable {
 				HttpOutbound::upgradeToWebsocket);
 	}
 
+	/**
+	 * @return the connection pools of each host this client connected to, empty if
+	 * {@link HttpClientOptions#maxConnections()} is {@code 0}
+	 */
+	public final Collection<HttpClientPool> pools() {
+		List<HttpClientPool> pools = new ArrayList<>(this.pools.values());
+		pools.addAll(securePools.values());
+		return pools;
+	}
+
+	/**
+	 * @return the HTTP/2 connection pools of each host this client connected to, empty
+	 * unless {@link HttpClientOptions#http2()} is enabled
+	 */
+	public final Collection<Http2ClientPool> http2Pools() {
+		List<Http2ClientPool> pools = new ArrayList<>(http2Pools.values());
+		pools.addAll(secureHttp2Pools.values());
+		return pools;
+	}
+
 	/**
 	 * @return
 	 */
 	public final Mono<Void> shutdown() {
+		for (HttpClientPool pool : pools()) {
+			pool.close();
+		}
+		for (Http2ClientPool pool : http2Pools()) {
+			pool.close();
+		}
 		return client.shutdown();
 	}
 
@@ -275,10 +350,22 @@ public class HttpClient implements Loopback, Completable {
 		                                                .equals(HTTPS_SCHEME) || url.getScheme()
 		                                                                            .toLowerCase()
 		                                                                            .equals(WSS_SCHEME));
-		return client.doStart(inoutChannel -> handler.apply(((NettyHttpChannel) inoutChannel)),
-				new InetSocketAddress(url.getHost(),
-						url.getPort() != -1 ? url.getPort() : (secure ? 443 : 80)),
-				secure);
+		InetSocketAddress address = new InetSocketAddress(url.getHost(),
+				url.getPort() != -1 ? url.getPort() : (secure ? 443 : 80));
+		ChannelHandler<ByteBuf, ByteBuf, NettyChannel> requestHandler =
+				inoutChannel -> handler.apply(((NettyHttpChannel) inoutChannel));
+
+		if (http2) {
+			return (secure ? secureHttp2Pools : http2Pools).computeIfAbsent(address,
+					a -> new Http2ClientPool(client, a, secure, maxConnections, maxPendingAcquires))
+			                                               .acquire(requestHandler);
+		}
+		if (maxConnections == 0) {
+			return client.doStart(requestHandler, address, secure);
+		}
+		return (secure ? securePools : pools).computeIfAbsent(address,
+				a -> new HttpClientPool(client, a, secure, maxConnections, maxPendingAcquires, poolIdleTimeout))
+		                                     .acquire(requestHandler);
 	}
 
 	static String parseURL(InetSocketAddress base, String url, boolean ws) {
@@ -304,16 +391,52 @@ public class HttpClient implements Loopback, Completable {
 
 	final class TcpBridgeClient extends TcpClient {
 
-		TcpBridgeClient(ClientOptions options) {
-			super(options);
+		TcpBridgeClient(ClientOptions options, SslContextBuilder ssl) {
+			super(options, ssl);
+			if (http2) {
+				HttpServer.checkHttp2Ciphers(getSslContext());
+			}
 		}
 		@Override
 		protected void bindChannel(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
 				SocketChannel ch) {
 			TcpChannel netChannel = new TcpChannel(client.getDefaultPrefetchSize(), ch);
 
+			if (handler instanceof Http2ClientPool.PooledConnect) {
+				Http2ClientPool.PooledConnect connect = (Http2ClientPool.PooledConnect) handler;
+				NettyHttp2ClientHandler clientHandler =
+						NettyHttp2ClientHandler.create(handler, netChannel, connect.pool(), decompress);
+				ch.pipeline()
+				  .addLast(clientHandler);
+				connect.pool()
+				       .register(connect, ch, clientHandler);
+				return;
+			}
+
+			if (handler instanceof HttpClientPool.PooledConnect) {
+				HttpClientPool.PooledConnect connect = (HttpClientPool.PooledConnect) handler;
+				NettyHttpClientHandler clientHandler =
+						new NettyHttpClientHandler(handler, netChannel, connect.pool());
+				ch.pipeline()
+				  .addLast(new HttpClientCodec());
+				if (decompress) {
+					ch.pipeline()
+					  .addLast(new HttpContentDecompressor());
+				}
+				ch.pipeline()
+				  .addLast(clientHandler);
+				connect.pool()
+				       .register(connect, ch, clientHandler);
+				return;
+			}
+
+			ch.pipeline()
+			  .addLast(new HttpClientCodec());
+			if (decompress) {
+				ch.pipeline()
+				  .addLast(new HttpContentDecompressor());
+			}
 			ch.pipeline()
-			  .addLast(new HttpClientCodec())
 			  .addLast(new NettyHttpClientHandler(handler, netChannel));
 		}
 
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.SocketChannel;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.subscriber.BaseSubscriber;
+import reactor.core.util.Logger;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.config.HttpClientOptions;
+
+/**
+ * The connections of an {@link HttpClient} to a single host, each leased for one request
+ * and its response at a time.
+ * <p>
+ * At most {@link HttpClientOptions#maxConnections()} connections are open, further
+ * requests wait in a bounded queue and are served in order as connections are released.
+ * A connection is released once its request has been written and its response read, and
+ * kept if both sides allow it. An idle connection keeps reading: a close or unsolicited
+ * data from the server evicts it, as does {@link HttpClientOptions#poolIdleTimeout()}.
+ * Idle connections are leased last in, first out after checking they are still active.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ * @see HttpClient#pools()
+ */
+public final class HttpClientPool {
+
+	final HttpClient.TcpBridgeClient client;
+	final InetSocketAddress          address;
+	final boolean                    secure;
+	final int                        maxConnections;
+	final int                        maxPendingAcquires;
+	final long                       idleTimeout;
+
+	// guarded by this
+	final ArrayDeque<NettyHttpClientHandler> idle    = new ArrayDeque<>();
+	final ArrayDeque<Acquire>                pending = new ArrayDeque<>();
+	int     connections;
+	boolean closed;
+
+	final AtomicLong created = new AtomicLong();
+	final AtomicLong reused  = new AtomicLong();
+	final AtomicLong evicted = new AtomicLong();
+
+	HttpClientPool(HttpClient.TcpBridgeClient client,
+			InetSocketAddress address,
+			boolean secure,
+			int maxConnections,
+			int maxPendingAcquires,
+			long idleTimeout) {
+		this.client = client;
+		this.address = address;
+		this.secure = secure;
+		this.maxConnections = maxConnections;
+		this.maxPendingAcquires = maxPendingAcquires;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * @return the address of the pooled host
+	 */
+	public InetSocketAddress address() {
+		return address;
+	}
+
+	/**
+	 * @return true if the pooled connections are secured
+	 */
+	public boolean isSecure() {
+		return secure;
+	}
+
+	/**
+	 * @return the number of open or opening connections
+	 */
+	public synchronized int connections() {
+		return connections;
+	}
+
+	/**
+	 * @return the number of connections waiting for a request
+	 */
+	public synchronized int idleConnections() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the number of requests waiting for a connection
+	 */
+	public synchronized int pendingAcquires() {
+		return pending.size();
+	}
+
+	/**
+	 * @return the number of connections opened since this pool was created
+	 */
+	public long createdConnections() {
+		return created.get();
+	}
+
+	/**
+	 * @return the number of requests served by a connection opened for a previous one
+	 */
+	public long reusedConnections() {
+		return reused.get();
+	}
+
+	/**
+	 * @return the number of idle connections closed by the pool or the server
+	 */
+	public long evictedConnections() {
+		return evicted.get();
+	}
+
+	/**
+	 * Run the given handler on a pooled connection, opening one if none is idle.
+	 *
+	 * @param handler the request handler
+	 * @return a {@link Mono} completing once the handler runs on a connection
+	 */
+	Mono<Void> acquire(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+		return Mono.defer(() -> {
+			Acquire acquire = new Acquire(handler);
+			acquire(acquire);
+			return acquire.result;
+		});
+	}
+
+	void acquire(Acquire acquire) {
+		NettyHttpClientHandler connection = null;
+		boolean connect = false;
+		String rejected = null;
+		synchronized (this) {
+			if (closed) {
+				rejected = "Connection pool to " + address + " is closed";
+			}
+			else if ((connection = pollIdle()) == null) {
+				if (connections < maxConnections) {
+					connections++;
+					connect = true;
+				}
+				else if (pending.size() < maxPendingAcquires) {
+					pending.add(acquire);
+				}
+				else {
+					rejected = "Too many requests waiting for a connection to " + address;
+				}
+			}
+		}
+		if (rejected != null) {
+			acquire.result.onError(new IllegalStateException(rejected));
+		}
+		else if (connection != null) {
+			reused.incrementAndGet();
+			connection.lease(acquire);
+		}
+		else if (connect) {
+			connect(acquire);
+		}
+	}
+
+	/**
+	 * Return a connection whose exchange is complete, called from its event loop.
+	 */
+	void release(NettyHttpClientHandler connection) {
+		Acquire next = null;
+		boolean close;
+		synchronized (this) {
+			close = closed;
+			if (!close) {
+				next = pending.poll();
+				if (next == null) {
+					idle.addLast(connection);
+				}
+			}
+		}
+		if (close) {
+			connection.close();
+		}
+		else if (next != null) {
+			reused.incrementAndGet();
+			connection.lease(next);
+		}
+		else {
+			connection.idle(idleTimeout);
+		}
+	}
+
+	/**
+	 * Close an idle connection, called from its event loop once its idle timeout
+	 * expired.
+	 */
+	void evict(NettyHttpClientHandler connection) {
+		boolean removed;
+		synchronized (this) {
+			removed = idle.remove(connection);
+		}
+		if (removed) {
+			evicted.incrementAndGet();
+			if (log.isDebugEnabled()) {
+				log.debug("Evicting idle connection to {}", address);
+			}
+			connection.close();
+		}
+	}
+
+	/**
+	 * Close idle connections and fail waiting requests, leased connections are closed
+	 * once released.
+	 */
+	void close() {
+		List<NettyHttpClientHandler> idle;
+		List<Acquire> pending;
+		synchronized (this) {
+			closed = true;
+			idle = new ArrayList<>(this.idle);
+			pending = new ArrayList<>(this.pending);
+			this.idle.clear();
+			this.pending.clear();
+		}
+		for (NettyHttpClientHandler connection : idle) {
+			connection.close();
+		}
+		for (Acquire acquire : pending) {
+			acquire.result.onError(new IllegalStateException("Connection pool to " + address + " is closed"));
+		}
+	}
+
+	/**
+	 * Track a connection opened by this pool until it is closed.
+	 */
+	void register(PooledConnect connect, SocketChannel ch, NettyHttpClientHandler connection) {
+		connect.registered = true;
+		ch.closeFuture()
+		  .addListener(f -> closed(connection));
+	}
+
+	NettyHttpClientHandler pollIdle() {
+		NettyHttpClientHandler connection;
+		while ((connection = idle.pollLast()) != null) {
+			if (connection.isReusable()) {
+				return connection;
+			}
+			// closing, its close listener releases the slot
+			evicted.incrementAndGet();
+			connection.close();
+		}
+		return null;
+	}
+
+	void connect(Acquire acquire) {
+		created.incrementAndGet();
+		PooledConnect connect = new PooledConnect(acquire.handler);
+		client.doStart(connect, address, secure)
+		      .subscribe(new BaseSubscriber<Void>() {
+			      @Override
+			      public void onSubscribe(Subscription s) {
+				      s.request(Long.MAX_VALUE);
+			      }
+
+			      @Override
+			      public void onError(Throwable t) {
+				      if (!connect.registered) {
+					      // no channel has been created, nothing will release the slot
+					      synchronized (HttpClientPool.this) {
+						      connections--;
+					      }
+					      drain();
+				      }
+				      acquire.result.onError(t);
+			      }
+
+			      @Override
+			      public void onComplete() {
+				      acquire.result.onComplete();
+			      }
+		      });
+	}
+
+	void closed(NettyHttpClientHandler connection) {
+		synchronized (this) {
+			connections--;
+			if (idle.remove(connection)) {
+				evicted.incrementAndGet();
+			}
+		}
+		drain();
+	}
+
+	/**
+	 * Open a connection for the next waiting request if a slot is available.
+	 */
+	void drain() {
+		Acquire next;
+		synchronized (this) {
+			if (closed || connections >= maxConnections) {
+				return;
+			}
+			next = pending.poll();
+			if (next == null) {
+				return;
+			}
+			connections++;
+		}
+		connect(next);
+	}
+
+	@Override
+	public String toString() {
+		return "HttpClientPool{" +
+				"address=" + address +
+				", connections=" + connections() +
+				", idle=" + idleConnections() +
+				", pending=" + pendingAcquires() +
+				'}';
+	}
+
+	static final class Acquire {
+
+		final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+		final MonoProcessor<Void>                            result;
+
+		Acquire(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+			this.handler = handler;
+			this.result = MonoProcessor.create();
+		}
+	}
+
+	/**
+	 * The handler of the first request on a new connection, binding the connection to
+	 * this pool.
+	 */
+	final class PooledConnect implements ChannelHandler<ByteBuf, ByteBuf, NettyChannel> {
+
+		final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+
+		volatile boolean registered;
+
+		PooledConnect(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+			this.handler = handler;
+		}
+
+		HttpClientPool pool() {
+			return HttpClientPool.this;
+		}
+
+		@Override
+		public Publisher<Void> apply(NettyChannel channel) {
+			return handler.apply(channel);
+		}
+	}
+
+	static final Logger log = Logger.getLogger(HttpClientPool.class);
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.io.codec.json.CborCodec;
+import reactor.io.codec.json.JsonCodec;
+import reactor.io.codec.json.SmileCodec;
+import reactor.io.codec.protobuf.ProtobufCodec;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyCodec;
+
+/**
+ * A registry of {@link NettyCodec} by media type negotiating the codec of each HTTP
+ * exchange: the request {@code Content-Type} selects the decoder applied to the request
+ * body and the request {@code Accept} header, including quality values, selects the
+ * encoder applied to the response and its {@code Content-Type}. Callers that accept a
+ * binary format such as Smile get it without the route handler picking a codec.
+ * <p>
+ * A request without {@code Content-Type} or {@code Accept} uses the first registered
+ * codec. An unsupported {@code Content-Type} is answered with 415 and an {@code Accept}
+ * header matching no codec with 406. When several codecs are equally acceptable, the
+ * registration order decides.
+ * <p>
+ * Each request body is decoded as a whole once fully received, each published value is
+ * encoded as is, so binary formats are exchanged unframed. JSON responses stay valid
+ * JSON documents: a {@link Mono} is written as its single value and any other
+ * {@link Publisher} as a JSON array of its values. Use a framed codec such as
+ * {@link NettyCodec#ndjson(Class)} to stream JSON values instead.
+ * <pre>
+ * {@code
+ * HttpCodecs<Order, Receipt> codecs = HttpCodecs.of(Order.class, Receipt.class);
+ * codecs.register(HttpCodecs.APPLICATION_KRYO, NettyCodec.from(new KryoCodec<>(kryos, false)));
+ *
+ * server.route(HttpMappings.post("/orders"), codecs, (ch, orders) -> orders.map(service::place));
+ * }
+ * </pre>
+ *
+ * @param <IN> the decoded request type
+ * @param <OUT> the encoded response type
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class HttpCodecs<IN, OUT> {
+
+	/**
+	 * JSON media type
+	 */
+	public static final String APPLICATION_JSON     = "application/json";
+	/**
+	 * Jackson Smile media type
+	 */
+	public static final String APPLICATION_SMILE    = "application/x-jackson-smile";
+	/**
+	 * CBOR media type
+	 */
+	public static final String APPLICATION_CBOR     = "application/cbor";
+	/**
+	 * Protocol Buffers media type, as written by {@link ProtobufCodec}
+	 */
+	public static final String APPLICATION_PROTOBUF = "application/x-protobuf";
+	/**
+	 * Kryo media type, as written by {@link reactor.io.codec.kryo.KryoCodec}. Kryo
+	 * payloads name the class to instantiate and should only be registered for trusted
+	 * callers.
+	 */
+	public static final String APPLICATION_KRYO     = "application/x-kryo";
+
+	static final int MAX_CACHED_ACCEPTS = 256;
+
+	/**
+	 * Create a registry of the JSON codec followed by the Smile, CBOR and Protocol
+	 * Buffers codecs available on the classpath. Protocol Buffers is only registered
+	 * when both types are {@code Message} types.
+	 *
+	 * @param type the type to decode
+	 * @param <T> the decoded and encoded type
+	 * @return a new {@link HttpCodecs}
+	 */
+	public static <T> HttpCodecs<T, T> of(Class<T> type) {
+		return of(type, type);
+	}
+
+	/**
+	 * Create a registry of the JSON codec followed by the Smile, CBOR and Protocol
+	 * Buffers codecs available on the classpath. Protocol Buffers is only registered
+	 * when both types are {@code Message} types.
+	 *
+	 * @param inputType the type to decode
+	 * @param outputType the type to encode
+	 * @param <IN> the decoded request type
+	 * @param <OUT> the encoded response type
+	 * @return a new {@link HttpCodecs}
+	 */
+	public static <IN, OUT> HttpCodecs<IN, OUT> of(Class<IN> inputType, Class<OUT> outputType) {
+		Objects.requireNonNull(inputType, "inputType must not be null");
+		Objects.requireNonNull(outputType, "outputType must not be null");
+
+		HttpCodecs<IN, OUT> codecs = new HttpCodecs<>();
+		codecs.register(APPLICATION_JSON, NettyCodec.from(new JsonCodec<IN, OUT>(inputType, null, null)));
+		if (isPresent("com.fasterxml.jackson.dataformat.smile.SmileFactory")) {
+			codecs.register(APPLICATION_SMILE, NettyCodec.from(new SmileCodec<IN, OUT>(inputType)));
+		}
+		if (isPresent("com.fasterxml.jackson.dataformat.cbor.CBORFactory")) {
+			codecs.register(APPLICATION_CBOR, NettyCodec.from(new CborCodec<IN, OUT>(inputType)));
+		}
+		if (isPresent("com.google.protobuf.Message") &&
+				com.google.protobuf.Message.class.isAssignableFrom(inputType) &&
+				com.google.protobuf.Message.class.isAssignableFrom(outputType)) {
+			codecs.register(APPLICATION_PROTOBUF, NettyCodec.from(new ProtobufCodec<IN, OUT>(false)));
+		}
+		return codecs;
+	}
+
+	/**
+	 * Create an empty registry.
+	 *
+	 * @param <IN> the decoded request type
+	 * @param <OUT> the encoded response type
+	 * @return a new {@link HttpCodecs}
+	 */
+	public static <IN, OUT> HttpCodecs<IN, OUT> create() {
+		return new HttpCodecs<>();
+	}
+
+	final Map<String, String> accepts = new ConcurrentHashMap<>();
+
+	volatile Registration<IN, OUT>[] registrations = newArray(0);
+
+	HttpCodecs() {
+	}
+
+	/**
+	 * Register a codec for the given media type, replacing any codec previously
+	 * registered for it.
+	 *
+	 * @param mediaType a {@code type/subtype} media type without parameters
+	 * @param codec the codec reading and writing this media type
+	 * @return {@code this}
+	 */
+	public HttpCodecs<IN, OUT> register(String mediaType, NettyCodec<IN, OUT> codec) {
+		Objects.requireNonNull(codec, "codec must not be null");
+		String type = normalize(mediaType);
+		int slash = type != null ? type.indexOf('/') : -1;
+		if (slash <= 0 || slash == type.length() - 1 || type.indexOf('*') != -1) {
+			throw new IllegalArgumentException("Invalid media type " + mediaType);
+		}
+		synchronized (this) {
+			Registration<IN, OUT>[] current = registrations;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i].mediaType.equals(type)) {
+					Registration<IN, OUT>[] next = current.clone();
+					next[i] = new Registration<>(type, codec);
+					registrations = next;
+					accepts.clear();
+					return this;
+				}
+			}
+			Registration<IN, OUT>[] next = Arrays.copyOf(current, current.length + 1);
+			next[current.length] = new Registration<>(type, codec);
+			registrations = next;
+			accepts.clear();
+		}
+		return this;
+	}
+
+	/**
+	 * @return the registered media types in preference order
+	 */
+	public List<String> mediaTypes() {
+		Registration<IN, OUT>[] current = registrations;
+		List<String> types = new ArrayList<>(current.length);
+		for (Registration<IN, OUT> r : current) {
+			types.add(r.mediaType);
+		}
+		return Collections.unmodifiableList(types);
+	}
+
+	/**
+	 * Return the codec to decode a body of the given {@code Content-Type}.
+	 *
+	 * @param contentType the {@code Content-Type} header value, parameters are ignored
+	 * @return the matching codec, the first registered codec if no content type is
+	 * given or null if the content type is not supported
+	 */
+	public NettyCodec<IN, OUT> decoder(CharSequence contentType) {
+		Registration<IN, OUT>[] current = registrations;
+		if (current.length == 0) {
+			return null;
+		}
+		String type = normalize(contentType);
+		if (type == null || type.isEmpty()) {
+			return current[0].codec;
+		}
+		for (Registration<IN, OUT> r : current) {
+			if (r.mediaType.equals(type)) {
+				return r.codec;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the codec registered for the given media type.
+	 *
+	 * @param mediaType a registered media type
+	 * @return the registered codec or null
+	 */
+	public NettyCodec<IN, OUT> encoder(String mediaType) {
+		for (Registration<IN, OUT> r : registrations) {
+			if (r.mediaType.equals(mediaType)) {
+				return r.codec;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Negotiate the response media type for the given {@code Accept} header. The most
+	 * specific media range matching a registered media type sets its quality, the
+	 * registered media type with the highest non-zero quality is selected.
+	 *
+	 * @param accept the {@code Accept} header value
+	 * @return the selected media type, the first registered media type if no header is
+	 * given or null if no registered media type is acceptable
+	 */
+	public String mediaType(CharSequence accept) {
+		Registration<IN, OUT>[] current = registrations;
+		if (current.length == 0) {
+			return null;
+		}
+		if (accept == null) {
+			return current[0].mediaType;
+		}
+		String key = accept.toString();
+		String selected = accepts.get(key);
+		if (selected == null) {
+			selected = negotiate(current, key);
+			if (accepts.size() >= MAX_CACHED_ACCEPTS) {
+				accepts.clear();
+			}
+			// cache misses too, as the empty string
+			accepts.put(key, selected == null ? "" : selected);
+		}
+		return selected == null || selected.isEmpty() ? null : selected;
+	}
+
+	/**
+	 * Decode the request body of the given channel with the codec matching its
+	 * {@code Content-Type}.
+	 *
+	 * @param channel the HTTP exchange
+	 * @return the decoded request values or an {@link IllegalArgumentException} if the
+	 * content type is not supported
+	 */
+	public Flux<IN> receive(HttpChannel channel) {
+		NettyCodec<IN, OUT> codec = decoder(channel.headers()
+		                                           .get(HttpHeaderNames.CONTENT_TYPE));
+		if (codec == null) {
+			return Flux.error(new IllegalArgumentException("Unsupported content type " +
+					channel.headers()
+					       .get(HttpHeaderNames.CONTENT_TYPE)));
+		}
+		return receive(channel, codec);
+	}
+
+	/**
+	 * Encode the given values with the codec negotiated from the request {@code Accept}
+	 * header and send them, setting the response {@code Content-Type}. Replies 406 if
+	 * no codec is acceptable.
+	 *
+	 * @param channel the HTTP exchange
+	 * @param dataStream the values to encode
+	 * @return a {@link Mono} completing when the response has been sent
+	 */
+	public Mono<Void> send(HttpChannel channel, Publisher<? extends OUT> dataStream) {
+		String mediaType = mediaType(channel.headers()
+		                                    .get(HttpHeaderNames.ACCEPT));
+		if (mediaType == null) {
+			return reject(channel, HttpResponseStatus.NOT_ACCEPTABLE);
+		}
+		return send(channel, mediaType, dataStream);
+	}
+
+	/**
+	 * Create a route handler negotiating both the request and the response codecs
+	 * before invoking the given function with the decoded request values.
+	 *
+	 * @param handler the function mapping the exchange and its decoded request values
+	 * to the values to send
+	 * @return a new {@link ChannelHandler}
+	 */
+	public ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler(
+			BiFunction<? super HttpChannel, ? super Flux<IN>, ? extends Publisher<? extends OUT>> handler) {
+		Objects.requireNonNull(handler, "handler must not be null");
+		return channel -> {
+			NettyCodec<IN, OUT> decoder = decoder(channel.headers()
+			                                             .get(HttpHeaderNames.CONTENT_TYPE));
+			if (decoder == null) {
+				return reject(channel, HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE);
+			}
+			String mediaType = mediaType(channel.headers()
+			                                    .get(HttpHeaderNames.ACCEPT));
+			if (mediaType == null) {
+				return reject(channel, HttpResponseStatus.NOT_ACCEPTABLE);
+			}
+			return send(channel, mediaType, handler.apply(channel, receive(channel, decoder)));
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "HttpCodecs" + mediaTypes();
+	}
+
+	Flux<IN> receive(HttpChannel channel, NettyCodec<IN, OUT> codec) {
+		return Flux.from(codec.decoder()
+		                      .apply(Flux.from(channel.receive()
+		                                              .aggregate())));
+	}
+
+	Mono<Void> send(HttpChannel channel, String mediaType, Publisher<? extends OUT> dataStream) {
+		channel.responseHeader(HttpHeaderNames.CONTENT_TYPE, mediaType);
+		if (registrations.length > 1) {
+			channel.addResponseHeader(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT);
+		}
+		NettyCodec<IN, OUT> codec = encoder(mediaType);
+		if (isJson(mediaType) && !(dataStream instanceof Mono)) {
+			return channel.send(jsonArray(channel.delegate()
+			                                     .alloc(), codec, dataStream));
+		}
+		return channel.send(dataStream, codec);
+	}
+
+	/**
+	 * Encode each value on its own and join them in a JSON array.
+	 */
+	static <OUT> Flux<ByteBuf> jsonArray(ByteBufAllocator alloc,
+			NettyCodec<?, OUT> codec,
+			Publisher<? extends OUT> values) {
+		Function<Flux<? extends OUT>, ? extends Publisher<ByteBuf>> encoder = codec.encoder(alloc);
+		AtomicBoolean first = new AtomicBoolean(true);
+		return Flux.concat(token(alloc, '['),
+				Flux.from(values)
+				    .concatMap(v -> {
+					    Flux<ByteBuf> encoded = Flux.from(encoder.apply(Flux.<OUT>just(v)));
+					    return first.compareAndSet(true, false) ? encoded :
+							    Flux.concat(token(alloc, ','), encoded);
+				    }),
+				token(alloc, ']'));
+	}
+
+	static Flux<ByteBuf> token(ByteBufAllocator alloc, char c) {
+		return Flux.just(c)
+		           .map(b -> alloc.buffer(1)
+		                          .writeByte(b));
+	}
+
+	static boolean isJson(String mediaType) {
+		return mediaType.equals(APPLICATION_JSON) || mediaType.endsWith("+json");
+	}
+
+	static Mono<Void> reject(HttpChannel channel, HttpResponseStatus status) {
+		return channel.status(status)
+		              .responseHeader(HttpHeaderNames.CONTENT_LENGTH, "0")
+		              .sendHeaders();
+	}
+
+	static <IN, OUT> String negotiate(Registration<IN, OUT>[] registrations, String accept) {
+		List<MediaRange> ranges = MediaRange.parse(accept);
+		if (ranges.isEmpty()) {
+			return registrations[0].mediaType;
+		}
+		String selected = null;
+		float selectedQuality = 0f;
+		for (Registration<IN, OUT> r : registrations) {
+			int specificity = -1;
+			float quality = 0f;
+			for (MediaRange range : ranges) {
+				int s = range.match(r.mediaType);
+				if (s > specificity) {
+					specificity = s;
+					quality = range.quality;
+				}
+			}
+			if (quality > selectedQuality) {
+				selected = r.mediaType;
+				selectedQuality = quality;
+			}
+		}
+		return selected;
+	}
+
+	static String normalize(CharSequence mediaType) {
+		if (mediaType == null) {
+			return null;
+		}
+		String type = mediaType.toString();
+		int params = type.indexOf(';');
+		if (params != -1) {
+			type = type.substring(0, params);
+		}
+		return type.trim()
+		           .toLowerCase(Locale.ENGLISH);
+	}
+
+	static boolean isPresent(String className) {
+		try {
+			Class.forName(className, false, HttpCodecs.class.getClassLoader());
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static <IN, OUT> Registration<IN, OUT>[] newArray(int size) {
+		return new Registration[size];
+	}
+
+	static final class Registration<IN, OUT> {
+
+		final String              mediaType;
+		final NettyCodec<IN, OUT> codec;
+
+		Registration(String mediaType, NettyCodec<IN, OUT> codec) {
+			this.mediaType = mediaType;
+			this.codec = codec;
+		}
+	}
+
+	static final class MediaRange {
+
+		static List<MediaRange> parse(String accept) {
+			List<MediaRange> ranges = new ArrayList<>(4);
+			for (String element : accept.split(",")) {
+				String[] parts = element.split(";");
+				String type = parts[0].trim()
+				                      .toLowerCase(Locale.ENGLISH);
+				if (type.isEmpty()) {
+					continue;
+				}
+				if (type.equals("*")) {
+					type = "*/*";
+				}
+				float quality = 1f;
+				for (int i = 1; i < parts.length; i++) {
+					String param = parts[i].trim();
+					if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+						try {
+							quality = Math.max(0f, Math.min(1f, Float.parseFloat(param.substring(2))));
+						}
+						catch (NumberFormatException nfe) {
+							quality = 0f;
+						}
+					}
+				}
+				ranges.add(new MediaRange(type, quality));
+			}
+			return ranges;
+		}
+
+		final String type;
+		final float  quality;
+
+		MediaRange(String type, float quality) {
+			this.type = type;
+			this.quality = quality;
+		}
+
+		/**
+		 * @return 2 for an exact match, 1 for a {@code type/*} match, 0 for {@code *}/*
+		 * and -1 if the media type is not in this range
+		 */
+		int match(String mediaType) {
+			if (type.equals("*/*")) {
+				return 0;
+			}
+			if (type.endsWith("/*")) {
+				return mediaType.regionMatches(0, type, 0, type.length() - 1) ? 1 : -1;
+			}
+			return type.equals(mediaType) ? 2 : -1;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.Locale;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.SnappyFrameEncoder;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.util.ReferenceCountUtil;
+import reactor.io.netty.config.CompressionOptions;
+
+/**
+ * Compress a body written as a sequence of buffers with a content coding, each buffer
+ * being flushed through the encoder so that a streamed body is not delayed.
+ * <p>
+ * Methods are synchronized since a response may be released from its event loop while
+ * its body is still being encoded by its publisher.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+final class HttpCompressor {
+
+	static final String GZIP    = "gzip";
+	static final String DEFLATE = "deflate";
+	static final String SNAPPY  = "x-snappy-framed";
+
+	/**
+	 * Select the encoding of a response from the {@code Accept-Encoding} of its request,
+	 * the highest quality winning and Snappy, gzip then deflate breaking ties.
+	 *
+	 * @param acceptEncoding the request {@code Accept-Encoding}
+	 * @param options the offered encodings
+	 * @return the selected encoding or null to send the body as is
+	 */
+	static String negotiate(CharSequence acceptEncoding, CompressionOptions options) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		String[] codings = acceptEncoding.toString()
+		                                 .split(",");
+		float[] qualities = new float[codings.length];
+		boolean gzipListed = false;
+		boolean deflateListed = false;
+		for (int i = 0; i < codings.length; i++) {
+			String coding = codings[i];
+			float quality = 1f;
+			int parameters = coding.indexOf(';');
+			if (parameters != -1) {
+				quality = quality(coding.substring(parameters + 1));
+				coding = coding.substring(0, parameters);
+			}
+			coding = coding.trim()
+			               .toLowerCase(Locale.ROOT);
+			codings[i] = coding;
+			qualities[i] = quality;
+			gzipListed |= GZIP.equals(coding) || "x-gzip".equals(coding);
+			deflateListed |= DEFLATE.equals(coding);
+		}
+
+		String selected = null;
+		float selectedQuality = 0f;
+		for (int i = 0; i < codings.length; i++) {
+			float quality = qualities[i];
+			// "*" only stands for the codings not listed, e.g. not gzip in "gzip;q=0, *"
+			String candidate = "*".equals(codings[i]) ?
+					wildcard(options, gzipListed, deflateListed) :
+					offered(codings[i], options);
+			if (candidate == null || quality <= 0f) {
+				continue;
+			}
+			if (quality > selectedQuality || (quality == selectedQuality && rank(candidate) < rank(selected))) {
+				selected = candidate;
+				selectedQuality = quality;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Select the encoding of a request body, which the server is expected to accept.
+	 *
+	 * @param options the enabled encodings
+	 * @return the first enabled of Snappy, gzip then deflate, or null
+	 */
+	static String preferred(CompressionOptions options) {
+		if (options.snappy()) {
+			return SNAPPY;
+		}
+		if (options.gzip()) {
+			return GZIP;
+		}
+		return options.deflate() ? DEFLATE : null;
+	}
+
+	static String offered(String coding, CompressionOptions options) {
+		switch (coding) {
+			case GZIP:
+			case "x-gzip":
+				return options.gzip() ? GZIP : null;
+			case DEFLATE:
+				return options.deflate() ? DEFLATE : null;
+			case SNAPPY:
+				return options.snappy() ? SNAPPY : null;
+			default:
+				return null;
+		}
+	}
+
+	static String wildcard(CompressionOptions options, boolean gzipListed, boolean deflateListed) {
+		if (options.gzip() && !gzipListed) {
+			return GZIP;
+		}
+		return options.deflate() && !deflateListed ? DEFLATE : null;
+	}
+
+	static int rank(String encoding) {
+		if (encoding == null) {
+			return Integer.MAX_VALUE;
+		}
+		switch (encoding) {
+			case SNAPPY:
+				return 0;
+			case GZIP:
+				return 1;
+			default:
+				return 2;
+		}
+	}
+
+	static float quality(String parameters) {
+		for (String parameter : parameters.split(";")) {
+			int equals = parameter.indexOf('=');
+			if (equals != -1 && parameter.substring(0, equals)
+			                             .trim()
+			                             .equalsIgnoreCase("q")) {
+				try {
+					return Float.parseFloat(parameter.substring(equals + 1)
+					                                 .trim());
+				}
+				catch (NumberFormatException e) {
+					return 0f;
+				}
+			}
+		}
+		return 1f;
+	}
+
+	/**
+	 * @param encoding one of {@link #GZIP}, {@link #DEFLATE} or {@link #SNAPPY}
+	 * @param level the gzip and deflate compression level
+	 * @return a new compressor
+	 */
+	static HttpCompressor create(String encoding, int level) {
+		switch (encoding) {
+			case GZIP:
+				return new HttpCompressor(encoding,
+						new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(ZlibWrapper.GZIP, level)));
+			case DEFLATE:
+				return new HttpCompressor(encoding,
+						new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(ZlibWrapper.ZLIB, level)));
+			case SNAPPY:
+				return new HttpCompressor(encoding, new EmbeddedChannel(new SnappyFrameEncoder()));
+			default:
+				throw new IllegalArgumentException("Unsupported encoding " + encoding);
+		}
+	}
+
+	final String          encoding;
+	final EmbeddedChannel encoder;
+
+	boolean released;
+
+	HttpCompressor(String encoding, EmbeddedChannel encoder) {
+		this.encoding = encoding;
+		this.encoder = encoder;
+	}
+
+	/**
+	 * @param data the buffer to compress, released by this call
+	 * @return the compressed bytes, possibly empty
+	 */
+	synchronized ByteBuf encode(ByteBuf data) {
+		if (released) {
+			data.release();
+			return Unpooled.EMPTY_BUFFER;
+		}
+		encoder.writeOutbound(data);
+		return drain();
+	}
+
+	/**
+	 * @return the trailing compressed bytes once the body has been written
+	 */
+	synchronized ByteBuf finish() {
+		if (released) {
+			return Unpooled.EMPTY_BUFFER;
+		}
+		released = true;
+		encoder.finish();
+		return drain();
+	}
+
+	/**
+	 * Release the encoder of a body that will not be completed.
+	 */
+	synchronized void release() {
+		if (released) {
+			return;
+		}
+		released = true;
+		encoder.finish();
+		Object o;
+		while ((o = encoder.readOutbound()) != null) {
+			ReferenceCountUtil.release(o);
+		}
+	}
+
+	ByteBuf drain() {
+		CompositeByteBuf out = encoder.alloc()
+		                              .compositeBuffer();
+		ByteBuf buf;
+		while ((buf = encoder.readOutbound()) != null) {
+			if (buf.isReadable()) {
+				out.addComponent(buf);
+				out.writerIndex(out.writerIndex() + buf.readableBytes());
+			}
+			else {
+				buf.release();
+			}
+		}
+		return out;
+	}
+}
@@ -18,11 +18,13 @@ package reactor.io.netty.http;
 import java.net.InetSocketAddress;
 
 import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import reactor.core.publisher.Flux;
 import reactor.io.netty.common.ByteBufEncodedFlux;
 import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.common.NettyCodec;
 import reactor.io.netty.common.NettyInbound;
 import reactor.io.netty.http.multipart.MultipartCodec;
 
@@ -46,6 +48,21 @@ public interface HttpInbound extends HttpConnection, NettyInbound {
 	 */
 	HttpResponseStatus status();
 
+	/**
+	 * Decode a newline-delimited JSON or, when it has the
+	 * {@value reactor.io.netty.common.JsonStreamCodec#APPLICATION_JSON_SEQ} content type,
+	 * RFC 7464 JSON text sequence body as it is received. The connection is only read as
+	 * values are requested.
+	 *
+	 * @param type the type to decode each JSON text into
+	 * @param <T> the decoded type
+	 *
+	 * @return the decoded values
+	 */
+	default <T> Flux<T> receiveJsonStream(Class<T> type) {
+		return receive(NettyCodec.jsonStream(responseHeaders().get(HttpHeaderNames.CONTENT_TYPE), type));
+	}
+
 	/**
 	 * a {@literal byte[]} inbound {@link Flux}
 	 *
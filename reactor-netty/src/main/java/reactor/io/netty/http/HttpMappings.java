@@ -28,6 +28,7 @@ import io.netty.handler.codec.http.HttpVersion;
 import org.reactivestreams.Publisher;
 import reactor.core.converter.DependencyUtils;
 import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.config.CompressionOptions;
 
 /**
  * @author Stephane Maldini
@@ -94,6 +95,9 @@ public abstract class HttpMappings
 	 * @return
 	 */
 	public static HttpMappings newMappings() {
+		if (ROUTER_MAPPINGS) {
+			return newRouter();
+		}
 		if(DependencyUtils.hasReactorBus() && !FORCE_SIMPLE_MAPPINGS){
 			return new RegistryHttpMappings();
 		}
@@ -102,6 +106,19 @@ public abstract class HttpMappings
 		}
 	}
 
+	/**
+	 * Create mappings compiled into a radix tree of the route paths, selecting the
+	 * handlers of a request in a time proportional to its path length rather than to the
+	 * number of routes, and resolving {@code {name}} path segments as
+	 * {@link HttpChannel#params()}. {@link #newMappings()} returns them when the
+	 * {@code reactor.net.routerMappings} system property is {@code true}.
+	 *
+	 * @return new radix tree mappings
+	 */
+	public static HttpMappings newRouter() {
+		return new RouterHttpMappings();
+	}
+
 	/**
 	 * An alias for {@link HttpMappings#http}.
 	 * <p>
@@ -182,6 +199,21 @@ public abstract class HttpMappings
 	public abstract HttpMappings add(Predicate<? super HttpChannel> condition,
 			ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler);
 
+	/**
+	 * Register a handler whose responses are compressed with the given options instead
+	 * of the server ones.
+	 *
+	 * @param condition a {@link Predicate} to match the incoming connection with
+	 * @param handler the handler to invoke for the given condition
+	 * @param compression the compression options, null to send bodies as is
+	 * @return {@code this}
+	 */
+	public HttpMappings add(Predicate<? super HttpChannel> condition,
+			ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler,
+			CompressionOptions compression) {
+		return add(condition, channel -> handler.apply(channel.compression(compression)));
+	}
+
 	/**
 	 */
 	static final class HttpHandlerMapping
@@ -286,6 +318,14 @@ public abstract class HttpMappings
 			this.method = method;
 		}
 
+		/**
+		 * @return the path template matched by this predicate, or null if it matches any
+		 * path
+		 */
+		String template() {
+			return uri;
+		}
+
 		@Override
 		public final boolean test(HttpChannel key) {
 			return (protocol == null || protocol.equals(key.version()))
@@ -312,4 +352,6 @@ public abstract class HttpMappings
 	}
 	private static final boolean FORCE_SIMPLE_MAPPINGS =
 			Boolean.parseBoolean(System.getProperty("reactor.net.forceSimpleMappings", "false"));
+	private static final boolean ROUTER_MAPPINGS =
+			Boolean.parseBoolean(System.getProperty("reactor.net.routerMappings", "false"));
 }
@@ -17,10 +17,14 @@
 package reactor.io.netty.http;
 
 import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.cookie.Cookie;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
+import reactor.io.netty.common.JsonStreamCodec;
 import reactor.io.netty.common.MonoChannelFuture;
+import reactor.io.netty.common.NettyCodec;
 import reactor.io.netty.common.NettyOutbound;
 
 /**
@@ -77,6 +81,33 @@ public interface HttpOutbound extends HttpConnection, NettyOutbound {
 	 */
 	Mono<Void> sendHeaders();
 
+	/**
+	 * Send each value as a line of JSON with the {@value JsonStreamCodec#APPLICATION_NDJSON}
+	 * content type, consecutive values share HTTP chunks of about
+	 * {@link NettyCodec#DEFAULT_CHUNK_SIZE} bytes.
+	 *
+	 * @param values the values to send
+	 *
+	 * @return a {@link Mono} completing when the values are written
+	 */
+	default Mono<Void> sendNdJson(Publisher<?> values) {
+		header(HttpHeaderNames.CONTENT_TYPE, JsonStreamCodec.APPLICATION_NDJSON);
+		return send(values, NettyCodec.ndjson(Object.class));
+	}
+
+	/**
+	 * Send each value as an RFC 7464 JSON text with the
+	 * {@value JsonStreamCodec#APPLICATION_JSON_SEQ} content type, consecutive values share
+	 * HTTP chunks of about {@link NettyCodec#DEFAULT_CHUNK_SIZE} bytes.
+	 *
+	 * @param values the values to send
+	 *
+	 * @return a {@link Mono} completing when the values are written
+	 */
+	default Mono<Void> sendJsonSeq(Publisher<?> values) {
+		header(HttpHeaderNames.CONTENT_TYPE, JsonStreamCodec.APPLICATION_JSON_SEQ);
+		return send(values, NettyCodec.jsonSeq(Object.class));
+	}
 
 
 	/**
@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+import reactor.core.util.EmptySubscription;
+import reactor.core.util.Exceptions;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.config.ResponseCacheOptions;
+
+/**
+ * Keep the responses of {@code GET} and {@code HEAD} requests for a short time, serving
+ * the following identical requests without invoking their handler.
+ * <p>
+ * A handler is cached with {@link #cached(ChannelHandler)}, e.g.
+ * {@code server.get("/news", cache.cached(handler))}. The first request of a key runs
+ * the handler and copies the written body into a pooled buffer. The requests of the same
+ * key arriving meanwhile wait for this response instead of running the handler too. Only
+ * successful responses without cookies or a {@code Cache-Control} forbidding it are
+ * cached: the waiting requests run the handler themselves otherwise.
+ * <p>
+ * The cached buffers are released as their entries expire or are evicted, and by
+ * {@link #clear()}, which should be called once the server has been shut down.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class HttpResponseCache {
+
+	/**
+	 * @param options the time to live, bounds and key of the cached responses
+	 * @return a new empty cache
+	 */
+	public static HttpResponseCache create(ResponseCacheOptions options) {
+		return new HttpResponseCache(options);
+	}
+
+	final long         ttl;
+	final long         maxBytes;
+	final int          maxEntrySize;
+	final List<String> keyHeaders;
+
+	// guarded by this
+	final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	final Map<String, List<Exchange>>  pending = new HashMap<>();
+	long bytes;
+	long hits;
+	long misses;
+	long collapsed;
+
+	HttpResponseCache(ResponseCacheOptions options) {
+		Objects.requireNonNull(options, "options");
+		this.ttl = TimeUnit.MILLISECONDS.toNanos(options.ttl());
+		this.maxBytes = options.maxBytes();
+		this.maxEntrySize = options.maxEntrySize();
+		this.keyHeaders = options.keyHeaders();
+	}
+
+	/**
+	 * @param handler the handler producing the responses to cache
+	 * @return a handler serving the responses of the given one from this cache
+	 */
+	public ChannelHandler<ByteBuf, ByteBuf, HttpChannel> cached(ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler) {
+		Objects.requireNonNull(handler, "handler");
+		return channel -> {
+			if (!(channel instanceof NettyHttpChannel) ||
+					!(HttpMethod.GET.equals(channel.method()) || HttpMethod.HEAD.equals(channel.method()))) {
+				return handler.apply(channel);
+			}
+			return new Exchange(this, (NettyHttpChannel) channel, handler);
+		};
+	}
+
+	/**
+	 * @return the number of requests served from the cache
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests which ran their handler to fill the cache
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of requests which waited for the response of an identical one
+	 */
+	public synchronized long collapsed() {
+		return collapsed;
+	}
+
+	/**
+	 * @return the number of cached responses, including the expired ones not yet removed
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the size in bytes of the cached bodies
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Release all the cached responses.
+	 */
+	public synchronized void clear() {
+		for (Entry entry : entries.values()) {
+			entry.release();
+		}
+		entries.clear();
+		bytes = 0L;
+	}
+
+	String key(HttpChannel channel) {
+		StringBuilder key = new StringBuilder();
+		key.append(channel.method()
+		                  .name())
+		   .append(' ')
+		   .append(channel.uri());
+		for (String name : keyHeaders) {
+			key.append('\n')
+			   .append(name)
+			   .append(':');
+			for (String value : channel.headers()
+			                           .getAll(name)) {
+				key.append(value)
+				   .append(',');
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @return the unexpired entry of the given key, or null
+	 */
+	Entry lookup(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null && System.nanoTime() - entry.expiresAt >= 0L) {
+			remove(key, entry);
+			return null;
+		}
+		return entry;
+	}
+
+	void store(String key, Entry entry) {
+		if (entry.size > maxBytes) {
+			entry.release();
+			return;
+		}
+		Entry previous = entries.remove(key);
+		if (previous != null) {
+			bytes -= previous.size;
+			previous.release();
+		}
+		entries.put(key, entry);
+		bytes += entry.size;
+		Iterator<Entry> eldest = entries.values()
+		                                .iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			Entry evicted = eldest.next();
+			eldest.remove();
+			bytes -= evicted.size;
+			evicted.release();
+		}
+	}
+
+	void remove(String key, Entry entry) {
+		entries.remove(key);
+		bytes -= entry.size;
+		entry.release();
+	}
+
+	/**
+	 * Send a cached response.
+	 *
+	 * @param body a buffer of the cached body, released once written
+	 */
+	static Mono<Void> serve(HttpChannel channel, Entry entry, ByteBuf body) {
+		channel.status(entry.status)
+		       .responseHeaders()
+		       .set(entry.headers);
+		if (!body.isReadable()) {
+			body.release();
+			return channel.sendHeaders();
+		}
+		return channel.send(Mono.just(body));
+	}
+
+	/**
+	 * A cached response.
+	 */
+	static final class Entry {
+
+		final HttpResponseStatus status;
+		final HttpHeaders        headers;
+		final ByteBuf            body;
+		final long               expiresAt;
+		final long               size;
+
+		// guarded by the cache
+		boolean released;
+
+		Entry(HttpResponseStatus status, HttpHeaders headers, ByteBuf body, long expiresAt) {
+			this.status = status;
+			this.headers = headers;
+			this.body = body;
+			this.expiresAt = expiresAt;
+			this.size = body.readableBytes();
+		}
+
+		/**
+		 * @return a buffer of the body to write, or null if the entry has been released
+		 */
+		ByteBuf retainBody() {
+			if (released) {
+				return null;
+			}
+			return body.duplicate()
+			           .retain();
+		}
+
+		void release() {
+			if (!released) {
+				released = true;
+				body.release();
+			}
+		}
+	}
+
+	/**
+	 * The status, headers and body copy of a response as it is written.
+	 */
+	static final class Recording {
+
+		final ByteBufAllocator alloc;
+		final int              maxSize;
+
+		HttpResponseStatus status;
+		HttpHeaders        headers;
+		ByteBuf            body;
+		boolean            abandoned;
+
+		Recording(ByteBufAllocator alloc, int maxSize) {
+			this.alloc = alloc;
+			this.maxSize = maxSize;
+		}
+
+		synchronized void headers(HttpResponseStatus status, HttpHeaders headers) {
+			if (this.headers == null) {
+				this.status = status;
+				this.headers = new DefaultHttpHeaders().set(headers);
+			}
+		}
+
+		synchronized void body(Object o) {
+			if (abandoned) {
+				return;
+			}
+			if (!(o instanceof ByteBuf)) {
+				abandon();
+				return;
+			}
+			ByteBuf data = (ByteBuf) o;
+			int length = data.readableBytes();
+			int recorded = body != null ? body.readableBytes() : 0;
+			if (recorded + length > maxSize) {
+				abandon();
+				return;
+			}
+			if (body == null) {
+				body = alloc.buffer(length);
+			}
+			body.writeBytes(data, data.readerIndex(), length);
+		}
+
+		synchronized void abandon() {
+			abandoned = true;
+			if (body != null) {
+				body.release();
+				body = null;
+			}
+		}
+
+		/**
+		 * @return the entry of the completed response, or null if it cannot be cached
+		 */
+		synchronized Entry complete(HttpChannel channel, long ttl) {
+			if (headers == null) {
+				// nothing has been written, the headers are still those of the channel
+				headers(channel.status(), channel.responseHeaders());
+			}
+			if (abandoned || !isCacheable()) {
+				abandon();
+				return null;
+			}
+			ByteBuf body = this.body != null ? this.body : Unpooled.EMPTY_BUFFER;
+			this.body = null;
+			return new Entry(status, headers, body, System.nanoTime() + ttl);
+		}
+
+		boolean isCacheable() {
+			int code = status.code();
+			if (code < 200 || code >= 300 || code == HttpResponseStatus.PARTIAL_CONTENT.code()) {
+				return false;
+			}
+			if (headers.contains(HttpHeaderNames.SET_COOKIE)) {
+				return false;
+			}
+			String cacheControl = headers.get(HttpHeaderNames.CACHE_CONTROL);
+			return cacheControl == null || !(cacheControl.contains(HttpHeaderValues.NO_STORE) ||
+					cacheControl.contains(HttpHeaderValues.NO_CACHE) ||
+					cacheControl.contains(HttpHeaderValues.PRIVATE));
+		}
+	}
+
+	/**
+	 * The response of a request, served from the cache, after an identical request or
+	 * by its handler.
+	 */
+	static final class Exchange extends Mono<Void> implements Subscriber<Void>, Subscription {
+
+		final HttpResponseCache                             cache;
+		final NettyHttpChannel                              channel;
+		final ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler;
+
+		// set when waiting for the response of an identical request
+		String                   key;
+		Subscriber<? super Void> actual;
+
+		volatile Subscription upstream;
+		volatile boolean      cancelled;
+
+		Exchange(HttpResponseCache cache,
+				NettyHttpChannel channel,
+				ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler) {
+			this.cache = cache;
+			this.channel = channel;
+			this.handler = handler;
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super Void> s) {
+			String key = cache.key(channel);
+			Entry entry;
+			ByteBuf body = null;
+			synchronized (cache) {
+				entry = cache.lookup(key);
+				if (entry != null) {
+					cache.hits++;
+					body = entry.retainBody();
+				}
+				else {
+					List<Exchange> waiting = cache.pending.get(key);
+					if (waiting != null) {
+						cache.collapsed++;
+						this.key = key;
+						this.actual = s;
+						// subscribed before it can be answered, the response of the
+						// identical request is then relayed through this exchange
+						s.onSubscribe(this);
+						if (!cancelled) {
+							waiting.add(this);
+						}
+						return;
+					}
+					cache.misses++;
+					cache.pending.put(key, new ArrayList<>());
+				}
+			}
+			if (entry != null) {
+				serve(channel, entry, body).subscribe(s);
+				return;
+			}
+			record(key, s);
+		}
+
+		/**
+		 * Run the handler, recording its response for the cache and the waiting requests.
+		 */
+		void record(String key, Subscriber<? super Void> s) {
+			Recording recording = new Recording(channel.delegate()
+			                                           .alloc(), cache.maxEntrySize);
+			channel.recording = recording;
+			Publisher<Void> response;
+			try {
+				response = handler.apply(channel);
+			}
+			catch (Throwable t) {
+				Exceptions.throwIfFatal(t);
+				complete(key, null);
+				EmptySubscription.error(s, t);
+				return;
+			}
+			response.subscribe(new RecordingSubscriber(key, recording, s));
+		}
+
+		/**
+		 * Store the recorded response and answer the requests waiting for it.
+		 */
+		void complete(String key, Recording recording) {
+			channel.recording = null;
+			Entry entry = recording != null ? recording.complete(channel, cache.ttl) : null;
+			List<Exchange> waiting;
+			List<ByteBuf> bodies = null;
+			synchronized (cache) {
+				waiting = cache.pending.remove(key);
+				if (entry != null) {
+					cache.store(key, entry);
+					if (waiting != null && !waiting.isEmpty()) {
+						bodies = new ArrayList<>(waiting.size());
+						for (int i = 0; i < waiting.size(); i++) {
+							bodies.add(entry.retainBody());
+						}
+					}
+				}
+			}
+			if (waiting == null) {
+				return;
+			}
+			for (int i = 0; i < waiting.size(); i++) {
+				Exchange exchange = waiting.get(i);
+				ByteBuf body = bodies != null ? bodies.get(i) : null;
+				if (exchange.cancelled) {
+					if (body != null) {
+						body.release();
+					}
+				}
+				else if (body != null) {
+					serve(exchange.channel, entry, body).subscribe(exchange);
+				}
+				else {
+					exchange.fallback();
+				}
+			}
+		}
+
+		/**
+		 * Run the handler of a waiting request whose response could not be cached.
+		 */
+		void fallback() {
+			Publisher<Void> response;
+			try {
+				response = handler.apply(channel);
+			}
+			catch (Throwable t) {
+				Exceptions.throwIfFatal(t);
+				actual.onError(t);
+				return;
+			}
+			response.subscribe(this);
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			upstream = s;
+			if (cancelled) {
+				s.cancel();
+			}
+			else {
+				s.request(Long.MAX_VALUE);
+			}
+		}
+
+		@Override
+		public void onNext(Void v) {
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			actual.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			actual.onComplete();
+		}
+
+		@Override
+		public void request(long n) {
+			// the relayed response is requested in full once it starts
+		}
+
+		@Override
+		public void cancel() {
+			if (cancelled) {
+				return;
+			}
+			cancelled = true;
+			synchronized (cache) {
+				List<Exchange> waiting = cache.pending.get(key);
+				if (waiting != null) {
+					waiting.remove(this);
+				}
+			}
+			Subscription s = upstream;
+			if (s != null) {
+				s.cancel();
+			}
+		}
+
+		final class RecordingSubscriber implements Subscriber<Void>, Subscription {
+
+			final String                   key;
+			final Recording                recording;
+			final Subscriber<? super Void> actual;
+
+			Subscription s;
+			boolean      done;
+
+			RecordingSubscriber(String key, Recording recording, Subscriber<? super Void> actual) {
+				this.key = key;
+				this.recording = recording;
+				this.actual = actual;
+			}
+
+			@Override
+			public void onSubscribe(Subscription s) {
+				this.s = s;
+				actual.onSubscribe(this);
+			}
+
+			@Override
+			public void onNext(Void v) {
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				if (terminate()) {
+					complete(key, null);
+					recording.abandon();
+				}
+				actual.onError(t);
+			}
+
+			@Override
+			public void onComplete() {
+				if (terminate()) {
+					complete(key, recording);
+				}
+				actual.onComplete();
+			}
+
+			@Override
+			public void request(long n) {
+				s.request(n);
+			}
+
+			@Override
+			public void cancel() {
+				s.cancel();
+				if (terminate()) {
+					complete(key, null);
+					recording.abandon();
+				}
+			}
+
+			synchronized boolean terminate() {
+				if (done) {
+					return false;
+				}
+				done = true;
+				return true;
+			}
+		}
+	}
+}
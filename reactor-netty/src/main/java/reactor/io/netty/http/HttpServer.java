@@ -17,27 +17,45 @@
 package reactor.io.netty.http;
 
 import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.http.HttpServerCodec;
-import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AsciiString;
 import org.reactivestreams.Publisher;
 import reactor.core.flow.Loopback;
 import reactor.core.publisher.Flux;
@@ -49,6 +67,7 @@ import reactor.core.util.Logger;
 import reactor.io.ipc.ChannelHandler;
 import reactor.io.netty.common.NettyChannel;
 import reactor.io.netty.common.Peer;
+import reactor.io.netty.config.CompressionOptions;
 import reactor.io.netty.config.ServerOptions;
 import reactor.io.netty.tcp.TcpChannel;
 import reactor.io.netty.tcp.TcpServer;
@@ -109,12 +128,17 @@ public class HttpServer extends Peer<ByteBuf, ByteBuf, HttpChannel> implements L
 	}
 
 
-	TcpServer    server;
-	HttpMappings httpMappings;
+	TcpServer     server;
+	HttpMappings  httpMappings;
+	ServerOptions options;
 
 	HttpServer(final ServerOptions options) {
 		super(options.timer());
-		this.server = new TcpBridgeServer(options);
+		this.options = options.toImmutable();
+		// advertise h2 on a copy, the given builder may be shared with other servers
+		this.server = new TcpBridgeServer(options,
+				options.http2() && options.ssl() != null ? withProtocols(options.ssl(), ALPN) :
+						options.ssl());
 	}
 
 	@Override
@@ -275,6 +299,15 @@ public class HttpServer extends Peer<ByteBuf, ByteBuf, HttpChannel> implements L
 		           .getListenAddress();
 	}
 
+	/**
+	 * @return the warm-up duration in milliseconds or -1 if no warm-up ran
+	 * @see TcpServer#getWarmupTime()
+	 */
+	public long getWarmupTime() {
+		return this.connectedOutput()
+		           .getWarmupTime();
+	}
+
 	@Override
 	public boolean isStarted() {
 		return server.isStarted();
@@ -332,6 +365,43 @@ public class HttpServer extends Peer<ByteBuf, ByteBuf, HttpChannel> implements L
 		return this;
 	}
 
+	/**
+	 * Register an handler for the given Selector condition, compressing its responses
+	 * with the given options instead of {@link ServerOptions#compression()}.
+	 * @param condition a {@link Predicate} to match the incoming connection with registered handler
+	 * @param compression the compression options, null to send bodies as is
+	 * @param serviceFunction an handler to invoke for the given condition
+	 * @return {@code this}
+	 */
+	public HttpServer route(final Predicate<HttpChannel> condition,
+			final CompressionOptions compression,
+			final ChannelHandler<ByteBuf, ByteBuf, HttpChannel> serviceFunction) {
+
+		if (this.httpMappings == null) {
+			this.httpMappings = HttpMappings.newMappings();
+		}
+
+		this.httpMappings.add(condition, serviceFunction, compression);
+		return this;
+	}
+
+	/**
+	 * Register an handler for the given Selector condition, decoding request bodies and
+	 * encoding responses with the codecs negotiated from the request {@code Content-Type}
+	 * and {@code Accept} headers.
+	 * @param condition a {@link Predicate} to match the incoming connection with registered handler
+	 * @param codecs the {@link HttpCodecs} registry to negotiate from
+	 * @param handler an handler mapping the decoded request values to the values to send
+	 * @param <IN> the decoded request type
+	 * @param <OUT> the encoded response type
+	 * @return {@code this}
+	 */
+	public final <IN, OUT> HttpServer route(final Predicate<HttpChannel> condition,
+			final HttpCodecs<IN, OUT> codecs,
+			final BiFunction<? super HttpChannel, ? super Flux<IN>, ? extends Publisher<? extends OUT>> handler) {
+		return route(condition, codecs.handler(handler));
+	}
+
 	/***
 	 * Additional regex matching is available when reactor-bus is on the classpath. Start the server without any global
 	 * handler, only the specific routed methods (get, post...) will apply.
@@ -397,13 +467,9 @@ public class HttpServer extends Peer<ByteBuf, ByteBuf, HttpChannel> implements L
 					if (defaultHandler != null) {
 						return defaultHandler.apply(request);
 					}
-					else if (request.markHeadersAsFlushed()) {
-						//404
-						request.delegate()
-						       .writeAndFlush(new DefaultHttpResponse(HttpVersion.HTTP_1_1,
-								       HttpResponseStatus.NOT_FOUND));
-					}
-					return Flux.empty();
+					//404
+					return request.status(HttpResponseStatus.NOT_FOUND)
+					              .sendHeaders();
 
 				}
 				else {
@@ -474,24 +540,140 @@ public class HttpServer extends Peer<ByteBuf, ByteBuf, HttpChannel> implements L
 			pipeline.addLast(new LoggingHandler(HttpServer.class));
 		}
 
-		pipeline.addLast(new HttpServerCodec());
+		if (!options.http2()) {
+			addHttp11(pipeline, handler, netChannel, false);
+		}
+		else if (pipeline.get(SslHandler.class) != null) {
+			pipeline.addLast(new Http2AlpnNegotiator(handler, netChannel));
+		}
+		else {
+			pipeline.addLast(new Http2PrefaceDetector(handler, netChannel));
+		}
+	}
 
-		pipeline.addLast(NettyHttpServerHandler.class.getSimpleName(), new NettyHttpServerHandler(handler, netChannel));
+	/**
+	 * Serve HTTP/1.x on the given pipeline.
+	 *
+	 * @param upgrade true to accept an upgrade to cleartext HTTP/2
+	 */
+	final void addHttp11(ChannelPipeline pipeline,
+			ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+			TcpChannel netChannel,
+			boolean upgrade) {
+		HttpServerCodec codec = new HttpServerCodec();
+		pipeline.addLast(codec);
+
+		if (upgrade) {
+			HttpServerUpgradeHandler.SourceCodec source = ctx -> {
+				codec.upgradeFrom(ctx);
+				ctx.pipeline()
+				   .remove(NettyHttpServerHandler.class);
+			};
+			pipeline.addLast(new HttpServerUpgradeHandler(source, protocol -> {
+				if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+					return new Http2ServerUpgradeCodec(NettyHttp2ServerHandler.create(handler, netChannel, options));
+				}
+				return null;
+			}, MAX_UPGRADE_CONTENT_LENGTH));
+		}
 
+		pipeline.addLast(NettyHttpServerHandler.class.getSimpleName(),
+				new NettyHttpServerHandler(handler, netChannel, options));
+	}
+
+	/**
+	 * Serve HTTP/2 on the given pipeline.
+	 */
+	final void addHttp2(ChannelPipeline pipeline,
+			ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+			TcpChannel netChannel) {
+		pipeline.addLast(NettyHttp2ServerHandler.create(handler, netChannel, options));
 	}
 
 	static final Logger log = Logger.getLogger(HttpServer.class);
 
+	/**
+	 * Maximum size of the body of a request upgraded to HTTP/2
+	 */
+	static final int MAX_UPGRADE_CONTENT_LENGTH = 65536;
+
+	static final ApplicationProtocolConfig ALPN = new ApplicationProtocolConfig(
+			ApplicationProtocolConfig.Protocol.ALPN,
+			ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+			ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+			ApplicationProtocolNames.HTTP_2,
+			ApplicationProtocolNames.HTTP_1_1);
+
+	static final List<byte[]> DEFAULT_WARMUP_REQUESTS = Collections.singletonList(
+			"GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+	/**
+	 * Warn when none of the cipher suites enabled by the given context is allowed by
+	 * HTTP/2, the configured suites are left as they are.
+	 *
+	 * @param sslContext the SSL context of a connection negotiating h2, or null
+	 */
+	static void checkHttp2Ciphers(SslContext sslContext) {
+		if (sslContext == null) {
+			return;
+		}
+		for (String cipher : sslContext.cipherSuites()) {
+			if (Http2SecurityUtil.CIPHERS.contains(cipher)) {
+				return;
+			}
+		}
+		log.warn("None of the cipher suites {} is allowed by HTTP/2, peers negotiating h2 " +
+				"will fail with INADEQUATE_SECURITY", sslContext.cipherSuites());
+	}
+
+	/**
+	 * Copy an SSL context builder and set the protocols to negotiate on the copy, the
+	 * builder exposing neither a copy nor its configuration.
+	 *
+	 * @param ssl the builder to copy, left untouched
+	 * @param protocols the protocols to negotiate
+	 * @return a new builder
+	 */
+	static SslContextBuilder withProtocols(SslContextBuilder ssl, ApplicationProtocolConfig protocols) {
+		try {
+			Constructor<SslContextBuilder> constructor =
+					SslContextBuilder.class.getDeclaredConstructor(boolean.class);
+			constructor.setAccessible(true);
+			SslContextBuilder copy = constructor.newInstance(false);
+			for (Field field : SslContextBuilder.class.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				field.setAccessible(true);
+				field.set(copy, field.get(ssl));
+			}
+			return copy.applicationProtocolConfig(protocols);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			throw new IllegalStateException("Cannot copy " + ssl + " to negotiate " +
+					protocols.supportedProtocols(), e);
+		}
+	}
+
 	final class TcpBridgeServer extends TcpServer {
 
-		TcpBridgeServer(ServerOptions options) {
-			super(options);
+		TcpBridgeServer(ServerOptions options, SslContextBuilder ssl) {
+			super(options, ssl);
+			if (options.http2()) {
+				checkHttp2Ciphers(getSslContext());
+			}
 		}
 
 		@Override
 		protected void bindChannel(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
 				SocketChannel nativeChannel) {
 
+			SslContext sslContext = getSslContext();
+			if (sslContext != null) {
+				nativeChannel.pipeline()
+				             .addFirst(sslContext.newHandler(nativeChannel.alloc()));
+			}
+
 			if (null != getOptions() && null != getOptions().pipelineConfigurer()) {
 				getOptions().pipelineConfigurer()
 				            .accept(nativeChannel.pipeline());
@@ -499,5 +681,94 @@ public class HttpServer extends Peer<ByteBuf, ByteBuf, HttpChannel> implements L
 
 			HttpServer.this.bindChannel(handler, nativeChannel);
 		}
+
+		@Override
+		protected List<byte[]> warmupRequests() {
+			List<byte[]> requests = super.warmupRequests();
+			return requests.isEmpty() ? DEFAULT_WARMUP_REQUESTS : requests;
+		}
+	}
+
+	/**
+	 * Choose between HTTP/2 and HTTP/1.1 once negotiated by ALPN during the SSL
+	 * handshake.
+	 */
+	final class Http2AlpnNegotiator extends ApplicationProtocolNegotiationHandler {
+
+		final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+		final TcpChannel                                     netChannel;
+
+		Http2AlpnNegotiator(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+				TcpChannel netChannel) {
+			super(ApplicationProtocolNames.HTTP_1_1);
+			this.handler = handler;
+			this.netChannel = netChannel;
+		}
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			// the protocol handlers are activated once negotiated
+			ctx.read();
+		}
+
+		@Override
+		protected void configurePipeline(ChannelHandlerContext ctx, String protocol)
+				throws Exception {
+			if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+				addHttp2(ctx.pipeline(), handler, netChannel);
+			}
+			else {
+				addHttp11(ctx.pipeline(), handler, netChannel, false);
+			}
+			ctx.fireChannelActive();
+		}
+	}
+
+	/**
+	 * Serve cleartext HTTP/2 if the connection starts with its preface, HTTP/1.1 with
+	 * upgrade support otherwise.
+	 */
+	final class Http2PrefaceDetector extends ByteToMessageDecoder {
+
+		final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+		final TcpChannel                                     netChannel;
+
+		Http2PrefaceDetector(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+				TcpChannel netChannel) {
+			this.handler = handler;
+			this.netChannel = netChannel;
+		}
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			// the protocol handlers are activated once detected
+			ctx.read();
+		}
+
+		@Override
+		protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out)
+				throws Exception {
+			ByteBuf preface = Http2CodecUtil.connectionPrefaceBuf();
+			try {
+				int length = Math.min(in.readableBytes(), preface.readableBytes());
+				if (!ByteBufUtil.equals(in, in.readerIndex(), preface, 0, length)) {
+					addHttp11(ctx.pipeline(), handler, netChannel, true);
+				}
+				else if (length == preface.readableBytes()) {
+					addHttp2(ctx.pipeline(), handler, netChannel);
+				}
+				else {
+					ctx.read();
+					return;
+				}
+			}
+			finally {
+				preface.release();
+			}
+			ctx.fireChannelActive();
+			// hands the bytes read so far to the protocol handlers
+			ctx.pipeline()
+			   .remove(this);
+		}
 	}
 }
@@ -41,6 +41,7 @@ final class MonoClientRequest extends Mono<HttpInbound> {
 	final   Function<? super HttpOutbound, ? extends Publisher<Void>> handler;
 
 	static final AsciiString ALL = new AsciiString("*/*");
+	static final AsciiString GZIP_DEFLATE = new AsciiString("gzip, deflate");
 
 	public MonoClientRequest(HttpClient client,
 			URI currentURI,
@@ -66,14 +67,18 @@ final class MonoClientRequest extends Mono<HttpInbound> {
 				  .add(HttpHeaderNames.HOST, uri.getHost())
 				  .add(HttpHeaderNames.ACCEPT, ALL);
 
+				if (client.decompress) {
+					ch.headers()
+					  .add(HttpHeaderNames.ACCEPT_ENCODING, GZIP_DEFLATE);
+				}
+				ch.compression(client.compression);
+
 				if(method == HttpMethod.GET ||
 						method == HttpMethod.HEAD){
 					ch.removeTransferEncodingChunked();
 				}
 
-				ch.delegate()
-				  .pipeline()
-				  .fireUserEventTriggered(new NettyHttpClientHandler.ChannelInputSubscriberEvent(subscriber));
+				ch.subscribeReply(subscriber);
 
 				if (handler != null) {
 					return handler.apply(ch);
@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.handler.codec.http2.DefaultHttp2Connection;
+import io.netty.handler.codec.http2.DefaultHttp2ConnectionDecoder;
+import io.netty.handler.codec.http2.DefaultHttp2ConnectionEncoder;
+import io.netty.handler.codec.http2.DefaultHttp2FrameReader;
+import io.netty.handler.codec.http2.DefaultHttp2FrameWriter;
+import io.netty.handler.codec.http2.DelegatingDecompressorFrameListener;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2ConnectionAdapter;
+import io.netty.handler.codec.http2.Http2ConnectionDecoder;
+import io.netty.handler.codec.http2.Http2ConnectionEncoder;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2FrameAdapter;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2Stream;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+import reactor.core.subscriber.BaseSubscriber;
+import reactor.core.util.EmptySubscription;
+import reactor.core.util.Exceptions;
+import reactor.core.util.Logger;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.tcp.TcpChannel;
+
+/**
+ * Send the requests of an {@link Http2ClientPool} as concurrent streams of a single
+ * HTTP/2 connection.
+ * <p>
+ * Each request is an {@link HttpChannel} whose response body is read with its own flow
+ * control as described in {@link Http2StreamChannel}. The connection is handed back to
+ * its pool stream by stream, and reports the {@code SETTINGS_MAX_CONCURRENT_STREAMS} of
+ * the server so that the pool never opens more streams than allowed.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+final class NettyHttp2ClientHandler extends Http2ConnectionHandler {
+
+	/**
+	 * Create a handler for a new connection of the given pool, running the given request
+	 * on its first stream.
+	 *
+	 * @param handler the first request handler
+	 * @param tcpStream the connection
+	 * @param pool the pool of the connection
+	 * @param decompress true to decompress the response bodies
+	 * @return a new connection handler
+	 */
+	static NettyHttp2ClientHandler create(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+			TcpChannel tcpStream,
+			Http2ClientPool pool,
+			boolean decompress) {
+		Http2Connection connection = new DefaultHttp2Connection(false);
+		Http2ConnectionEncoder encoder =
+				new DefaultHttp2ConnectionEncoder(connection, new DefaultHttp2FrameWriter());
+		Http2ConnectionDecoder decoder =
+				new DefaultHttp2ConnectionDecoder(connection, encoder, new DefaultHttp2FrameReader());
+		Http2Settings settings = new Http2Settings().pushEnabled(false);
+
+		NettyHttp2ClientHandler h2 = new NettyHttp2ClientHandler(decoder, encoder, settings, handler, tcpStream, pool);
+		if (decompress) {
+			// acknowledges the compressed bytes as the inflated ones are consumed
+			decoder.frameListener(new DelegatingDecompressorFrameListener(connection, h2.new StreamListener()));
+		}
+		else {
+			decoder.frameListener(h2.new StreamListener());
+		}
+		return h2;
+	}
+
+	final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+	final TcpChannel                                     tcpStream;
+	final Http2ClientPool                                pool;
+	final Http2Connection.PropertyKey                    channelKey;
+
+	ChannelHandlerContext context;
+
+	// stream accounting, guarded by the pool
+	int activeStreams;
+	int maxStreams = 1;
+
+	NettyHttp2ClientHandler(Http2ConnectionDecoder decoder,
+			Http2ConnectionEncoder encoder,
+			Http2Settings initialSettings,
+			ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+			TcpChannel tcpStream,
+			Http2ClientPool pool) {
+		super(decoder, encoder, initialSettings);
+		this.handler = handler;
+		this.tcpStream = tcpStream;
+		this.pool = pool;
+		this.channelKey = connection().newKey();
+		connection().addListener(new Http2ConnectionAdapter() {
+			@Override
+			public void onStreamClosed(Http2Stream stream) {
+				ClientStream channel = stream.getProperty(channelKey);
+				if (channel != null) {
+					channel.closed();
+				}
+			}
+		});
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		context = ctx;
+		// flow control applies the backpressure of each stream, keep reading frames
+		ctx.channel()
+		   .config()
+		   .setAutoRead(true);
+		super.handlerAdded(ctx);
+	}
+
+	@Override
+	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		super.channelActive(ctx);
+		// frames written before the end of an SSL handshake are queued by its handler
+		start(handler);
+	}
+
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+		if (evt instanceof SslHandshakeCompletionEvent && ((SslHandshakeCompletionEvent) evt).isSuccess()) {
+			SslHandler sslHandler = ctx.pipeline()
+			                           .get(SslHandler.class);
+			String protocol = sslHandler != null ? sslHandler.applicationProtocol() : null;
+			if (!ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+				log.error("Server {} did not negotiate {} but {}, closing the connection",
+						pool.address(), ApplicationProtocolNames.HTTP_2, protocol);
+				ctx.close();
+			}
+		}
+		super.userEventTriggered(ctx, evt);
+	}
+
+	/**
+	 * Run a request on a new stream of this connection, called from its event loop.
+	 */
+	void start(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> requestHandler) {
+		new ClientStream().start(requestHandler);
+	}
+
+	/**
+	 * Run the next request of the pool on this connection from its event loop, or give
+	 * it back to the pool if the connection has been closed meanwhile.
+	 */
+	void lease(HttpClientPool.Acquire acquire) {
+		Runnable task = () -> {
+			if (!isReusable()) {
+				pool.release(this);
+				pool.acquire(acquire);
+				return;
+			}
+			start(acquire.handler);
+			acquire.result.onComplete();
+		};
+		if (context.executor()
+		           .inEventLoop()) {
+			task.run();
+		}
+		else {
+			context.executor()
+			       .execute(task);
+		}
+	}
+
+	boolean isReusable() {
+		ChannelHandlerContext ctx = context;
+		return ctx != null && !ctx.isRemoved() && ctx.channel()
+		                                             .isActive() && !connection().goAwayReceived();
+	}
+
+	void close() {
+		context.channel()
+		       .close();
+	}
+
+	final class StreamListener extends Http2FrameAdapter {
+
+		@Override
+		public void onHeadersRead(ChannelHandlerContext ctx,
+				int streamId,
+				Http2Headers headers,
+				int padding,
+				boolean endOfStream) throws Http2Exception {
+			ClientStream channel = channel(streamId);
+			if (channel == null) {
+				return;
+			}
+			if (!channel.responseReceived) {
+				CharSequence status = headers.status();
+				if (status != null && status.length() > 0 && status.charAt(0) == '1') {
+					// informational responses precede the actual response
+					return;
+				}
+				channel.response(HttpConversionUtil.toHttpResponse(streamId, headers, true));
+			}
+			if (endOfStream) {
+				// trailers are not exposed, they only end the body
+				channel.bodyComplete();
+			}
+		}
+
+		@Override
+		public void onHeadersRead(ChannelHandlerContext ctx,
+				int streamId,
+				Http2Headers headers,
+				int streamDependency,
+				short weight,
+				boolean exclusive,
+				int padding,
+				boolean endOfStream) throws Http2Exception {
+			onHeadersRead(ctx, streamId, headers, padding, endOfStream);
+		}
+
+		@Override
+		public int onDataRead(ChannelHandlerContext ctx,
+				int streamId,
+				ByteBuf data,
+				int padding,
+				boolean endOfStream) throws Http2Exception {
+			ClientStream channel = channel(streamId);
+			int length = data.readableBytes();
+			if (channel == null || !channel.receive(data.retain())) {
+				// nobody reads this body, acknowledge it right away
+				return length + padding;
+			}
+			if (endOfStream) {
+				channel.bodyComplete();
+			}
+			// the data is acknowledged once its subscriber consumes it
+			return padding;
+		}
+
+		@Override
+		public void onRstStreamRead(ChannelHandlerContext ctx, int streamId, long errorCode) {
+			ClientStream channel = channel(streamId);
+			if (channel != null) {
+				channel.closed();
+			}
+		}
+
+		@Override
+		public void onSettingsRead(ChannelHandlerContext ctx, Http2Settings settings) {
+			Long maxConcurrentStreams = settings.maxConcurrentStreams();
+			if (maxConcurrentStreams != null) {
+				pool.maxStreams(NettyHttp2ClientHandler.this,
+						(int) Math.min(Integer.MAX_VALUE, maxConcurrentStreams));
+			}
+			else if (maxStreams == 1) {
+				// no limit advertised, only bound by the active streams of the connection
+				pool.maxStreams(NettyHttp2ClientHandler.this, Integer.MAX_VALUE);
+			}
+		}
+
+		@Override
+		public void onGoAwayRead(ChannelHandlerContext ctx,
+				int lastStreamId,
+				long errorCode,
+				ByteBuf debugData) {
+			// streams up to lastStreamId complete, new requests go to another connection
+			pool.retire(NettyHttp2ClientHandler.this);
+		}
+	}
+
+	ClientStream channel(int streamId) {
+		Http2Stream stream = connection().stream(streamId);
+		return stream != null ? stream.getProperty(channelKey) : null;
+	}
+
+	/**
+	 * A request and its response on an HTTP/2 stream, only updated from the event loop.
+	 */
+	final class ClientStream extends Http2StreamChannel {
+
+		Subscriber<? super HttpInbound> replySubscriber;
+		Cookies                         cookies;
+		Throwable                       replyError;
+		boolean                         responseReceived;
+		boolean                         replied;
+		boolean                         released;
+
+		ClientStream() {
+			super(NettyHttp2ClientHandler.this.tcpStream,
+					null,
+					NettyHttp2ClientHandler.this,
+					NettyHttp2ClientHandler.this.context);
+			HttpRequest request = getNettyRequest();
+			request.headers()
+			       .set(HttpConversionUtil.ExtensionHeaderNames.SCHEME.text(), pool.isSecure() ? "https" : "http");
+		}
+
+		/**
+		 * Run the request handler, ending the stream once its publisher terminates.
+		 */
+		void start(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> requestHandler) {
+			Publisher<Void> closePublisher;
+			try {
+				closePublisher = requestHandler.apply(this);
+			}
+			catch (Throwable t) {
+				Exceptions.throwIfFatal(t);
+				fail(t);
+				return;
+			}
+			closePublisher.subscribe(new BaseSubscriber<Void>() {
+				@Override
+				public void onSubscribe(Subscription s) {
+					s.request(Long.MAX_VALUE);
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					execute(() -> fail(t));
+				}
+
+				@Override
+				public void onComplete() {
+					execute(ClientStream.this::end);
+				}
+			});
+		}
+
+		@Override
+		protected Http2Headers outboundHeaders() {
+			HttpRequest request = getNettyRequest();
+			Http2Headers headers = HttpConversionUtil.toHttp2Headers(request, true);
+			CharSequence host = request.headers()
+			                           .get(HttpHeaderNames.HOST);
+			headers.method(request.method()
+			                      .asciiName())
+			       .path(request.uri())
+			       .authority(host != null ? host : pool.address()
+			                                          .getHostString() + ":" + pool.address()
+			                                                                       .getPort());
+			headers.remove(HttpHeaderNames.HOST);
+			return headers;
+		}
+
+		@Override
+		protected void opened(Http2Stream stream) {
+			stream.setProperty(channelKey, this);
+		}
+
+		@Override
+		void negotiateCompression() {
+			negotiateRequestCompression();
+		}
+
+		@Override
+		void subscribeReply(Subscriber<? super HttpInbound> subscriber) {
+			execute(() -> {
+				if (replySubscriber != null) {
+					EmptySubscription.error(subscriber,
+							new IllegalStateException("Only one response subscriber allowed."));
+					return;
+				}
+				replySubscriber = subscriber;
+				reply();
+			});
+		}
+
+		@Override
+		void setNettyResponse(HttpResponse nettyResponse) {
+			super.setNettyResponse(nettyResponse);
+			this.cookies = Cookies.newClientResponseHolder(responseHeaders());
+		}
+
+		@Override
+		public Map<CharSequence, Set<Cookie>> cookies() {
+			return cookies != null ? cookies.getCachedCookies() : null;
+		}
+
+		/**
+		 * Emit the response to its subscriber, or the error of its status code.
+		 */
+		void response(HttpResponse response) {
+			responseReceived = true;
+			setNettyResponse(response);
+			int code = response.status()
+			                   .code();
+			if (code >= 400) {
+				replyError = new HttpException(this);
+			}
+			else if (code >= 300) {
+				replyError = new RedirectException(this);
+			}
+			if (replyError != null) {
+				// nobody reads the body of a failed response
+				cancelBody();
+			}
+			reply();
+		}
+
+		void reply() {
+			Subscriber<? super HttpInbound> subscriber = replySubscriber;
+			if (subscriber == null || replied || (!responseReceived && replyError == null)) {
+				return;
+			}
+			replied = true;
+			if (replyError != null) {
+				EmptySubscription.error(subscriber, replyError);
+			}
+			else {
+				Flux.just((HttpInbound) this)
+				    .subscribe(subscriber);
+			}
+		}
+
+		/**
+		 * End the request once its handler terminated.
+		 */
+		void end() {
+			if (ended) {
+				return;
+			}
+			ended = true;
+			if (!closed) {
+				writeEnd();
+			}
+			if (stream == null) {
+				// the stream could not be opened, nothing will close it
+				release();
+			}
+		}
+
+		void fail(Throwable error) {
+			if (!responseReceived && replyError == null) {
+				replyError = error;
+				reply();
+			}
+			if (ended) {
+				return;
+			}
+			ended = true;
+			if (stream != null) {
+				reset(Http2Error.CANCEL);
+			}
+			else {
+				release();
+			}
+		}
+
+		@Override
+		void closed() {
+			if (closed) {
+				return;
+			}
+			super.closed();
+			if (!responseReceived && replyError == null) {
+				replyError = new IOException("Stream " + (stream != null ? stream.id() : 0) +
+						" to " + pool.address() + " closed before a response");
+				reply();
+			}
+			release();
+		}
+
+		void release() {
+			if (!released) {
+				released = true;
+				pool.release(NettyHttp2ClientHandler.this);
+			}
+		}
+	}
+
+	/**
+	 * Advertise h2 only, a connection failing to negotiate it is closed
+	 */
+	static final ApplicationProtocolConfig ALPN = new ApplicationProtocolConfig(
+			ApplicationProtocolConfig.Protocol.ALPN,
+			ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+			ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+			ApplicationProtocolNames.HTTP_2);
+
+	static final Logger log = Logger.getLogger(NettyHttp2ClientHandler.class);
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.Map;
+import java.util.Set;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.handler.codec.http2.DefaultHttp2Connection;
+import io.netty.handler.codec.http2.DefaultHttp2ConnectionDecoder;
+import io.netty.handler.codec.http2.DefaultHttp2ConnectionEncoder;
+import io.netty.handler.codec.http2.DefaultHttp2FrameReader;
+import io.netty.handler.codec.http2.DefaultHttp2FrameWriter;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2ConnectionAdapter;
+import io.netty.handler.codec.http2.Http2ConnectionDecoder;
+import io.netty.handler.codec.http2.Http2ConnectionEncoder;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2FrameAdapter;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2Stream;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+import reactor.core.subscriber.BaseSubscriber;
+import reactor.core.util.Exceptions;
+import reactor.core.util.Logger;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.config.CompressionOptions;
+import reactor.io.netty.config.ServerOptions;
+import reactor.io.netty.tcp.TcpChannel;
+
+/**
+ * Serve each HTTP/2 stream of a connection as an {@link HttpChannel} routed like an
+ * HTTP/1.x request.
+ * <p>
+ * Streams are handled concurrently, each with its own flow control as described in
+ * {@link Http2StreamChannel}.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+final class NettyHttp2ServerHandler extends Http2ConnectionHandler {
+
+	/**
+	 * Create a handler serving the streams of a connection with the given handler.
+	 *
+	 * @param handler the request handler
+	 * @param tcpStream the connection
+	 * @param options the server options, see {@link ServerOptions#maxConcurrentStreams()}
+	 * and {@link ServerOptions#compression()}
+	 * @return a new connection handler
+	 */
+	static NettyHttp2ServerHandler create(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+			TcpChannel tcpStream,
+			ServerOptions options) {
+		Http2Connection connection = new DefaultHttp2Connection(true);
+		Http2ConnectionEncoder encoder =
+				new DefaultHttp2ConnectionEncoder(connection, new DefaultHttp2FrameWriter());
+		Http2ConnectionDecoder decoder =
+				new DefaultHttp2ConnectionDecoder(connection, encoder, new DefaultHttp2FrameReader());
+		Http2Settings settings = new Http2Settings().maxConcurrentStreams(options.maxConcurrentStreams());
+
+		NettyHttp2ServerHandler h2 =
+				new NettyHttp2ServerHandler(decoder, encoder, settings, handler, tcpStream, options.compression());
+		decoder.frameListener(h2.new StreamListener());
+		return h2;
+	}
+
+	final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+	final TcpChannel                                     tcpStream;
+	final Http2Connection.PropertyKey                    channelKey;
+	final CompressionOptions                             compression;
+
+	ChannelHandlerContext context;
+
+	NettyHttp2ServerHandler(Http2ConnectionDecoder decoder,
+			Http2ConnectionEncoder encoder,
+			Http2Settings initialSettings,
+			ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+			TcpChannel tcpStream,
+			CompressionOptions compression) {
+		super(decoder, encoder, initialSettings);
+		this.handler = handler;
+		this.tcpStream = tcpStream;
+		this.compression = compression;
+		this.channelKey = connection().newKey();
+		connection().addListener(new Http2ConnectionAdapter() {
+			@Override
+			public void onStreamClosed(Http2Stream stream) {
+				ServerStream channel = stream.getProperty(channelKey);
+				if (channel != null) {
+					channel.closed();
+				}
+			}
+		});
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		context = ctx;
+		// flow control applies the backpressure of each stream, keep reading frames
+		ctx.channel()
+		   .config()
+		   .setAutoRead(true);
+		super.handlerAdded(ctx);
+	}
+
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+		if (evt instanceof HttpServerUpgradeHandler.UpgradeEvent) {
+			// the request upgraded from HTTP/1.1 is answered on stream 1
+			HttpServerUpgradeHandler.UpgradeEvent upgrade = (HttpServerUpgradeHandler.UpgradeEvent) evt;
+			try {
+				FullHttpRequest request = upgrade.upgradeRequest();
+				Http2Stream stream = connection().stream(1);
+				if (stream != null) {
+					ServerStream channel = new ServerStream(stream, request);
+					stream.setProperty(channelKey, channel);
+					// read as HTTP/1.1, outside of HTTP/2 flow control
+					channel.flowControlled = false;
+					channel.receive(request.content()
+					                       .retain());
+					channel.bodyComplete();
+					channel.start();
+				}
+			}
+			finally {
+				upgrade.release();
+			}
+			return;
+		}
+		super.userEventTriggered(ctx, evt);
+	}
+
+	ServerStream channel(int streamId) {
+		Http2Stream stream = connection().stream(streamId);
+		return stream != null ? stream.getProperty(channelKey) : null;
+	}
+
+	final class StreamListener extends Http2FrameAdapter {
+
+		@Override
+		public void onHeadersRead(ChannelHandlerContext ctx,
+				int streamId,
+				Http2Headers headers,
+				int padding,
+				boolean endOfStream) throws Http2Exception {
+			Http2Stream stream = connection().stream(streamId);
+			if (stream == null) {
+				return;
+			}
+			ServerStream channel = stream.getProperty(channelKey);
+			if (channel == null) {
+				HttpRequest request = HttpConversionUtil.toHttpRequest(streamId, headers, true);
+				channel = new ServerStream(stream, request);
+				stream.setProperty(channelKey, channel);
+				if (endOfStream) {
+					channel.bodyComplete();
+				}
+				channel.start();
+			}
+			else if (endOfStream) {
+				// trailers are not exposed, they only end the body
+				channel.bodyComplete();
+			}
+		}
+
+		@Override
+		public void onHeadersRead(ChannelHandlerContext ctx,
+				int streamId,
+				Http2Headers headers,
+				int streamDependency,
+				short weight,
+				boolean exclusive,
+				int padding,
+				boolean endOfStream) throws Http2Exception {
+			onHeadersRead(ctx, streamId, headers, padding, endOfStream);
+		}
+
+		@Override
+		public int onDataRead(ChannelHandlerContext ctx,
+				int streamId,
+				ByteBuf data,
+				int padding,
+				boolean endOfStream) throws Http2Exception {
+			ServerStream channel = channel(streamId);
+			int length = data.readableBytes();
+			if (channel == null || !channel.receive(data.retain())) {
+				// nobody reads this body, acknowledge it right away
+				return length + padding;
+			}
+			if (endOfStream) {
+				channel.bodyComplete();
+			}
+			// the data is acknowledged once its subscriber consumes it
+			return padding;
+		}
+
+		@Override
+		public void onRstStreamRead(ChannelHandlerContext ctx, int streamId, long errorCode) {
+			ServerStream channel = channel(streamId);
+			if (channel != null) {
+				channel.closed();
+			}
+		}
+	}
+
+	/**
+	 * A request and its response on an HTTP/2 stream, only updated from the event loop.
+	 */
+	final class ServerStream extends Http2StreamChannel implements NettyHttpServerChannel {
+
+		final Cookies cookies;
+
+		ServerStream(Http2Stream stream, HttpRequest request) {
+			super(NettyHttp2ServerHandler.this.tcpStream,
+					request,
+					NettyHttp2ServerHandler.this,
+					NettyHttp2ServerHandler.this.context);
+			this.stream = stream;
+			this.compression = NettyHttp2ServerHandler.this.compression;
+			this.cookies = Cookies.newServerRequestHolder(headers());
+		}
+
+		/**
+		 * Run the request handler, ending the stream once its publisher terminates.
+		 */
+		void start() {
+			Publisher<Void> closePublisher;
+			try {
+				closePublisher = handler.apply(this);
+			}
+			catch (Throwable t) {
+				Exceptions.throwIfFatal(t);
+				log.error("Error processing stream " + stream.id(), t);
+				end(t);
+				return;
+			}
+			closePublisher.subscribe(new BaseSubscriber<Void>() {
+				@Override
+				public void onSubscribe(Subscription s) {
+					s.request(Long.MAX_VALUE);
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					log.error("Error processing stream " + stream.id() + ". Resetting the stream.", t);
+					execute(() -> end(t));
+				}
+
+				@Override
+				public void onComplete() {
+					execute(() -> end(null));
+				}
+			});
+		}
+
+		@Override
+		protected Http2Headers outboundHeaders() {
+			return HttpConversionUtil.toHttp2Headers(getNettyResponse(), true);
+		}
+
+		@Override
+		public Map<CharSequence, Set<Cookie>> cookies() {
+			return cookies.getCachedCookies();
+		}
+
+		/**
+		 * End the response once the handler terminated, and the stream if the rest of the
+		 * request body is not needed anymore.
+		 */
+		void end(Throwable error) {
+			if (ended) {
+				return;
+			}
+			ended = true;
+			if (body == null && !bodyCancelled) {
+				cancelBody();
+			}
+			if (closed) {
+				return;
+			}
+			if (error != null) {
+				if (markHeadersAsFlushed()) {
+					Http2Headers headers = new DefaultHttp2Headers().status(HttpResponseStatus.INTERNAL_SERVER_ERROR.codeAsText());
+					encoder().writeHeaders(context, stream.id(), headers, 0, true, context.newPromise());
+					context.flush();
+				}
+				else {
+					reset(Http2Error.INTERNAL_ERROR);
+					return;
+				}
+			}
+			else {
+				writeEnd();
+			}
+			if (!bodyComplete) {
+				// answered before the request body has been sent, ask the client to stop
+				reset(Http2Error.NO_ERROR);
+			}
+		}
+	}
+
+	static final Logger log = Logger.getLogger(NettyHttp2ServerHandler.class);
+}
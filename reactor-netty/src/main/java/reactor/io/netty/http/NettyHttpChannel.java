@@ -17,14 +17,22 @@
 package reactor.io.netty.http;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -58,6 +66,7 @@ import reactor.core.publisher.Mono;
 import reactor.core.state.Completable;
 import reactor.core.util.EmptySubscription;
 import reactor.io.netty.common.MonoChannelFuture;
+import reactor.io.netty.config.CompressionOptions;
 import reactor.io.netty.tcp.TcpChannel;
 
 /**
@@ -70,6 +79,11 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 
 	final static AsciiString EVENT_STREAM = new AsciiString("text/event-stream");
 
+	/**
+	 * Size of the buffers a file is read in when it cannot be written as a region
+	 */
+	static final int FILE_CHUNK_SIZE = 16 * 1024;
+
 	final TcpChannel  tcpStream;
 	final HttpRequest nettyRequest;
 	final HttpHeaders headers;
@@ -77,6 +91,9 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 	HttpHeaders  responseHeaders;
 	volatile int statusAndHeadersSent = 0;
 	Function<? super String, Map<String, Object>> paramsResolver;
+	CompressionOptions compression;
+	HttpCompressor     compressor;
+	HttpResponseCache.Recording recording;
 
 	public NettyHttpChannel(TcpChannel tcpStream,
 	                        HttpRequest request
@@ -278,6 +295,12 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 		return this;
 	}
 
+	@Override
+	public HttpChannel compression(CompressionOptions options) {
+		this.compression = options;
+		return this;
+	}
+
 	@Override
 	public HttpVersion version() {
 		HttpVersion version = this.nettyRequest.protocolVersion();
@@ -389,6 +412,11 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 
 	@Override
 	public Mono<Void> sendFile(File file, long position, long count) {
+		if ((compression != null || recording != null) && statusAndHeadersSent == 0) {
+			// a file region is written as is, read the file to compress or record it
+			ByteBufAllocator alloc = delegate().alloc();
+			return send(Flux.fromIterable(() -> new FileChunks(file, position, count, alloc)));
+		}
 		Supplier<Mono<Void>> writeFile = () ->
 				MonoChannelFuture.from(tcpStream.delegate()
 				                                .writeAndFlush(new DefaultFileRegion(file, position, count)));
@@ -435,6 +463,16 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 
 	protected abstract void doSubscribeHeaders(Subscriber<? super Void> s);
 
+	/**
+	 * Write an encoded body and signal completion to the given subscriber once written.
+	 *
+	 * @param source the encoded body
+	 * @param s the subscriber to complete once the body has been written
+	 */
+	protected void doEmitWriter(Publisher<?> source, Subscriber<? super Void> s) {
+		tcpStream.emitWriter(source, s);
+	}
+
 	final boolean markHeadersAsFlushed() {
 		return HEADERS_SENT.compareAndSet(this, 0, 1);
 	}
@@ -447,6 +485,154 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 		return nettyResponse;
 	}
 
+	/**
+	 * Attach the subscriber of the response to this client request.
+	 *
+	 * @param subscriber the response subscriber
+	 */
+	void subscribeReply(Subscriber<? super HttpInbound> subscriber) {
+		delegate().pipeline()
+		          .fireUserEventTriggered(new NettyHttpClientHandler.ChannelInputSubscriberEvent(subscriber));
+	}
+
+	/**
+	 * Record then adjust the headers about to be sent, called once.
+	 */
+	final void prepareHeaders() {
+		HttpResponseCache.Recording recording = this.recording;
+		if (recording != null) {
+			recording.headers(nettyResponse.status(), responseHeaders);
+		}
+		negotiateCompression();
+	}
+
+	/**
+	 * @param source a body publisher
+	 * @return the body, copied as it is written if the response is recorded
+	 */
+	final Publisher<?> record(Publisher<?> source) {
+		HttpResponseCache.Recording recording = this.recording;
+		if (recording == null) {
+			return source;
+		}
+		return Flux.from(source)
+		           .map(o -> {
+			           recording.body(o);
+			           return o;
+		           });
+	}
+
+	/**
+	 * Select the encoding of the response body about to be written and adjust its
+	 * headers, called once before they are sent.
+	 */
+	void negotiateCompression() {
+		CompressionOptions options = compression;
+		if (options == null || compressor != null) {
+			return;
+		}
+		int code = nettyResponse.status()
+		                        .code();
+		if (responseHeaders.contains(HttpHeaderNames.CONTENT_ENCODING) ||
+				HttpMethod.HEAD.equals(method()) ||
+				code < 200 || code == 204 || code == 304) {
+			return;
+		}
+		long length = HttpUtil.getContentLength(nettyResponse, -1L);
+		if (length != -1L && length < options.minResponseSize()) {
+			return;
+		}
+		if (!options.isCompressible(responseHeaders.get(HttpHeaderNames.CONTENT_TYPE))) {
+			return;
+		}
+		// caches must not serve this response to clients accepting other encodings
+		responseHeaders.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+		String encoding = HttpCompressor.negotiate(headers.get(HttpHeaderNames.ACCEPT_ENCODING), options);
+		if (encoding == null) {
+			return;
+		}
+		responseHeaders.set(HttpHeaderNames.CONTENT_ENCODING, encoding)
+		               .remove(HttpHeaderNames.CONTENT_LENGTH);
+		HttpUtil.setTransferEncodingChunked(nettyResponse, true);
+		compressor = HttpCompressor.create(encoding, options.level());
+	}
+
+	/**
+	 * Select the encoding of the request body about to be written and adjust its
+	 * headers, for channels sending requests.
+	 */
+	final void negotiateRequestCompression() {
+		CompressionOptions options = compression;
+		if (options == null || compressor != null) {
+			return;
+		}
+		HttpMethod method = method();
+		if (headers.contains(HttpHeaderNames.CONTENT_ENCODING) ||
+				HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) {
+			return;
+		}
+		long length = HttpUtil.getContentLength(nettyRequest, -1L);
+		if (length != -1L && length < options.minRequestSize()) {
+			return;
+		}
+		String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+		if (contentType != null && !options.isCompressible(contentType)) {
+			return;
+		}
+		String encoding = HttpCompressor.preferred(options);
+		if (encoding == null) {
+			return;
+		}
+		headers.set(HttpHeaderNames.CONTENT_ENCODING, encoding)
+		       .remove(HttpHeaderNames.CONTENT_LENGTH);
+		HttpUtil.setTransferEncodingChunked(nettyRequest, true);
+		compressor = HttpCompressor.create(encoding, options.level());
+	}
+
+	/**
+	 * @param source a body publisher
+	 * @return the body as compressed by the negotiated encoding, if any
+	 */
+	final Publisher<?> compress(Publisher<?> source) {
+		HttpCompressor compressor = this.compressor;
+		if (compressor == null) {
+			return source;
+		}
+		return Flux.from(source)
+		           .map(o -> o instanceof ByteBuf ? compressor.encode((ByteBuf) o) : o)
+		           .filter(o -> {
+			           if (o instanceof ByteBuf && !((ByteBuf) o).isReadable()) {
+				           // buffered by the encoder, nothing to write yet
+				           ((ByteBuf) o).release();
+				           return false;
+			           }
+			           return true;
+		           });
+	}
+
+	/**
+	 * @return the trailing bytes of the compressed body, or null if not compressed
+	 */
+	final ByteBuf finishCompression() {
+		HttpCompressor compressor = this.compressor;
+		if (compressor == null) {
+			return null;
+		}
+		this.compressor = null;
+		return compressor.finish();
+	}
+
+	/**
+	 * Release the compression of a response that will not be completed.
+	 */
+	final void releaseCompression() {
+		HttpCompressor compressor = this.compressor;
+		if (compressor != null) {
+			this.compressor = null;
+			compressor.release();
+		}
+	}
+
 	void setNettyResponse(HttpResponse nettyResponse) {
 		this.nettyResponse = nettyResponse;
 		this.responseHeaders = nettyResponse.headers();
@@ -477,10 +663,11 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 		@Override
 		public void subscribe(final Subscriber<? super Void> s) {
 			if(markHeadersAsFlushed()){
+				prepareHeaders();
 				doSubscribeHeaders(new HttpOutboundSubscriber(s));
 			}
 			else{
-				tcpStream.emitWriter(source, s);
+				doEmitWriter(compress(record(source)), s);
 			}
 		}
 
@@ -506,7 +693,7 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 			@Override
 			public void onComplete() {
 				this.subscription = null;
-				tcpStream.emitWriter(source, s);
+				doEmitWriter(compress(record(source)), s);
 			}
 
 			@Override
@@ -548,6 +735,7 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 		@Override
 		public void subscribe(Subscriber<? super Void> s) {
 			if (markHeadersAsFlushed()) {
+				prepareHeaders();
 				doSubscribeHeaders(s);
 			}
 			else {
@@ -555,4 +743,49 @@ abstract class NettyHttpChannel extends Flux<Object> implements HttpChannel, Htt
 			}
 		}
 	}
+
+	/**
+	 * Read a region of a file in {@link #FILE_CHUNK_SIZE} buffers, each read opening the
+	 * file so that an abandoned iteration leaves no file open.
+	 */
+	static final class FileChunks implements Iterator<ByteBuf> {
+
+		final File             file;
+		final ByteBufAllocator alloc;
+		final long             end;
+		long position;
+
+		FileChunks(File file, long position, long count, ByteBufAllocator alloc) {
+			this.file = file;
+			this.alloc = alloc;
+			this.position = position;
+			this.end = position + count;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < end;
+		}
+
+		@Override
+		public ByteBuf next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int length = (int) Math.min(FILE_CHUNK_SIZE, end - position);
+			ByteBuf chunk = alloc.buffer(length);
+			try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				int read = chunk.writeBytes(fc, position, length);
+				if (read < 0) {
+					throw new IOException("Unexpected end of " + file);
+				}
+				position += read;
+				return chunk;
+			}
+			catch (IOException e) {
+				chunk.release();
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
 }
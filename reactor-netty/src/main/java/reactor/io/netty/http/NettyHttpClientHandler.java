@@ -21,6 +21,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
@@ -32,6 +33,8 @@ import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import reactor.core.publisher.Flux;
@@ -51,29 +54,59 @@ import reactor.io.netty.tcp.TcpChannel;
  */
 class NettyHttpClientHandler extends NettyChannelHandler {
 
-	final TcpChannel tcpStream;
+	final TcpChannel     tcpStream;
+	final HttpClientPool pool;
 
 	NettyHttpChannel                httpChannel;
 	Subscriber<? super HttpInbound> replySubscriber;
 
+	// exchange state, only accessed from the event loop
+	ChannelHandlerContext context;
+	ScheduledFuture<?>    idleTimeout;
+	boolean               autoRead;
+	boolean               requestComplete;
+	boolean               responseComplete;
+	boolean               discarding;
+	volatile boolean      lastContentWritten;
+
 	public NettyHttpClientHandler(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
 			TcpChannel tcpStream) {
+		this(handler, tcpStream, null);
+	}
+
+	NettyHttpClientHandler(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
+			TcpChannel tcpStream,
+			HttpClientPool pool) {
 		super(handler, tcpStream);
 		this.tcpStream = tcpStream;
+		this.pool = pool;
 	}
 
 	@Override
 	public void channelActive(final ChannelHandlerContext ctx) throws Exception {
+		context = ctx;
+		autoRead = ctx.channel()
+		              .config()
+		              .isAutoRead();
 		ctx.fireChannelActive();
+		start(ctx, handler);
+	}
 
-		if(httpChannel == null) {
-			httpChannel = new HttpClientChannel(tcpStream);
-			httpChannel.keepAlive(true);
-			HttpUtil.setTransferEncodingChunked(httpChannel.nettyRequest, true);
-		}
-
-
-		handler.apply(httpChannel)
+	/**
+	 * Run a request handler, once per exchange on a pooled connection.
+	 */
+	final void start(final ChannelHandlerContext ctx,
+			ChannelHandler<ByteBuf, ByteBuf, NettyChannel> requestHandler) {
+		httpChannel = new HttpClientChannel(tcpStream);
+		httpChannel.keepAlive(true);
+		HttpUtil.setTransferEncodingChunked(httpChannel.nettyRequest, true);
+		replySubscriber = null;
+		requestComplete = false;
+		responseComplete = false;
+		discarding = false;
+		lastContentWritten = false;
+
+		requestHandler.apply(httpChannel)
 		       .subscribe(new BaseSubscriber<Void>() {
 			       @Override
 			       public void onSubscribe(final Subscription s) {
@@ -97,6 +130,21 @@ class NettyHttpClientHandler extends NettyChannelHandler {
 					          .close();
 				       }
 			       }
+
+			       @Override
+			       public void onComplete() {
+				       if (pool == null) {
+					       return;
+				       }
+				       if (ctx.executor()
+				              .inEventLoop()) {
+					       requestComplete(ctx);
+				       }
+				       else {
+					       ctx.executor()
+					          .execute(() -> requestComplete(ctx));
+				       }
+			       }
 		       });
 	}
 
@@ -105,12 +153,30 @@ class NettyHttpClientHandler extends NettyChannelHandler {
 			ChannelFuture last,
 			ChannelPromise promise,
 			Throwable exception) {
-		ctx.channel().write(LastHttpContent.EMPTY_LAST_CONTENT);
+		if (!lastContentWritten) {
+			lastContentWritten = true;
+			writeCompressionEnd(ctx, exception);
+			ctx.channel().write(LastHttpContent.EMPTY_LAST_CONTENT);
+		}
 		super.doOnTerminate(ctx, last, promise, exception);
 	}
 
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		super.channelReadComplete(ctx);
+		if (discarding) {
+			ctx.read();
+		}
+	}
+
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (httpChannel == null) {
+			// an idle pooled connection cannot be reused after unsolicited data
+			ReferenceCountUtil.release(msg);
+			ctx.channel().close();
+			return;
+		}
 		Class<?> messageClass = msg.getClass();
 		if (HttpResponse.class.isAssignableFrom(messageClass)) {
 
@@ -139,6 +205,11 @@ class NettyHttpClientHandler extends NettyChannelHandler {
 				}
 				postRead(ctx, msg);
 			}
+			else {
+				// read the body nobody subscribes to up to the end of the response
+				discarding = true;
+				ctx.read();
+			}
 			return;
 		}
 		if(LastHttpContent.EMPTY_LAST_CONTENT != msg){
@@ -179,9 +250,118 @@ class NettyHttpClientHandler extends NettyChannelHandler {
 	}
 
 	protected void postRead(ChannelHandlerContext ctx, Object msg){
-		if (msg instanceof LastHttpContent) {
+		if (!(msg instanceof LastHttpContent)) {
+			return;
+		}
+		if (pool == null || !HttpUtil.isKeepAlive(httpChannel.getNettyResponse()) ||
+				!httpChannel.isKeepAlive()) {
 			ctx.channel().close();
+			return;
+		}
+		if (channelSubscriber != null) {
+			channelSubscriber.onComplete();
+			channelSubscriber = null;
+		}
+		discarding = false;
+		responseComplete = true;
+		if (requestComplete) {
+			release(ctx);
+		}
+	}
+
+	final void requestComplete(ChannelHandlerContext ctx) {
+		if (httpChannel == null || !ctx.channel()
+		                               .isActive()) {
+			return;
 		}
+		requestComplete = true;
+		if (!lastContentWritten) {
+			// a request without body leaves the encoder waiting for its end
+			lastContentWritten = true;
+			writeCompressionEnd(ctx, null);
+			ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+		}
+		if (responseComplete) {
+			release(ctx);
+		}
+	}
+
+	/**
+	 * Write the trailing bytes of a compressed request body, or release its compression
+	 * if the body failed.
+	 */
+	final void writeCompressionEnd(ChannelHandlerContext ctx, Throwable exception) {
+		NettyHttpChannel httpChannel = this.httpChannel;
+		if (httpChannel == null) {
+			return;
+		}
+		if (exception != null) {
+			httpChannel.releaseCompression();
+			return;
+		}
+		ByteBuf tail = httpChannel.finishCompression();
+		if (tail != null) {
+			ctx.write(tail);
+		}
+	}
+
+	final void release(ChannelHandlerContext ctx) {
+		httpChannel = null;
+		replySubscriber = null;
+		ctx.channel()
+		   .config()
+		   .setAutoRead(autoRead);
+		pool.release(this);
+	}
+
+	/**
+	 * Wait for the next request, reading to notice a close from the server.
+	 */
+	final void idle(long timeout) {
+		if (timeout != 0L) {
+			idleTimeout = context.executor()
+			                     .schedule(() -> pool.evict(this), timeout, TimeUnit.MILLISECONDS);
+		}
+		context.read();
+	}
+
+	/**
+	 * Run the next request of the pool on this connection from its event loop, or give
+	 * it back to the pool if the connection has been closed meanwhile.
+	 */
+	final void lease(HttpClientPool.Acquire acquire) {
+		Runnable task = () -> {
+			ScheduledFuture<?> idleTimeout = this.idleTimeout;
+			if (idleTimeout != null) {
+				this.idleTimeout = null;
+				idleTimeout.cancel(false);
+			}
+			if (!isReusable()) {
+				pool.acquire(acquire);
+				return;
+			}
+			start(context, acquire.handler);
+			acquire.result.onComplete();
+		};
+		if (context.executor()
+		           .inEventLoop()) {
+			task.run();
+		}
+		else {
+			context.executor()
+			       .execute(task);
+		}
+	}
+
+	final boolean isReusable() {
+		ChannelHandlerContext ctx = context;
+		return ctx != null && !ctx.isRemoved() && ctx.channel()
+		                                             .isActive();
+	}
+
+	final void close() {
+		context.channel()
+		       .close();
 	}
 
 	@Override
@@ -240,6 +420,11 @@ class NettyHttpClientHandler extends NettyChannelHandler {
 			return delegate().pipeline().get(NettyWebSocketClientHandler.class) != null;
 		}
 
+		@Override
+		void negotiateCompression() {
+			negotiateRequestCompression();
+		}
+
 		@Override
 		protected void doSubscribeHeaders(Subscriber<? super Void> s) {
 			MonoChannelFuture.from(delegate().writeAndFlush(getNettyRequest()))
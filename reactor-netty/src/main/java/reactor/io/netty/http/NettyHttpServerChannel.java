@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.io.netty.common.JsonStreamCodec;
+import reactor.io.netty.common.NettyCodec;
+
+/**
+ * Server side of an {@link HttpChannel}, shared by the HTTP/1.1 and HTTP/2 server
+ * channels: the inbound content type is a request header and the outbound one a
+ * response header.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+interface NettyHttpServerChannel extends HttpChannel {
+
+	@Override
+	default <T> Flux<T> receiveJsonStream(Class<T> type) {
+		return receive(NettyCodec.jsonStream(headers().get(HttpHeaderNames.CONTENT_TYPE), type));
+	}
+
+	@Override
+	default Mono<Void> sendNdJson(Publisher<?> values) {
+		responseHeader(HttpHeaderNames.CONTENT_TYPE, JsonStreamCodec.APPLICATION_NDJSON);
+		return send(values, NettyCodec.ndjson(Object.class));
+	}
+
+	@Override
+	default Mono<Void> sendJsonSeq(Publisher<?> values) {
+		responseHeader(HttpHeaderNames.CONTENT_TYPE, JsonStreamCodec.APPLICATION_JSON_SEQ);
+		return send(values, NettyCodec.jsonSeq(Object.class));
+	}
+}
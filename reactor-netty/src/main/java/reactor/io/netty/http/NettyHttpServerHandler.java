@@ -17,97 +17,358 @@
 package reactor.io.netty.http;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import reactor.core.flow.Receiver;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.state.Completable;
 import reactor.core.subscriber.BaseSubscriber;
+import reactor.core.util.BackpressureUtils;
+import reactor.core.util.EmptySubscription;
 
 import reactor.io.ipc.ChannelHandler;
 import reactor.io.netty.common.MonoChannelFuture;
 import reactor.io.netty.common.NettyChannel;
 import reactor.io.netty.tcp.TcpChannel;
 import reactor.io.netty.common.NettyChannelHandler;
+import reactor.io.netty.config.ServerOptions;
 
 /**
  * Conversion between Netty types  and Reactor types ({@link NettyHttpChannel}.
+ * <p>
+ * Up to {@link ServerOptions#maxPipelinedRequests()} requests are read ahead of their
+ * responses and handled concurrently. Responses are written in request order: the
+ * response at the head of the queue is written directly while the bodies of the others
+ * are buffered up to {@link #MAX_BUFFERED_BYTES}, then paused until it is their turn.
  *
  * @author Stephane Maldini
  */
 class NettyHttpServerHandler extends NettyChannelHandler {
 
-	final TcpChannel tcpStream;
-	     NettyHttpChannel request;
+	/**
+	 * Maximum number of bytes of a pipelined response buffered before it can be written
+	 */
+	static final int MAX_BUFFERED_BYTES = 64 * 1024;
+
+	final TcpChannel    tcpStream;
+	final ServerOptions options;
+	final int           maxKeepAliveRequests;
+	final long          keepAliveTimeout;
+	final int           maxPipelinedRequests;
+
+	     HttpServerChannel request;
+
+	// connection state, only accessed from the event loop
+	final ArrayDeque<HttpServerChannel> responses = new ArrayDeque<>();
+	int                requests;
+	boolean            requestComplete = true;
+	boolean            closing;
+	boolean            draining;
+	boolean            autoRead;
+	ScheduledFuture<?> idleTimeout;
 
 	NettyHttpServerHandler(
 			ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler,
-			TcpChannel tcpStream) {
+			TcpChannel tcpStream,
+			ServerOptions options) {
 		super(handler, tcpStream);
 		this.tcpStream = tcpStream;
+		this.options = options;
+		this.maxKeepAliveRequests = options.maxKeepAliveRequests();
+		this.keepAliveTimeout = options.keepAliveTimeout();
+		this.maxPipelinedRequests = options.maxPipelinedRequests();
 	}
 
 	@Override
 	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		autoRead = ctx.channel()
+		              .config()
+		              .isAutoRead();
 		ctx.fireChannelActive();
+		scheduleIdleTimeout(ctx);
 		ctx.read();
 	}
 
 	@Override
-	public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
-		Class<?> messageClass = msg.getClass();
-		if (request == null && io.netty.handler.codec.http.HttpRequest.class.isAssignableFrom(messageClass)) {
-			request = new HttpServerChannel(msg);
-
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		cancelIdleTimeout();
+		closing = true;
+		discardResponses();
+		super.channelInactive(ctx);
+	}
 
-			if (request.isWebsocket()) {
-				HttpObjectAggregator agg = new HttpObjectAggregator(65536);
-				ctx.pipeline().addBefore(NettyHttpServerHandler.class.getSimpleName(),
-						HttpObjectAggregator.class.getSimpleName(),
-						agg);
+	@Override
+	public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+		if (msg instanceof HttpRequest) {
+			cancelIdleTimeout();
+			requestComplete = false;
+			if (closing || requests >= maxKeepAliveRequests) {
+				// read after the response closing the connection, ignore it
+				request = null;
 			}
+			else {
+				HttpServerChannel request = new HttpServerChannel(msg, ++requests);
+				this.request = request;
+				responses.add(request);
+				if (responses.size() == 1) {
+					request.head = true;
+				}
 
-			final Publisher<Void> closePublisher = handler.apply(request);
-			final Subscriber<Void> closeSub = new CloseSubscriber(ctx);
+				if (request.isWebsocket()) {
+					HttpObjectAggregator agg = new HttpObjectAggregator(65536);
+					ctx.pipeline().addBefore(NettyHttpServerHandler.class.getSimpleName(),
+							HttpObjectAggregator.class.getSimpleName(),
+							agg);
+				}
 
-			closePublisher.subscribe(closeSub);
+				final Publisher<Void> closePublisher = handler.apply(request);
+				final Subscriber<Void> closeSub = new CloseSubscriber(ctx, request);
 
+				closePublisher.subscribe(closeSub);
+			}
 		}
-		if (HttpContent.class.isAssignableFrom(messageClass)) {
-			doRead(ctx, msg);
+		if (msg instanceof HttpContent) {
+			if (request != null) {
+				doRead(ctx, msg);
+			}
+			else {
+				ReferenceCountUtil.release(msg);
+			}
 		}
 		postRead(ctx, msg);
 	}
 
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		super.channelReadComplete(ctx);
+		readNext(ctx);
+	}
+
 	protected void postRead(ChannelHandlerContext ctx, Object msg){
-		if (channelSubscriber != null && LastHttpContent.class.isAssignableFrom(msg.getClass())) {
+		if (!(msg instanceof LastHttpContent)) {
+			return;
+		}
+		if (channelSubscriber != null) {
+			channelSubscriber.onComplete();
+			channelSubscriber = null;
+		}
+		if (request != null) {
+			request.bodyComplete = true;
+		}
+		requestComplete = true;
+		// a body subscriber requesting unbounded demand switches to auto read
+		ctx.channel()
+		   .config()
+		   .setAutoRead(autoRead);
+		readNext(ctx);
+	}
+
+	/**
+	 * Record the end of a response and write every completed response at the head of the
+	 * queue.
+	 *
+	 * @param ctx the channel context
+	 * @param channel the completed request
+	 * @param error the handler error if any
+	 */
+	final void complete(ChannelHandlerContext ctx, HttpServerChannel channel, Throwable error) {
+		channel.completed = true;
+		channel.error = error;
+		if (channel == request && !requestComplete && channelSubscriber != null) {
+			// answered before its body has been read, the rest is discarded
 			channelSubscriber.onComplete();
 			channelSubscriber = null;
 		}
+		if (draining) {
+			// re-entered from a flush listener of the head, the outer loop writes it
+			return;
+		}
+		draining = true;
+		try {
+			HttpServerChannel head;
+			while ((head = responses.peek()) != null) {
+				if (!head.head) {
+					head.promote();
+				}
+				if (!head.completed) {
+					break;
+				}
+				responses.poll();
+				if (!writeLast(ctx, head)) {
+					closing = true;
+					discardResponses();
+					return;
+				}
+			}
+		}
+		finally {
+			draining = false;
+		}
+		readNext(ctx);
+	}
+
+	/**
+	 * Terminate the response at the head of the queue.
+	 *
+	 * @return true if the connection can serve the next response
+	 */
+	protected boolean writeLast(ChannelHandlerContext ctx, HttpServerChannel channel){
+		if (channel.error != null) {
+			channel.discard();
+			if (channel.markHeadersAsFlushed()) {
+				ctx.writeAndFlush(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR))
+				   .addListener(ChannelFutureListener.CLOSE);
+			}
+			else {
+				// the response is incomplete, the connection cannot be reused
+				ctx.close();
+			}
+			return false;
+		}
+		if(channel.markHeadersAsFlushed()){
+			ctx.write(prepareResponse(channel));
+		}
+		ByteBuf tail = channel.finishCompression();
+		if (tail != null) {
+			ctx.write(tail);
+		}
+		ChannelFuture last = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+		if (!channel.persistent) {
+			last.addListener(ChannelFutureListener.CLOSE);
+			return false;
+		}
+		last.addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+		return true;
 	}
-	protected void writeLast(ChannelHandlerContext ctx){
-		if(request.markHeadersAsFlushed()){
-			ctx.writeAndFlush(request.getNettyResponse());
+
+	/**
+	 * Decide if the connection is kept open after the given response and set its
+	 * {@code Connection} header accordingly.
+	 *
+	 * @param channel the request at the head of the queue
+	 * @return the response to write
+	 */
+	final HttpResponse prepareResponse(HttpServerChannel channel) {
+		HttpResponse response = channel.getNettyResponse();
+		channel.persistent = channel.sequence < maxKeepAliveRequests &&
+				channel.isKeepAlive() &&
+				!response.headers()
+				         .contains(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE, true) &&
+				isDelimited(response);
+		if (!channel.persistent) {
+			// no request is read after this response
+			closing = true;
+		}
+		HttpUtil.setKeepAlive(response, channel.persistent);
+		return response;
+	}
+
+	/**
+	 * Read the next request while fewer than {@link #maxPipelinedRequests} are in flight,
+	 * or the rest of a body nobody reads anymore.
+	 */
+	final void readNext(ChannelHandlerContext ctx) {
+		if (closing) {
+			return;
+		}
+		if (!requestComplete) {
+			if (channelSubscriber == null && request != null && request.completed) {
+				ctx.read();
+			}
+			return;
+		}
+		if (responses.size() < maxPipelinedRequests && requests < maxKeepAliveRequests) {
+			if (responses.isEmpty() && idleTimeout == null) {
+				scheduleIdleTimeout(ctx);
+			}
+			ctx.read();
+		}
+	}
+
+	final void discardResponses() {
+		HttpServerChannel channel;
+		while ((channel = responses.poll()) != null) {
+			channel.discard();
+		}
+	}
+
+	final void scheduleIdleTimeout(final ChannelHandlerContext ctx) {
+		if (keepAliveTimeout == 0L) {
+			return;
+		}
+		idleTimeout = ctx.executor()
+		                 .schedule(() -> {
+			                 idleTimeout = null;
+			                 if (responses.isEmpty() && requestComplete) {
+				                 if (log.isDebugEnabled()) {
+					                 log.debug("Closing idle connection {}", ctx.channel());
+				                 }
+				                 ctx.close();
+			                 }
+		                 }, keepAliveTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	final void cancelIdleTimeout() {
+		ScheduledFuture<?> idleTimeout = this.idleTimeout;
+		if (idleTimeout != null) {
+			this.idleTimeout = null;
+			idleTimeout.cancel(false);
+		}
+	}
+
+	/**
+	 * @return true if the end of the response body can be found without closing the
+	 * connection
+	 */
+	static boolean isDelimited(HttpResponse response) {
+		int code = response.status()
+		                   .code();
+		if (code == 204 || code == 304 || code / 100 == 1) {
+			return true;
+		}
+		if (HttpUtil.isContentLengthSet(response)) {
+			return true;
+		}
+		return HttpUtil.isTransferEncodingChunked(response) && response.protocolVersion()
+		                                                                .equals(HttpVersion.HTTP_1_1);
+	}
+
+	static void execute(Channel channel, Runnable task) {
+		if (channel.eventLoop()
+		           .inEventLoop()) {
+			task.run();
+		}
+		else {
+			channel.eventLoop()
+			       .execute(task);
 		}
-		ctx
-		  .writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT)
-		  .addListener(ChannelFutureListener.CLOSE);
 	}
 
 	@Override
@@ -130,19 +391,124 @@ class NettyHttpServerHandler extends NettyChannelHandler {
 		return request != null ? request.getName() : "HTTP Client Connection";
 	}
 
-	final class HttpServerChannel extends NettyHttpChannel {
+	final class HttpServerChannel extends NettyHttpChannel implements NettyHttpServerChannel {
 
 		private final Cookies cookies;
 
-		HttpServerChannel(Object msg) {
+		/**
+		 * Position of this request on the connection, starting at 1
+		 */
+		final int sequence;
+
+		volatile boolean bodyComplete;
+
+		// response state, only accessed from the event loop
+		ArrayDeque<Runnable> pending;
+		boolean              head;
+		boolean              completed;
+		boolean              persistent;
+		boolean              discarded;
+		Throwable            error;
+
+		HttpServerChannel(Object msg, int sequence) {
 			super(NettyHttpServerHandler.this.tcpStream, (io.netty.handler.codec.http.HttpRequest) msg);
+			this.sequence = sequence;
 			this.cookies = Cookies.newServerRequestHolder(headers());
+			this.compression = options.compression();
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super Object> subscriber) {
+			if (bodyComplete) {
+				// the body has been read before this subscriber came
+				Flux.<Object>empty().subscribe(subscriber);
+				return;
+			}
+			super.subscribe(subscriber);
 		}
 
 		@Override
 		protected void doSubscribeHeaders(Subscriber<? super Void> s) {
-			MonoChannelFuture.from(delegate().writeAndFlush(getNettyResponse()))
-			                 .subscribe(s);
+			execute(delegate(), () -> {
+				if (discarded) {
+					EmptySubscription.error(s, new IllegalStateException("Connection closed"));
+				}
+				else if (head) {
+					MonoChannelFuture.from(delegate().writeAndFlush(prepareResponse(this)))
+					                 .subscribe(s);
+				}
+				else {
+					pending().add(() -> delegate().write(prepareResponse(this)));
+					s.onSubscribe(EmptySubscription.INSTANCE);
+					s.onComplete();
+				}
+			});
+		}
+
+		@Override
+		protected void doEmitWriter(Publisher<?> source, Subscriber<? super Void> s) {
+			execute(delegate(), () -> {
+				if (discarded) {
+					EmptySubscription.error(s, new IllegalStateException("Connection closed"));
+				}
+				else if (head) {
+					tcpStream.emitWriter(source, s);
+				}
+				else {
+					PipelinedWrite write = new PipelinedWrite(delegate(), s);
+					pending().add(write);
+					source.subscribe(write);
+				}
+			});
+		}
+
+		ArrayDeque<Runnable> pending() {
+			ArrayDeque<Runnable> pending = this.pending;
+			if (pending == null) {
+				pending = new ArrayDeque<>();
+				this.pending = pending;
+			}
+			return pending;
+		}
+
+		/**
+		 * Write what has been queued since this response now follows the previous ones.
+		 */
+		void promote() {
+			head = true;
+			ArrayDeque<Runnable> pending = this.pending;
+			this.pending = null;
+			if (pending == null) {
+				return;
+			}
+			if (error != null) {
+				this.pending = pending;
+				return;
+			}
+			Runnable r;
+			while ((r = pending.poll()) != null) {
+				r.run();
+			}
+			delegate().flush();
+		}
+
+		/**
+		 * Release what has been queued since this response will never be written.
+		 */
+		void discard() {
+			discarded = true;
+			releaseCompression();
+			ArrayDeque<Runnable> pending = this.pending;
+			this.pending = null;
+			if (pending == null) {
+				return;
+			}
+			Runnable r;
+			while ((r = pending.poll()) != null) {
+				if (r instanceof PipelinedWrite) {
+					((PipelinedWrite) r).cancel();
+				}
+			}
 		}
 
 		@Override
@@ -165,13 +531,163 @@ class NettyHttpServerHandler extends NettyChannelHandler {
 		}
 	}
 
+	/**
+	 * The body of a response waiting for the responses before it. It is buffered up to
+	 * {@link #MAX_BUFFERED_BYTES} then its source is paused, once promoted the buffered
+	 * messages are written and the rest of the source is written as it comes.
+	 */
+	static final class PipelinedWrite implements Subscriber<Object>, Runnable {
+
+		final Channel                  channel;
+		final Subscriber<? super Void> s;
+
+		// only accessed from the event loop
+		final ArrayDeque<Object> buffered = new ArrayDeque<>();
+		Subscription  subscription;
+		ChannelFuture lastWrite;
+		int           bufferedBytes;
+		boolean       direct;
+		boolean       done;
+		boolean       terminated;
+		Throwable     error;
+
+		PipelinedWrite(Channel channel, Subscriber<? super Void> s) {
+			this.channel = channel;
+			this.s = s;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			execute(channel, () -> {
+				if (BackpressureUtils.validate(subscription, s)) {
+					subscription = s;
+					if (terminated) {
+						s.cancel();
+					}
+					else {
+						s.request(direct ? Long.MAX_VALUE : 1L);
+					}
+				}
+			});
+		}
+
+		@Override
+		public void onNext(Object o) {
+			execute(channel, () -> next(o));
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			execute(channel, () -> {
+				if (done) {
+					return;
+				}
+				done = true;
+				error = t;
+				if (direct) {
+					finish();
+				}
+			});
+		}
+
+		@Override
+		public void onComplete() {
+			execute(channel, () -> {
+				if (done) {
+					return;
+				}
+				done = true;
+				if (direct) {
+					finish();
+				}
+			});
+		}
+
+		void next(Object o) {
+			if (done || terminated) {
+				ReferenceCountUtil.release(o);
+				return;
+			}
+			if (direct) {
+				lastWrite = channel.writeAndFlush(o);
+				return;
+			}
+			buffered.add(o);
+			if (o instanceof ByteBuf) {
+				bufferedBytes += ((ByteBuf) o).readableBytes();
+			}
+			if (bufferedBytes < MAX_BUFFERED_BYTES) {
+				subscription.request(1L);
+			}
+		}
+
+		/**
+		 * Write the buffered messages and the rest of the source directly.
+		 */
+		@Override
+		public void run() {
+			if (terminated) {
+				return;
+			}
+			direct = true;
+			Object o;
+			while ((o = buffered.poll()) != null) {
+				lastWrite = channel.write(o);
+			}
+			bufferedBytes = 0;
+			if (done) {
+				finish();
+			}
+			else if (subscription != null) {
+				subscription.request(Long.MAX_VALUE);
+			}
+		}
+
+		void finish() {
+			terminated = true;
+			channel.flush();
+			Throwable e = error;
+			if (e != null) {
+				EmptySubscription.error(s, e);
+				return;
+			}
+			ChannelFuture last = lastWrite != null ? lastWrite : channel.newSucceededFuture();
+			last.addListener(future -> {
+				s.onSubscribe(EmptySubscription.INSTANCE);
+				if (future.isSuccess()) {
+					s.onComplete();
+				}
+				else {
+					s.onError(future.cause());
+				}
+			});
+		}
+
+		void cancel() {
+			if (terminated) {
+				return;
+			}
+			terminated = true;
+			Object o;
+			while ((o = buffered.poll()) != null) {
+				ReferenceCountUtil.release(o);
+			}
+			if (subscription != null) {
+				subscription.cancel();
+			}
+			EmptySubscription.error(s, new IllegalStateException("Connection closed"));
+		}
+	}
+
 	final class CloseSubscriber implements BaseSubscriber<Void>, Receiver, Completable {
 
 		private final ChannelHandlerContext ctx;
+		private final HttpServerChannel     request;
 		Subscription subscription;
 
-		public CloseSubscriber(ChannelHandlerContext ctx) {
+		public CloseSubscriber(ChannelHandlerContext ctx, HttpServerChannel request) {
 			this.ctx = ctx;
+			this.request = request;
 		}
 
 		@Override
@@ -190,11 +706,8 @@ class NettyHttpServerHandler extends NettyChannelHandler {
 				return;
 			}
 			log.error("Error processing connection. Closing the channel.", t);
-			if (request.markHeadersAsFlushed()) {
-				request.delegate()
-				       .writeAndFlush(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR))
-						.addListener(ChannelFutureListener.CLOSE);
-			}
+			// connection state is only updated from the event loop
+			execute(ctx.channel(), () -> complete(ctx, request, t));
 		}
 
 		@Override
@@ -218,18 +731,8 @@ class NettyHttpServerHandler extends NettyChannelHandler {
 				if (log.isDebugEnabled()) {
 					log.debug("Close Http Response ");
 				}
-				writeLast(ctx);
-				//ctx.channel().close();
-				/*
-				ctx.channel().writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(new ChannelFutureListener() {
-					@Override
-					public void operationComplete(ChannelFuture future) throws Exception {
-						if(ctx.channel().isOpen()){
-							ctx.channel().close();
-						}
-					}
-				});
-				 */
+				// connection state is only updated from the event loop
+				execute(ctx.channel(), () -> complete(ctx, request, null));
 			}
 		}
 	}
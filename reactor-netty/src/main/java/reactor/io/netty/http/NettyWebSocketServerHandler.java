@@ -49,7 +49,7 @@ final class NettyWebSocketServerHandler extends NettyHttpServerHandler {
 			NettyHttpServerHandler originalHandler,
 			boolean plainText
 	) {
-		super(originalHandler.getHandler(), originalHandler.tcpStream);
+		super(originalHandler.getHandler(), originalHandler.tcpStream, originalHandler.options);
 		this.request = originalHandler.request;
 		this.plainText = plainText;
 
@@ -88,11 +88,13 @@ final class NettyWebSocketServerHandler extends NettyHttpServerHandler {
 		doRead(ctx, frame);
 	}
 
-	protected void writeLast(ChannelHandlerContext ctx){
+	@Override
+	protected boolean writeLast(ChannelHandlerContext ctx, HttpServerChannel channel){
 		ChannelFuture f = ctx.channel().writeAndFlush(new CloseWebSocketFrame());
 	if (!request.isKeepAlive() || request.status() != HttpResponseStatus.OK) {
 			f.addListener(ChannelFutureListener.CLOSE);
 		}
+		return false;
 	}
 
 	@Override
@@ -74,10 +74,17 @@ final class RegistryHttpMappings extends HttpMappings {
 			implements Selector<HttpChannel> {
 
 		final UriPathSelector uriPathSelector;
+		final String          template;
 
 		public HttpSelector(String uri, HttpVersion protocol, HttpMethod method) {
 			super(null, protocol, method);
 			this.uriPathSelector = uri != null && !uri.isEmpty() ? new UriPathSelector(uri) : null;
+			this.template = uriPathSelector != null ? uri : null;
+		}
+
+		@Override
+		String template() {
+			return template;
 		}
 
 
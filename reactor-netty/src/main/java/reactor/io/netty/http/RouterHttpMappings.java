@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import reactor.io.ipc.ChannelHandler;
+
+/**
+ * {@link HttpMappings} compiled into a radix tree of the route paths per method, so that
+ * selecting the handlers of a request costs a walk of its path whatever the number of
+ * routes.
+ * <p>
+ * Routes registered with {@link HttpMappings#http}, {@link HttpMappings#get} and the
+ * other method aliases are templates made of literal characters and of whole segment
+ * variables: {@code {name}} captures a segment into {@link HttpChannel#params()} and
+ * {@code *} matches a segment without capturing it. A trailing {@code **}, as used by
+ * {@link HttpMappings#prefix}, matches any continuation. The query string of a request
+ * is ignored. Any other {@link Predicate} is tested against each request, after the tree
+ * walk, and all the handlers matching a request are selected in registration order.
+ * <p>
+ * The tree is rebuilt on the first request following a registration.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+final class RouterHttpMappings extends HttpMappings {
+
+	final List<Route> routes = new ArrayList<>();
+
+	volatile Tree tree;
+
+	@Override
+	public synchronized HttpMappings add(Predicate<? super HttpChannel> condition,
+			ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler) {
+		Route route;
+		if (condition instanceof HttpPredicate && ((HttpPredicate) condition).template() != null) {
+			HttpPredicate predicate = (HttpPredicate) condition;
+			route = new Route(routes.size(),
+					condition,
+					handler,
+					predicate.template(),
+					predicate.method,
+					predicate.protocol);
+		}
+		else if (condition instanceof HttpPrefixPredicate) {
+			HttpPrefixPredicate predicate = (HttpPrefixPredicate) condition;
+			route = new Route(routes.size(), condition, handler, predicate.prefix + "**", predicate.method, null);
+		}
+		else {
+			route = new Route(routes.size(), condition, handler, null, null, null);
+		}
+		routes.add(route);
+		tree = null;
+		return this;
+	}
+
+	@Override
+	public Iterable<? extends ChannelHandler<ByteBuf, ByteBuf, HttpChannel>> apply(HttpChannel channel) {
+		Tree tree = this.tree;
+		if (tree == null) {
+			tree = compile();
+		}
+		return tree.select(channel);
+	}
+
+	synchronized Tree compile() {
+		Tree tree = this.tree;
+		if (tree == null) {
+			tree = new Tree(routes);
+			this.tree = tree;
+		}
+		return tree;
+	}
+
+	/**
+	 * A registered handler with its parsed path template, if any.
+	 */
+	static final class Route {
+
+		final int                                           index;
+		final Predicate<? super HttpChannel>                condition;
+		final ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler;
+		final HttpMethod                                    method;
+		final HttpVersion                                   protocol;
+
+		/**
+		 * Literal parts of the template, a null element standing for a segment variable
+		 */
+		final List<String> parts;
+		/**
+		 * Names of the segment variables in order, null for {@code *}
+		 */
+		final List<String> variables;
+		final boolean      prefix;
+
+		Route(int index,
+				Predicate<? super HttpChannel> condition,
+				ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler,
+				String template,
+				HttpMethod method,
+				HttpVersion protocol) {
+			this.index = index;
+			this.condition = condition;
+			this.handler = handler;
+			this.method = method;
+			this.protocol = protocol;
+			if (template == null) {
+				this.parts = null;
+				this.variables = null;
+				this.prefix = false;
+				return;
+			}
+			List<String> parts = new ArrayList<>();
+			List<String> variables = new ArrayList<>();
+			boolean prefix = false;
+			StringBuilder literal = new StringBuilder();
+			int length = template.length();
+			for (int i = 0; i < length; i++) {
+				char c = template.charAt(i);
+				boolean segmentStart = i == 0 || template.charAt(i - 1) == '/';
+				if (c == '*' && i + 1 < length && template.charAt(i + 1) == '*') {
+					if (i + 2 != length) {
+						throw new IllegalArgumentException("'**' must end the path template " + template);
+					}
+					prefix = true;
+					break;
+				}
+				if (c == '{' || c == '*') {
+					int end = c == '{' ? template.indexOf('}', i) : i;
+					if (end == -1 || !segmentStart || (end + 1 < length && template.charAt(end + 1) != '/')) {
+						throw new IllegalArgumentException("Path variables must span a whole segment in " + template);
+					}
+					if (literal.length() != 0) {
+						parts.add(literal.toString());
+						literal.setLength(0);
+					}
+					parts.add(null);
+					variables.add(c == '{' ? template.substring(i + 1, end) : null);
+					i = end;
+					continue;
+				}
+				literal.append(c);
+			}
+			if (literal.length() != 0) {
+				parts.add(literal.toString());
+			}
+			this.parts = parts;
+			this.variables = variables;
+			this.prefix = prefix;
+		}
+
+		boolean accepts(HttpChannel channel) {
+			return protocol == null || protocol.equals(channel.version());
+		}
+
+		/**
+		 * @return the selected handler, resolving the captured variables as its params
+		 */
+		HttpHandlerMapping select(String path, int[] bounds) {
+			Map<String, Object> params = null;
+			for (int i = 0; variables != null && i < variables.size(); i++) {
+				String name = variables.get(i);
+				if (name != null) {
+					if (params == null) {
+						params = new HashMap<>();
+					}
+					params.put(name, path.substring(bounds[2 * i], bounds[2 * i + 1]));
+				}
+			}
+			Map<String, Object> resolved = params;
+			return new HttpHandlerMapping(condition, handler, resolved != null ? uri -> resolved : null);
+		}
+	}
+
+	/**
+	 * A node of the tree, matching its literal {@link #path} or a segment when it is a
+	 * variable.
+	 */
+	static final class Node {
+
+		static final char[]  NO_INDICES = new char[0];
+		static final Node[]  NO_NODES   = new Node[0];
+		static final Route[] NO_ROUTES  = new Route[0];
+
+		String  path;
+		char[]  indices      = NO_INDICES;
+		Node[]  children     = NO_NODES;
+		Node    variable;
+		Route[] routes       = NO_ROUTES;
+		Route[] prefixRoutes = NO_ROUTES;
+
+		Node(String path) {
+			this.path = path;
+		}
+
+		/**
+		 * @return the node reached after the given literal from this node
+		 */
+		Node literal(String s) {
+			Node node = this;
+			while (!s.isEmpty()) {
+				Node child = node.child(s.charAt(0));
+				if (child == null) {
+					child = new Node(s);
+					node.addChild(child);
+					return child;
+				}
+				int common = 0;
+				int max = Math.min(child.path.length(), s.length());
+				while (common < max && child.path.charAt(common) == s.charAt(common)) {
+					common++;
+				}
+				if (common < child.path.length()) {
+					child.split(common);
+				}
+				node = child;
+				s = s.substring(common);
+			}
+			return node;
+		}
+
+		/**
+		 * @return the node reached after a segment variable from this node
+		 */
+		Node variable() {
+			Node variable = this.variable;
+			if (variable == null) {
+				variable = new Node("");
+				this.variable = variable;
+			}
+			return variable;
+		}
+
+		Node child(char c) {
+			char[] indices = this.indices;
+			for (int i = 0; i < indices.length; i++) {
+				if (indices[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		void addChild(Node child) {
+			int n = indices.length;
+			indices = Arrays.copyOf(indices, n + 1);
+			children = Arrays.copyOf(children, n + 1);
+			indices[n] = child.path.charAt(0);
+			children[n] = child;
+		}
+
+		/**
+		 * Keep the first characters of the path in this node, moving the rest and
+		 * everything below into a new child.
+		 */
+		void split(int length) {
+			Node rest = new Node(path.substring(length));
+			rest.indices = indices;
+			rest.children = children;
+			rest.variable = variable;
+			rest.routes = routes;
+			rest.prefixRoutes = prefixRoutes;
+
+			path = path.substring(0, length);
+			indices = NO_INDICES;
+			children = NO_NODES;
+			variable = null;
+			routes = NO_ROUTES;
+			prefixRoutes = NO_ROUTES;
+			addChild(rest);
+		}
+
+		static Route[] append(Route[] routes, Route route) {
+			Route[] appended = Arrays.copyOf(routes, routes.length + 1);
+			appended[routes.length] = route;
+			return appended;
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the registered routes.
+	 */
+	static final class Tree {
+
+		final Map<HttpMethod, Node> methods = new HashMap<>();
+		final Node                  anyMethod;
+		final Route[]               predicates;
+		final int                   maxVariables;
+
+		Tree(List<Route> routes) {
+			Node anyMethod = null;
+			List<Route> predicates = new ArrayList<>();
+			int maxVariables = 0;
+			for (Route route : routes) {
+				if (route.parts == null) {
+					predicates.add(route);
+					continue;
+				}
+				Node node;
+				if (route.method == null) {
+					if (anyMethod == null) {
+						anyMethod = new Node("");
+					}
+					node = anyMethod;
+				}
+				else {
+					node = methods.computeIfAbsent(route.method, m -> new Node(""));
+				}
+				for (String part : route.parts) {
+					node = part != null ? node.literal(part) : node.variable();
+				}
+				if (route.prefix) {
+					node.prefixRoutes = Node.append(node.prefixRoutes, route);
+				}
+				else {
+					node.routes = Node.append(node.routes, route);
+				}
+				maxVariables = Math.max(maxVariables, route.variables.size());
+			}
+			this.anyMethod = anyMethod;
+			this.predicates = predicates.toArray(new Route[predicates.size()]);
+			this.maxVariables = maxVariables;
+		}
+
+		List<HttpHandlerMapping> select(HttpChannel channel) {
+			String uri = channel.uri();
+			int end = uri.length();
+			for (int i = 0; i < end; i++) {
+				char c = uri.charAt(i);
+				if (c == '?' || c == '#') {
+					end = i;
+					break;
+				}
+			}
+			String path = uri.substring(0, end);
+
+			List<Match> matches = null;
+			int[] bounds = maxVariables != 0 ? new int[2 * maxVariables] : null;
+			Node root = methods.get(channel.method());
+			if (root != null) {
+				matches = match(root, path, 0, bounds, 0, channel, matches);
+			}
+			if (anyMethod != null) {
+				matches = match(anyMethod, path, 0, bounds, 0, channel, matches);
+			}
+			for (Route route : predicates) {
+				if (route.condition.test(channel)) {
+					matches = add(matches, route, route.select(path, bounds));
+				}
+			}
+			if (matches == null) {
+				return Collections.emptyList();
+			}
+			if (matches.size() == 1) {
+				return Collections.singletonList(matches.get(0).handler);
+			}
+			matches.sort(null);
+			List<HttpHandlerMapping> handlers = new ArrayList<>(matches.size());
+			for (Match match : matches) {
+				handlers.add(match.handler);
+			}
+			return handlers;
+		}
+
+		/**
+		 * Collect the routes of the given node and below matching the path from the given
+		 * position, the path of the node being already matched.
+		 */
+		static List<Match> match(Node node,
+				String path,
+				int position,
+				int[] bounds,
+				int depth,
+				HttpChannel channel,
+				List<Match> matches) {
+			for (Route route : node.prefixRoutes) {
+				if (route.accepts(channel)) {
+					matches = add(matches, route, route.select(path, bounds));
+				}
+			}
+			if (position == path.length()) {
+				for (Route route : node.routes) {
+					if (route.accepts(channel)) {
+						matches = add(matches, route, route.select(path, bounds));
+					}
+				}
+				return matches;
+			}
+			Node child = node.child(path.charAt(position));
+			if (child != null && path.startsWith(child.path, position)) {
+				matches = match(child, path, position + child.path.length(), bounds, depth, channel, matches);
+			}
+			Node variable = node.variable;
+			if (variable != null) {
+				int end = path.indexOf('/', position);
+				if (end == -1) {
+					end = path.length();
+				}
+				if (end > position) {
+					bounds[2 * depth] = position;
+					bounds[2 * depth + 1] = end;
+					matches = match(variable, path, end, bounds, depth + 1, channel, matches);
+				}
+			}
+			return matches;
+		}
+
+		static List<Match> add(List<Match> matches, Route route, HttpHandlerMapping handler) {
+			if (matches == null) {
+				matches = new ArrayList<>(2);
+			}
+			matches.add(new Match(route.index, handler));
+			return matches;
+		}
+	}
+
+	static final class Match implements Comparable<Match> {
+
+		final int                index;
+		final HttpHandlerMapping handler;
+
+		Match(int index, HttpHandlerMapping handler) {
+			this.index = index;
+			this.handler = handler;
+		}
+
+		@Override
+		public int compareTo(Match o) {
+			return Integer.compare(index, o.index);
+		}
+	}
+}
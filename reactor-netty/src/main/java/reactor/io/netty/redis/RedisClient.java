@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.redis;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Timer;
+import reactor.core.util.Logger;
+import reactor.io.buffer.Buffer;
+import reactor.io.codec.resp.Resp;
+import reactor.io.codec.resp.RespCodec;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.common.NettyCodec;
+import reactor.io.netty.config.ClientOptions;
+import reactor.io.netty.tcp.TcpClient;
+
+/**
+ * A pipelined client for Redis-compatible servers built on {@link TcpClient}. Commands
+ * from any thread are spread over a fixed number of connections; on each connection
+ * they are queued, then written by its event loop in a single write per batch without
+ * waiting for the previous replies. Replies are matched to commands in FIFO order.
+ * <p>
+ * Replies are decoded by a {@link RespCodec} and copied once before being handed to the
+ * caller, so they can be retained. An error reply is signalled as a
+ * {@link RedisException}. Sharing the {@link ClientOptions#eventLoopGroup} of other
+ * peers runs this client on the same event loops.
+ * <pre>
+ * {@code
+ * RedisClient redis = RedisClient.create(ClientOptions.to("localhost", 6379), 2);
+ * redis.startAndAwait();
+ * redis.execute("INCR", "hits")
+ *      .map(Resp::asLong)
+ * }
+ * </pre>
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public final class RedisClient {
+
+	/**
+	 * Default number of connections
+	 */
+	public static final int DEFAULT_CONNECTIONS = 1;
+
+	/**
+	 * Create a client of {@link #DEFAULT_CONNECTIONS} to the given server.
+	 *
+	 * @param host the server host
+	 * @param port the server port
+	 * @return a new {@link RedisClient}
+	 */
+	public static RedisClient create(String host, int port) {
+		return create(ClientOptions.to(host, port)
+		                           .timer(Timer.globalOrNull()), DEFAULT_CONNECTIONS);
+	}
+
+	/**
+	 * Create a client multiplexing commands over the given number of connections.
+	 *
+	 * @param options the options of the underlying {@link TcpClient}
+	 * @param connections the number of connections to open
+	 * @return a new {@link RedisClient}
+	 */
+	public static RedisClient create(ClientOptions options, int connections) {
+		return new RedisClient(options, connections);
+	}
+
+	final TcpClient                client;
+	final RespCodec                codec;
+	final NettyCodec<Resp, Object> nettyCodec;
+	final Connection[]             connections;
+	final AtomicInteger            next = new AtomicInteger();
+
+	RedisClient(ClientOptions options, int connections) {
+		if (connections <= 0) {
+			throw new IllegalArgumentException("connections must be > 0");
+		}
+		this.client = TcpClient.create(options);
+		this.codec = new RespCodec();
+		this.nettyCodec = NettyCodec.from(codec);
+		this.connections = new Connection[connections];
+		for (int i = 0; i < connections; i++) {
+			this.connections[i] = new Connection();
+		}
+	}
+
+	/**
+	 * Open every connection.
+	 *
+	 * @return a {@link Mono} completing when all connections are ready
+	 */
+	public Mono<Void> start() {
+		Mono<Void> ready = Mono.empty();
+		for (Connection c : connections) {
+			ready = ready.then(client.start(c)
+			                         .then(c.ready));
+		}
+		return ready;
+	}
+
+	/**
+	 * @see #start()
+	 * @throws InterruptedException if interrupted while connecting
+	 */
+	public void startAndAwait() throws InterruptedException {
+		start().get();
+	}
+
+	/**
+	 * Send a command, written as an array of bulk strings.
+	 *
+	 * @param command the command name followed by its arguments
+	 * @return a {@link Mono} of the reply
+	 */
+	public Mono<Resp> execute(Object... command) {
+		if (command == null || command.length == 0) {
+			throw new IllegalArgumentException("A command is required");
+		}
+		Connection c = select();
+		if (c == null) {
+			return Mono.error(new IllegalStateException("No connection available"));
+		}
+		MonoProcessor<Resp> reply = MonoProcessor.create();
+		c.send(new Command(command, reply));
+		return reply;
+	}
+
+	/**
+	 * @return the number of commands sent and not answered yet, over all connections
+	 */
+	public int pending() {
+		int pending = 0;
+		for (Connection c : connections) {
+			pending += c.pending;
+		}
+		return pending;
+	}
+
+	/**
+	 * Close every connection, failing commands not answered yet.
+	 *
+	 * @return a {@link Mono} completing when the client is shut down
+	 */
+	public Mono<Void> shutdown() {
+		for (Connection c : connections) {
+			Channel ch = c.channel;
+			if (ch != null) {
+				ch.close();
+			}
+		}
+		return client.shutdown();
+	}
+
+	Connection select() {
+		int n = connections.length;
+		int start = n == 1 ? 0 : Math.abs(next.getAndIncrement() % n);
+		for (int i = 0; i < n; i++) {
+			Connection c = connections[(start + i) % n];
+			if (c.isActive()) {
+				return c;
+			}
+		}
+		return null;
+	}
+
+	static final class Command {
+
+		final Object[]            args;
+		final MonoProcessor<Resp> reply;
+
+		Command(Object[] args, MonoProcessor<Resp> reply) {
+			this.args = args;
+			this.reply = reply;
+		}
+	}
+
+	final class Connection implements ChannelHandler<ByteBuf, ByteBuf, NettyChannel>, Runnable {
+
+		final MonoProcessor<Void>             ready    = MonoProcessor.create();
+		final Queue<Command>                  queue    = new ConcurrentLinkedQueue<>();
+		final AtomicInteger                   wip      = new AtomicInteger();
+		// only accessed from the event loop
+		final ArrayDeque<MonoProcessor<Resp>> inflight = new ArrayDeque<>();
+
+		volatile Channel channel;
+		volatile boolean closed;
+		volatile int     pending;
+
+		@Override
+		public Flux<Void> apply(NettyChannel ch) {
+			channel = ch.delegate();
+			ch.on()
+			  .close(this::closed);
+			ch.receive(nettyCodec)
+			  .subscribe(this::onReply, this::failed);
+			ready.onComplete();
+			return Flux.never();
+		}
+
+		boolean isActive() {
+			Channel ch = channel;
+			return ch != null && !closed && ch.isActive();
+		}
+
+		void send(Command command) {
+			queue.offer(command);
+			if (wip.getAndIncrement() == 0) {
+				channel.eventLoop()
+				       .execute(this);
+			}
+		}
+
+		/**
+		 * Encode every queued command into a single buffer and write it.
+		 */
+		@Override
+		public void run() {
+			int missed = 1;
+			for (; ; ) {
+				ByteBuf out = null;
+				Command c;
+				while ((c = queue.poll()) != null) {
+					if (closed) {
+						c.reply.onError(new IllegalStateException("Connection closed"));
+						continue;
+					}
+					Buffer encoded;
+					try {
+						encoded = codec.apply(c.args);
+					}
+					catch (Throwable t) {
+						c.reply.onError(t);
+						continue;
+					}
+					if (out == null) {
+						out = channel.alloc()
+						             .ioBuffer(encoded.remaining());
+					}
+					out.writeBytes(encoded.byteBuffer());
+					inflight.add(c.reply);
+				}
+				pending = inflight.size();
+				if (out != null) {
+					channel.writeAndFlush(out);
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					break;
+				}
+			}
+		}
+
+		void onReply(Resp reply) {
+			MonoProcessor<Resp> p = inflight.poll();
+			pending = inflight.size();
+			if (p == null) {
+				log.error("Unexpected reply without pending command: {}", reply);
+				channel.close();
+				return;
+			}
+			if (reply.isError()) {
+				p.onError(new RedisException(reply.asString()));
+			}
+			else {
+				// the decoded reply shares the received buffer released after this call
+				p.onNext(reply.copy());
+			}
+		}
+
+		void failed(Throwable t) {
+			log.error("Closing connection after decoding error", t);
+			channel.close();
+		}
+
+		void closed() {
+			closed = true;
+			Channel ch = channel;
+			if (ch == null) {
+				return;
+			}
+			ch.eventLoop()
+			  .execute(() -> {
+				  IllegalStateException e = new IllegalStateException("Connection closed");
+				  MonoProcessor<Resp> p;
+				  while ((p = inflight.poll()) != null) {
+					  p.onError(e);
+				  }
+				  pending = 0;
+				  // fail commands queued after the last drain
+				  if (wip.getAndIncrement() == 0) {
+					  run();
+				  }
+			  });
+		}
+	}
+
+	static final Logger log = Logger.getLogger(RedisClient.class);
+}
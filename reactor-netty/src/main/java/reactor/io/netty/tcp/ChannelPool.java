@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.tcp;
+
+import io.netty.buffer.ByteBuf;
+import reactor.core.publisher.Mono;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.config.PoolOptions;
+
+/**
+ * A pool of long-lived connections of a {@link TcpClient}, each leased to one
+ * {@link ChannelHandler} at a time.
+ * <p>
+ * A leased connection is the usual {@link NettyChannel} and returns to the pool once the
+ * {@link org.reactivestreams.Publisher} of its handler completes, its receive subscriber
+ * being completed first. An error closes the connection instead.
+ * <pre>
+ * {@code
+ * ChannelPool pool = TcpClient.create("localhost", 6379).pool(PoolOptions.fixed(4));
+ * pool.warmup().get();
+ * pool.lease(ch -> ch.sendString(Mono.just("PING\r\n")))
+ * }
+ * </pre>
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ * @see TcpClient#pool(PoolOptions)
+ */
+public interface ChannelPool {
+
+	/**
+	 * Run the given handler on a pooled connection. A connection bound to the calling
+	 * event loop is preferred, a new connection is opened if none is idle and the pool
+	 * is not full, otherwise the lease waits for a release.
+	 *
+	 * @param handler the handler of the leased connection
+	 * @return a {@link Mono} terminating with the handler once the connection is
+	 * released
+	 */
+	Mono<Void> lease(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler);
+
+	/**
+	 * Open connections up to {@link PoolOptions#minConnections()}.
+	 *
+	 * @return a {@link Mono} completing once the connections are open
+	 */
+	Mono<Void> warmup();
+
+	/**
+	 * Close idle connections and fail waiting leases, leased connections are closed once
+	 * released.
+	 *
+	 * @return a {@link Mono} completing once the pool is closed
+	 */
+	Mono<Void> shutdown();
+
+	/**
+	 * @return the number of open or opening connections
+	 */
+	int connections();
+
+	/**
+	 * @return the number of connections waiting for a lease
+	 */
+	int idleConnections();
+
+	/**
+	 * @return the number of leases waiting for a connection
+	 */
+	int pendingAcquires();
+}
@@ -0,0 +1,625 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.tcp;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.subscriber.BaseSubscriber;
+import reactor.core.util.Exceptions;
+import reactor.core.util.Logger;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.common.NettyChannel;
+import reactor.io.netty.common.NettyChannelHandler;
+import reactor.io.netty.config.PoolOptions;
+
+/**
+ * A {@link ChannelPool} keeping idle connections per event loop of its {@link TcpClient}.
+ * <p>
+ * A lease from an event loop of the client takes an idle connection bound to that loop
+ * first, or opens a new one on it, so that the handler and the connection share a thread.
+ * Other leases take the most recently released connection of any loop.
+ *
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+final class TcpChannelPool implements ChannelPool {
+
+	final TcpClient         client;
+	final InetSocketAddress address;
+	final boolean           secure;
+	final int               minConnections;
+	final int               maxConnections;
+	final int               maxPendingAcquires;
+	final long              idleTimeout;
+	final long              maxLifetime;
+
+	// guarded by this
+	final Map<EventLoop, ArrayDeque<PooledConnection>> idle    = new HashMap<>();
+	final ArrayDeque<Acquire>                          pending = new ArrayDeque<>();
+	int     idleConnections;
+	int     connections;
+	boolean closed;
+
+	TcpChannelPool(TcpClient client, PoolOptions options) {
+		Objects.requireNonNull(options, "options");
+		this.client = client;
+		this.address = client.getConnectAddress();
+		this.secure = client.sslContext != null;
+		this.minConnections = options.minConnections();
+		this.maxConnections = options.maxConnections();
+		this.maxPendingAcquires = options.maxPendingAcquires();
+		this.idleTimeout = options.idleTimeout();
+		this.maxLifetime = options.maxLifetime();
+	}
+
+	@Override
+	public Mono<Void> lease(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+		Objects.requireNonNull(handler, "handler");
+		return Mono.defer(() -> {
+			Acquire acquire = new Acquire(handler);
+			acquire(acquire);
+			return acquire.result;
+		});
+	}
+
+	@Override
+	public Mono<Void> warmup() {
+		return Mono.defer(() -> {
+			int count;
+			synchronized (this) {
+				if (closed) {
+					return Mono.error(new IllegalStateException("Connection pool to " + address + " is closed"));
+				}
+				count = Math.max(0, minConnections - connections);
+				connections += count;
+			}
+			if (count == 0) {
+				return Mono.empty();
+			}
+			MonoProcessor<Void> ready = MonoProcessor.create();
+			AtomicInteger remaining = new AtomicInteger(count);
+			for (int i = 0; i < count; i++) {
+				connect(null, client.ioGroup).subscribe(new BaseSubscriber<Void>() {
+					@Override
+					public void onSubscribe(Subscription s) {
+						s.request(Long.MAX_VALUE);
+					}
+
+					@Override
+					public void onError(Throwable t) {
+						ready.onError(t);
+					}
+
+					@Override
+					public void onComplete() {
+						if (remaining.decrementAndGet() == 0) {
+							ready.onComplete();
+						}
+					}
+				});
+			}
+			return ready;
+		});
+	}
+
+	@Override
+	public Mono<Void> shutdown() {
+		return Mono.defer(() -> {
+			List<PooledConnection> idle = new ArrayList<>();
+			List<Acquire> pending;
+			synchronized (this) {
+				closed = true;
+				for (ArrayDeque<PooledConnection> connections : this.idle.values()) {
+					idle.addAll(connections);
+				}
+				pending = new ArrayList<>(this.pending);
+				this.idle.clear();
+				this.pending.clear();
+				idleConnections = 0;
+			}
+			for (PooledConnection connection : idle) {
+				connection.close();
+			}
+			for (Acquire acquire : pending) {
+				acquire.result.onError(new IllegalStateException("Connection pool to " + address + " is closed"));
+			}
+			return Mono.empty();
+		});
+	}
+
+	@Override
+	public synchronized int connections() {
+		return connections;
+	}
+
+	@Override
+	public synchronized int idleConnections() {
+		return idleConnections;
+	}
+
+	@Override
+	public synchronized int pendingAcquires() {
+		return pending.size();
+	}
+
+	void acquire(Acquire acquire) {
+		EventLoop loop = currentEventLoop();
+		PooledConnection connection = null;
+		boolean connect = false;
+		String rejected = null;
+		synchronized (this) {
+			if (closed) {
+				rejected = "Connection pool to " + address + " is closed";
+			}
+			else if ((connection = pollIdle(loop)) == null) {
+				if (connections < maxConnections) {
+					connections++;
+					connect = true;
+				}
+				else if (pending.size() < maxPendingAcquires) {
+					pending.add(acquire);
+				}
+				else {
+					rejected = "Too many leases waiting for a connection to " + address;
+				}
+			}
+		}
+		if (rejected != null) {
+			acquire.result.onError(new IllegalStateException(rejected));
+		}
+		else if (connection != null) {
+			connection.lease(acquire);
+		}
+		else if (connect) {
+			connect(acquire, loop != null ? loop : client.ioGroup);
+		}
+	}
+
+	/**
+	 * Return a connection whose lease ended or which just opened, called from its event
+	 * loop.
+	 */
+	void release(PooledConnection connection) {
+		Acquire next = null;
+		boolean close;
+		synchronized (this) {
+			close = closed || isExpired(connection);
+			if (!close) {
+				next = pending.poll();
+				if (next == null) {
+					idle.computeIfAbsent(connection.eventLoop(), loop -> new ArrayDeque<>())
+					    .addLast(connection);
+					idleConnections++;
+				}
+			}
+		}
+		if (close) {
+			// its close listener replaces it if needed
+			connection.close();
+		}
+		else if (next != null) {
+			connection.lease(next);
+		}
+		else {
+			connection.idle(idleDelay(connection));
+		}
+	}
+
+	/**
+	 * Close an idle connection above the minimum or past its lifetime, called from its
+	 * event loop once its idle delay expired.
+	 */
+	void evict(PooledConnection connection) {
+		boolean evict;
+		synchronized (this) {
+			ArrayDeque<PooledConnection> connections = idle.get(connection.eventLoop());
+			if (connections == null || !connections.contains(connection)) {
+				return;
+			}
+			evict = isExpired(connection) || this.connections > minConnections;
+			if (evict) {
+				connections.remove(connection);
+				idleConnections--;
+			}
+		}
+		if (evict) {
+			if (log.isDebugEnabled()) {
+				log.debug("Evicting idle connection to {}", address);
+			}
+			connection.close();
+		}
+		else {
+			connection.idle(idleDelay(connection));
+		}
+	}
+
+	PooledConnection pollIdle(EventLoop loop) {
+		PooledConnection connection;
+		if (loop != null) {
+			connection = pollIdle(idle.get(loop));
+			if (connection != null) {
+				return connection;
+			}
+		}
+		for (ArrayDeque<PooledConnection> connections : idle.values()) {
+			connection = pollIdle(connections);
+			if (connection != null) {
+				return connection;
+			}
+		}
+		return null;
+	}
+
+	PooledConnection pollIdle(ArrayDeque<PooledConnection> connections) {
+		if (connections == null) {
+			return null;
+		}
+		PooledConnection connection;
+		while ((connection = connections.pollLast()) != null) {
+			idleConnections--;
+			if (isReusable(connection)) {
+				return connection;
+			}
+			// closing, its close listener releases the slot
+			connection.close();
+		}
+		return null;
+	}
+
+	boolean isReusable(PooledConnection connection) {
+		ChannelHandlerContext ctx = connection.context;
+		return ctx != null && !ctx.isRemoved() && ctx.channel()
+		                                             .isActive() && !isExpired(connection);
+	}
+
+	boolean isExpired(PooledConnection connection) {
+		return maxLifetime != 0L && System.currentTimeMillis() - connection.createdAt >= maxLifetime;
+	}
+
+	/**
+	 * @return the time before an idle connection should be checked for eviction, or 0
+	 */
+	long idleDelay(PooledConnection connection) {
+		long delay = idleTimeout;
+		if (maxLifetime != 0L) {
+			long remaining = Math.max(1L, connection.createdAt + maxLifetime - System.currentTimeMillis());
+			delay = delay == 0L ? remaining : Math.min(delay, remaining);
+		}
+		return delay;
+	}
+
+	/**
+	 * @return the event loop of the client running the current thread or null
+	 */
+	EventLoop currentEventLoop() {
+		for (EventExecutor executor : client.ioGroup) {
+			if (executor.inEventLoop()) {
+				return (EventLoop) executor;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Open a connection for the given lease, or to be parked idle if there is none.
+	 *
+	 * @return a {@link Mono} completing once the connection is leased or idle
+	 */
+	MonoProcessor<Void> connect(Acquire acquire, EventLoopGroup group) {
+		PooledConnect connect = new PooledConnect(acquire);
+		client.doStart(connect, address, secure, group)
+		      .subscribe(new BaseSubscriber<Void>() {
+			      @Override
+			      public void onSubscribe(Subscription s) {
+				      s.request(Long.MAX_VALUE);
+			      }
+
+			      @Override
+			      public void onError(Throwable t) {
+				      if (!connect.registered) {
+					      // no channel has been created, nothing will release the slot
+					      synchronized (TcpChannelPool.this) {
+						      connections--;
+					      }
+					      drain(false);
+				      }
+				      connect.ready.onError(t);
+				      if (acquire != null) {
+					      acquire.result.onError(t);
+				      }
+			      }
+		      });
+		return connect.ready;
+	}
+
+	void closed(PooledConnection connection) {
+		synchronized (this) {
+			connections--;
+			ArrayDeque<PooledConnection> connections = idle.get(connection.eventLoop());
+			if (connections != null && connections.remove(connection)) {
+				idleConnections--;
+			}
+		}
+		// a connection which never opened is not replaced to avoid reconnecting in a loop
+		drain(connection.context != null);
+	}
+
+	/**
+	 * Open a connection for the next waiting lease, or to restore the minimum number of
+	 * connections.
+	 */
+	void drain(boolean refill) {
+		Acquire next;
+		synchronized (this) {
+			if (closed || connections >= maxConnections) {
+				return;
+			}
+			next = pending.poll();
+			if (next == null && (!refill || connections >= minConnections)) {
+				return;
+			}
+			connections++;
+		}
+		connect(next, client.ioGroup);
+	}
+
+	@Override
+	public String toString() {
+		return "TcpChannelPool{" +
+				"address=" + address +
+				", connections=" + connections() +
+				", idle=" + idleConnections() +
+				", pending=" + pendingAcquires() +
+				'}';
+	}
+
+	static final class Acquire {
+
+		final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler;
+		final MonoProcessor<Void>                            result;
+
+		Acquire(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+			this.handler = handler;
+			this.result = MonoProcessor.create();
+		}
+	}
+
+	/**
+	 * The handler of a new connection, binding it to this pool.
+	 */
+	final class PooledConnect implements ChannelHandler<ByteBuf, ByteBuf, NettyChannel> {
+
+		final Acquire             acquire;
+		final MonoProcessor<Void> ready;
+
+		volatile boolean registered;
+
+		PooledConnect(Acquire acquire) {
+			this.acquire = acquire;
+			this.ready = MonoProcessor.create();
+		}
+
+		/**
+		 * Install the pooled handler of a new connection and track it until it is closed.
+		 */
+		void bind(SocketChannel ch, TcpChannel channel) {
+			PooledConnection connection = new PooledConnection(TcpChannelPool.this, this, channel);
+			ch.pipeline()
+			  .addLast(connection);
+			registered = true;
+			ch.closeFuture()
+			  .addListener(f -> closed(connection));
+		}
+
+		@Override
+		public Publisher<Void> apply(NettyChannel channel) {
+			throw new IllegalStateException("Pooled connections are leased by their pool");
+		}
+	}
+
+	/**
+	 * A {@link NettyChannelHandler} running one leased handler at a time, returning the
+	 * connection to its pool once the handler completes.
+	 */
+	static final class PooledConnection extends NettyChannelHandler {
+
+		final TcpChannelPool pool;
+		final PooledConnect  connect;
+		final long           createdAt;
+
+		// only accessed from the event loop
+		ChannelHandlerContext context;
+		ScheduledFuture<?>    idleTimeout;
+		boolean               autoRead;
+		boolean               leased;
+
+		PooledConnection(TcpChannelPool pool, PooledConnect connect, NettyChannel channel) {
+			super(connect, channel);
+			this.pool = pool;
+			this.connect = connect;
+			this.createdAt = System.currentTimeMillis();
+		}
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			context = ctx;
+			autoRead = ctx.channel()
+			              .config()
+			              .isAutoRead();
+			ctx.fireChannelActive();
+			if (connect.acquire != null) {
+				lease(connect.acquire);
+			}
+			else {
+				pool.release(this);
+			}
+			connect.ready.onComplete();
+		}
+
+		@Override
+		public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+			if (!leased) {
+				// unsolicited data on an idle connection, its protocol state is unknown
+				ReferenceCountUtil.release(msg);
+				ctx.close();
+				return;
+			}
+			super.channelRead(ctx, msg);
+		}
+
+		EventLoop eventLoop() {
+			return nettyChannel.delegate()
+			                   .eventLoop();
+		}
+
+		/**
+		 * Wait for the next lease, reading to notice a close from the peer.
+		 */
+		void idle(long delay) {
+			if (delay != 0L) {
+				idleTimeout = context.executor()
+				                     .schedule(() -> {
+					                     idleTimeout = null;
+					                     pool.evict(this);
+				                     }, delay, TimeUnit.MILLISECONDS);
+			}
+			context.read();
+		}
+
+		/**
+		 * Run the given lease on this connection from its event loop, or give it back to
+		 * the pool if the connection has been closed meanwhile.
+		 */
+		void lease(Acquire acquire) {
+			Runnable task = () -> {
+				ScheduledFuture<?> idleTimeout = this.idleTimeout;
+				if (idleTimeout != null) {
+					this.idleTimeout = null;
+					idleTimeout.cancel(false);
+				}
+				if (!pool.isReusable(this)) {
+					pool.acquire(acquire);
+					return;
+				}
+				leased = true;
+				Publisher<Void> publisher;
+				try {
+					publisher = acquire.handler.apply(nettyChannel);
+				}
+				catch (Throwable t) {
+					Exceptions.throwIfFatal(t);
+					leased = false;
+					close();
+					acquire.result.onError(t);
+					return;
+				}
+				publisher.subscribe(new LeaseSubscriber(acquire));
+			};
+			EventLoop loop = eventLoop();
+			if (loop.inEventLoop()) {
+				task.run();
+			}
+			else {
+				loop.execute(task);
+			}
+		}
+
+		/**
+		 * Complete the receive subscriber of the lease and return the connection.
+		 */
+		void release() {
+			leased = false;
+			if (channelSubscriber != null) {
+				channelSubscriber.onComplete();
+				channelSubscriber = null;
+			}
+			context.channel()
+			       .config()
+			       .setAutoRead(autoRead);
+			if (context.channel()
+			           .isActive()) {
+				pool.release(this);
+			}
+		}
+
+		void close() {
+			nettyChannel.delegate()
+			            .close();
+		}
+
+		final class LeaseSubscriber implements BaseSubscriber<Void> {
+
+			final Acquire acquire;
+
+			LeaseSubscriber(Acquire acquire) {
+				this.acquire = acquire;
+			}
+
+			@Override
+			public void onSubscribe(Subscription s) {
+				s.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				eventLoop().execute(() -> {
+					leased = false;
+					close();
+				});
+				acquire.result.onError(t);
+			}
+
+			@Override
+			public void onComplete() {
+				EventLoop loop = eventLoop();
+				if (loop.inEventLoop()) {
+					complete();
+				}
+				else {
+					loop.execute(this::complete);
+				}
+			}
+
+			void complete() {
+				release();
+				acquire.result.onComplete();
+			}
+		}
+	}
+
+	static final Logger log = Logger.getLogger(TcpChannelPool.class);
+}
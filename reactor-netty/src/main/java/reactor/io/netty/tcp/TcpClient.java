@@ -32,6 +32,7 @@ import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
 import reactor.core.flow.MultiProducer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -50,6 +51,7 @@ import reactor.io.netty.common.Peer;
 import reactor.io.netty.config.ClientOptions;
 import reactor.io.netty.config.NettyHandlerNames;
 import reactor.io.netty.config.NettyOptions;
+import reactor.io.netty.config.PoolOptions;
 import reactor.io.netty.util.NettyNativeDetector;
 
 /**
@@ -182,6 +184,17 @@ public class TcpClient extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 	final InetSocketAddress connectAddress;
 
 	protected TcpClient(ClientOptions options) {
+		this(options, options.ssl());
+	}
+
+	/**
+	 * Create a client securing its connections with the given builder in place of the
+	 * {@link ClientOptions#ssl()}, e.g. a copy with protocol negotiation configured.
+	 *
+	 * @param options the client options
+	 * @param ssl the SSL context builder or null to connect in plain
+	 */
+	protected TcpClient(ClientOptions options, SslContextBuilder ssl) {
 		super(options.timer(), options.prefetch());
 		if (null == options.remoteAddress()) {
 			this.connectAddress = new InetSocketAddress("127.0.0.1", 3000);
@@ -200,9 +213,9 @@ public class TcpClient extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 					ExecutorUtils.newNamedFactory("reactor-tcp-client-io"));
 		}
 
-		if(options.ssl() != null){
+		if(ssl != null){
 			try{
-				sslContext = options.ssl().build();
+				sslContext = ssl.build();
 
 				if (log.isDebugEnabled()) {
 					log.debug("Connecting with SSL enabled using context {}",
@@ -277,20 +290,43 @@ public class TcpClient extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 		return this.options;
 	}
 
+	/**
+	 * Get the {@link SslContext} securing connections.
+	 * @return the SSL context or null if connections are not secured
+	 */
+	protected SslContext getSslContext() {
+		return sslContext;
+	}
+
 	@Override
 	protected Mono<Void> doStart(final ChannelHandler<ByteBuf, ByteBuf, NettyChannel>
 			handler){
 		return doStart(handler, getConnectAddress(), sslContext != null);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected Mono<Void> doStart(final ChannelHandler<ByteBuf, ByteBuf, NettyChannel>
 			handler, InetSocketAddress address, boolean secure) {
+		return doStart(handler, address, secure, ioGroup);
+	}
+
+	/**
+	 * Open a connection registered with the given group, an {@link io.netty.channel.EventLoop}
+	 * of this client binding the connection to it.
+	 *
+	 * @param handler the connection handler
+	 * @param address the address to connect to
+	 * @param secure true to connect with SSL
+	 * @param group the group to register the connection with
+	 * @return a {@link Mono} completing once connected
+	 */
+	@SuppressWarnings("unchecked")
+	protected Mono<Void> doStart(final ChannelHandler<ByteBuf, ByteBuf, NettyChannel>
+			handler, InetSocketAddress address, boolean secure, EventLoopGroup group) {
 
 		final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> targetHandler =
 				null == handler ? (ChannelHandler<ByteBuf, ByteBuf, NettyChannel>) PING : handler;
 
-		Bootstrap _bootstrap = new Bootstrap().group(ioGroup)
+		Bootstrap _bootstrap = new Bootstrap().group(group)
 		                                      .channel(NettyNativeDetector.getChannel(
 				                                      ioGroup))
 		                                      .option(ChannelOption.ALLOCATOR,
@@ -339,10 +375,26 @@ public class TcpClient extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 	protected void bindChannel(ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler, SocketChannel ch)
 			throws Exception {
 		TcpChannel netChannel = new TcpChannel(getDefaultPrefetchSize(), ch);
+		if (handler instanceof TcpChannelPool.PooledConnect) {
+			((TcpChannelPool.PooledConnect) handler).bind(ch, netChannel);
+			return;
+		}
 		ch.pipeline()
 		  .addLast(new NettyChannelHandler(handler, netChannel));
 	}
 
+	/**
+	 * Create a pool of connections to {@link #getConnectAddress()}, each leased to one
+	 * handler at a time.
+	 *
+	 * @param options the pool sizing and eviction options
+	 * @return a new {@link ChannelPool}, see {@link ChannelPool#warmup()} to open its
+	 * first connections
+	 */
+	public ChannelPool pool(PoolOptions options) {
+		return new TcpChannelPool(this, options);
+	}
+
 	@Override
 	protected boolean shouldFailOnStarted() {
 		return false;
@@ -16,14 +16,22 @@
 
 package reactor.io.netty.tcp;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLException;
 
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
@@ -34,10 +42,19 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.SocketChannelConfig;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.reactivestreams.Subscriber;
 import reactor.core.flow.MultiProducer;
 import reactor.core.publisher.Computations;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 import reactor.core.scheduler.Timer;
 import reactor.core.state.Introspectable;
 import reactor.core.util.Exceptions;
@@ -187,7 +204,20 @@ public class TcpServer extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 	InetSocketAddress listenAddress;
 	ChannelFuture     bindFuture;
 
+	volatile long warmupTime = -1L;
+
 	protected TcpServer(ServerOptions options) {
+		this(options, options.ssl());
+	}
+
+	/**
+	 * Create a server securing its connections with the given builder in place of the
+	 * {@link ServerOptions#ssl()}, e.g. a copy with protocol negotiation configured.
+	 *
+	 * @param options the server options
+	 * @param ssl the SSL context builder or null to serve plain connections
+	 */
+	protected TcpServer(ServerOptions options, SslContextBuilder ssl) {
 		super(options.timer(), options.prefetch());
 		this.listenAddress = options.listenAddress();
 		this.options = options.toImmutable();
@@ -212,16 +242,16 @@ public class TcpServer extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 		                                                        .childOption(ChannelOption.ALLOCATOR,
 				                                                        PooledByteBufAllocator.DEFAULT)
 		                                                        .childOption(ChannelOption.AUTO_READ,
-				                                                        options.ssl() != null);
+				                                                        ssl != null);
 
 		_serverBootstrap = _serverBootstrap.option(ChannelOption.SO_BACKLOG, options.backlog())
 		                                   .option(ChannelOption.SO_RCVBUF, options.rcvbuf())
 		                                   .option(ChannelOption.SO_SNDBUF, options.sndbuf())
 		                                   .option(ChannelOption.SO_REUSEADDR, options.reuseAddr());
 
-		if(options.ssl() != null) {
+		if(ssl != null) {
 			try {
-				this.sslContext = options.ssl().build();
+				this.sslContext = ssl.build();
 				if (log.isDebugEnabled()) {
 					log.debug("Serving SSL enabled using context {}", sslContext.getClass().getSimpleName());
 				}
@@ -301,6 +331,14 @@ public class TcpServer extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 		return listenAddress;
 	}
 
+	/**
+	 * Get the duration of the warm-up phase run by the last start, see {@link ServerOptions#warmup(int)}.
+	 * @return the warm-up duration in milliseconds or -1 if no warm-up ran
+	 */
+	public long getWarmupTime() {
+		return warmupTime;
+	}
+
 	/**
 	 * Get the {@link ServerOptions} currently in effect.
 	 * @return the current server options
@@ -309,6 +347,14 @@ public class TcpServer extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 		return options;
 	}
 
+	/**
+	 * Get the {@link SslContext} securing accepted connections.
+	 * @return the SSL context or null if connections are not secured
+	 */
+	protected SslContext getSslContext() {
+		return sslContext;
+	}
+
 	@Override
 	public String getName() {
 		return "TcpServer:" + getListenAddress().toString();
@@ -322,7 +368,23 @@ public class TcpServer extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 	@Override
 	protected Mono<Void> doStart(final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
 
-		bootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
+		bootstrap.childHandler(childHandler(handler));
+
+		if (getOptions() != null && getOptions().warmupIterations() > 0) {
+			// bind once the warm-up cycles have completed on the event loops
+			MonoProcessor<Void> started = MonoProcessor.create();
+			warmup(handler).addListener(f -> {
+				warmupTime = (Long) f.getNow();
+				bind().subscribe(started);
+			});
+			return started;
+		}
+
+		return bind();
+	}
+
+	ChannelInitializer<SocketChannel> childHandler(final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+		return new ChannelInitializer<SocketChannel>() {
 			@Override
 			public void initChannel(final SocketChannel ch) throws Exception {
 				if (getOptions() != null) {
@@ -345,8 +407,10 @@ public class TcpServer extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 
 				bindChannel(handler, ch);
 			}
-		});
+		};
+	}
 
+	Mono<Void> bind() {
 		bindFuture = bootstrap.bind();
 
 		return new MonoChannelFuture<ChannelFuture>(bindFuture) {
@@ -389,6 +453,240 @@ public class TcpServer extends Peer<ByteBuf, ByteBuf, NettyChannel> implements I
 		pipeline.addLast(new NettyChannelHandler(handler, netChannel));
 	}
 
+	/**
+	 * Return the bytes sent by each warm-up connection.
+	 * @return the warm-up requests
+	 */
+	protected List<byte[]> warmupRequests() {
+		return getOptions().warmupRequests();
+	}
+
+	/**
+	 * Return the handler serving warm-up connections.
+	 * @param handler the server handler
+	 * @return the {@link ServerOptions#warmupHandler()} if any, otherwise the server
+	 * handler so that warm-up traffic runs through the configured routes and codecs
+	 */
+	protected ChannelHandler<ByteBuf, ByteBuf, NettyChannel> warmupHandler(
+			ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+		ChannelHandler<ByteBuf, ByteBuf, NettyChannel> warmupHandler = getOptions().warmupHandler();
+		return warmupHandler != null ? warmupHandler : handler;
+	}
+
+	/**
+	 * Run the warm-up tasks on a dedicated thread, then loopback connections against a
+	 * temporary binding of the server pipeline and handler on an ephemeral local port.
+	 * The connections are chained on the event loops, nothing runs on the caller thread.
+	 * Failures are logged and never prevent the server from starting.
+	 *
+	 * @param handler the server handler
+	 * @return a future completed with the warm-up duration in milliseconds
+	 */
+	Future<Long> warmup(final ChannelHandler<ByteBuf, ByteBuf, NettyChannel> handler) {
+		final ServerOptions options = getOptions();
+		final Warmup warmup = new Warmup(options.warmupIterations(), options.warmupTimeout(), ioGroup.next());
+		WARMUP_THREADS.newThread(() -> {
+			try {
+				List<Runnable> tasks = options.warmupTasks();
+				for (int i = 0; i < warmup.iterations && !tasks.isEmpty() && !warmup.expired(); i++) {
+					for (Runnable task : tasks) {
+						task.run();
+					}
+				}
+
+				warmup.client = warmupClient(warmupRequests());
+				bootstrap.clone()
+				         .childHandler(childHandler(warmupHandler(handler)))
+				         .localAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+				         .bind()
+				         .addListener((ChannelFuture f) -> {
+					         if (!f.isSuccess()) {
+						         warmup.fail(f.cause());
+						         return;
+					         }
+					         warmup.local = f.channel();
+					         warmup.start();
+				         });
+			}
+			catch (Throwable t) {
+				Exceptions.throwIfFatal(t);
+				warmup.fail(t);
+			}
+		})
+		              .start();
+		return warmup.promise;
+	}
+
+	/**
+	 * Sequential warm-up connections, each one made once the previous one has closed,
+	 * until the iterations are done or the timeout expires.
+	 */
+	static final class Warmup {
+
+		final int           iterations;
+		final long          start;
+		final long          deadline;
+		final EventExecutor executor;
+		final Promise<Long> promise;
+
+		Bootstrap          client;
+		ScheduledFuture<?> timeout;
+
+		volatile io.netty.channel.Channel local;
+		volatile io.netty.channel.Channel current;
+		volatile int                      cycles;
+
+		Warmup(int iterations, long timeoutMillis, EventExecutor executor) {
+			this.iterations = iterations;
+			this.start = System.nanoTime();
+			this.deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			this.executor = executor;
+			this.promise = executor.newPromise();
+		}
+
+		boolean expired() {
+			return System.nanoTime() - deadline >= 0L;
+		}
+
+		void start() {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0L) {
+				finish();
+				return;
+			}
+			timeout = executor.schedule(this::finish, remaining, TimeUnit.NANOSECONDS);
+			connect();
+		}
+
+		void connect() {
+			if (promise.isDone()) {
+				return;
+			}
+			if (cycles >= iterations || expired()) {
+				finish();
+				return;
+			}
+			client.connect(local.localAddress())
+			      .addListener((ChannelFuture f) -> {
+				      if (!f.isSuccess()) {
+					      fail(f.cause());
+					      return;
+				      }
+				      current = f.channel();
+				      if (promise.isDone()) {
+					      f.channel()
+					       .close();
+					      return;
+				      }
+				      f.channel()
+				       .closeFuture()
+				       .addListener(c -> {
+					       cycles++;
+					       connect();
+				       });
+			      });
+		}
+
+		void fail(Throwable t) {
+			log.error("Warm-up failed, starting anyway", t);
+			finish();
+		}
+
+		void finish() {
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			if (!promise.trySuccess(elapsed)) {
+				return;
+			}
+			ScheduledFuture<?> timeout = this.timeout;
+			if (timeout != null) {
+				timeout.cancel(false);
+			}
+			io.netty.channel.Channel current = this.current;
+			if (current != null) {
+				current.close();
+			}
+			io.netty.channel.Channel local = this.local;
+			if (local != null) {
+				local.close();
+			}
+			if (log.isInfoEnabled()) {
+				log.info("WARMUP {}/{} cycles in {} ms", cycles, iterations, elapsed);
+			}
+		}
+	}
+
+	Bootstrap warmupClient(List<byte[]> requests) throws SSLException {
+		final SslContext clientSsl = sslContext == null ? null : SslContextBuilder.forClient()
+		                                                                          .trustManager(InsecureTrustManagerFactory.INSTANCE)
+		                                                                          .build();
+		return new Bootstrap().group(ioGroup)
+		                      .channel(NettyNativeDetector.getChannel(ioGroup))
+		                      .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+		                      .handler(new ChannelInitializer<io.netty.channel.Channel>() {
+			                      @Override
+			                      protected void initChannel(io.netty.channel.Channel ch) throws Exception {
+				                      if (clientSsl != null) {
+					                      ch.pipeline()
+					                        .addLast(clientSsl.newHandler(ch.alloc()));
+				                      }
+				                      ch.pipeline()
+				                        .addLast(new WarmupHandler(requests, clientSsl != null));
+			                      }
+		                      });
+	}
+
+	/**
+	 * Send the warm-up requests then close on the first response bytes. Without requests,
+	 * close as soon as connected, or once the SSL handshake completed.
+	 */
+	static final class WarmupHandler extends ChannelInboundHandlerAdapter {
+
+		final List<byte[]> requests;
+		final boolean      ssl;
+
+		WarmupHandler(List<byte[]> requests, boolean ssl) {
+			this.requests = requests;
+			this.ssl = ssl;
+		}
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			if (requests.isEmpty()) {
+				if (!ssl) {
+					ctx.close();
+				}
+			}
+			else {
+				for (byte[] request : requests) {
+					ctx.write(Unpooled.wrappedBuffer(request));
+				}
+				ctx.flush();
+			}
+			super.channelActive(ctx);
+		}
+
+		@Override
+		public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+			if (evt instanceof SslHandshakeCompletionEvent && requests.isEmpty()) {
+				ctx.close();
+			}
+			super.userEventTriggered(ctx, evt);
+		}
+
+		@Override
+		public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+			ReferenceCountUtil.release(msg);
+			ctx.close();
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+			ctx.close();
+		}
+	}
+
+	static final ThreadFactory WARMUP_THREADS = ExecutorUtils.newNamedFactory("reactor-tcp-server-warmup");
+
 	final static Logger log = Logger.getLogger(TcpServer.class);
 
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Stephane Maldini
+ */
+public class ByteBufCodecTests {
+
+	@Test
+	public void linesAreDecodedAcrossBuffers() {
+		ByteBuf first = Unpooled.copiedBuffer("Hello\nWor", StandardCharsets.UTF_8);
+		ByteBuf second = Unpooled.copiedBuffer("ld!\r\nBye\n", StandardCharsets.UTF_8);
+
+		List<String> lines = ByteBufCodec.linefeed(StandardCharsets.UTF_8)
+		                                 .decode(Flux.just(first, second))
+		                                 .toList()
+		                                 .get();
+
+		assertEquals(Arrays.asList("Hello", "World!", "Bye"), lines);
+	}
+
+	@Test
+	public void linesAreEncodedFromTheGivenAllocator() {
+		NettyCodec<String, String> codec =
+				NettyCodec.from(ByteBufCodec.linefeed(StandardCharsets.UTF_8));
+		List<ByteBuf> encoded = Flux.from(codec.encoder(PooledByteBufAllocator.DEFAULT)
+		                                       .apply(Flux.just("a", "b")))
+		                            .toList()
+		                            .get();
+
+		assertEquals(2, encoded.size());
+		assertEquals("a\n", encoded.get(0).toString(StandardCharsets.UTF_8));
+		assertEquals("b\n", encoded.get(1).toString(StandardCharsets.UTF_8));
+		encoded.forEach(ByteBuf::release);
+	}
+
+	@Test
+	public void decodedLinesFollowDemand() {
+		ByteBuf buffer = Unpooled.copiedBuffer("a\nb\nc\n", StandardCharsets.UTF_8);
+		List<String> lines = new ArrayList<>();
+		Subscription[] subscription = new Subscription[1];
+		boolean[] completed = new boolean[1];
+
+		ByteBufCodec.linefeed(StandardCharsets.UTF_8)
+		            .decode(Flux.just(buffer))
+		            .subscribe(new Subscriber<String>() {
+			            @Override
+			            public void onSubscribe(Subscription s) {
+				            subscription[0] = s;
+			            }
+
+			            @Override
+			            public void onNext(String line) {
+				            lines.add(line);
+			            }
+
+			            @Override
+			            public void onError(Throwable t) {
+				            throw new AssertionError(t);
+			            }
+
+			            @Override
+			            public void onComplete() {
+				            completed[0] = true;
+			            }
+		            });
+
+		subscription[0].request(1);
+		assertEquals(Arrays.asList("a"), lines);
+		assertFalse(completed[0]);
+
+		subscription[0].request(5);
+		assertEquals(Arrays.asList("a", "b", "c"), lines);
+		assertTrue(completed[0]);
+	}
+
+	@Test
+	public void chunkedEncodingSharesBuffers() {
+		NettyCodec<String, String> codec =
+				NettyCodec.from(ByteBufCodec.linefeed(StandardCharsets.UTF_8))
+				          .chunked(4, 0L);
+		List<ByteBuf> encoded = Flux.from(codec.encoder(PooledByteBufAllocator.DEFAULT)
+		                                       .apply(Flux.just("a", "b", "c", "d", "e")))
+		                            .toList()
+		                            .get();
+
+		assertEquals(3, encoded.size());
+		assertEquals("a\nb\n", encoded.get(0).toString(StandardCharsets.UTF_8));
+		assertEquals("c\nd\n", encoded.get(1).toString(StandardCharsets.UTF_8));
+		assertEquals("e\n", encoded.get(2).toString(StandardCharsets.UTF_8));
+		encoded.forEach(ByteBuf::release);
+	}
+}
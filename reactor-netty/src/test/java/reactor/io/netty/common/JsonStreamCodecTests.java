@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Stephane Maldini
+ */
+public class JsonStreamCodecTests {
+
+	@Test
+	public void textsAreDecodedAcrossBuffers() {
+		ByteBuf first = Unpooled.copiedBuffer("{\"a\":1}\n\n{\"a\"", StandardCharsets.UTF_8);
+		ByteBuf second = Unpooled.copiedBuffer(":2}\r\n\u001e{\"a\":3}\n", StandardCharsets.UTF_8);
+
+		List<Map> values = JsonStreamCodec.ndjson(Map.class)
+		                                  .decode(Flux.just(first, second))
+		                                  .toList()
+		                                  .get();
+
+		assertEquals(3, values.size());
+		assertEquals(2, values.get(1)
+		                      .get("a"));
+		assertEquals(3, values.get(2)
+		                      .get("a"));
+	}
+
+	@Test
+	public void prettyPrintedSequenceIsFramedOnRecordSeparators() {
+		ByteBuf first = Unpooled.copiedBuffer("\u001e{\n  \"a\" : 1,\n  \"b\" : \"x\\ny\"\n",
+				StandardCharsets.UTF_8);
+		ByteBuf second = Unpooled.copiedBuffer("}\n\u001e[\n  2\n]\n\u001e3\n", StandardCharsets.UTF_8);
+
+		List<Object> values = JsonStreamCodec.jsonSeq(Object.class)
+		                                     .decode(Flux.just(first, second))
+		                                     .toList()
+		                                     .get();
+
+		assertEquals(3, values.size());
+		assertEquals(1, ((Map) values.get(0)).get("a"));
+		assertEquals("x\ny", ((Map) values.get(0)).get("b"));
+		assertEquals(Arrays.asList(2), values.get(1));
+		assertEquals(3, values.get(2));
+	}
+
+	@Test
+	public void sequenceSplitInSingleBytesIsDecoded() {
+		byte[] text = "\u001e{\"a\":[1,{\"b\":\"}\\\"\"}]}\n\u001e{\"a\":2}\n".getBytes(StandardCharsets.UTF_8);
+		ByteBuf[] buffers = new ByteBuf[text.length];
+		for (int i = 0; i < text.length; i++) {
+			buffers[i] = Unpooled.wrappedBuffer(new byte[]{text[i]});
+		}
+
+		List<Map> values = JsonStreamCodec.jsonSeq(Map.class)
+		                                  .decode(Flux.just(buffers))
+		                                  .toList()
+		                                  .get();
+
+		assertEquals(2, values.size());
+		assertEquals(2, values.get(1)
+		                      .get("a"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void oversizedTextIsRejected() {
+		ByteBuf buffer = Unpooled.copiedBuffer("[1,2,3,4,5,6,7,8", StandardCharsets.UTF_8);
+
+		new JsonStreamCodec<>(List.class, JsonStreamCodec.DEFAULT_MAPPER, false, 8)
+				.decode(Flux.just(buffer))
+				.toList()
+				.get();
+	}
+
+	@Test
+	public void valuesAreEncodedOnePerLine() {
+		List<ByteBuf> ndjson = Flux.from(NettyCodec.ndjson(Object.class)
+		                                           .encoder(PooledByteBufAllocator.DEFAULT)
+		                                           .apply(Flux.just(Arrays.asList(1, 2), "b")))
+		                           .toList()
+		                           .get();
+		List<ByteBuf> jsonSeq = Flux.from(NettyCodec.jsonSeq(Object.class)
+		                                            .encoder(PooledByteBufAllocator.DEFAULT)
+		                                            .apply(Flux.just("a")))
+		                            .toList()
+		                            .get();
+
+		assertEquals(1, ndjson.size());
+		assertEquals("[1,2]\n\"b\"\n", ndjson.get(0).toString(StandardCharsets.UTF_8));
+		assertEquals("\u001e\"a\"\n", jsonSeq.get(0).toString(StandardCharsets.UTF_8));
+		ndjson.forEach(ByteBuf::release);
+		jsonSeq.forEach(ByteBuf::release);
+	}
+}
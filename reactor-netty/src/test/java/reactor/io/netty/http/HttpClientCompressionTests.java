@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.io.netty.config.CompressionOptions;
+import reactor.io.netty.config.HttpClientOptions;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpClientCompressionTests {
+
+	HttpServer server;
+	HttpClient client;
+
+	final AtomicReference<String> acceptEncoding  = new AtomicReference<>();
+	final AtomicReference<String> contentEncoding = new AtomicReference<>();
+
+	@Before
+	public void setup() throws InterruptedException {
+		server = HttpServer.create(ServerOptions.on(0)
+		                                        .compression(CompressionOptions.create()));
+		server.get("/text", channel -> {
+			acceptEncoding.set(channel.headers()
+			                          .get(HttpHeaderNames.ACCEPT_ENCODING));
+			return channel.responseHeader(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+			              .sendString(Flux.just(HttpServerCompressionTests.BODY));
+		});
+		server.post("/echo", channel -> {
+			contentEncoding.set(channel.headers()
+			                           .get(HttpHeaderNames.CONTENT_ENCODING));
+			return channel.send(channel.receive()
+			                           .retain());
+		});
+		server.start()
+		      .get();
+	}
+
+	@After
+	public void teardown() throws Exception {
+		if (client != null) {
+			client.shutdown()
+			      .get();
+		}
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void responsesAreDecompressed() throws Exception {
+		client = HttpClient.create(options().decompress(true));
+
+		assertThat(getText(), is(HttpServerCompressionTests.BODY));
+		assertThat(acceptEncoding.get(), is("gzip, deflate"));
+	}
+
+	@Test
+	public void compressionIsNotAskedByDefault() throws Exception {
+		client = HttpClient.create(options());
+
+		assertThat(getText(), is(HttpServerCompressionTests.BODY));
+		assertThat(acceptEncoding.get(), nullValue());
+	}
+
+	@Test
+	public void requestBodiesAreCompressed() throws Exception {
+		client = HttpClient.create(options().compression(CompressionOptions.create()
+		                                                                   .minRequestSize(0)));
+
+		byte[] echoed = concat(client.post("/echo",
+				channel -> channel.header(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+				                  .sendString(Flux.just("hello ", "compressed ", "world")))
+		                             .flatMap(HttpInbound::receiveByteArray)
+		                             .toList()
+		                             .get());
+
+		assertThat(contentEncoding.get(), is("gzip"));
+		assertThat(HttpServerCompressionTests.read(new GZIPInputStream(new ByteArrayInputStream(echoed))),
+				is("hello compressed world"));
+	}
+
+	@Test
+	public void smallRequestBodiesAreSentAsIs() throws Exception {
+		client = HttpClient.create(options().compression(CompressionOptions.create()
+		                                                                   .minResponseSize(0)));
+
+		byte[] echoed = concat(client.post("/echo",
+				channel -> channel.header(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+				                  .header(HttpHeaderNames.CONTENT_LENGTH, "5")
+				                  .removeTransferEncodingChunked()
+				                  .sendString(Flux.just("small")))
+		                             .flatMap(HttpInbound::receiveByteArray)
+		                             .toList()
+		                             .get());
+
+		assertThat(contentEncoding.get(), nullValue());
+		assertThat(new String(echoed, StandardCharsets.UTF_8), is("small"));
+	}
+
+	HttpClientOptions options() {
+		return HttpClientOptions.to("localhost", server.getListenAddress()
+		                                               .getPort());
+	}
+
+	String getText() {
+		return String.join("", client.get("/text")
+		                             .flatMap(HttpInbound::receiveString)
+		                             .toList()
+		                             .get());
+	}
+
+	static byte[] concat(List<byte[]> chunks) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] chunk : chunks) {
+			out.write(chunk);
+		}
+		return out.toByteArray();
+	}
+}
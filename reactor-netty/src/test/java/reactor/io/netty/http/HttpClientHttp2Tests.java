@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.io.netty.config.HttpClientOptions;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpClientHttp2Tests {
+
+	HttpServer server;
+	HttpClient client;
+
+	@Before
+	public void setup() throws InterruptedException {
+		server = HttpServer.create(ServerOptions.on(0)
+		                                        .http2(true)
+		                                        .maxConcurrentStreams(2));
+		server.get("/hello", channel -> channel.sendString(Flux.just("hello")));
+		server.post("/echo", channel -> channel.send(channel.receive()
+		                                                    .retain()));
+		server.start()
+		      .get();
+		client = HttpClient.create(HttpClientOptions.to("localhost", server.getListenAddress()
+		                                                                   .getPort())
+		                                            .http2(true)
+		                                            .maxConnections(2));
+	}
+
+	@After
+	public void teardown() throws Exception {
+		client.shutdown()
+		      .get();
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void requestsShareAConnection() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			assertThat(client.get("/hello")
+			                 .flatMap(HttpInbound::receiveString)
+			                 .toList()
+			                 .get(), contains("hello"));
+		}
+
+		Http2ClientPool pool = client.http2Pools()
+		                             .iterator()
+		                             .next();
+		assertThat(pool.createdConnections(), is(1L));
+		assertThat(pool.createdStreams(), is(3L));
+	}
+
+	@Test
+	public void concurrentRequestsAreMultiplexed() throws Exception {
+		List<String> responses = Flux.range(0, 8)
+		                             .flatMap(i -> client.get("/hello")
+		                                                 .flatMap(HttpInbound::receiveString))
+		                             .toList()
+		                             .get();
+
+		assertThat(responses.size(), is(8));
+		assertThat(responses, everyItem(is("hello")));
+		// 2 streams per connection, at most 2 connections
+		assertThat(client.http2Pools()
+		                 .iterator()
+		                 .next()
+		                 .createdConnections() <= 2L, is(true));
+	}
+
+	@Test
+	public void requestBodyIsStreamed() throws Exception {
+		List<String> responses = client.post("/echo", channel -> channel.sendString(Flux.just("a", "b", "c")))
+		                               .flatMap(HttpInbound::receiveString)
+		                               .toList()
+		                               .get();
+
+		assertThat(String.join("", responses), is("abc"));
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.io.netty.config.HttpClientOptions;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpClientPoolTests {
+
+	HttpServer server;
+	HttpClient client;
+
+	@Before
+	public void setup() throws InterruptedException {
+		server = HttpServer.create(0);
+		server.get("/hello", channel -> channel.sendString(Flux.just("hello")));
+		server.start()
+		      .get();
+	}
+
+	@After
+	public void teardown() throws Exception {
+		if (client != null) {
+			client.shutdown()
+			      .get();
+		}
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void connectionIsReusedAcrossRequests() throws Exception {
+		client = HttpClient.create(HttpClientOptions.to("localhost", server.getListenAddress()
+		                                                                   .getPort())
+		                                            .maxConnections(1));
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(get(), contains("hello"));
+		}
+
+		HttpClientPool pool = client.pools()
+		                            .iterator()
+		                            .next();
+		assertThat(pool.createdConnections(), is(1L));
+		assertThat(pool.reusedConnections(), is(2L));
+		assertThat(pool.connections(), is(1));
+	}
+
+	@Test
+	public void pendingRequestsWaitForAConnection() throws Exception {
+		client = HttpClient.create(HttpClientOptions.to("localhost", server.getListenAddress()
+		                                                                   .getPort())
+		                                            .maxConnections(1));
+
+		List<String> responses = Flux.merge(client.get("/hello")
+		                                          .flatMap(HttpInbound::receiveString),
+				client.get("/hello")
+				      .flatMap(HttpInbound::receiveString),
+				client.get("/hello")
+				      .flatMap(HttpInbound::receiveString))
+		                             .toList()
+		                             .get();
+
+		assertThat(responses, contains("hello", "hello", "hello"));
+		assertThat(client.pools()
+		                 .iterator()
+		                 .next()
+		                 .createdConnections(), is(1L));
+	}
+
+	List<String> get() {
+		return client.get("/hello")
+		             .flatMap(HttpInbound::receiveString)
+		             .toList()
+		             .get();
+	}
+}
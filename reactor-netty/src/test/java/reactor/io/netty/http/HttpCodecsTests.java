@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.io.netty.common.NettyCodec;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpCodecsTests {
+
+	final HttpCodecs<Pojo, Pojo> codecs = HttpCodecs.of(Pojo.class);
+
+	@Test
+	public void registersJacksonFormatsInPreferenceOrder() {
+		assertThat(codecs.mediaTypes(),
+				is(Arrays.asList(HttpCodecs.APPLICATION_JSON,
+						HttpCodecs.APPLICATION_SMILE,
+						HttpCodecs.APPLICATION_CBOR)));
+	}
+
+	@Test
+	public void contentTypeSelectsDecoder() {
+		assertThat(codecs.decoder(null), sameInstance(codecs.encoder(HttpCodecs.APPLICATION_JSON)));
+		assertThat(codecs.decoder("Application/X-Jackson-Smile; charset=UTF-8"),
+				sameInstance(codecs.encoder(HttpCodecs.APPLICATION_SMILE)));
+		assertThat(codecs.decoder("text/plain"), nullValue());
+	}
+
+	@Test
+	public void acceptSelectsMostPreferredMediaType() {
+		assertThat(codecs.mediaType(null), is(HttpCodecs.APPLICATION_JSON));
+		assertThat(codecs.mediaType("*/*"), is(HttpCodecs.APPLICATION_JSON));
+		assertThat(codecs.mediaType("application/cbor"), is(HttpCodecs.APPLICATION_CBOR));
+		assertThat(codecs.mediaType("application/json;q=0.5, application/x-jackson-smile"),
+				is(HttpCodecs.APPLICATION_SMILE));
+		assertThat(codecs.mediaType("text/html, application/*;q=0.2"), is(HttpCodecs.APPLICATION_JSON));
+	}
+
+	@Test
+	public void mostSpecificRangeSetsQuality() {
+		assertThat(codecs.mediaType("application/*, application/json;q=0"), is(HttpCodecs.APPLICATION_SMILE));
+		assertThat(codecs.mediaType("*/*;q=0.1, application/cbor;q=0.8"), is(HttpCodecs.APPLICATION_CBOR));
+	}
+
+	@Test
+	public void unacceptableMediaTypeIsRejected() {
+		assertThat(codecs.mediaType("text/html"), nullValue());
+		assertThat(codecs.mediaType("application/json;q=0"), nullValue());
+		// served from the negotiation cache
+		assertThat(codecs.mediaType("text/html"), nullValue());
+	}
+
+	@Test
+	public void registrationReplacesCodec() {
+		NettyCodec<Pojo, Pojo> json = NettyCodec.json(Pojo.class);
+		codecs.mediaType("application/json");
+		codecs.register("application/json", json);
+
+		assertThat(codecs.encoder(HttpCodecs.APPLICATION_JSON), sameInstance(json));
+		assertThat(codecs.mediaTypes()
+		                 .size(), is(3));
+
+		HttpCodecs<Pojo, Pojo> empty = HttpCodecs.create();
+		assertThat(empty.mediaType(null), nullValue());
+		assertThat(empty.register("application/vnd.pojo+json", json)
+		                .mediaType("application/*"), notNullValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wildcardCannotBeRegistered() {
+		codecs.register("application/*", NettyCodec.json(Pojo.class));
+	}
+
+	@Test
+	public void jsonValuesAreJoinedInAnArray() {
+		assertThat(jsonArray(Flux.just(pojo("a"), pojo("b"))), is("[{\"name\":\"a\"},{\"name\":\"b\"}]"));
+		assertThat(jsonArray(Flux.just(pojo("a"))), is("[{\"name\":\"a\"}]"));
+		assertThat(jsonArray(Flux.empty()), is("[]"));
+	}
+
+	@Test
+	public void routeNegotiatesContentTypeAndAccept() throws Exception {
+		HttpServer server = HttpServer.create(ServerOptions.on(0));
+		server.route(HttpMappings.post("/pojos"), codecs,
+				(channel, pojos) -> pojos.concatWith(Flux.just(pojo("tail"))));
+		server.start()
+		      .get();
+		try {
+			HttpURLConnection json = post(server, "/pojos", HttpCodecs.APPLICATION_JSON, null);
+			assertThat(json.getResponseCode(), is(200));
+			assertThat(json.getHeaderField("Content-Type"), is(HttpCodecs.APPLICATION_JSON));
+			assertThat(json.getHeaderField("Vary"), is("accept"));
+			assertThat(HttpServerCompressionTests.read(json.getInputStream()),
+					is("[{\"name\":\"a\"},{\"name\":\"tail\"}]"));
+
+			HttpURLConnection smile = post(server, "/pojos", "application/json; charset=UTF-8",
+					"application/json;q=0.5, application/x-jackson-smile");
+			assertThat(smile.getResponseCode(), is(200));
+			assertThat(smile.getHeaderField("Content-Type"), is(HttpCodecs.APPLICATION_SMILE));
+			// the Smile header
+			assertThat(HttpServerCompressionTests.read(smile.getInputStream()), startsWith(":)\n"));
+
+			assertThat(post(server, "/pojos", "text/plain", null).getResponseCode(), is(415));
+			assertThat(post(server, "/pojos", HttpCodecs.APPLICATION_JSON, "text/html").getResponseCode(),
+					is(406));
+		}
+		finally {
+			server.shutdown()
+			      .get();
+		}
+	}
+
+	static HttpURLConnection post(HttpServer server, String path, String contentType, String accept)
+			throws IOException {
+		HttpURLConnection connection =
+				(HttpURLConnection) new URL("http://localhost:" + server.getListenAddress()
+				                                                        .getPort() + path).openConnection();
+		connection.setReadTimeout(5000);
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", contentType);
+		if (accept != null) {
+			connection.setRequestProperty("Accept", accept);
+		}
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write("{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+		}
+		return connection;
+	}
+
+	static String jsonArray(Flux<Pojo> values) {
+		return String.join("", HttpCodecs.jsonArray(UnpooledByteBufAllocator.DEFAULT, NettyCodec.json(Pojo.class), values)
+		                                 .map(b -> {
+			                                 String s = b.toString(StandardCharsets.UTF_8);
+			                                 b.release();
+			                                 return s;
+		                                 })
+		                                 .toList()
+		                                 .get());
+	}
+
+	static Pojo pojo(String name) {
+		Pojo pojo = new Pojo();
+		pojo.setName(name);
+		return pojo;
+	}
+
+	public static class Pojo {
+
+		private String name;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+}
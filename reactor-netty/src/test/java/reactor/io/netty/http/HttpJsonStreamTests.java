@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.io.netty.common.JsonStreamCodec;
+import reactor.io.netty.config.HttpClientOptions;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpJsonStreamTests {
+
+	HttpServer server;
+	HttpClient client;
+
+	final AtomicReference<String> requestType  = new AtomicReference<>();
+	final AtomicReference<String> responseType = new AtomicReference<>();
+
+	@Before
+	public void setup() throws InterruptedException {
+		server = HttpServer.create(ServerOptions.on(0));
+		server.post("/ndjson", channel -> {
+			requestType.set(channel.headers()
+			                       .get(HttpHeaderNames.CONTENT_TYPE));
+			return channel.sendNdJson(channel.receiveJsonStream(Point.class)
+			                                 .map(Point::moved));
+		});
+		server.post("/seq", channel -> {
+			requestType.set(channel.headers()
+			                       .get(HttpHeaderNames.CONTENT_TYPE));
+			return channel.sendJsonSeq(channel.receiveJsonStream(Point.class)
+			                                  .map(Point::moved));
+		});
+		server.start()
+		      .get();
+
+		client = HttpClient.create(HttpClientOptions.to("localhost", server.getListenAddress()
+		                                                                   .getPort()));
+	}
+
+	@After
+	public void teardown() throws Exception {
+		client.shutdown()
+		      .get();
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void ndJsonIsStreamedBothWays() {
+		List<String> moved = client.post("/ndjson", channel -> channel.sendNdJson(points()))
+		                           .flatMap(this::receivePoints)
+		                           .toList()
+		                           .get();
+
+		assertThat(requestType.get(), is(JsonStreamCodec.APPLICATION_NDJSON));
+		assertThat(responseType.get(), is(JsonStreamCodec.APPLICATION_NDJSON));
+		assertThat(moved, contains("1,2", "2,3", "3,4"));
+	}
+
+	@Test
+	public void jsonSequenceIsStreamedBothWays() {
+		List<String> moved = client.post("/seq", channel -> channel.sendJsonSeq(points()))
+		                           .flatMap(this::receivePoints)
+		                           .toList()
+		                           .get();
+
+		assertThat(requestType.get(), is(JsonStreamCodec.APPLICATION_JSON_SEQ));
+		assertThat(responseType.get(), is(JsonStreamCodec.APPLICATION_JSON_SEQ));
+		assertThat(moved, contains("1,2", "2,3", "3,4"));
+	}
+
+	Flux<String> receivePoints(HttpInbound inbound) {
+		responseType.set(inbound.responseHeaders()
+		                        .get(HttpHeaderNames.CONTENT_TYPE));
+		return inbound.receiveJsonStream(Point.class)
+		              .map(Point::toString);
+	}
+
+	static Flux<Point> points() {
+		return Flux.range(0, 3)
+		           .map(i -> new Point(i, i + 1));
+	}
+
+	public static final class Point {
+
+		public int x;
+		public int y;
+
+		public Point() {
+		}
+
+		Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		Point moved() {
+			return new Point(x + 1, y + 1);
+		}
+
+		@Override
+		public String toString() {
+			return x + "," + y;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.io.netty.config.CompressionOptions;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpServerCompressionTests {
+
+	static final String BODY;
+
+	static {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			body.append("line ")
+			    .append(i)
+			    .append('\n');
+		}
+		BODY = body.toString();
+	}
+
+	HttpServer server;
+
+	@Before
+	public void setup() throws InterruptedException {
+		server = HttpServer.create(ServerOptions.on(0)
+		                                        .compression(CompressionOptions.create()));
+		server.get("/text", channel -> channel.responseHeader(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+		                                      .sendString(Flux.just(BODY.substring(0, 600), BODY.substring(600))));
+		server.get("/small", channel -> channel.responseHeader(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+		                                       .responseHeader(HttpHeaderNames.CONTENT_LENGTH, "5")
+		                                       .responseTransfer(false)
+		                                       .sendString(Flux.just("small")));
+		server.get("/image", channel -> channel.responseHeader(HttpHeaderNames.CONTENT_TYPE, "image/png")
+		                                       .sendString(Flux.just(BODY)));
+		server.route(HttpMappings.get("/raw"), null,
+				channel -> channel.responseHeader(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+				                  .sendString(Flux.just(BODY)));
+		server.start()
+		      .get();
+	}
+
+	@After
+	public void teardown() throws Exception {
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void gzipIsUsedWhenAccepted() throws IOException {
+		HttpURLConnection connection = get("/text", "gzip, deflate");
+		assertThat(connection.getHeaderField("Content-Encoding"), is("gzip"));
+		assertThat(connection.getHeaderField("Vary"), is("accept-encoding"));
+		assertThat(read(new GZIPInputStream(connection.getInputStream())), is(BODY));
+	}
+
+	@Test
+	public void deflateIsNegotiated() throws IOException {
+		HttpURLConnection connection = get("/text", "gzip;q=0.5, deflate");
+		assertThat(connection.getHeaderField("Content-Encoding"), is("deflate"));
+		assertThat(read(new InflaterInputStream(connection.getInputStream())), is(BODY));
+	}
+
+	@Test
+	public void wildcardDoesNotSelectRefusedEncoding() throws IOException {
+		HttpURLConnection connection = get("/text", "gzip;q=0, *");
+		assertThat(connection.getHeaderField("Content-Encoding"), is("deflate"));
+		assertThat(read(new InflaterInputStream(connection.getInputStream())), is(BODY));
+	}
+
+	@Test
+	public void bodyIsSentAsIsWithoutAcceptEncoding() throws IOException {
+		HttpURLConnection connection = get("/text", null);
+		assertThat(connection.getHeaderField("Content-Encoding"), nullValue());
+		assertThat(read(connection.getInputStream()), is(BODY));
+	}
+
+	@Test
+	public void smallBodyIsSentAsIs() throws IOException {
+		HttpURLConnection connection = get("/small", "gzip");
+		assertThat(connection.getHeaderField("Content-Encoding"), nullValue());
+		assertThat(read(connection.getInputStream()), is("small"));
+	}
+
+	@Test
+	public void contentTypeNotAllowedIsSentAsIs() throws IOException {
+		HttpURLConnection connection = get("/image", "gzip");
+		assertThat(connection.getHeaderField("Content-Encoding"), nullValue());
+		assertThat(read(connection.getInputStream()), is(BODY));
+	}
+
+	@Test
+	public void routeCanDisableCompression() throws IOException {
+		HttpURLConnection connection = get("/raw", "gzip");
+		assertThat(connection.getHeaderField("Content-Encoding"), nullValue());
+		assertThat(read(connection.getInputStream()), is(BODY));
+	}
+
+	HttpURLConnection get(String path, String acceptEncoding) throws IOException {
+		InetSocketAddress address = server.getListenAddress();
+		HttpURLConnection connection =
+				(HttpURLConnection) new URL("http://localhost:" + address.getPort() + path).openConnection();
+		connection.setReadTimeout(5000);
+		if (acceptEncoding != null) {
+			connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+		}
+		assertThat(connection.getResponseCode(), is(200));
+		return connection;
+	}
+
+	static String read(InputStream in) throws IOException {
+		try (InputStream input = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toString(StandardCharsets.UTF_8.name());
+		}
+	}
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http2.DefaultHttp2FrameReader;
+import io.netty.handler.codec.http2.DefaultHttp2FrameWriter;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2FrameAdapter;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpServerHttp2Tests {
+
+	static final String PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n";
+
+	HttpServer server;
+
+	@Before
+	public void setup() throws InterruptedException {
+		server = HttpServer.create(ServerOptions.on(0)
+		                                        .http2(true)
+		                                        .maxConcurrentStreams(10));
+		server.get("/hello", channel -> channel.sendString(Flux.just("hello")));
+		server.post("/echo", channel -> channel.sendString(channel.receiveString()));
+		server.post("/length", channel -> channel.sendString(channel.receiveString()
+		                                                            .reduce(0, (length, s) -> length + s.length())
+		                                                            .map(String::valueOf)));
+		server.get("/never", channel -> Mono.never());
+		server.start()
+		      .get();
+	}
+
+	@After
+	public void teardown() throws Exception {
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void priorKnowledgeConnectionIsAnsweredWithSettings() throws Exception {
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write(PREFACE.getBytes(StandardCharsets.US_ASCII));
+			// empty SETTINGS frame
+			out.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0});
+			out.flush();
+
+			byte[] header = readFully(socket.getInputStream(), 9);
+			assertThat("frame type", (int) header[3], is(4));
+		}
+	}
+
+	@Test
+	public void http11RequestIsStillServed() throws Exception {
+		try (Socket socket = connect()) {
+			String response = HttpServerKeepAliveTests.exchange(socket,
+					"GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+			assertThat(response, containsString("hello"));
+		}
+	}
+
+	@Test
+	public void http11RequestIsUpgraded() throws Exception {
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET /hello HTTP/1.1\r\n" +
+					"Host: localhost\r\n" +
+					"Connection: Upgrade, HTTP2-Settings\r\n" +
+					"Upgrade: h2c\r\n" +
+					"HTTP2-Settings: AAMAAABkAAQAAP__\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+
+			String status = new String(readFully(socket.getInputStream(), 12), StandardCharsets.US_ASCII);
+			assertThat(status, startsWith("HTTP/1.1 101"));
+		}
+	}
+
+	@Test
+	public void streamIsRoutedWithItsBody() throws Exception {
+		try (FrameSocket h2 = new FrameSocket(connect())) {
+			h2.headers(1, "POST", "/echo", false);
+			h2.data(1, "ping".getBytes(StandardCharsets.US_ASCII), true);
+			h2.flush();
+			h2.awaitUntil(() -> h2.ended.contains(1));
+
+			assertThat(h2.headers.get(1)
+			                     .status()
+			                     .toString(), is("200"));
+			assertThat(h2.body(1), is("ping"));
+		}
+	}
+
+	@Test
+	public void consumedBodyIsAcknowledgedWithWindowUpdate() throws Exception {
+		byte[] body = new byte[40000];
+		Arrays.fill(body, (byte) 'a');
+		try (FrameSocket h2 = new FrameSocket(connect())) {
+			h2.headers(1, "POST", "/length", false);
+			h2.data(1, body, true);
+			h2.flush();
+			h2.awaitUntil(() -> h2.ended.contains(1) && h2.connectionWindowUpdates > 0L);
+
+			assertThat(h2.body(1), is("40000"));
+			// the connection window is replenished once half of it has been consumed
+			assertThat(h2.connectionWindowUpdates, greaterThanOrEqualTo(32768L));
+		}
+	}
+
+	@Test
+	public void streamsBeyondMaxConcurrentStreamsAreRefused() throws Exception {
+		try (FrameSocket h2 = new FrameSocket(connect())) {
+			// the limit applies once the server settings have been acknowledged
+			h2.awaitUntil(() -> h2.settingsRead);
+			for (int i = 0; i < 11; i++) {
+				h2.headers(2 * i + 1, "GET", "/never", true);
+			}
+			h2.flush();
+			h2.awaitUntil(() -> h2.resets.containsKey(21));
+
+			assertThat(h2.resets.get(21), is(Http2Error.REFUSED_STREAM.code()));
+			assertThat(h2.resets.size(), is(1));
+		}
+	}
+
+	@Test
+	public void alpnIsConfiguredOnACopyOfTheSslOptions() throws Exception {
+		ServerOptions options = ServerOptions.on(0)
+		                                     .sslSelfSigned()
+		                                     .http2(true);
+		HttpServer.create(options);
+
+		assertThat(options.ssl()
+		                  .build()
+		                  .applicationProtocolNegotiator()
+		                  .protocols(), empty());
+		assertThat(HttpServer.withProtocols(options.ssl(), HttpServer.ALPN)
+		                     .build()
+		                     .applicationProtocolNegotiator()
+		                     .protocols(), hasItem(ApplicationProtocolNames.HTTP_2));
+	}
+
+	Socket connect() throws IOException {
+		InetSocketAddress address = server.getListenAddress();
+		Socket socket = new Socket(address.getAddress(), address.getPort());
+		socket.setSoTimeout(5000);
+		return socket;
+	}
+
+	/**
+	 * A blocking HTTP/2 peer writing and reading raw frames over a socket.
+	 */
+	static final class FrameSocket extends Http2FrameAdapter implements Closeable {
+
+		final Socket                  socket;
+		final EmbeddedChannel         channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		final ChannelHandlerContext   ctx     = channel.pipeline()
+		                                               .firstContext();
+		final DefaultHttp2FrameWriter writer  = new DefaultHttp2FrameWriter();
+		final DefaultHttp2FrameReader reader  = new DefaultHttp2FrameReader();
+		final ByteBuf                 input   = Unpooled.buffer();
+
+		final Map<Integer, Http2Headers>          headers = new HashMap<>();
+		final Map<Integer, ByteArrayOutputStream> bodies  = new HashMap<>();
+		final Map<Integer, Long>                  resets  = new HashMap<>();
+		final Set<Integer>                        ended   = new HashSet<>();
+
+		boolean settingsRead;
+		long    connectionWindowUpdates;
+
+		FrameSocket(Socket socket) throws IOException {
+			this.socket = socket;
+			socket.getOutputStream()
+			      .write(PREFACE.getBytes(StandardCharsets.US_ASCII));
+			writer.writeSettings(ctx, new Http2Settings(), ctx.newPromise());
+			flush();
+		}
+
+		void headers(int streamId, String method, String path, boolean endStream) {
+			Http2Headers headers = new DefaultHttp2Headers().method(method)
+			                                                .path(path)
+			                                                .scheme("http")
+			                                                .authority("localhost");
+			writer.writeHeaders(ctx, streamId, headers, 0, endStream, ctx.newPromise());
+		}
+
+		void data(int streamId, byte[] data, boolean endStream) {
+			int offset = 0;
+			do {
+				int length = Math.min(Http2CodecUtil.DEFAULT_MAX_FRAME_SIZE, data.length - offset);
+				writer.writeData(ctx, streamId, Unpooled.wrappedBuffer(data, offset, length), 0,
+						endStream && offset + length == data.length, ctx.newPromise());
+				offset += length;
+			}
+			while (offset < data.length);
+		}
+
+		void flush() throws IOException {
+			ctx.flush();
+			OutputStream out = socket.getOutputStream();
+			ByteBuf frame;
+			while ((frame = channel.readOutbound()) != null) {
+				byte[] bytes = new byte[frame.readableBytes()];
+				frame.readBytes(bytes);
+				frame.release();
+				out.write(bytes);
+			}
+			out.flush();
+		}
+
+		/**
+		 * Read frames until the condition holds, failing on the socket read timeout.
+		 */
+		void awaitUntil(BooleanSupplier condition) throws Exception {
+			InputStream in = socket.getInputStream();
+			byte[] bytes = new byte[8192];
+			while (!condition.getAsBoolean()) {
+				int n = in.read(bytes);
+				if (n == -1) {
+					throw new IOException("Connection closed");
+				}
+				input.writeBytes(bytes, 0, n);
+				reader.readFrame(ctx, input, this);
+				input.discardReadBytes();
+				flush();
+			}
+		}
+
+		String body(int streamId) {
+			ByteArrayOutputStream body = bodies.get(streamId);
+			return body == null ? "" : new String(body.toByteArray(), StandardCharsets.US_ASCII);
+		}
+
+		@Override
+		public void onSettingsRead(ChannelHandlerContext ctx, Http2Settings settings) {
+			settingsRead = true;
+			writer.writeSettingsAck(ctx, ctx.newPromise());
+		}
+
+		@Override
+		public void onHeadersRead(ChannelHandlerContext ctx,
+				int streamId,
+				Http2Headers headers,
+				int padding,
+				boolean endOfStream) {
+			this.headers.put(streamId, headers);
+			if (endOfStream) {
+				ended.add(streamId);
+			}
+		}
+
+		@Override
+		public void onHeadersRead(ChannelHandlerContext ctx,
+				int streamId,
+				Http2Headers headers,
+				int streamDependency,
+				short weight,
+				boolean exclusive,
+				int padding,
+				boolean endOfStream) {
+			onHeadersRead(ctx, streamId, headers, padding, endOfStream);
+		}
+
+		@Override
+		public int onDataRead(ChannelHandlerContext ctx,
+				int streamId,
+				ByteBuf data,
+				int padding,
+				boolean endOfStream) {
+			int length = data.readableBytes();
+			byte[] bytes = new byte[length];
+			data.readBytes(bytes);
+			bodies.computeIfAbsent(streamId, id -> new ByteArrayOutputStream())
+			      .write(bytes, 0, length);
+			if (endOfStream) {
+				ended.add(streamId);
+			}
+			return length + padding;
+		}
+
+		@Override
+		public void onRstStreamRead(ChannelHandlerContext ctx, int streamId, long errorCode) {
+			resets.put(streamId, errorCode);
+		}
+
+		@Override
+		public void onWindowUpdateRead(ChannelHandlerContext ctx, int streamId, int windowSizeIncrement) {
+			if (streamId == 0) {
+				connectionWindowUpdates += windowSizeIncrement;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.release();
+			channel.close();
+			socket.close();
+		}
+	}
+
+	static byte[] readFully(InputStream in, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int n = in.read(bytes, read, length - read);
+			if (n == -1) {
+				throw new IOException("Connection closed after " + read + " bytes");
+			}
+			read += n;
+		}
+		return bytes;
+	}
+}
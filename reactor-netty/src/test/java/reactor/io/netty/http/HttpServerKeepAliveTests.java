@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpServerKeepAliveTests {
+
+	static final String GET = "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+	HttpServer server;
+
+	@After
+	public void teardown() throws Exception {
+		if (server != null) {
+			server.shutdown()
+			      .get();
+		}
+	}
+
+	@Test
+	public void requestsShareTheConnection() throws Exception {
+		start(ServerOptions.on(0));
+		try (Socket socket = connect()) {
+			for (int i = 0; i < 3; i++) {
+				String response = exchange(socket, GET);
+				assertThat(response, containsString("hello"));
+				assertThat(response.toLowerCase(), not(containsString("connection: close")));
+			}
+		}
+	}
+
+	@Test
+	public void connectionCloseIsHonored() throws Exception {
+		start(ServerOptions.on(0));
+		try (Socket socket = connect()) {
+			String response = exchange(socket, "GET /hello HTTP/1.1\r\nConnection: close\r\n\r\n");
+			assertThat(response.toLowerCase(), containsString("connection: close"));
+			assertThat(socket.getInputStream()
+			                 .read(), is(-1));
+		}
+	}
+
+	@Test
+	public void lastAllowedRequestClosesTheConnection() throws Exception {
+		start(ServerOptions.on(0)
+		                   .maxKeepAliveRequests(2));
+		try (Socket socket = connect()) {
+			assertThat(exchange(socket, GET).toLowerCase(), not(containsString("connection: close")));
+			assertThat(exchange(socket, GET).toLowerCase(), containsString("connection: close"));
+			assertThat(socket.getInputStream()
+			                 .read(), is(-1));
+		}
+	}
+
+	@Test
+	public void idleConnectionIsClosed() throws Exception {
+		start(ServerOptions.on(0)
+		                   .keepAliveTimeout(100));
+		try (Socket socket = connect()) {
+			assertThat(exchange(socket, GET), containsString("hello"));
+			assertThat(socket.getInputStream()
+			                 .read(), is(-1));
+		}
+	}
+
+	@Test
+	public void pipelinedResponsesFollowRequestOrder() throws Exception {
+		start(ServerOptions.on(0));
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n" + GET + GET).getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+
+			assertThat(read(socket), containsString("slow"));
+			assertThat(read(socket), containsString("hello"));
+			assertThat(read(socket), containsString("hello"));
+		}
+	}
+
+	@Test
+	public void connectionServesRequestsAfterPipelinedResponses() throws Exception {
+		start(ServerOptions.on(0));
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n" + GET + GET).getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+
+			assertThat(read(socket), containsString("slow"));
+			assertThat(read(socket), containsString("hello"));
+			assertThat(read(socket), containsString("hello"));
+
+			String next = exchange(socket, GET);
+			assertThat(next, containsString("200 OK"));
+			assertThat(next, containsString("hello"));
+		}
+	}
+
+	@Test
+	public void pipelinedRequestsUpToTheLimitAreAllServed() throws Exception {
+		start(ServerOptions.on(0)
+		                   .maxKeepAliveRequests(3));
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n" + GET + GET).getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+
+			String first = read(socket);
+			assertThat(first, containsString("slow"));
+			assertThat(first.toLowerCase(), not(containsString("connection: close")));
+			String second = read(socket);
+			assertThat(second, containsString("hello"));
+			assertThat(second.toLowerCase(), not(containsString("connection: close")));
+			String third = read(socket);
+			assertThat(third, containsString("hello"));
+			assertThat(third.toLowerCase(), containsString("connection: close"));
+			assertThat(socket.getInputStream()
+			                 .read(), is(-1));
+		}
+	}
+
+	void start(ServerOptions options) throws InterruptedException {
+		server = HttpServer.create(options);
+		server.get("/hello", channel -> channel.sendString(Flux.just("hello")));
+		server.get("/slow", channel -> channel.sendString(Mono.delay(200L)
+		                                                      .map(tick -> "slow")));
+		server.start()
+		      .get();
+	}
+
+	Socket connect() throws IOException {
+		InetSocketAddress address = server.getListenAddress();
+		Socket socket = new Socket(address.getAddress(), address.getPort());
+		socket.setSoTimeout(5000);
+		return socket;
+	}
+
+	/**
+	 * Send a request and read its chunked response up to the last chunk.
+	 */
+	static String exchange(Socket socket, String request) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(request.getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+		return read(socket);
+	}
+
+	/**
+	 * Read a chunked response up to the last chunk.
+	 */
+	static String read(Socket socket) throws IOException {
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		while (!response.toString("US-ASCII")
+		                .endsWith("\r\n0\r\n\r\n")) {
+			int b = in.read();
+			if (b == -1) {
+				break;
+			}
+			response.write(b);
+		}
+		return response.toString("US-ASCII");
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.config.ResponseCacheOptions;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static reactor.io.netty.http.HttpServerCompressionTests.read;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpServerResponseCacheTests {
+
+	final AtomicInteger         invocations = new AtomicInteger();
+	final MonoProcessor<String> held        = MonoProcessor.create();
+
+	final AtomicReference<Subscription> detached = new AtomicReference<>();
+
+	HttpServer        server;
+	HttpResponseCache cache;
+
+	@Before
+	public void setup() throws InterruptedException {
+		cache = HttpResponseCache.create(ResponseCacheOptions.create()
+		                                                     .ttl(300L)
+		                                                     .keyHeaders("Accept"));
+		server = HttpServer.create(ServerOptions.on(0));
+		server.get("/news", cache.cached(channel -> {
+			int invocation = invocations.incrementAndGet();
+			return channel.responseHeader(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+			              .sendString(Flux.just("news ", String.valueOf(invocation)));
+		}));
+		server.get("/slow", cache.cached(channel -> {
+			int invocation = invocations.incrementAndGet();
+			return channel.sendString(Mono.delay(300L)
+			                              .map(tick -> "slow " + invocation));
+		}));
+		ChannelHandler<ByteBuf, ByteBuf, HttpChannel> heldHandler = cache.cached(channel -> {
+			invocations.incrementAndGet();
+			return channel.sendString(held);
+		});
+		server.get("/held", channel -> {
+			Publisher<Void> exchange = heldHandler.apply(channel);
+			if (!channel.headers()
+			            .contains("X-Detach")) {
+				return exchange;
+			}
+			// subscribe aside, the test cancels the exchange later
+			exchange.subscribe(new Subscriber<Void>() {
+				@Override
+				public void onSubscribe(Subscription s) {
+					detached.set(s);
+				}
+
+				@Override
+				public void onNext(Void v) {
+				}
+
+				@Override
+				public void onError(Throwable t) {
+				}
+
+				@Override
+				public void onComplete() {
+				}
+			});
+			return channel.sendString(Mono.just("detached"));
+		});
+		server.get("/private", cache.cached(channel -> {
+			int invocation = invocations.incrementAndGet();
+			return channel.responseHeader(HttpHeaderNames.CACHE_CONTROL, "private")
+			              .sendString(Flux.just("private " + invocation));
+		}));
+		server.post("/news", cache.cached(channel -> {
+			int invocation = invocations.incrementAndGet();
+			return channel.sendString(Flux.just("posted " + invocation));
+		}));
+		server.start()
+		      .get();
+	}
+
+	@After
+	public void teardown() throws Exception {
+		server.shutdown()
+		      .get();
+		cache.clear();
+	}
+
+	@Test
+	public void hitsBypassTheHandler() throws IOException {
+		assertThat(request("GET", "/news", null), is("news 1"));
+		assertThat(request("GET", "/news", null), is("news 1"));
+		assertThat(request("GET", "/news", null), is("news 1"));
+
+		assertThat(invocations.get(), is(1));
+		assertThat(cache.misses(), is(1L));
+		assertThat(cache.hits(), is(2L));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.bytes(), is(6L));
+	}
+
+	@Test
+	public void keyHeadersSeparateEntries() throws IOException {
+		assertThat(request("GET", "/news", "text/plain"), is("news 1"));
+		assertThat(request("GET", "/news", "text/html"), is("news 2"));
+		assertThat(request("GET", "/news", "text/plain"), is("news 1"));
+	}
+
+	@Test
+	public void entriesExpire() throws Exception {
+		assertThat(request("GET", "/news", null), is("news 1"));
+		Thread.sleep(400L);
+		assertThat(request("GET", "/news", null), is("news 2"));
+	}
+
+	@Test
+	public void concurrentMissesAreCollapsed() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> responses = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				responses.add(executor.submit((Callable<String>) () -> request("GET", "/slow", null)));
+			}
+			for (Future<String> response : responses) {
+				assertThat(response.get(), is("slow 1"));
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertThat(invocations.get(), is(1));
+		assertThat(cache.hits() + cache.collapsed(), is(3L));
+	}
+
+	@Test
+	public void cancelledWaitersStopWaiting() throws Exception {
+		InetSocketAddress address = server.getListenAddress();
+		try (Socket leader = new Socket("localhost", address.getPort())) {
+			leader.setSoTimeout(5000);
+			send(leader, "GET /held HTTP/1.1\r\nHost: localhost\r\nAccept: text/plain\r\n\r\n");
+			await(() -> invocations.get() == 1);
+
+			// the waiting exchange is subscribed at once
+			assertThat(request("GET", "/held", "text/plain", "X-Detach"), is("detached"));
+			assertThat(detached.get(), notNullValue());
+			assertThat(cache.collapsed(), is(1L));
+			assertThat(waiting(), is(1));
+
+			detached.get()
+			        .cancel();
+			assertThat(waiting(), is(0));
+
+			held.onNext("held");
+			assertThat(HttpServerKeepAliveTests.read(leader), containsString("held"));
+		}
+		assertThat(invocations.get(), is(1));
+	}
+
+	@Test
+	public void privateResponsesAreNotCached() throws IOException {
+		assertThat(request("GET", "/private", null), is("private 1"));
+		assertThat(request("GET", "/private", null), is("private 2"));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void postIsNotCached() throws IOException {
+		assertThat(request("POST", "/news", null), is("posted 1"));
+		assertThat(request("POST", "/news", null), is("posted 2"));
+		assertThat(cache.misses(), is(0L));
+	}
+
+	int waiting() {
+		synchronized (cache) {
+			int waiting = 0;
+			for (List<HttpResponseCache.Exchange> exchanges : cache.pending.values()) {
+				waiting += exchanges.size();
+			}
+			return waiting;
+		}
+	}
+
+	static void send(Socket socket, String request) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(request.getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+	}
+
+	static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		assertThat(condition.getAsBoolean(), is(true));
+	}
+
+	String request(String method, String path, String accept) throws IOException {
+		return request(method, path, accept, null);
+	}
+
+	String request(String method, String path, String accept, String header) throws IOException {
+		InetSocketAddress address = server.getListenAddress();
+		HttpURLConnection connection =
+				(HttpURLConnection) new URL("http://localhost:" + address.getPort() + path).openConnection();
+		connection.setReadTimeout(5000);
+		connection.setRequestMethod(method);
+		if (accept != null) {
+			connection.setRequestProperty("Accept", accept);
+		}
+		if (header != null) {
+			connection.setRequestProperty(header, "true");
+		}
+		assertThat(connection.getResponseCode(), is(200));
+		return read(connection.getInputStream());
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.io.netty.config.ServerOptions;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static reactor.io.netty.http.HttpServerCompressionTests.read;
+
+/**
+ * @author Stephane Maldini
+ */
+public class HttpServerWarmupTests {
+
+	final AtomicInteger invocations = new AtomicInteger();
+
+	HttpServer server;
+
+	@After
+	public void teardown() throws Exception {
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void warmupRequestsAreRouted() throws IOException, InterruptedException {
+		server = HttpServer.create(ServerOptions.on(0)
+		                                        .warmup(3)
+		                                        .warmupRequest("GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"));
+		server.get("/hello", channel -> {
+			invocations.incrementAndGet();
+			return channel.sendString(Flux.just("hello"));
+		});
+		server.start()
+		      .get();
+
+		assertThat(invocations.get(), is(3));
+		assertThat(server.getWarmupTime(), greaterThanOrEqualTo(0L));
+
+		InetSocketAddress address = server.getListenAddress();
+		HttpURLConnection connection =
+				(HttpURLConnection) new URL("http://localhost:" + address.getPort() + "/hello").openConnection();
+		connection.setReadTimeout(5000);
+		assertThat(connection.getResponseCode(), is(200));
+		assertThat(read(connection.getInputStream()), is("hello"));
+		assertThat(invocations.get(), is(4));
+	}
+}
@@ -28,6 +28,7 @@ import org.junit.Before;
 import org.junit.Test;
 import reactor.core.publisher.Flux;
 import reactor.io.ipc.ChannelHandler;
+import reactor.io.netty.config.ServerOptions;
 
 /**
  * @author tjreactive
@@ -43,7 +44,9 @@ public class PostAndGetTests {
 	}
 
 	private void setupServer() throws InterruptedException {
-		httpServer = HttpServer.create(0);
+		// the requests ask for keep-alive and read until the idle connection is closed
+		httpServer = HttpServer.create(ServerOptions.on(0)
+		                                            .keepAliveTimeout(100));
 		httpServer.get("/get/{name}", getHandler());
 		httpServer.post("/post", postHandler());
 		httpServer.start().get();
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import reactor.core.publisher.Mono;
+import reactor.io.ipc.ChannelHandler;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class RouterHttpMappingsTests {
+
+	final HttpMappings mappings = HttpMappings.newRouter();
+	final List<String> selected = new ArrayList<>();
+
+	@Test
+	public void literalRoutesAreSelectedByMethodAndPath() {
+		mappings.add(new HttpMappings.HttpPredicate("/users", null, HttpMethod.GET), handler("list"));
+		mappings.add(new HttpMappings.HttpPredicate("/users", null, HttpMethod.POST), handler("create"));
+		mappings.add(new HttpMappings.HttpPredicate("/user", null, HttpMethod.GET), handler("user"));
+
+		assertThat(select(HttpMethod.GET, "/users?page=2"), contains("list"));
+		assertThat(select(HttpMethod.POST, "/users"), contains("create"));
+		assertThat(select(HttpMethod.GET, "/user"), contains("user"));
+		assertThat(select(HttpMethod.GET, "/use"), empty());
+		assertThat(select(HttpMethod.DELETE, "/users"), empty());
+	}
+
+	@Test
+	public void pathVariablesAreResolvedAsParams() {
+		mappings.add(new HttpMappings.HttpPredicate("/users/{id}/posts/{post}", null, HttpMethod.GET),
+				channel -> {
+					selected.add(channel.param("id") + ":" + channel.param("post"));
+					return Mono.empty();
+				});
+
+		assertThat(select(HttpMethod.GET, "/users/42/posts/7"), contains("42:7"));
+		assertThat(select(HttpMethod.GET, "/users/42/posts/"), empty());
+		assertThat(select(HttpMethod.GET, "/users/42/posts/7/comments"), empty());
+	}
+
+	@Test
+	public void allMatchingRoutesAreSelectedInRegistrationOrder() {
+		mappings.add(HttpMappings.prefix("/static/"), handler("prefix"));
+		mappings.add(new HttpMappings.HttpPredicate("/static/*", null, null), handler("any"));
+		mappings.add(channel -> channel.uri()
+		                               .endsWith(".css"), handler("predicate"));
+		mappings.add(new HttpMappings.HttpPredicate("/static/app.css", null, HttpMethod.GET), handler("literal"));
+
+		assertThat(select(HttpMethod.GET, "/static/app.css"), contains("prefix", "any", "predicate", "literal"));
+		assertThat(select(HttpMethod.GET, "/static/js/app.js"), contains("prefix"));
+		assertThat(select(HttpMethod.POST, "/static/app.css"), contains("any", "predicate"));
+	}
+
+	@Test
+	public void literalAndVariableSegmentsCoexist() {
+		mappings.add(new HttpMappings.HttpPredicate("/items/new", null, HttpMethod.GET), handler("new"));
+		mappings.add(new HttpMappings.HttpPredicate("/items/{id}", null, HttpMethod.GET), handler("item"));
+		mappings.add(new HttpMappings.HttpPredicate("/items/news", null, HttpMethod.GET), handler("news"));
+
+		assertThat(select(HttpMethod.GET, "/items/new"), contains("new", "item"));
+		assertThat(select(HttpMethod.GET, "/items/news"), contains("item", "news"));
+		assertThat(select(HttpMethod.GET, "/items/3"), contains("item"));
+	}
+
+	@Test
+	public void protocolIsMatched() {
+		mappings.add(new HttpMappings.HttpPredicate("/", HttpVersion.HTTP_1_0, null), handler("http10"));
+
+		assertThat(select(HttpMethod.GET, "/"), empty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void partialSegmentVariablesAreRejected() {
+		mappings.add(new HttpMappings.HttpPredicate("/files/{name}.json", null, HttpMethod.GET), handler("file"));
+	}
+
+	@Test
+	public void routesAddedAfterSelectionAreSelected() {
+		mappings.add(new HttpMappings.HttpPredicate("/a", null, HttpMethod.GET), handler("a"));
+		assertThat(select(HttpMethod.GET, "/b"), empty());
+
+		mappings.add(new HttpMappings.HttpPredicate("/b", null, HttpMethod.GET), handler("b"));
+		assertThat(select(HttpMethod.GET, "/b"), contains("b"));
+		assertThat(select(HttpMethod.GET, "/a").size(), is(1));
+	}
+
+	ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler(String name) {
+		return channel -> {
+			selected.add(name);
+			return Mono.empty();
+		};
+	}
+
+	List<String> select(HttpMethod method, String uri) {
+		selected.clear();
+		HttpChannel channel = channel(method, uri);
+		for (ChannelHandler<ByteBuf, ByteBuf, HttpChannel> handler : mappings.apply(channel)) {
+			handler.apply(channel);
+		}
+		return new ArrayList<>(selected);
+	}
+
+	static HttpChannel channel(HttpMethod method, String uri) {
+		return new NettyHttpChannel(null, new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri)) {
+			@Override
+			protected void doSubscribeHeaders(Subscriber<? super Void> s) {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
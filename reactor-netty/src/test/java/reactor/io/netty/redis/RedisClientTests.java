@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.redis;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.io.codec.resp.Resp;
+import reactor.io.codec.resp.RespCodec;
+import reactor.io.netty.common.NettyCodec;
+import reactor.io.netty.config.ClientOptions;
+import reactor.io.netty.config.ServerOptions;
+import reactor.io.netty.tcp.TcpServer;
+import reactor.io.netty.util.SocketUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Stephane Maldini
+ * @since 2.5
+ */
+public class RedisClientTests {
+
+	final Map<String, byte[]> store    = new ConcurrentHashMap<>();
+	final AtomicLong          commands = new AtomicLong();
+
+	TcpServer   server;
+	RedisClient client;
+
+	@Before
+	public void setup() throws InterruptedException {
+		int port = SocketUtils.findAvailableTcpPort();
+		server = TcpServer.create(ServerOptions.on("localhost", port));
+		server.start(ch -> ch.send(ch.receive(NettyCodec.from(new RespCodec()))
+		                             .map(this::reply), NettyCodec.from(new RespCodec())))
+		      .get(Duration.ofSeconds(5));
+
+		client = RedisClient.create(ClientOptions.to("localhost", port), 2);
+		client.startAndAwait();
+	}
+
+	@After
+	public void teardown() throws InterruptedException {
+		client.shutdown();
+		server.shutdown();
+	}
+
+	@Test
+	public void concurrentCommandsAreMatchedInOrder() throws Exception {
+		int n = 1000;
+		Mono<?>[] sets = new Mono<?>[n];
+		for (int i = 0; i < n; i++) {
+			sets[i] = client.execute("SET", "key" + i, i);
+		}
+		for (Mono<?> set : sets) {
+			assertEquals(Resp.simple("OK"), set.get(Duration.ofSeconds(5)));
+		}
+
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		@SuppressWarnings("unchecked")
+		Mono<Resp>[] gets = new Mono[n];
+		CountDownLatch sent = new CountDownLatch(n);
+		for (int i = 0; i < n; i++) {
+			int key = i;
+			threads.submit(() -> {
+				gets[key] = client.execute("GET", "key" + key);
+				sent.countDown();
+			});
+		}
+		assertTrue(sent.await(5, TimeUnit.SECONDS));
+		threads.shutdown();
+
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, gets[i].get(Duration.ofSeconds(5))
+			                       .asLong());
+		}
+		assertEquals(2L * n, commands.get());
+		assertEquals(0, client.pending());
+	}
+
+	@Test
+	public void errorRepliesAreSignalled() throws InterruptedException {
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		CountDownLatch latch = new CountDownLatch(1);
+
+		client.execute("UNKNOWN", "arg")
+		      .subscribe(r -> latch.countDown(), e -> {
+			      error.set(e);
+			      latch.countDown();
+		      });
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(error.get() instanceof RedisException);
+		assertEquals("ERR unknown command 'UNKNOWN'", error.get()
+		                                                  .getMessage());
+
+		// the connection is still usable
+		assertEquals(Resp.simple("PONG"), client.execute("PING")
+		                                        .get(Duration.ofSeconds(5)));
+	}
+
+	Resp reply(Resp command) {
+		commands.incrementAndGet();
+		String name = command.get(0)
+		                     .asString();
+		switch (name) {
+			case "PING":
+				return Resp.simple("PONG");
+			case "SET":
+				store.put(command.get(1)
+				                 .asString(), command.get(2)
+				                                     .asBytes());
+				return Resp.simple("OK");
+			case "GET":
+				return Resp.bulk(store.get(command.get(1)
+				                                  .asString()));
+			default:
+				return Resp.error("ERR unknown command '" + name + "'");
+		}
+	}
+}
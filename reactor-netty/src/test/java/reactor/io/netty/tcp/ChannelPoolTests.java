@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011-2016 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.io.netty.tcp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.io.netty.config.PoolOptions;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Stephane Maldini
+ */
+public class ChannelPoolTests {
+
+	final AtomicInteger accepted = new AtomicInteger();
+
+	TcpServer   server;
+	TcpClient   client;
+	ChannelPool pool;
+
+	@Before
+	public void setup() throws InterruptedException {
+		server = TcpServer.create(0);
+		server.start(channel -> {
+			accepted.incrementAndGet();
+			return Flux.never();
+		})
+		      .get();
+		client = TcpClient.create("localhost", server.getListenAddress()
+		                                             .getPort());
+	}
+
+	@After
+	public void teardown() throws Exception {
+		if (pool != null) {
+			pool.shutdown()
+			    .get();
+		}
+		client.shutdown()
+		      .get();
+		server.shutdown()
+		      .get();
+	}
+
+	@Test
+	public void warmupOpensMinConnections() throws Exception {
+		pool = client.pool(PoolOptions.fixed(2));
+		pool.warmup()
+		    .get();
+
+		assertThat(pool.connections(), is(2));
+		assertThat(pool.idleConnections(), is(2));
+	}
+
+	@Test
+	public void connectionIsReusedAcrossLeases() throws Exception {
+		pool = client.pool(PoolOptions.elastic(1));
+
+		for (int i = 0; i < 3; i++) {
+			pool.lease(channel -> channel.sendString(Mono.just("hello\n")))
+			    .get();
+		}
+
+		assertThat(pool.connections(), is(1));
+		assertThat(accepted.get(), is(1));
+	}
+
+	@Test
+	public void pendingLeasesWaitForARelease() throws Exception {
+		pool = client.pool(PoolOptions.elastic(1));
+
+		Flux.merge(pool.lease(channel -> channel.sendString(Mono.just("a\n"))),
+				pool.lease(channel -> channel.sendString(Mono.just("b\n"))),
+				pool.lease(channel -> channel.sendString(Mono.just("c\n"))))
+		    .toList()
+		    .get();
+
+		assertThat(pool.connections(), is(1));
+		assertThat(accepted.get(), is(1));
+	}
+}
@@ -399,6 +399,58 @@ public class TcpServerTests {
 		Thread.sleep(1000000);
 	}
 
+	@Test
+	public void tcpServerWarmsUpBeforeBinding() throws InterruptedException {
+		final int port = SocketUtils.findAvailableTcpPort();
+		final AtomicLong tasks = new AtomicLong();
+		final AtomicLong warmupLines = new AtomicLong();
+		final AtomicLong serverLines = new AtomicLong();
+
+		final TcpServer server = TcpServer.create(ServerOptions.on("localhost", port)
+		                                                       .warmup(20)
+		                                                       .warmupRequest("ping\n")
+		                                                       .warmupTask(tasks::incrementAndGet)
+		                                                       .warmupHandler(channel -> channel.receiveString()
+		                                                                                        .doOnNext(s -> warmupLines.incrementAndGet())
+		                                                                                        .take(1)
+		                                                                                        .flatMap(s -> channel.sendString(Mono.just("pong\n")))));
+
+		server.start(channel -> channel.receiveString()
+		                               .doOnNext(s -> serverLines.incrementAndGet())
+		                               .take(1)
+		                               .flatMap(s -> channel.sendString(Mono.just("pong\n"))))
+		      .get();
+
+		assertTrue("Warm-up tasks ran", tasks.get() == 20);
+		assertTrue("Warm-up connections reached the warm-up handler", warmupLines.get() == 20);
+		assertTrue("Warm-up connections did not reach the server handler", serverLines.get() == 0);
+		assertTrue("Warm-up time is reported", server.getWarmupTime() >= 0L);
+		assertTrue("Server listens on the configured port", server.getListenAddress()
+		                                                          .getPort() == port);
+
+		server.shutdown();
+	}
+
+	@Test
+	public void tcpServerWarmsUpThroughItsHandler() throws InterruptedException {
+		final int port = SocketUtils.findAvailableTcpPort();
+		final AtomicLong serverLines = new AtomicLong();
+
+		final TcpServer server = TcpServer.create(ServerOptions.on("localhost", port)
+		                                                       .warmup(5)
+		                                                       .warmupRequest("ping\n"));
+
+		server.start(channel -> channel.receiveString()
+		                               .doOnNext(s -> serverLines.incrementAndGet())
+		                               .take(1)
+		                               .flatMap(s -> channel.sendString(Mono.just("pong\n"))))
+		      .get();
+
+		assertTrue("Warm-up connections reached the server handler", serverLines.get() == 5);
+
+		server.shutdown();
+	}
+
 
 	public static class Pojo {
 		private String name;